@@ -27,12 +27,19 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantManager;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.math.NeuralNetwork;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.score.PartwiseBuilder;
+import org.audiveris.omr.sheet.Book;
 import org.audiveris.omr.sheet.BookManager;
+import org.audiveris.omr.sheet.PlayList;
+import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.Versions;
 import org.audiveris.omr.text.tesseract.TesseractOCR;
 import org.audiveris.omr.ui.MainGui;
 import org.audiveris.omr.ui.symbol.MusicFont;
 import org.audiveris.omr.ui.util.UIUtil;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.OmrExecutors;
 
 import org.jdesktop.application.Application;
@@ -139,6 +146,17 @@ public class Main
         // Initialize tool parameters
         initialize();
 
+        // Launch background building of JAXB contexts, which are costly to build
+        if (constants.preloadJaxbContexts.isSet()) {
+            JaxbContexts.preload(
+                    Book.class,
+                    Sheet.class,
+                    RunTable.class,
+                    NeuralNetwork.class,
+                    PlayList.class);
+            PartwiseBuilder.preload(); // For ProxyMusic context
+        }
+
         // Engine
         OMR.engine = BookManager.getInstance();
 
@@ -452,5 +470,9 @@ public class Main
                 "Seconds",
                 120,
                 "Time-out for one step on a sheet, specified in seconds");
+
+        private final Constant.Boolean preloadJaxbContexts = new Constant.Boolean(
+                true,
+                "Should we build JAXB contexts in the background at startup?");
     }
 }
@@ -109,10 +109,8 @@ public abstract class AbstractClassifier<M extends Object>
     /** Entry name for standard deviation XML values. */
     public static final String STDS_XML_ENTRY_NAME = "stds.xml";
 
-    /** A special evaluation array, used to report NOISE. */
-    private static final Evaluation[] noiseEvaluations = {new Evaluation(
-        Shape.NOISE,
-        Evaluation.ALGORITHM)};
+    /** All shapes, indexed by ordinal. */
+    private static final Shape[] SHAPES = Shape.values();
 
     //~ Instance fields ----------------------------------------------------------------------------
     /** Features means and standard deviations. */
@@ -124,6 +122,10 @@ public abstract class AbstractClassifier<M extends Object>
     /** The glyph checker for additional specific checks. */
     protected ShapeChecker glyphChecker = ShapeChecker.getInstance();
 
+    /** Memory of sorted evaluations, to be cleared whenever model or norms get modified. */
+    protected final EvaluationCache evaluationCache = new EvaluationCache(
+            constants.evaluationCacheSize.getValue());
+
     //~ Methods ------------------------------------------------------------------------------------
     //----------//
     // evaluate //
@@ -153,6 +155,27 @@ public abstract class AbstractClassifier<M extends Object>
         return evaluate(glyph, null, count, minGrade, conditions, interline);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    @Override
+    public Evaluation[][] evaluate (List<Glyph> glyphs,
+                                    SystemInfo system,
+                                    int count,
+                                    double minGrade,
+                                    EnumSet<Condition> conditions)
+    {
+        final int interline = system.getSheet().getInterline();
+        final double[][] grades = getGrades(glyphs, interline);
+        final Evaluation[][] results = new Evaluation[glyphs.size()][];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = select(glyphs.get(i), system, grades[i], count, minGrade, conditions);
+        }
+
+        return results;
+    }
+
     //---------------//
     // getDescriptor //
     //---------------//
@@ -162,6 +185,28 @@ public abstract class AbstractClassifier<M extends Object>
         return descriptor;
     }
 
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation simply evaluates the glyphs one after the other.
+     * Subclasses are expected to override it with a true batch processing.
+     */
+    @Override
+    public Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                 int interline)
+    {
+        final Evaluation[][] results = new Evaluation[glyphs.size()][];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = getNaturalEvaluations(glyphs.get(i), interline);
+        }
+
+        return results;
+    }
+
     //---------------//
     // getRawDataSet //
     //---------------//
@@ -178,12 +223,13 @@ public abstract class AbstractClassifier<M extends Object>
 
         final double[][] inputs = new double[samples.size()][];
         final double[][] desiredOutputs = new double[samples.size()][];
+        final SampleRepository repository = getSampleRepository();
         int ig = 0;
 
         watch.start("browse samples");
 
         for (Sample sample : samples) {
-            double[] ins = descriptor.getFeatures(sample, sample.getInterline());
+            double[] ins = getRawFeatures(sample, repository);
             inputs[ig] = ins;
 
             double[] des = new double[SHAPE_COUNT];
@@ -209,6 +255,40 @@ public abstract class AbstractClassifier<M extends Object>
         return new DataSet(features, labels, null, null);
     }
 
+    //----------------//
+    // getRawFeatures //
+    //----------------//
+    /**
+     * Report the raw (non normalized) features of a sample.
+     *
+     * @param sample     the sample to describe
+     * @param repository the repository that may already know sample features, or null
+     * @return a fresh array of raw features
+     */
+    protected double[] getRawFeatures (Sample sample,
+                                       SampleRepository repository)
+    {
+        if (repository != null) {
+            return repository.getFeatures(sample, descriptor);
+        }
+
+        return descriptor.getFeatures(sample, sample.getInterline());
+    }
+
+    //---------------------//
+    // getSampleRepository //
+    //---------------------//
+    /**
+     * Report the global sample repository, if already allocated, to benefit from its
+     * stored features.
+     *
+     * @return the global repository, or null
+     */
+    protected SampleRepository getSampleRepository ()
+    {
+        return SampleRepository.hasInstance() ? SampleRepository.getGlobalInstance(false) : null;
+    }
+
     //-------------//
     // isBigEnough //
     //-------------//
@@ -228,29 +308,134 @@ public abstract class AbstractClassifier<M extends Object>
         return weight >= constants.minWeight.getValue();
     }
 
-    //----------------------//
-    // getSortedEvaluations //
-    //----------------------//
+    //-----------//
+    // getGrades //
+    //-----------//
     /**
-     * Run the classifier with the specified glyph, and return a sequence of all
-     * interpretations (ordered from best to worst) with no additional check.
+     * Run the classifier with the specified glyph, and return the raw grade of every shape,
+     * with no additional check.
+     * <p>
+     * Grades already known for the same pixels and interline are taken from the cache.
      *
      * @param glyph     the glyph to be examined
      * @param interline the global sheet interline
-     * @return the ordered best evaluations
+     * @return the (read-only) grades indexed by shape ordinal, or null if glyph is just noise
      */
-    protected Evaluation[] getSortedEvaluations (Glyph glyph,
-                                                 int interline)
+    protected double[] getGrades (Glyph glyph,
+                                  int interline)
     {
         // If too small, it's just NOISE
         if (!isBigEnough(glyph, interline)) {
-            return noiseEvaluations;
-        } else {
-            Evaluation[] evals = getNaturalEvaluations(glyph, interline);
-            Arrays.sort(evals, Evaluation.byReverseGrade); // Order the evals from best to worst
+            return null;
+        }
 
-            return evals;
+        double[] grades = evaluationCache.get(glyph.getRunTable(), interline);
+
+        if (grades == null) {
+            grades = getNaturalGrades(glyph, interline);
+            evaluationCache.put(glyph.getRunTable(), interline, grades);
         }
+
+        return grades;
+    }
+
+    //-----------//
+    // getGrades //
+    //-----------//
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph the raw grade of
+     * every shape, with no additional check.
+     * <p>
+     * Only the glyphs not found in the evaluation cache are actually submitted to the classifier.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the global sheet interline
+     * @return for each glyph, in the same order, its (read-only) grades indexed by shape ordinal,
+     *         or null if glyph is just noise
+     */
+    protected double[][] getGrades (List<Glyph> glyphs,
+                                    int interline)
+    {
+        final double[][] results = new double[glyphs.size()][];
+        final List<Glyph> bigs = new ArrayList<>(glyphs.size());
+        final List<Integer> indices = new ArrayList<>(glyphs.size());
+
+        for (int i = 0; i < results.length; i++) {
+            final Glyph glyph = glyphs.get(i);
+
+            // If too small, it's just NOISE
+            if (isBigEnough(glyph, interline)) {
+                results[i] = evaluationCache.get(glyph.getRunTable(), interline);
+
+                if (results[i] == null) {
+                    bigs.add(glyph);
+                    indices.add(i);
+                }
+            }
+        }
+
+        if (!bigs.isEmpty()) {
+            final double[][] naturals = getNaturalGrades(bigs, interline);
+
+            for (int k = 0; k < naturals.length; k++) {
+                results[indices.get(k)] = naturals[k];
+                evaluationCache.put(bigs.get(k).getRunTable(), interline, naturals[k]);
+            }
+        }
+
+        logger.debug("{} {}", getName(), evaluationCache);
+
+        return results;
+    }
+
+    //------------------//
+    // getNaturalGrades //
+    //------------------//
+    /**
+     * Run the classifier with the specified glyph, and return the raw grade of every shape.
+     * <p>
+     * This default implementation extracts grades from natural evaluations.
+     * Subclasses are expected to override it with a direct access to classifier outputs.
+     *
+     * @param glyph     the glyph to be examined
+     * @param interline the global sheet interline
+     * @return the grades indexed by shape ordinal
+     */
+    protected double[] getNaturalGrades (Glyph glyph,
+                                         int interline)
+    {
+        final double[] grades = new double[SHAPE_COUNT];
+
+        for (Evaluation eval : getNaturalEvaluations(glyph, interline)) {
+            grades[eval.shape.ordinal()] = eval.grade;
+        }
+
+        return grades;
+    }
+
+    //------------------//
+    // getNaturalGrades //
+    //------------------//
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph the raw grade of
+     * every shape.
+     * <p>
+     * This default implementation simply processes the glyphs one after the other.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the global sheet interline
+     * @return for each glyph, in the same order, its grades indexed by shape ordinal
+     */
+    protected double[][] getNaturalGrades (List<Glyph> glyphs,
+                                           int interline)
+    {
+        final double[][] results = new double[glyphs.size()][];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = getNaturalGrades(glyphs.get(i), interline);
+        }
+
+        return results;
     }
 
     //--------------//
@@ -432,6 +617,26 @@ public abstract class AbstractClassifier<M extends Object>
         throw new IllegalStateException("Norms were not found");
     }
 
+    //---------------//
+    // toEvaluations //
+    //---------------//
+    /**
+     * Build the evaluations that correspond to the provided grades.
+     *
+     * @param grades the grades indexed by shape ordinal
+     * @return one evaluation per shape, in shape order
+     */
+    protected static Evaluation[] toEvaluations (double[] grades)
+    {
+        final Evaluation[] evals = new Evaluation[grades.length];
+
+        for (int s = 0; s < grades.length; s++) {
+            evals[s] = new Evaluation(SHAPES[s], grades[s]);
+        }
+
+        return evals;
+    }
+
     //-------//
     // store //
     //-------//
@@ -500,18 +705,78 @@ public abstract class AbstractClassifier<M extends Object>
                                    EnumSet<Classifier.Condition> conditions,
                                    int interline)
     {
-        List<Evaluation> bests = new ArrayList<>();
-        Evaluation[] evals = getSortedEvaluations(glyph, interline);
+        return select(glyph, system, getGrades(glyph, interline), count, minGrade, conditions);
+    }
+
+    //--------//
+    // select //
+    //--------//
+    /**
+     * Select the best acceptable evaluations out of the raw grades.
+     * <p>
+     * Rather than sorting all shapes, the best remaining grade is picked one after the other,
+     * so that only the returned evaluations (and the ones discarded by checks) get allocated.
+     * Checks, if any, are thus applied lazily in decreasing grade order.
+     *
+     * @param glyph      the evaluated glyph
+     * @param system     the containing system, if any
+     * @param grades     glyph grades indexed by shape ordinal, or null for noise
+     * @param count      the desired maximum sequence length
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the selected evaluations, perhaps empty
+     */
+    private Evaluation[] select (Glyph glyph,
+                                 SystemInfo system,
+                                 double[] grades,
+                                 int count,
+                                 double minGrade,
+                                 EnumSet<Classifier.Condition> conditions)
+    {
+        final boolean checked = (conditions != null) && conditions.contains(Condition.CHECKED);
+        final List<Evaluation> bests = new ArrayList<>(Math.min(count, 4));
+
+        if (grades == null) {
+            // Too small, it's just NOISE
+            final Evaluation eval = new Evaluation(Shape.NOISE, Evaluation.ALGORITHM);
+
+            if ((count > 0) && (eval.grade >= minGrade)) {
+                if (checked) {
+                    glyphChecker.annotate(system, eval, glyph);
+                }
+
+                if (!checked || (eval.failure == null)) {
+                    bests.add(eval);
+                }
+            }
+
+            return bests.toArray(new Evaluation[bests.size()]);
+        }
+
+        final boolean[] picked = new boolean[grades.length];
 
         EvalsLoop:
-        for (Evaluation eval : evals) {
+        while (bests.size() < count) {
+            // Pick the best remaining grade (lowest shape ordinal in case of tie)
+            int best = -1;
+
+            for (int s = 0; s < grades.length; s++) {
+                if (!picked[s] && ((best == -1) || (grades[s] > grades[best]))) {
+                    best = s;
+                }
+            }
+
             // Bounding test?
-            if ((bests.size() >= count) || (eval.grade < minGrade)) {
+            if ((best == -1) || (grades[best] < minGrade)) {
                 break;
             }
 
+            picked[best] = true;
+
+            final Evaluation eval = new Evaluation(SHAPES[best], grades[best]);
+
             // Successful checks?
-            if ((conditions != null) && conditions.contains(Condition.CHECKED)) {
+            if (checked) {
                 // This may change the eval shape in only one case:
                 // HW_REST_set may be changed for HALF_REST or WHOLE_REST based on pitch
                 glyphChecker.annotate(system, eval, glyph);
@@ -579,5 +844,10 @@ public abstract class AbstractClassifier<M extends Object>
         private final Scale.AreaFraction minWeight = new Scale.AreaFraction(
                 0.04,
                 "Minimum normalized weight to be considered not a noise");
+
+        private final Constant.Integer evaluationCacheSize = new Constant.Integer(
+                "Glyphs",
+                20000,
+                "Maximum number of glyphs in evaluation cache (0 for no cache)");
     }
 }
@@ -24,13 +24,12 @@ package org.audiveris.omr.classifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
-import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.math.NeuralNetwork;
-import org.audiveris.omr.math.PoorManAlgebra.DataSet;
 import org.audiveris.omr.math.PoorManAlgebra.INDArray;
 import org.audiveris.omr.math.PoorManAlgebra.Nd4j;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.StopWatch;
 
 //import org.nd4j.linalg.api.ndarray.INDArray;
@@ -158,25 +157,30 @@ public class BasicClassifier
     public Evaluation[] getNaturalEvaluations (Glyph glyph,
                                                int interline)
     {
-        double[] ins = descriptor.getFeatures(glyph, interline);
-        final INDArray features = Nd4j.create(ins);
-        normalize(features);
-
-        Shape[] values = Shape.values();
-        Evaluation[] evals = new Evaluation[SHAPE_COUNT];
-
-        for (int i = 0; i < ins.length; i++) {
-            ins[i] = features.getDouble(i);
-        }
+        return toEvaluations(getNaturalGrades(glyph, interline));
+    }
 
-        double[] outs = new double[SHAPE_COUNT];
-        model.run(ins, null, outs);
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All glyphs features are gathered into one matrix, which is then run through the network
+     * layer by layer.
+     */
+    @Override
+    public Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                 int interline)
+    {
+        final double[][] grades = getNaturalGrades(glyphs, interline);
+        final Evaluation[][] results = new Evaluation[grades.length][];
 
-        for (int s = 0; s < SHAPE_COUNT; s++) {
-            evals[s] = new Evaluation(values[s], outs[s]);
+        for (int ig = 0; ig < grades.length; ig++) {
+            results[ig] = toEvaluations(grades[ig]);
         }
 
-        return evals;
+        return results;
     }
 
     //-------//
@@ -186,6 +190,7 @@ public class BasicClassifier
     public void reset ()
     {
         model = createNetwork();
+        evaluationCache.clear();
     }
 
     //------//
@@ -200,9 +205,19 @@ public class BasicClassifier
     //-------//
     // train //
     //-------//
-    @SuppressWarnings("unchecked")
     @Override
     public void train (Collection<Sample> samples)
+    {
+        train(samples, null);
+    }
+
+    //-------//
+    // train //
+    //-------//
+    @SuppressWarnings("unchecked")
+    @Override
+    public void train (Collection<Sample> samples,
+                       Collection<Sample> tests)
     {
         logger.info("Training on {} samples", samples.size());
 
@@ -213,54 +228,58 @@ public class BasicClassifier
         }
 
         StopWatch watch = new StopWatch("train");
-        watch.start("shuffle");
+        final SampleRepository repository = getSampleRepository();
+        final List<Sample> newSamples;
+
+        // Collapse near-duplicates, or replicate deduplicated samples
+        if (constants.collapseDuplicates.isSet()) {
+            watch.start("collapse");
+            newSamples = collapse(samples, repository);
+        } else {
+            newSamples = replicate(samples);
+        }
 
         // Shuffle the collection of samples
-        final List<Sample> newSamples = new ArrayList<>(samples);
+        watch.start("shuffle");
         Collections.shuffle(newSamples);
 
-        // Build raw dataset
-        watch.start("getRawDataSet");
+        // Build raw patterns
+        watch.start("build input & desiredOutputs");
 
-        final DataSet dataSet = getRawDataSet(newSamples);
-        final INDArray features = dataSet.getFeatures();
+        final double[][] inputs = new double[newSamples.size()][];
+        final double[][] desiredOutputs = new double[newSamples.size()][];
+        buildPatterns(newSamples, repository, inputs, desiredOutputs);
 
         // Record mean and standard deviation for every feature
         watch.start("norms");
+
+        final INDArray features = Nd4j.create(inputs);
         norms = new Norms(features.mean(0), features.std(0));
         norms.stds.addi(Nd4j.scalar(Nd4j.EPS_THRESHOLD)); // Safer, to avoid later division by 0
         logger.debug("means:{}", norms.means);
         logger.debug("stds:{}", norms.stds);
         watch.start("normalize");
-        normalize(features);
-
-        // Convert features for NeuralNetwork data format
-        int rows = features.rows();
-        int cols = features.columns();
-        logger.info("samples: {}", rows);
-        logger.info("features: {}", cols);
-
-        INDArray labels = dataSet.getLabels();
-        double[][] inputs = new double[newSamples.size()][];
-        double[][] desiredOutputs = new double[newSamples.size()][];
-        watch.start("build input & desiredOutputs");
-
-        for (int ig = 0; ig < rows; ig++) {
-            INDArray featureRow = features.getRow(ig);
-            double[] ins = new double[cols];
-            inputs[ig] = ins;
-
-            for (int j = 0; j < cols; j++) {
-                ins[j] = featureRow.getDouble(j);
-            }
-
-            INDArray labelRow = labels.getRow(ig);
-            double[] des = new double[SHAPE_COUNT];
-            desiredOutputs[ig] = des;
+        normalize(inputs);
+        logger.info("samples: {}", inputs.length);
+        logger.info("features: {}", features.columns());
+
+        final int batchSize = constants.miniBatchSize.getValue();
+        final int patience = constants.earlyStopPatience.getValue();
+        double[][] testInputs = null;
+        double[][] testOutputs = null;
+
+        if ((patience > 0) && (tests != null) && !tests.isEmpty()) {
+            watch.start("build test patterns");
+            testInputs = new double[tests.size()][];
+            testOutputs = new double[tests.size()][];
+            buildPatterns(tests, repository, testInputs, testOutputs);
+            normalize(testInputs);
+        }
 
-            for (int j = 0; j < SHAPE_COUNT; j++) {
-                des[j] = labelRow.getDouble(j);
-            }
+        // Keep computed features for next training
+        if (repository != null) {
+            watch.start("storeFeatures");
+            repository.storeFeatures();
         }
 
         if (constants.printWatch.isSet()) {
@@ -268,12 +287,87 @@ public class BasicClassifier
         }
 
         // Train
-        model.train(inputs, desiredOutputs, listener, listener.getIterationPeriod());
+        if (batchSize > 1) {
+            model.train(
+                    inputs,
+                    desiredOutputs,
+                    testInputs,
+                    testOutputs,
+                    batchSize,
+                    constants.miniBatchLearningRate.getValue(),
+                    patience,
+                    listener,
+                    listener.getIterationPeriod());
+        } else {
+            model.train(
+                    inputs,
+                    desiredOutputs,
+                    testInputs,
+                    testOutputs,
+                    patience,
+                    listener,
+                    listener.getIterationPeriod());
+        }
+
+        // Previous evaluations are now obsolete
+        evaluationCache.clear();
 
         // Store
         store(FILE_NAME);
     }
 
+    //------------------//
+    // getNaturalGrades //
+    //------------------//
+    @Override
+    protected double[] getNaturalGrades (Glyph glyph,
+                                         int interline)
+    {
+        double[] ins = descriptor.getFeatures(glyph, interline);
+        final INDArray features = Nd4j.create(ins);
+        normalize(features);
+
+        for (int i = 0; i < ins.length; i++) {
+            ins[i] = features.getDouble(i);
+        }
+
+        double[] outs = new double[SHAPE_COUNT];
+
+        if (constants.useCompiledNetwork.isSet()) {
+            model.getCompiled().run(ins, outs);
+        } else {
+            model.run(ins, null, outs);
+        }
+
+        return outs;
+    }
+
+    //------------------//
+    // getNaturalGrades //
+    //------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All glyphs features are gathered into one matrix, which is then run through the network
+     * layer by layer.
+     */
+    @Override
+    protected double[][] getNaturalGrades (List<Glyph> glyphs,
+                                           int interline)
+    {
+        final int count = glyphs.size();
+        final double[][] inputs = new double[count][];
+
+        for (int ig = 0; ig < count; ig++) {
+            inputs[ig] = descriptor.getFeatures(glyphs.get(ig), interline);
+        }
+
+        normalize(inputs);
+
+        return constants.useCompiledNetwork.isSet() ? model.getCompiled().run(inputs)
+                : model.run(inputs);
+    }
+
     //--------------//
     // isCompatible //
     //--------------//
@@ -334,7 +428,7 @@ public class BasicClassifier
     protected Norms loadNorms (Path root)
             throws Exception
     {
-        final JAXBContext jaxbContext = JAXBContext.newInstance(MyVector.class);
+        final JAXBContext jaxbContext = JaxbContexts.get(MyVector.class);
         final Unmarshaller um = jaxbContext.createUnmarshaller();
 
         INDArray means = null;
@@ -403,7 +497,7 @@ public class BasicClassifier
     protected void storeNorms (Path root)
             throws Exception
     {
-        final JAXBContext jaxbContext = JAXBContext.newInstance(MyVector.class);
+        final JAXBContext jaxbContext = JaxbContexts.get(MyVector.class);
         final Path means = root.resolve(MEANS_XML_ENTRY_NAME);
         final Path stds = root.resolve(STDS_XML_ENTRY_NAME);
 
@@ -441,6 +535,72 @@ public class BasicClassifier
                 getMaxEpochs());
     }
 
+    //---------------//
+    // buildPatterns //
+    //---------------//
+    /**
+     * Build the raw input patterns and desired outputs for the provided samples.
+     *
+     * @param samples        the samples to convert
+     * @param repository     the repository that may know samples features, or null
+     * @param inputs         (output) raw features, one row per sample
+     * @param desiredOutputs (output) desired outputs, one row per sample
+     */
+    private void buildPatterns (Collection<Sample> samples,
+                                SampleRepository repository,
+                                double[][] inputs,
+                                double[][] desiredOutputs)
+    {
+        int ig = 0;
+
+        for (Sample sample : samples) {
+            inputs[ig] = getRawFeatures(sample, repository);
+
+            final double[] des = new double[SHAPE_COUNT];
+            des[sample.getShape().getPhysicalShape().ordinal()] = 1;
+            desiredOutputs[ig] = des;
+
+            ig++;
+        }
+    }
+
+    //----------//
+    // collapse //
+    //----------//
+    /**
+     * Collapse near-duplicate training samples into their cluster representatives.
+     * <p>
+     * Each representative is used as many times as the number of samples it stands for, but no
+     * more than a small maximum, so that large families of identical glyphs no longer dominate
+     * training time.
+     * <p>
+     * NOTA: Copies made by the training panel to reach the per-shape quorum are identical samples
+     * and thus get collapsed as well, which is why this collapsing is disabled by default.
+     *
+     * @param samples    the training samples
+     * @param repository the repository that may know samples features, or null
+     * @return the list of training samples to use
+     */
+    private List<Sample> collapse (Collection<Sample> samples,
+                                   SampleRepository repository)
+    {
+        final int maxReplicas = constants.maxReplicas.getValue();
+        final SampleClusterer clusterer = new SampleClusterer(s -> getRawFeatures(s, repository));
+        final List<Sample> list = new ArrayList<>();
+
+        for (SampleClusterer.Cluster cluster : clusterer.cluster(samples)) {
+            final int replicas = Math.min(cluster.getMultiplicity(), maxReplicas);
+
+            for (int i = 0; i < replicas; i++) {
+                list.add(cluster.representative);
+            }
+        }
+
+        logger.info("Training samples collapsed from {} to {}", samples.size(), list.size());
+
+        return list;
+    }
+
     //-----------//
     // normalize //
     //-----------//
@@ -455,6 +615,60 @@ public class BasicClassifier
         features.diviRowVector(norms.stds);
     }
 
+    //-----------//
+    // normalize //
+    //-----------//
+    /**
+     * Apply the known norms on the provided (raw) feature vectors.
+     *
+     * @param inputs raw feature vectors, to be normalized in situ
+     */
+    private void normalize (double[][] inputs)
+    {
+        final int cols = norms.means.columns();
+        final double[] means = new double[cols];
+        final double[] stds = new double[cols];
+
+        for (int j = 0; j < cols; j++) {
+            means[j] = norms.means.getDouble(j);
+            stds[j] = norms.stds.getDouble(j);
+        }
+
+        for (double[] ins : inputs) {
+            for (int j = 0; j < cols; j++) {
+                ins[j] -= means[j];
+                ins[j] /= stds[j];
+            }
+        }
+    }
+
+    //-----------//
+    // replicate //
+    //-----------//
+    /**
+     * Replicate each sample as many times as the number of samples it stands for, since a
+     * deduplicated repository keeps only one representative with its multiplicity.
+     *
+     * @param samples the training samples
+     * @return the list of training samples to use
+     */
+    private static List<Sample> replicate (Collection<Sample> samples)
+    {
+        final List<Sample> list = new ArrayList<>(samples.size());
+
+        for (Sample sample : samples) {
+            for (int i = sample.getMultiplicity(); i > 0; i--) {
+                list.add(sample);
+            }
+        }
+
+        if (list.size() > samples.size()) {
+            logger.info("Training samples replicated from {} to {}", samples.size(), list.size());
+        }
+
+        return list;
+    }
+
     //-------------//
     // getInstance //
     //-------------//
@@ -492,6 +706,33 @@ public class BasicClassifier
                 "Maximum number of epochs in training");
 
         private final Constant.Ratio momentum = new Constant.Ratio(0.2, "Training momentum");
+
+        private final Constant.Integer miniBatchSize = new Constant.Integer(
+                "Samples",
+                32,
+                "Number of samples per training mini-batch (1 for per-sample training)");
+
+        private final Constant.Ratio miniBatchLearningRate = new Constant.Ratio(
+                1.0,
+                "Learning Rate for mini-batch training");
+
+        private final Constant.Boolean collapseDuplicates = new Constant.Boolean(
+                false,
+                "Should we collapse near-duplicate samples for training? (undoes quorum copies)");
+
+        private final Constant.Integer maxReplicas = new Constant.Integer(
+                "Samples",
+                3,
+                "Maximum number of training occurrences for a collapsed sample");
+
+        private final Constant.Integer earlyStopPatience = new Constant.Integer(
+                "Epochs",
+                20,
+                "Epochs without test improvement before early stop (0 for none)");
+
+        private final Constant.Boolean useCompiledNetwork = new Constant.Boolean(
+                true,
+                "Should we use the compiled (float) network for evaluations?");
     }
 
     //---------------//
@@ -30,6 +30,7 @@ import org.audiveris.omr.sheet.SystemInfo;
 //
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  * Interface <code>Classifier</code> defines the features of a glyph shape classifier.
@@ -100,6 +101,27 @@ public interface Classifier
                            double minGrade,
                            EnumSet<Condition> conditions);
 
+    /**
+     * Report, for each provided glyph, the sorted sequence of best evaluation(s) found by the
+     * classifier.
+     * <p>
+     * This is equivalent to calling {@link #evaluate(Glyph, SystemInfo, int, double, EnumSet)} on
+     * each glyph in turn, but the glyphs are run through the classifier as a whole batch, which
+     * is much more efficient.
+     *
+     * @param glyphs     the glyphs to evaluate
+     * @param system     the system containing the glyphs to evaluate
+     * @param count      the desired maximum sequence length, min 1 and max SHAPE_COUNT
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return for each glyph, in the same order, its sequence of evaluations, perhaps empty
+     */
+    Evaluation[][] evaluate (List<Glyph> glyphs,
+                             SystemInfo system,
+                             int count,
+                             double minGrade,
+                             EnumSet<Condition> conditions);
+
     /**
      * Report the underlying glyph descriptor
      *
@@ -132,6 +154,17 @@ public interface Classifier
     Evaluation[] getNaturalEvaluations (Glyph glyph,
                                         int interline);
 
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph the natural sequence
+     * of all interpretations (ordered by Shape ordinal) with no additional check.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the relevant scaling interline
+     * @return for each glyph, in the same order, all its shape-ordered evaluations
+     */
+    Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                          int interline);
+
     /**
      * Use a threshold on glyph weight, to tell if the provided glyph is just {@link
      * Shape#NOISE} or a real glyph.
@@ -182,4 +215,14 @@ public interface Classifier
      * @param samples the provided collection of shapes samples
      */
     void train (Collection<Sample> samples);
+
+    /**
+     * Train the network using the provided collection of shape samples, and stop training
+     * early when results on the provided test samples no longer improve.
+     *
+     * @param samples the provided collection of shapes samples
+     * @param tests   the test samples for early stopping, or null
+     */
+    void train (Collection<Sample> samples,
+                Collection<Sample> tests);
 }
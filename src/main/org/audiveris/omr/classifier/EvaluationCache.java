@@ -0,0 +1,286 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 E v a l u a t i o n C a c h e                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class <code>EvaluationCache</code> is a bounded memory of classifier grades, keyed by
+ * glyph pixels and interline value.
+ * <p>
+ * Identical pixel compounds are often evaluated again and again, for example by overlapping
+ * subsets of a glyph cluster, or when the SYMBOLS step is re-run after some user edits.
+ * Since natural grades depend only on the glyph run table and on the interline value,
+ * they can be kept and reused as long as the classifier is not modified.
+ * <p>
+ * Keys retain no run table, only a SHA-256 digest of its content and the interline value, so
+ * that cached entries do not keep glyph pixels alive.
+ * The digest covers orientation, dimension and every run, hence equal digests can be taken as
+ * equal pixels.
+ * <p>
+ * Grades are stored as the raw array, indexed by shape ordinal, which callers must not modify.
+ * <p>
+ * The cache is limited to a maximum number of entries, the least recently used entry being
+ * evicted first.
+ *
+ * @author Hervé Bitteur
+ */
+class EvaluationCache
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Maximum number of entries. */
+    private final int maxSize;
+
+    /** Entries, in access order. */
+    private final LinkedHashMap<Key, double[]> map;
+
+    /** Number of successful lookups. */
+    private long hits;
+
+    /** Number of failed lookups. */
+    private long misses;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>EvaluationCache</code> object.
+     *
+     * @param maxSize maximum number of entries (0 for no caching at all)
+     */
+    EvaluationCache (final int maxSize)
+    {
+        this.maxSize = maxSize;
+
+        map = new LinkedHashMap<Key, double[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Key, double[]> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Forget all entries, typically because the classifier has been modified.
+     */
+    synchronized void clear ()
+    {
+        map.clear();
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report the grades known for the provided pixels and interline.
+     *
+     * @param runTable  glyph pixels
+     * @param interline interline value
+     * @return the (read-only) grades indexed by shape ordinal, or null if unknown
+     */
+    double[] get (RunTable runTable,
+                  int interline)
+    {
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        final Key key = new Key(runTable, interline);
+
+        synchronized (this) {
+            final double[] grades = map.get(key);
+
+            if (grades == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+
+            return grades;
+        }
+    }
+
+    //----------//
+    // digestOf //
+    //----------//
+    /**
+     * Compute the SHA-256 digest of run table content.
+     *
+     * @param runTable glyph pixels
+     * @return the content digest
+     */
+    private static byte[] digestOf (RunTable runTable)
+    {
+        final int size = runTable.getSize();
+        final ByteBuffer buf = ByteBuffer.allocate(
+                Integer.BYTES * (3 + size + (2 * runTable.getTotalRunCount())));
+        buf.putInt(runTable.getOrientation().ordinal());
+        buf.putInt(runTable.getWidth());
+        buf.putInt(runTable.getHeight());
+
+        for (int i = 0; i < size; i++) {
+            buf.putInt(-1); // Sequence separator
+
+            for (Iterator<Run> it = runTable.iterator(i); it.hasNext();) {
+                final Run run = it.next();
+                buf.putInt(run.getStart());
+                buf.putInt(run.getLength());
+            }
+        }
+
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(buf.array());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", ex);
+        }
+    }
+
+    //-------------//
+    // getHitRatio //
+    //-------------//
+    /**
+     * Report the ratio of successful lookups so far.
+     *
+     * @return hits / (hits + misses), or 0 if no lookup was made
+     */
+    synchronized double getHitRatio ()
+    {
+        final long total = hits + misses;
+
+        return (total == 0) ? 0 : (hits / (double) total);
+    }
+
+    //-----//
+    // put //
+    //-----//
+    /**
+     * Record the grades for the provided pixels and interline.
+     *
+     * @param runTable  glyph pixels
+     * @param interline interline value
+     * @param grades    grades indexed by shape ordinal, not to be modified afterwards
+     */
+    void put (RunTable runTable,
+              int interline,
+              double[] grades)
+    {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        final Key key = new Key(runTable, interline);
+
+        synchronized (this) {
+            map.put(key, grades);
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the current number of entries.
+     *
+     * @return number of entries
+     */
+    synchronized int size ()
+    {
+        return map.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        return String.format(
+                "EvaluationCache{size:%d/%d hits:%d misses:%d ratio:%.2f}",
+                map.size(),
+                maxSize,
+                hits,
+                misses,
+                getHitRatio());
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----//
+    // Key //
+    //-----//
+    /**
+     * Glyph signature: pixels digest and interline.
+     */
+    private static class Key
+    {
+
+        final byte[] digest;
+
+        final int interline;
+
+        final int hash;
+
+        Key (RunTable runTable,
+             int interline)
+        {
+            this.digest = digestOf(runTable);
+            this.interline = interline;
+            hash = (31 * Arrays.hashCode(digest)) + interline;
+        }
+
+        @Override
+        public boolean equals (Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) obj;
+
+            return (hash == that.hash) && (interline == that.interline)
+                           && Arrays.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,552 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    F e a t u r e C a c h e                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class <code>FeatureCache</code> keeps the features computed by a given glyph descriptor for
+ * the samples of a repository, and persists them in a binary file next to the samples archive.
+ * <p>
+ * The file contains one block per sample sheet, where features are stored by column (all samples
+ * values for feature 0, then for feature 1, etc).
+ * Each block also records the weight and interline of every sample, so that a block is used
+ * only if the sample sheet still contains the same samples in the same order.
+ * A block is discarded as soon as its sample sheet is modified.
+ * <p>
+ * Each block is memory-mapped when the file is loaded, at a long file offset, so the whole file
+ * may exceed 2 GB.
+ * All mappings are dropped before a store replaces the file, since a mapped file cannot be
+ * replaced on Windows.
+ * <p>
+ * Only the features at hand are stored: a sheet with no known features gets no block, and the
+ * unknown samples of a block have NaN features.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * int      MAGIC
+ * int      descriptor key length, then key UTF-8 bytes
+ * int      featureCount
+ * int      sheetCount
+ * FOREACH sheet:
+ *   int    sheet name length, then name UTF-8 bytes
+ *   int    sampleCount
+ *   int[]  weights     (sampleCount)
+ *   int[]  interlines  (sampleCount)
+ *   double features    (featureCount * sampleCount, column-major, NaN if unknown)
+ * </pre>
+ *
+ * @author Hervé Bitteur
+ */
+class FeatureCache
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureCache.class);
+
+    /** File format identifier, to be changed with any layout modification. */
+    private static final int MAGIC = 0x46454101;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Descriptor in charge of features computation. */
+    private final GlyphDescriptor descriptor;
+
+    /** Descriptor type and version. */
+    private final String key;
+
+    /** Number of features per sample. */
+    private final int featureCount;
+
+    /** Features file. */
+    private final Path file;
+
+    /** Usable blocks from features file, per sheet name. */
+    private final Map<String, Block> blocks = new HashMap<>();
+
+    /** Features computed since last store. */
+    private final Map<Sample, double[]> computed = new HashMap<>();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>FeatureCache</code> object and loads the features file, if any.
+     *
+     * @param descriptor the features descriptor
+     * @param file       the features file
+     */
+    FeatureCache (GlyphDescriptor descriptor,
+                  Path file)
+    {
+        this.descriptor = descriptor;
+        this.file = file;
+        key = getKey(descriptor);
+        featureCount = descriptor.length();
+
+        load();
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------//
+    // getFeatures //
+    //-------------//
+    /**
+     * Report the features of provided sample, computing them if not yet available.
+     * <p>
+     * Features are computed outside of any lock, so that several samples can be processed in
+     * parallel. If two threads compute the same sample, the first result is kept.
+     *
+     * @param sample      the sample
+     * @param sampleSheet the containing sample sheet
+     * @return a fresh copy of sample features
+     */
+    double[] getFeatures (Sample sample,
+                          SampleSheet sampleSheet)
+    {
+        final double[] known = peekFeatures(sample, sampleSheet);
+
+        if (known != null) {
+            return known;
+        }
+
+        final double[] features = descriptor.getFeatures(sample, sample.getInterline());
+
+        synchronized (this) {
+            computed.putIfAbsent(sample, features.clone());
+        }
+
+        return features;
+    }
+
+    //------------//
+    // invalidate //
+    //------------//
+    /**
+     * Discard the stored block, if any, of a modified sample sheet.
+     *
+     * @param sampleSheet the modified sample sheet
+     */
+    synchronized void invalidate (SampleSheet sampleSheet)
+    {
+        blocks.remove(sampleSheet.getDescriptor().getName());
+    }
+
+    //---------//
+    // isDirty //
+    //---------//
+    /**
+     * Report whether some features have been computed since last store.
+     *
+     * @return true if so
+     */
+    synchronized boolean isDirty ()
+    {
+        return !computed.isEmpty();
+    }
+
+    //--------------//
+    // peekFeatures //
+    //--------------//
+    /**
+     * Report the features of provided sample, only if already available.
+     *
+     * @param sample      the sample
+     * @param sampleSheet the containing sample sheet
+     * @return a fresh copy of sample features, or null
+     */
+    synchronized double[] peekFeatures (Sample sample,
+                                        SampleSheet sampleSheet)
+    {
+        final double[] features = computed.get(sample);
+
+        if (features != null) {
+            return features.clone();
+        }
+
+        final String name = sampleSheet.getDescriptor().getName();
+        final Block block = blocks.get(name);
+
+        if (block == null) {
+            return null;
+        }
+
+        final Integer row = block.getRow(sample, sampleSheet);
+
+        if (row == null) {
+            if (block.rows == null) {
+                blocks.remove(name); // Block no longer matches sheet content
+            }
+
+            return null;
+        }
+
+        return block.read(row);
+    }
+
+    //-------//
+    // store //
+    //-------//
+    /**
+     * Write the features at hand for the provided sheets to the features file, and load it
+     * again.
+     * <p>
+     * No feature is computed here, only the already known ones are written.
+     *
+     * @param sampleSheets the repository sample sheets
+     */
+    synchronized void store (Collection<SampleSheet> sampleSheets)
+    {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        // Gather the known features, sheet by sheet
+        final List<SampleSheet> knownSheets = new ArrayList<>();
+        final List<double[][]> knownRows = new ArrayList<>();
+
+        for (SampleSheet sampleSheet : sampleSheets) {
+            final List<Sample> samples = sampleSheet.getAllSamples();
+            final double[][] rows = new double[samples.size()][];
+            boolean known = false;
+
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = peekFeatures(samples.get(i), sampleSheet);
+                known |= rows[i] != null;
+            }
+
+            if (known) {
+                knownSheets.add(sampleSheet);
+                knownRows.add(rows);
+            }
+        }
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                writeString(out, key);
+                out.writeInt(featureCount);
+                out.writeInt(knownSheets.size());
+
+                for (int is = 0; is < knownSheets.size(); is++) {
+                    final SampleSheet sampleSheet = knownSheets.get(is);
+                    final List<Sample> samples = sampleSheet.getAllSamples();
+                    final double[][] rows = knownRows.get(is);
+                    final int count = samples.size();
+
+                    writeString(out, sampleSheet.getDescriptor().getName());
+                    out.writeInt(count);
+
+                    for (Sample sample : samples) {
+                        out.writeInt(sample.getWeight());
+                    }
+
+                    for (Sample sample : samples) {
+                        out.writeInt(sample.getInterline());
+                    }
+
+                    for (int j = 0; j < featureCount; j++) {
+                        for (int i = 0; i < count; i++) {
+                            out.writeDouble((rows[i] != null) ? rows[i][j] : Double.NaN);
+                        }
+                    }
+                }
+            }
+
+            // Drop all mappings of the file to be replaced
+            blocks.clear();
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileSystemException ex) {
+                // A dropped mapping still locks the file (on Windows) until it gets collected
+                System.gc();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            computed.clear();
+            logger.info("Features stored in {}", file);
+        } catch (IOException ex) {
+            logger.warn("Could not store features in " + file + " " + ex, ex);
+        }
+
+        load();
+    }
+
+    //--------//
+    // getKey //
+    //--------//
+    /**
+     * Report the key that identifies descriptor type and version.
+     *
+     * @param descriptor the features descriptor
+     * @return descriptor key
+     */
+    static String getKey (GlyphDescriptor descriptor)
+    {
+        return descriptor.getName() + "-v" + descriptor.getVersion() + "-"
+                       + Integer.toHexString(Arrays.hashCode(descriptor.getFeatureLabels()));
+    }
+
+    //------//
+    // load //
+    //------//
+    /**
+     * Read the features file, if any, and map each of its blocks.
+     */
+    private void load ()
+    {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ChannelReader reader = new ChannelReader(channel);
+
+            if (reader.readInt() != MAGIC) {
+                logger.info("Obsolete features file {}", file);
+
+                return;
+            }
+
+            if (!key.equals(reader.readString()) || (reader.readInt() != featureCount)) {
+                logger.info("Features file {} does not match descriptor {}", file, key);
+
+                return;
+            }
+
+            final int sheetCount = reader.readInt();
+
+            for (int is = 0; is < sheetCount; is++) {
+                final String name = reader.readString();
+                final int count = reader.readInt();
+                final long rowSize = (2L * Integer.BYTES) + ((long) featureCount * Double.BYTES);
+                final long size = count * rowSize;
+
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Too large features block for sheet " + name);
+                }
+
+                final MappedByteBuffer data = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        reader.position,
+                        size);
+                blocks.put(name, new Block(count, data));
+                reader.position += size;
+            }
+
+            logger.debug("Loaded features for {} sheets from {}", sheetCount, file);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Error loading features file " + file + " " + ex, ex);
+            blocks.clear();
+        }
+    }
+
+    //-------------//
+    // writeString //
+    //-------------//
+    private static void writeString (DataOutputStream out,
+                                     String str)
+            throws IOException
+    {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-------//
+    // Block //
+    //-------//
+    /**
+     * The features of one sample sheet, mapped from the file content.
+     */
+    private class Block
+    {
+
+        /** Number of samples. */
+        final int count;
+
+        /** Block content: weights, interlines and features. */
+        final ByteBuffer data;
+
+        /** Offset of interlines within data. */
+        final int interlinesOffset;
+
+        /** Offset of features within data. */
+        final int featuresOffset;
+
+        /** Row of each sample, lazily built and checked against sample sheet. */
+        Map<Sample, Integer> rows;
+
+        /** True once rows have been checked. */
+        boolean checked;
+
+        Block (int count,
+               ByteBuffer data)
+        {
+            this.count = count;
+            this.data = data;
+            this.interlinesOffset = count * Integer.BYTES;
+            this.featuresOffset = 2 * count * Integer.BYTES;
+        }
+
+        /**
+         * Report the row of provided sample.
+         *
+         * @return the sample row, or null if not found or block is not consistent with sheet
+         */
+        Integer getRow (Sample sample,
+                        SampleSheet sampleSheet)
+        {
+            if (!checked) {
+                checked = true;
+
+                final List<Sample> samples = sampleSheet.getAllSamples();
+
+                if (samples.size() != count) {
+                    return null;
+                }
+
+                final Map<Sample, Integer> map = new IdentityHashMap<>(count);
+
+                for (int i = 0; i < count; i++) {
+                    final Sample s = samples.get(i);
+                    final int weight = data.getInt(i * Integer.BYTES);
+                    final int interline = data.getInt(interlinesOffset + (i * Integer.BYTES));
+
+                    if ((weight != s.getWeight()) || (interline != s.getInterline())) {
+                        return null;
+                    }
+
+                    map.put(s, i);
+                }
+
+                rows = map;
+            }
+
+            return (rows != null) ? rows.get(sample) : null;
+        }
+
+        /**
+         * Read the features of provided row.
+         *
+         * @param row the row index
+         * @return the row features, or null if unknown
+         */
+        double[] read (int row)
+        {
+            final double[] features = new double[featureCount];
+
+            for (int j = 0; j < featureCount; j++) {
+                final int index = (j * count) + row;
+                features[j] = data.getDouble(featuresOffset + (index * Double.BYTES));
+            }
+
+            if ((featureCount > 0) && Double.isNaN(features[0])) {
+                return null;
+            }
+
+            return features;
+        }
+    }
+
+    //---------------//
+    // ChannelReader //
+    //---------------//
+    /**
+     * Sequential reader of the file structure, at long positions.
+     */
+    private static class ChannelReader
+    {
+
+        /** Channel on features file. */
+        final FileChannel channel;
+
+        /** Current position in file. */
+        long position;
+
+        ChannelReader (FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        /**
+         * Read the int value at current position.
+         *
+         * @return the value read
+         * @throws IOException if end of file is reached
+         */
+        int readInt ()
+                throws IOException
+        {
+            return read(Integer.BYTES).getInt();
+        }
+
+        /**
+         * Read the string at current position, as its UTF-8 length then its UTF-8 bytes.
+         *
+         * @return the string read
+         * @throws IOException if end of file is reached
+         */
+        String readString ()
+                throws IOException
+        {
+            return new String(read(readInt()).array(), StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer read (int length)
+                throws IOException
+        {
+            final ByteBuffer buf = ByteBuffer.allocate(length);
+
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) {
+                    throw new EOFException("Truncated features file");
+                }
+            }
+
+            position += length;
+            buf.flip();
+
+            return buf;
+        }
+    }
+}
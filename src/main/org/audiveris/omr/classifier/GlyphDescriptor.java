@@ -134,6 +134,19 @@ public abstract class GlyphDescriptor
         return name;
     }
 
+    /**
+     * Report the version of features computation.
+     * <p>
+     * This version must be increased whenever the features computation is modified in a way that
+     * invalidates previously computed features.
+     *
+     * @return the features version
+     */
+    public int getVersion ()
+    {
+        return 1;
+    }
+
     /**
      * Report the number of features provided.
      *
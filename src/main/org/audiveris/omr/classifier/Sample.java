@@ -83,6 +83,10 @@ public class Sample
     @XmlJavaTypeAdapter(Jaxb.Double1Adapter.class)
     protected Double pitch;
 
+    /** Number of near-duplicate samples represented by this one, if more than 1. */
+    @XmlAttribute(name = "multiplicity")
+    protected Integer multiplicity;
+
     // Transient data
     //---------------
     //
@@ -203,6 +207,33 @@ public class Sample
         return getWidth() / (double) interline;
     }
 
+    //-----------------//
+    // getMultiplicity //
+    //-----------------//
+    /**
+     * Report the number of original samples this sample stands for.
+     *
+     * @return 1 for a plain sample, more for the representative of near-duplicates
+     * @see SampleRepository#deduplicate()
+     */
+    public int getMultiplicity ()
+    {
+        return (multiplicity != null) ? multiplicity : 1;
+    }
+
+    //-----------------//
+    // setMultiplicity //
+    //-----------------//
+    /**
+     * Set the number of original samples this sample stands for.
+     *
+     * @param multiplicity the number of represented samples
+     */
+    public void setMultiplicity (int multiplicity)
+    {
+        this.multiplicity = (multiplicity > 1) ? multiplicity : null;
+    }
+
     /**
      * Report the sample pitch with respect to related staff.
      *
@@ -270,6 +301,10 @@ public class Sample
             }
         }
 
+        if (multiplicity != null) {
+            sb.append(" x").append(multiplicity);
+        }
+
         return sb.toString();
     }
 
@@ -0,0 +1,385 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 S a m p l e C l u s t e r e r                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.glyph.Shape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Class <code>SampleClusterer</code> groups near-duplicate samples of the same shape into
+ * clusters, each cluster being represented by its first sample.
+ * <p>
+ * Two samples are considered as near-duplicates when:
+ * <ol>
+ * <li>They are assigned the same shape,
+ * <li>Their perceptual hashes differ by no more than a few bits, and
+ * <li>Their features are close, in terms of relative L1 distance.
+ * </ol>
+ * The perceptual hash is a 64-bit average hash of the sample {@link ScaledBuffer}, one bit per
+ * block of an 8x8 grid, set when the block ink is above average.
+ * <p>
+ * Candidate clusters are retrieved via a multi-index on hash chunks: with a maximum distance of
+ * <i>d</i> bits, the 64 bits are split into <i>d+1</i> disjoint chunks, and two hashes within
+ * distance <i>d</i> necessarily share at least one identical chunk.
+ * The maximum distance is limited to {@link #MAX_HASH_DISTANCE}, so that each chunk keeps at least
+ * two bits.
+ *
+ * @author Hervé Bitteur
+ */
+class SampleClusterer
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    /** Number of hash blocks per row and per column. */
+    private static final int GRID = 8;
+
+    /** Block width in scaled buffer. */
+    private static final int BLOCK_WIDTH = ScaledBuffer.WIDTH / GRID;
+
+    /** Block height in scaled buffer. */
+    private static final int BLOCK_HEIGHT = ScaledBuffer.HEIGHT / GRID;
+
+    /** Upper limit for the maximum number of differing hash bits. */
+    static final int MAX_HASH_DISTANCE = 31;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** To retrieve sample features. */
+    private final Function<Sample, double[]> featuresFunction;
+
+    /** Maximum number of differing hash bits. */
+    private final int maxHashDistance;
+
+    /** Maximum relative L1 distance between features. */
+    private final double maxFeatureDistance;
+
+    /** Number of hash chunks. */
+    private final int chunkCount;
+
+    /** Position of lowest bit, per hash chunk. */
+    private final int[] chunkShifts;
+
+    /** Bit mask, per hash chunk once shifted. */
+    private final long[] chunkMasks;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a <code>SampleClusterer</code> object with default thresholds.
+     *
+     * @param featuresFunction how to get sample features
+     */
+    SampleClusterer (Function<Sample, double[]> featuresFunction)
+    {
+        this(
+                featuresFunction,
+                constants.maxHashDistance.getValue(),
+                constants.maxFeatureDistance.getValue());
+    }
+
+    /**
+     * Creates a <code>SampleClusterer</code> object.
+     *
+     * @param featuresFunction   how to get sample features
+     * @param maxHashDistance    maximum number of differing hash bits, limited to
+     *                           {@link #MAX_HASH_DISTANCE}
+     * @param maxFeatureDistance maximum relative L1 distance between features
+     */
+    SampleClusterer (Function<Sample, double[]> featuresFunction,
+                     int maxHashDistance,
+                     double maxFeatureDistance)
+    {
+        this.featuresFunction = featuresFunction;
+        this.maxHashDistance = Math.max(0, Math.min(maxHashDistance, MAX_HASH_DISTANCE));
+        this.maxFeatureDistance = maxFeatureDistance;
+
+        // Disjoint chunks, of 64/chunkCount bits each (rounded down or up)
+        chunkCount = this.maxHashDistance + 1;
+        chunkShifts = new int[chunkCount];
+        chunkMasks = new long[chunkCount];
+
+        for (int c = 0; c < chunkCount; c++) {
+            final int from = (c * Long.SIZE) / chunkCount;
+            final int bits = (((c + 1) * Long.SIZE) / chunkCount) - from;
+            chunkShifts[c] = from;
+            chunkMasks[c] = (bits == Long.SIZE) ? -1L : ((1L << bits) - 1);
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // cluster //
+    //---------//
+    /**
+     * Group the provided samples into clusters of near-duplicates.
+     * <p>
+     * Samples are processed in the provided order, a sample which matches no existing cluster
+     * becomes the representative of a new cluster.
+     *
+     * @param samples the samples to process
+     * @return the sequence of clusters, ordered by creation
+     */
+    List<Cluster> cluster (Collection<Sample> samples)
+    {
+        final Map<Shape, List<Map<Long, List<Cluster>>>> indices = new EnumMap<>(Shape.class);
+        final List<Cluster> clusters = new ArrayList<>();
+
+        for (Sample sample : samples) {
+            List<Map<Long, List<Cluster>>> index = indices.get(sample.getShape());
+
+            if (index == null) {
+                index = new ArrayList<>(chunkCount);
+
+                for (int c = 0; c < chunkCount; c++) {
+                    index.add(new HashMap<>());
+                }
+
+                indices.put(sample.getShape(), index);
+            }
+
+            final long hash = getHash(sample);
+            final double[] features = featuresFunction.apply(sample);
+            Cluster cluster = lookup(index, hash, features);
+
+            if (cluster == null) {
+                cluster = new Cluster(sample, hash, features);
+                clusters.add(cluster);
+
+                for (int c = 0; c < chunkCount; c++) {
+                    List<Cluster> list = index.get(c).get(getChunk(hash, c));
+
+                    if (list == null) {
+                        index.get(c).put(getChunk(hash, c), list = new ArrayList<>());
+                    }
+
+                    list.add(cluster);
+                }
+            } else {
+                cluster.members.add(sample);
+            }
+        }
+
+        return clusters;
+    }
+
+    //---------//
+    // getHash //
+    //---------//
+    /**
+     * Compute the perceptual hash of a sample.
+     *
+     * @param sample the sample to process
+     * @return the 64-bit average hash of sample scaled buffer
+     */
+    static long getHash (Sample sample)
+    {
+        final ByteProcessor buffer = ScaledBuffer.getBuffer(sample, sample.getInterline());
+        final int[] sums = new int[GRID * GRID];
+        long total = 0;
+
+        for (int by = 0; by < GRID; by++) {
+            for (int bx = 0; bx < GRID; bx++) {
+                int sum = 0;
+
+                for (int y = by * BLOCK_HEIGHT, yBreak = y + BLOCK_HEIGHT; y < yBreak; y++) {
+                    for (int x = bx * BLOCK_WIDTH, xBreak = x + BLOCK_WIDTH; x < xBreak; x++) {
+                        sum += buffer.get(x, y);
+                    }
+                }
+
+                sums[(by * GRID) + bx] = sum;
+                total += sum;
+            }
+        }
+
+        long hash = 0;
+
+        for (int i = 0; i < sums.length; i++) {
+            if (((long) sums[i] * sums.length) > total) {
+                hash |= (1L << i);
+            }
+        }
+
+        return hash;
+    }
+
+    //-----------------//
+    // featureDistance //
+    //-----------------//
+    /**
+     * Report the relative L1 distance between two feature vectors.
+     *
+     * @param f1 first vector
+     * @param f2 second vector
+     * @return sum of absolute differences divided by sum of absolute values, in [0..1]
+     */
+    static double featureDistance (double[] f1,
+                                   double[] f2)
+    {
+        double diff = 0;
+        double norm = 0;
+
+        for (int i = 0; i < f1.length; i++) {
+            diff += Math.abs(f1[i] - f2[i]);
+            norm += Math.abs(f1[i]) + Math.abs(f2[i]);
+        }
+
+        return (norm == 0) ? 0 : (diff / norm);
+    }
+
+    //----------//
+    // getChunk //
+    //----------//
+    /**
+     * Report a chunk of the provided hash.
+     *
+     * @param hash the hash value
+     * @param c    chunk index
+     * @return the chunk bits, shifted down
+     */
+    long getChunk (long hash,
+                   int c)
+    {
+        return (hash >>> chunkShifts[c]) & chunkMasks[c];
+    }
+
+    //--------//
+    // lookup //
+    //--------//
+    /**
+     * Look for an existing cluster compatible with the provided hash and features.
+     *
+     * @param index    the multi-index of clusters for sample shape
+     * @param hash     sample hash
+     * @param features sample features
+     * @return the first compatible cluster found, or null
+     */
+    private Cluster lookup (List<Map<Long, List<Cluster>>> index,
+                            long hash,
+                            double[] features)
+    {
+        final Set<Cluster> candidates = new LinkedHashSet<>();
+
+        for (int c = 0; c < chunkCount; c++) {
+            final List<Cluster> list = index.get(c).get(getChunk(hash, c));
+
+            if (list != null) {
+                candidates.addAll(list);
+            }
+        }
+
+        for (Cluster cluster : candidates) {
+            if ((Long.bitCount(hash ^ cluster.hash) <= maxHashDistance)
+                        && (featureDistance(features, cluster.features) <= maxFeatureDistance)) {
+                return cluster;
+            }
+        }
+
+        return null;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------//
+    // Cluster //
+    //---------//
+    /**
+     * A group of near-duplicate samples.
+     */
+    static class Cluster
+    {
+
+        /** The sample which represents the whole cluster. */
+        final Sample representative;
+
+        /** Hash of representative. */
+        final long hash;
+
+        /** Features of representative. */
+        final double[] features;
+
+        /** All cluster samples, starting with representative. */
+        final List<Sample> members = new ArrayList<>();
+
+        Cluster (Sample representative,
+                 long hash,
+                 double[] features)
+        {
+            this.representative = representative;
+            this.hash = hash;
+            this.features = features;
+            members.add(representative);
+        }
+
+        /**
+         * Report the total multiplicity of cluster members.
+         *
+         * @return the number of original samples represented by this cluster
+         */
+        int getMultiplicity ()
+        {
+            int multiplicity = 0;
+
+            for (Sample sample : members) {
+                multiplicity += sample.getMultiplicity();
+            }
+
+            return multiplicity;
+        }
+
+        @Override
+        public String toString ()
+        {
+            return "Cluster{" + representative + " x" + members.size() + "}";
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer maxHashDistance = new Constant.Integer(
+                "bits",
+                3,
+                "Maximum number of differing hash bits between near-duplicates (at most 31)");
+
+        private final Constant.Ratio maxFeatureDistance = new Constant.Ratio(
+                0.01,
+                "Maximum relative distance between features of near-duplicate samples");
+    }
+}
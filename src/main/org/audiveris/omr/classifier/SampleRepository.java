@@ -40,6 +40,7 @@ import org.audiveris.omr.ui.OmrGui;
 import org.audiveris.omr.ui.symbol.ShapeSymbol;
 import org.audiveris.omr.ui.symbol.Symbols;
 import org.audiveris.omr.util.FileUtil;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 import org.audiveris.omr.util.ZipFileSystem;
 
@@ -56,6 +57,7 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -67,6 +69,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -116,6 +122,12 @@ public class SampleRepository
     /** File name for images material: {@value}. */
     private static final String IMAGES_FILE_NAME = "images.zip";
 
+    /** File name radix for features material: {@value}. */
+    private static final String FEATURES_FILE_RADIX = "features-";
+
+    /** File name extension for features material: {@value}. */
+    private static final String FEATURES_FILE_EXT = ".bin";
+
     /** Special name to refer to font-based samples: {@value}. */
     private static final String SYMBOLS = "ALL_FONT_BASED_SYMBOLS";
 
@@ -141,6 +153,9 @@ public class SampleRepository
     /** Container for sheet descriptors. */
     private SheetContainer sheetContainer = new SheetContainer();
 
+    /** Features caches, per descriptor type and version. */
+    private final Map<String, FeatureCache> featureCaches = new HashMap<>();
+
     /** Is the repository already loaded?. */
     private boolean loaded;
 
@@ -297,6 +312,7 @@ public class SampleRepository
 
         sampleSheet.privateAddSample(sample);
         sampleMap.put(sample, sampleSheet);
+        invalidateFeatures(sampleSheet);
 
         logger.info("{} added {} to {}", this, sample, sampleSheet);
 
@@ -339,6 +355,9 @@ public class SampleRepository
         int n = allSamples.size();
         logger.debug("Checking {} samples...", n);
 
+        // Stored features, when available, allow to quickly tell different run tables apart
+        final FeatureCache cache = getFeatureCache(new MixGlyphDescriptor());
+
         boolean[] deleted = new boolean[n];
 
         for (int i = 0; i < n; i++) {
@@ -350,6 +369,7 @@ public class SampleRepository
             final int weight = sample.getWeight();
             final RunTable runTable = sample.getRunTable();
             final int interline = sample.getInterline();
+            final double[] features = cache.peekFeatures(sample, getSampleSheet(sample));
 
             for (int j = i + 1; j < n; j++) {
                 if (deleted[j]) {
@@ -362,6 +382,14 @@ public class SampleRepository
                     break;
                 }
 
+                if ((features != null) && (s.getInterline() == interline)) {
+                    final double[] f = cache.peekFeatures(s, getSampleSheet(s));
+
+                    if ((f != null) && !Arrays.equals(f, features)) {
+                        continue; // Different features imply different run tables
+                    }
+                }
+
                 if ((s.getInterline() == interline) && s.getRunTable().equals(runTable)) {
                     if (s.getShape() != sample.getShape()) {
                         logger.warn(
@@ -423,6 +451,72 @@ public class SampleRepository
         }
     }
 
+    //-------------//
+    // deduplicate //
+    //-------------//
+    /**
+     * Collapse near-duplicate samples into weighted representatives.
+     * <p>
+     * Within each cluster of near-duplicates (same shape, close perceptual hash and close
+     * features), only the first sample is kept, with its multiplicity increased by the
+     * multiplicity of the removed ones.
+     * Font-based symbols are left untouched.
+     *
+     * @return the number of samples removed
+     * @see SampleClusterer
+     */
+    public int deduplicate ()
+    {
+        final StopWatch watch = new StopWatch("deduplicate");
+        watch.start("cluster");
+
+        final List<Sample> samples = new ArrayList<>();
+
+        for (SampleSheet sampleSheet : nameMap.values()) {
+            if (!isSymbols(sampleSheet.getDescriptor().getName())) {
+                samples.addAll(sampleSheet.getAllSamples());
+            }
+        }
+
+        final GlyphDescriptor descriptor = new MixGlyphDescriptor();
+        final SampleClusterer clusterer = new SampleClusterer(s -> getFeatures(s, descriptor));
+        final List<SampleClusterer.Cluster> clusters = clusterer.cluster(samples);
+
+        watch.start("collapse");
+
+        int removed = 0;
+
+        for (SampleClusterer.Cluster cluster : clusters) {
+            if (cluster.members.size() > 1) {
+                final Sample representative = cluster.representative;
+                representative.setMultiplicity(cluster.getMultiplicity());
+                getSampleSheet(representative).setModified(true);
+
+                for (Sample sample : cluster.members.subList(1, cluster.members.size())) {
+                    final SampleSheet sampleSheet = getSampleSheet(sample);
+                    sampleSheet.privateRemoveSample(sample);
+                    sampleMap.remove(sample);
+                    invalidateFeatures(sampleSheet);
+                    logger.debug("{} merged {} into {}", this, sample, representative);
+                    fireStateChanged(new RemovalEvent(sample, this));
+                    removed++;
+                }
+            }
+        }
+
+        if (removed > 0) {
+            setModified(true);
+        }
+
+        logger.info("{} deduplicated {} samples into {}", this, samples.size(), clusters.size());
+
+        if (constants.printWatch.isSet()) {
+            watch.print();
+        }
+
+        return removed;
+    }
+
     //-----------------//
     // diskImageExists //
     //-----------------//
@@ -669,6 +763,31 @@ public class SampleRepository
         return null;
     }
 
+    //-------------//
+    // getFeatures //
+    //-------------//
+    /**
+     * Report the features of provided sample, as computed by the provided descriptor.
+     * <p>
+     * Features are taken from the repository features file when available, otherwise they are
+     * computed and kept for a later {@link #storeFeatures()}.
+     *
+     * @param sample     the provided sample
+     * @param descriptor the features descriptor
+     * @return a fresh array of sample features
+     */
+    public double[] getFeatures (Sample sample,
+                                 GlyphDescriptor descriptor)
+    {
+        final SampleSheet sampleSheet = sampleMap.get(sample);
+
+        if (sampleSheet == null) {
+            return descriptor.getFeatures(sample, sample.getInterline());
+        }
+
+        return getFeatureCache(descriptor).getFeatures(sample, sampleSheet);
+    }
+
     //----------------//
     // getSampleSheet //
     //----------------//
@@ -1197,6 +1316,7 @@ public class SampleRepository
 
         sampleSheet.privateRemoveSample(sample);
         sampleMap.remove(sample);
+        invalidateFeatures(sampleSheet);
 
         logger.info("{} removed {} from {}", this, sample, sampleSheet);
 
@@ -1316,6 +1436,10 @@ public class SampleRepository
      */
     public void storeRepository ()
     {
+        if (constants.deduplicateOnStore.isSet()) {
+            deduplicate();
+        }
+
         try {
             final Path samplesRoot = Files.exists(samplesFile) ? ZipFileSystem.open(samplesFile)
                     : ZipFileSystem.create(samplesFile);
@@ -1342,6 +1466,29 @@ public class SampleRepository
         } catch (IOException ex) {
             logger.warn("Error storing " + this + " to " + samplesFile + " " + ex, ex);
         }
+
+        storeFeatures();
+    }
+
+    //---------------//
+    // storeFeatures //
+    //---------------//
+    /**
+     * Store to disk the features computed since last store, if any.
+     */
+    public void storeFeatures ()
+    {
+        final List<FeatureCache> caches;
+
+        synchronized (featureCaches) {
+            caches = new ArrayList<>(featureCaches.values());
+        }
+
+        for (FeatureCache cache : caches) {
+            if (cache.isDirty()) {
+                cache.store(nameMap.values());
+            }
+        }
     }
 
     //----------//
@@ -1415,6 +1562,32 @@ public class SampleRepository
         nameMap.put(SYMBOLS, symbolSheet);
     }
 
+    //-----------------//
+    // getFeatureCache //
+    //-----------------//
+    /**
+     * Report the features cache for the provided descriptor, loading it if needed.
+     *
+     * @param descriptor the features descriptor
+     * @return the related cache
+     */
+    private FeatureCache getFeatureCache (GlyphDescriptor descriptor)
+    {
+        synchronized (featureCaches) {
+            final String key = FeatureCache.getKey(descriptor);
+            FeatureCache cache = featureCaches.get(key);
+
+            if (cache == null) {
+                final String prefix = bookRadix.isEmpty() ? "" : (bookRadix + "-");
+                final Path file = samplesFile.resolveSibling(
+                        prefix + FEATURES_FILE_RADIX + descriptor.getName() + FEATURES_FILE_EXT);
+                featureCaches.put(key, cache = new FeatureCache(descriptor, file));
+            }
+
+            return cache;
+        }
+    }
+
     //------------------//
     // fireStateChanged //
     //------------------//
@@ -1425,6 +1598,23 @@ public class SampleRepository
         }
     }
 
+    //--------------------//
+    // invalidateFeatures //
+    //--------------------//
+    /**
+     * Discard the stored features of a modified sample sheet.
+     *
+     * @param sampleSheet the modified sample sheet
+     */
+    private void invalidateFeatures (SampleSheet sampleSheet)
+    {
+        synchronized (featureCaches) {
+            for (FeatureCache cache : featureCaches.values()) {
+                cache.invalidate(sampleSheet);
+            }
+        }
+    }
+
     //---------------//
     // loadAllImages //
     //---------------//
@@ -1433,6 +1623,8 @@ public class SampleRepository
      */
     private void loadAllImages (final Path root)
     {
+        final List<Path> files = new ArrayList<>();
+
         try {
             Files.walkFileTree(
                     root,
@@ -1471,19 +1663,7 @@ public class SampleRepository
                     final String fileName = file.getFileName().toString();
 
                     if (fileName.equals(SampleSheet.IMAGE_FILE_NAME)) {
-                        RunTable runTable = RunTable.unmarshal(file);
-
-                        if (runTable != null) {
-                            Path folder = file.getParent().getFileName();
-                            SampleSheet sampleSheet = nameMap.get(folder.toString());
-
-                            if (sampleSheet != null) {
-                                sampleSheet.setImage(runTable, true);
-                                logger.debug("Loaded {}", file);
-                            } else {
-                                logger.warn("No SampleSheet found for image {}", file);
-                            }
-                        }
+                        files.add(file);
                     }
 
                     return FileVisitResult.CONTINUE;
@@ -1492,6 +1672,31 @@ public class SampleRepository
         } catch (IOException ex) {
             logger.warn("Error loading binaries from " + imagesFile + " " + ex, ex);
         }
+
+        // Unmarshal images concurrently, and register them as they arrive
+        final List<Callable<Runnable>> tasks = new ArrayList<>();
+
+        for (Path file : files) {
+            tasks.add(() -> {
+                final RunTable runTable = RunTable.unmarshal(file);
+
+                return () -> {
+                    if (runTable != null) {
+                        Path folder = file.getParent().getFileName();
+                        SampleSheet sampleSheet = nameMap.get(folder.toString());
+
+                        if (sampleSheet != null) {
+                            sampleSheet.setImage(runTable, true);
+                            logger.debug("Loaded {}", file);
+                        } else {
+                            logger.warn("No SampleSheet found for image {}", file);
+                        }
+                    }
+                };
+            });
+        }
+
+        unmarshalAll(tasks);
     }
 
     //-------------//
@@ -1503,6 +1708,8 @@ public class SampleRepository
     private void loadSamples (final Path root,
                               final LoadListener loadListener)
     {
+        final List<Callable<Runnable>> tasks = new ArrayList<>();
+
         try {
             Files.walkFileTree(
                     root,
@@ -1518,33 +1725,24 @@ public class SampleRepository
                     if (fileName.equals(SampleSheet.SAMPLES_FILE_NAME)) {
                         Path folder = file.getParent().getFileName();
                         Descriptor desc = sheetContainer.getDescriptor(folder.toString());
-                        SampleSheet sampleSheet = null;
 
                         if (desc == null) {
                             logger.warn(
                                     "Samples entry {} not declared in {} is ignored.",
                                     folder,
                                     SheetContainer.CONTAINER_ENTRY_NAME);
-                        } else {
-                            boolean isSymbol = isSymbols(desc.getName());
 
-                            if (isSymbol) {
-                                logger.info("Skipping symbols entry");
-
-                                return FileVisitResult.CONTINUE;
+                            if (loadListener != null) {
+                                loadListener.loadedSheet(null);
                             }
+                        } else if (isSymbols(desc.getName())) {
+                            logger.info("Skipping symbols entry");
+                        } else {
+                            tasks.add(() -> {
+                                final SampleSheet sampleSheet = SampleSheet.unmarshal(file, desc);
 
-                            sampleSheet = SampleSheet.unmarshal(file, desc);
-                            nameMap.put(desc.getName(), sampleSheet);
-
-                            for (Sample sample : sampleSheet.getAllSamples()) {
-                                sample.setSymbol(isSymbol);
-                                sampleMap.put(sample, sampleSheet);
-                            }
-                        }
-
-                        if (loadListener != null) {
-                            loadListener.loadedSheet(sampleSheet);
+                                return () -> registerSampleSheet(sampleSheet, loadListener);
+                            });
                         }
                     }
 
@@ -1554,6 +1752,9 @@ public class SampleRepository
         } catch (IOException ex) {
             logger.warn("Error loading " + samplesFile + " " + ex, ex);
         }
+
+        // Unmarshal sheets concurrently, and publish them as they arrive
+        unmarshalAll(tasks);
     }
 
     //------------//
@@ -1597,6 +1798,81 @@ public class SampleRepository
         }
     }
 
+    //---------------------//
+    // registerSampleSheet //
+    //---------------------//
+    /**
+     * Register a freshly unmarshalled sample sheet, and notify the load listener if any.
+     *
+     * @param sampleSheet  the loaded sample sheet, perhaps null
+     * @param loadListener the load listener, or null
+     */
+    private void registerSampleSheet (SampleSheet sampleSheet,
+                                      LoadListener loadListener)
+    {
+        if (sampleSheet != null) {
+            nameMap.put(sampleSheet.getDescriptor().getName(), sampleSheet);
+
+            for (Sample sample : sampleSheet.getAllSamples()) {
+                sample.setSymbol(false);
+                sampleMap.put(sample, sampleSheet);
+            }
+        }
+
+        if (loadListener != null) {
+            loadListener.loadedSheet(sampleSheet);
+        }
+    }
+
+    //--------------//
+    // unmarshalAll //
+    //--------------//
+    /**
+     * Run the provided unmarshalling tasks, concurrently when allowed.
+     * <p>
+     * Each task performs its unmarshalling in a separate thread and returns the action to register
+     * the result.
+     * These registration actions are all run by the calling thread, one at a time, as soon as the
+     * related task completes, so that repository maps need no synchronization and loaded entities
+     * are published incrementally.
+     *
+     * @param tasks the unmarshalling tasks
+     */
+    private void unmarshalAll (List<Callable<Runnable>> tasks)
+    {
+        if (!OmrExecutors.defaultParallelism.getValue() || (tasks.size() < 2)) {
+            for (Callable<Runnable> task : tasks) {
+                try {
+                    task.call().run();
+                } catch (Exception ex) {
+                    logger.warn("Error loading {} {}", this, ex.toString(), ex);
+                }
+            }
+
+            return;
+        }
+
+        final CompletionService<Runnable> service = new ExecutorCompletionService<>(
+                OmrExecutors.getLowExecutor());
+
+        for (Callable<Runnable> task : tasks) {
+            service.submit(task);
+        }
+
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    service.take().get().run();
+                } catch (ExecutionException ex) {
+                    logger.warn("Error loading {} {}", this, ex.getCause().toString(), ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Loading of {} interrupted", this);
+            Thread.currentThread().interrupt();
+        }
+    }
+
     //-------------------//
     // getGlobalInstance //
     //-------------------//
@@ -1857,6 +2133,10 @@ public class SampleRepository
         private final Constant.Boolean useTribes = new Constant.Boolean(
                 false,
                 "Should we support tribes?");
+
+        private final Constant.Boolean deduplicateOnStore = new Constant.Boolean(
+                false,
+                "Should we collapse near-duplicate samples when storing repository?");
     }
 
     //------------------------//
@@ -26,6 +26,7 @@ import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,9 +80,6 @@ public class SampleSheet
     /** File name for sheet image: {@value}. */
     public static final String IMAGE_FILE_NAME = "image.xml";
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Enumerations -------------------------------------------------------------------------------
     /**
      * Formalizes the status of sheet image, to avoid endless load attempts.
@@ -577,12 +575,7 @@ public class SampleSheet
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(RunTable.class, SampleList.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(RunTable.class, SampleList.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
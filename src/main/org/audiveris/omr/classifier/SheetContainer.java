@@ -23,6 +23,7 @@ package org.audiveris.omr.classifier;
 
 import org.audiveris.omr.classifier.SheetContainer.HashMapAdapter;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,9 +74,6 @@ public class SheetContainer
     /** Regex pattern for unique names. */
     private static final Pattern UNIQUE_PATTERN = Pattern.compile("(.*)(_[0-9][0-9])");
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
     //----------------
@@ -337,12 +335,7 @@ public class SheetContainer
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(SheetContainer.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(SheetContainer.class);
     }
 
     //------------------//
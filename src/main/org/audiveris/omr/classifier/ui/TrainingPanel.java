@@ -282,17 +282,23 @@ class TrainingPanel
                 logger.warn("Missing shape: {}", shape);
             } else if (!list.isEmpty()) {
                 final int size = list.size();
-                int togo = minCount - size;
+                int togo = minCount;
                 newSamples.addAll(list);
 
+                // A deduplicated sample counts for all the samples it stands for
+                for (Sample sample : list) {
+                    togo -= sample.getMultiplicity();
+                }
+
                 // Ensure minimum sample count is reached for this shape
                 if ((togo > 0) && (shape != Shape.CLUTTER)) {
                     Collections.shuffle(list);
 
-                    do {
-                        newSamples.addAll(list.subList(0, Math.min(size, togo)));
-                        togo -= size;
-                    } while (togo > 0);
+                    for (int i = 0; togo > 0; i = (i + 1) % size) {
+                        final Sample sample = list.get(i);
+                        newSamples.add(sample);
+                        togo -= sample.getMultiplicity();
+                    }
                 }
             }
         }
@@ -454,8 +460,8 @@ class TrainingPanel
                     // And fill up to quorum count on each shape
                     samples = checkPopulation(samples);
 
-                    // Train on the data set
-                    task.classifier.train(samples);
+                    // Train on the data set, with early stopping on the test set
+                    task.classifier.train(samples, selectionPanel.getTestSamples());
 
                     task.setActivity(INACTIVE);
                 }
@@ -21,6 +21,10 @@
 // </editor-fold>
 package org.audiveris.omr.glyph;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.OmrExecutors;
+
 import org.jgrapht.Graphs;
 import org.jgrapht.graph.SimpleGraph;
 
@@ -28,25 +32,41 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Rectangle;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class <code>GlyphCluster</code> handles a cluster of connected glyphs, to retrieve all
  * acceptable compounds built on subsets of these glyphs.
  * <p>
+ * Parts are indexed (by decreasing weight) and every subset is handled as a {@link BitSet} of part
+ * indices.
+ * Subsets are enumerated depth-first, using an explicit stack, each subset being grown only by
+ * parts not yet "seen" along its path.
+ * This guarantees that each connected subset is produced exactly once.
+ * <p>
  * The processing of any given subset consists in the following:
  * <ol>
- * <li>Build the compound of chosen vertices, and record acceptable evaluations.</li>
- * <li>Build the set of new reachable vertices.</li>
- * <li>For each reachable vertex, recursively process the new set composed of current set + the
- * reachable vertex.</li>
+ * <li>Discard the subset if it is too heavy or too large, or if even the addition of all
+ * parts not yet seen could not make it heavy enough.</li>
+ * <li>Record the subset as a candidate for evaluation, unless it is too light.</li>
+ * <li>For each reachable part, push the new subset composed of current subset + the reachable
+ * part, unless the resulting bounds would be too large.</li>
  * </ol>
- * TODO: implement a non-recursive version for better efficiency?
+ * Compounds of candidate subsets are built by chunks, in parallel if allowed, and then evaluated
+ * one after the other in enumeration order.
  *
  * @author Hervé Bitteur
  */
@@ -54,6 +74,8 @@ public class GlyphCluster
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(GlyphCluster.class);
 
     //~ Instance fields ----------------------------------------------------------------------------
@@ -63,6 +85,21 @@ public class GlyphCluster
     /** Group, if any, to be assigned to created glyphs. */
     private final GlyphGroup group;
 
+    /** Parts, by decreasing weight. */
+    private List<Glyph> parts;
+
+    /** Weight of each part. */
+    private int[] weights;
+
+    /** Bounds of each part. */
+    private Rectangle[] boxes;
+
+    /** Neighbors of each part. */
+    private BitSet[] neighbors;
+
+    /** Total weight of all parts. */
+    private int totalWeight;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new Cluster object, with an adapter to the environment.
@@ -86,104 +123,246 @@ public class GlyphCluster
      */
     public void decompose ()
     {
-        final Set<Glyph> considered = new LinkedHashSet<>(); // Parts considered so far
-
         //TODO: we could truncate this list by discarding the smallest items
         // since a too large list would result in explosion of combinations
-        final List<Glyph> seeds = adapter.getParts();
-        Collections.sort(seeds, Glyphs.byReverseWeight);
+        parts = adapter.getParts();
+        Collections.sort(parts, Glyphs.byReverseWeight);
+        indexParts();
+
+        final int chunkSize = constants.chunkSize.getValue();
+        final List<BitSet> candidates = new ArrayList<>();
+        final Deque<Subset> stack = new ArrayDeque<>();
+
+        // Seeds, pushed in reverse order so that the heaviest seed is processed first
+        final BitSet considered = new BitSet(parts.size()); // Seeds considered so far
+        int consideredWeight = 0;
+        final List<Subset> seeds = new ArrayList<>(parts.size());
+
+        for (int i = 0; i < parts.size(); i++) {
+            considered.set(i);
+            consideredWeight += weights[i];
+
+            final BitSet set = new BitSet(parts.size());
+            set.set(i);
+            seeds.add(new Subset(set, weights[i], boxes[i], (BitSet) considered.clone(),
+                                 consideredWeight));
+        }
 
-        ///logger.debug("Decomposing {}", Glyphs.ids("cluster", seeds));
-        for (Glyph seed : seeds) {
-            considered.add(seed);
-            process(Collections.singleton(seed), considered);
+        for (int i = seeds.size() - 1; i >= 0; i--) {
+            stack.push(seeds.get(i));
         }
+
+        while (!stack.isEmpty()) {
+            process(stack.pop(), stack, candidates);
+
+            if (candidates.size() >= chunkSize) {
+                evaluate(candidates);
+                candidates.clear();
+            }
+        }
+
+        evaluate(candidates);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
     /**
-     * Retrieve all parts at acceptable distance from at least one member of the
-     * provided set.
+     * Build the compounds of the provided candidate subsets and evaluate them in order.
      *
-     * @param set the provided set
-     * @return all the parts reachable from the set
+     * @param candidates the candidate subsets
      */
-    private Set<Glyph> getOutliers (Set<Glyph> set)
+    private void evaluate (List<BitSet> candidates)
     {
-        Set<Glyph> outliers = new LinkedHashSet<>();
+        final int count = candidates.size();
+        final Glyph[] compounds = new Glyph[count];
+
+        if (OmrExecutors.defaultParallelism.getValue()
+                    && (count >= constants.minParallelCount.getValue())) {
+            // Build compounds in parallel
+            final List<Callable<Void>> tasks = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                tasks.add(() -> {
+                    compounds[index] = buildCompound(candidates.get(index));
+
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                logger.warn("Error building compounds {}", ex.toString(), ex);
+            }
+        }
+
+        // Evaluate in enumeration order
+        for (int i = 0; i < count; i++) {
+            final Glyph compound = (compounds[i] != null) ? compounds[i]
+                    : buildCompound(candidates.get(i));
+            compound.addGroup(group);
 
-        for (Glyph part : set) {
-            outliers.addAll(adapter.getNeighbors(part));
+            // Create all acceptable inters, if any, for the compound
+            adapter.evaluateGlyph(compound, getParts(candidates.get(i)));
         }
+    }
 
-        outliers.removeAll(set);
+    //---------------//
+    // buildCompound //
+    //---------------//
+    /**
+     * Build the glyph made of the provided subset of parts.
+     *
+     * @param set the subset of part indices
+     * @return the compound glyph (or the part itself if alone)
+     */
+    private Glyph buildCompound (BitSet set)
+    {
+        if (set.cardinality() == 1) {
+            return parts.get(set.nextSetBit(0));
+        }
 
-        return outliers;
+        return GlyphFactory.buildGlyph(getParts(set));
     }
 
+    //----------//
+    // getParts //
+    //----------//
     /**
-     * Process the provided set of parts.
+     * Report the parts of a subset.
      *
-     * @param parts (read only) the set of current parts
-     * @param seen  (read only) all parts considered so far (current parts plus discarded ones)
+     * @param set the subset of part indices
+     * @return the related parts
      */
-    private void process (Set<Glyph> parts,
-                          Set<Glyph> seen)
+    private Set<Glyph> getParts (BitSet set)
     {
-        ///logger.debug(" {} {} {}", set.size(), Glyphs.ids("set", set), Glyphs.ids("seen", seen));
+        final Set<Glyph> glyphs = new LinkedHashSet<>();
+
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            glyphs.add(parts.get(i));
+        }
+
+        return glyphs;
+    }
+
+    //------------//
+    // indexParts //
+    //------------//
+    /**
+     * Index parts, with their weight, bounds and neighbors.
+     */
+    private void indexParts ()
+    {
+        final int n = parts.size();
+        final Map<Glyph, Integer> indices = new HashMap<>();
+        weights = new int[n];
+        boxes = new Rectangle[n];
+        neighbors = new BitSet[n];
+        totalWeight = 0;
+
+        for (int i = 0; i < n; i++) {
+            final Glyph part = parts.get(i);
+            indices.put(part, i);
+            weights[i] = part.getWeight();
+            boxes[i] = part.getBounds();
+            totalWeight += weights[i];
+        }
+
+        for (int i = 0; i < n; i++) {
+            neighbors[i] = new BitSet(n);
 
+            for (Glyph neighbor : adapter.getNeighbors(parts.get(i))) {
+                final Integer j = indices.get(neighbor);
+
+                if (j != null) {
+                    neighbors[i].set(j);
+                }
+            }
+        }
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Process the provided subset of parts.
+     *
+     * @param subset     the subset to process
+     * @param stack      (output) the stack of subsets to process
+     * @param candidates (output) the subsets to evaluate
+     */
+    private void process (Subset subset,
+                          Deque<Subset> stack,
+                          List<BitSet> candidates)
+    {
         // Check what we have got
-        final int weight = Glyphs.weightOf(parts);
+        final int weight = subset.weight;
 
         if (adapter.isTooHeavy(weight)) {
-            logger.debug("Too high weight {} for {}", weight, parts);
+            logger.debug("Too high weight {} for {}", weight, subset.set);
 
             return;
         }
 
-        Rectangle box = Glyphs.getBounds(parts);
+        if (adapter.isTooLarge(subset.box)) {
+            logger.debug("Too large  {} for {}", subset.box, subset.set);
 
-        if (adapter.isTooLarge(box)) {
-            logger.debug("Too large  {} for {}", box, parts);
+            return;
+        }
+
+        // Can this subset or any of its extensions reach a sufficient weight?
+        if (adapter.isTooLight(weight + (totalWeight - subset.seenWeight))) {
+            logger.debug("Hopeless weight {} for {}", weight, subset.set);
 
             return;
         }
 
         if (!adapter.isTooLight(weight)) {
-            // Build compound and get acceptable evaluations for the compound
-            Glyph compound = (parts.size() > 1) ? GlyphFactory.buildGlyph(parts)
-                    : parts.iterator().next();
-            compound.addGroup(group);
-
-            // Create all acceptable inters, if any, for the compound
-            adapter.evaluateGlyph(compound, parts);
+            candidates.add(subset.set);
         } else {
-            logger.debug("Too low weight {} for {}", weight, parts);
+            logger.debug("Too low weight {} for {}", weight, subset.set);
         }
 
-        // Then, identify all outliers immediately reachable from the compound
-        Set<Glyph> outliers = getOutliers(parts);
-        outliers.removeAll(seen);
+        // Then, identify all outliers immediately reachable from the subset
+        final BitSet outliers = new BitSet(parts.size());
+
+        for (int i = subset.set.nextSetBit(0); i >= 0; i = subset.set.nextSetBit(i + 1)) {
+            outliers.or(neighbors[i]);
+        }
+
+        outliers.andNot(subset.seen);
 
         if (outliers.isEmpty()) {
             return; // No further growth is possible
         }
 
-        ///logger.debug("      {}", Glyphs.ids("outliers", outliers));
-        Rectangle setBox = Glyphs.getBounds(parts);
-        Set<Glyph> newConsidered = new LinkedHashSet<>(seen);
+        final BitSet newSeen = (BitSet) subset.seen.clone();
+        int newSeenWeight = subset.seenWeight;
+        final List<Subset> larger = new ArrayList<>();
 
-        for (Glyph outlier : outliers) {
-            newConsidered.add(outlier);
+        for (int o = outliers.nextSetBit(0); o >= 0; o = outliers.nextSetBit(o + 1)) {
+            newSeen.set(o);
+            newSeenWeight += weights[o];
 
-            // Check appending this atom does not make the resulting symbol too wide or too high
-            Rectangle symBox = outlier.getBounds().union(setBox);
+            // Check appending this part does not make the resulting symbol too wide or too high
+            final Rectangle symBox = boxes[o].union(subset.box);
 
             if (!adapter.isTooLarge(symBox)) {
-                Set<Glyph> largerSet = new LinkedHashSet<>(parts);
-                largerSet.add(outlier);
-                process(largerSet, newConsidered);
+                final BitSet largerSet = (BitSet) subset.set.clone();
+                largerSet.set(o);
+                larger.add(new Subset(largerSet, weight + weights[o], symBox,
+                                      (BitSet) newSeen.clone(), newSeenWeight));
             }
         }
+
+        // Push in reverse order, to process them in natural order
+        for (int i = larger.size() - 1; i >= 0; i--) {
+            stack.push(larger.get(i));
+        }
     }
 
     //-------------//
@@ -366,4 +545,61 @@ public class GlyphCluster
             return false;
         }
     }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer chunkSize = new Constant.Integer(
+                "Subsets",
+                64,
+                "Number of candidate subsets whose compounds are built together");
+
+        private final Constant.Integer minParallelCount = new Constant.Integer(
+                "Subsets",
+                8,
+                "Minimum number of candidate subsets to build compounds in parallel");
+    }
+
+    //--------//
+    // Subset //
+    //--------//
+    /**
+     * A subset of parts, with its cumulated weight and bounds, and the parts already
+     * seen on its enumeration path.
+     */
+    private static class Subset
+    {
+
+        /** Part indices. */
+        final BitSet set;
+
+        /** Cumulated weight of parts. */
+        final int weight;
+
+        /** Union of part bounds. */
+        final Rectangle box;
+
+        /** Parts seen so far (subset parts plus discarded ones). */
+        final BitSet seen;
+
+        /** Cumulated weight of seen parts. */
+        final int seenWeight;
+
+        Subset (BitSet set,
+                int weight,
+                Rectangle box,
+                BitSet seen,
+                int seenWeight)
+        {
+            this.set = set;
+            this.weight = weight;
+            this.box = box;
+            this.seen = seen;
+            this.seenWeight = seenWeight;
+        }
+    }
 }
@@ -460,6 +460,14 @@ public class FilamentFactory<F extends Filament>
         params.minSectionAspect = value;
     }
 
+    //------------------//
+    // setUseMergeIndex //
+    //------------------//
+    void setUseMergeIndex (boolean value)
+    {
+        params.useMergeIndex = value;
+    }
+
     //----------//
     // canMerge //
     //----------//
@@ -895,11 +903,101 @@ public class FilamentFactory<F extends Filament>
     //----------------//
     /**
      * Aggregate filaments into longer ones.
+     * <p>
+     * Filaments are browsed by decreasing length, each one being checked against the longer
+     * filaments still active.
+     * By default, these longer filaments are kept in a spatial index, so that only the ones close
+     * enough to the candidate get examined, in the same order as a plain scan of the sorted list.
      */
     private void mergeFilaments (List<F> filaments)
     {
         Collections.sort(filaments, Compounds.byReverseLength(orientation));
 
+        if (params.useMergeIndex) {
+            mergeByIndex(filaments);
+        } else {
+            mergeByScan(filaments);
+        }
+
+        // Discard the merged filaments
+        removeMergedFilaments(filaments);
+    }
+
+    //--------------//
+    // mergeByIndex //
+    //--------------//
+    /**
+     * Merge the sorted filaments, checking each candidate against the indexed longer
+     * filaments around it.
+     *
+     * @param filaments the filaments sorted by decreasing length
+     */
+    private void mergeByIndex (List<F> filaments)
+    {
+        final MergeIndex heads = new MergeIndex();
+
+        // Browse by decreasing filament length
+        for (int rank = 0; rank < filaments.size(); rank++) {
+            final Filament current = filaments.get(rank);
+            Filament candidate = current;
+
+            // Keep on working while we do have a candidate to check for merge
+            CandidateLoop:
+            while (true) {
+                final Rectangle candidateBounds = orientation.oriented(candidate.getBounds());
+                candidateBounds.grow(params.maxCoordGap, params.maxPosGap);
+
+                if (candidate.isVip()) {
+                    for (Filament head : heads.getVips()) {
+                        final Rectangle headBounds = orientation.oriented(head.getBounds());
+
+                        if ((head != candidate) && !headBounds.intersects(candidateBounds)) {
+                            logger.info(
+                                    "VIP no fat intersection between {} and {}",
+                                    candidate,
+                                    head);
+                        }
+                    }
+                }
+
+                // Check the candidate vs the longer filaments around
+                for (Filament head : heads.getNeighbors(candidateBounds)) {
+                    if ((head != candidate) && canMerge(head, candidate, false)) {
+                        if (logger.isDebugEnabled() || head.isVip() || candidate.isVip()) {
+                            logger.info("VIP merged {} into {}", candidate, head);
+
+                            if (candidate.isVip()) {
+                                head.setVip(true);
+                            }
+                        }
+
+                        head.stealSections(candidate);
+                        heads.update(head);
+                        candidate = head; // This is the new candidate
+
+                        continue CandidateLoop;
+                    }
+                }
+
+                break;
+            }
+
+            if (current.getPartOf() == null) {
+                heads.insert(current, rank);
+            }
+        }
+    }
+
+    //-------------//
+    // mergeByScan //
+    //-------------//
+    /**
+     * Merge the sorted filaments, checking each candidate against all longer filaments.
+     *
+     * @param filaments the filaments sorted by decreasing length
+     */
+    private void mergeByScan (List<F> filaments)
+    {
         // Browse by decreasing filament length
         for (Filament current : filaments) {
             Filament candidate = current;
@@ -946,9 +1044,6 @@ public class FilamentFactory<F extends Filament>
                 }
             }
         }
-
-        // Discard the merged filaments
-        removeMergedFilaments(filaments);
     }
 
     //--------------//
@@ -1116,6 +1211,165 @@ public class FilamentFactory<F extends Filament>
         private final Scale.Fraction minLengthForDeltaSlope = new Scale.Fraction(
                 10,
                 "Minimum filament length to apply delta slope test");
+
+        private final Scale.Fraction mergeCellSize = new Scale.Fraction(
+                4,
+                "Cell size of spatial index used to merge filaments");
+
+        private final Constant.Boolean useMergeIndex = new Constant.Boolean(
+                true,
+                "Should we use a spatial index to merge filaments?");
+    }
+
+    //------------//
+    // MergeIndex //
+    //------------//
+    /**
+     * Class <code>MergeIndex</code> is a grid of square cells over oriented filament bounds,
+     * meant to quickly retrieve the filaments that may be merged with a candidate.
+     * <p>
+     * A filament is registered in every cell its oriented bounds overlap.
+     * When a filament steals sections, its bounds can only grow, so it just gets registered in
+     * the additional cells.
+     */
+    private class MergeIndex
+    {
+
+        /** Filaments per cell. */
+        private final Map<Long, List<Filament>> cells = new HashMap<>();
+
+        /** Rank in sorted list, and oriented bounds as registered, per filament. */
+        private final Map<Filament, Rank> ranks = new HashMap<>();
+
+        /**
+         * Report the active filaments whose oriented bounds intersect the provided box,
+         * sorted by rank.
+         *
+         * @param box oriented lookup box
+         * @return the filaments found, perhaps empty
+         */
+        public List<Filament> getNeighbors (Rectangle box)
+        {
+            final Set<Filament> found = new LinkedHashSet<>();
+            final int size = params.mergeCellSize;
+
+            for (int cx = Math.floorDiv(box.x, size),
+                    cxMax = Math.floorDiv(box.x + box.width - 1, size); cx <= cxMax; cx++) {
+                for (int cy = Math.floorDiv(box.y, size),
+                        cyMax = Math.floorDiv(box.y + box.height - 1, size); cy <= cyMax; cy++) {
+                    final List<Filament> list = cells.get(keyOf(cx, cy));
+
+                    if (list != null) {
+                        found.addAll(list);
+                    }
+                }
+            }
+
+            final List<Filament> neighbors = new ArrayList<>(found.size());
+
+            for (Filament fil : found) {
+                if ((fil.getPartOf() == null) && ranks.get(fil).bounds.intersects(box)) {
+                    neighbors.add(fil);
+                }
+            }
+
+            Collections.sort(neighbors, (f1, f2) -> Integer.compare(
+                    ranks.get(f1).rank,
+                    ranks.get(f2).rank));
+
+            return neighbors;
+        }
+
+        /**
+         * Report the active indexed filaments flagged as VIP, sorted by rank.
+         *
+         * @return the VIP filaments, perhaps empty
+         */
+        public List<Filament> getVips ()
+        {
+            final List<Filament> vips = new ArrayList<>();
+
+            for (Filament fil : ranks.keySet()) {
+                if (fil.isVip() && (fil.getPartOf() == null)) {
+                    vips.add(fil);
+                }
+            }
+
+            Collections.sort(vips, (f1, f2) -> Integer.compare(
+                    ranks.get(f1).rank,
+                    ranks.get(f2).rank));
+
+            return vips;
+        }
+
+        /**
+         * Register a filament.
+         *
+         * @param fil  the filament to register
+         * @param rank its rank in sorted list
+         */
+        public void insert (Filament fil,
+                            int rank)
+        {
+            final Rectangle bounds = orientation.oriented(fil.getBounds());
+            ranks.put(fil, new Rank(rank, bounds));
+            register(fil, bounds, null);
+        }
+
+        /**
+         * Update the registration of a filament whose bounds have grown.
+         *
+         * @param fil the filament to update
+         */
+        public void update (Filament fil)
+        {
+            final Rank rank = ranks.get(fil);
+            final Rectangle bounds = orientation.oriented(fil.getBounds());
+            register(fil, bounds, rank.bounds);
+            rank.bounds = bounds;
+        }
+
+        private long keyOf (int cx,
+                            int cy)
+        {
+            return (((long) cx) << 32) | (cy & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Register filament in the cells of its new bounds, except in the cells already
+         * covered by its old bounds.
+         */
+        private void register (Filament fil,
+                               Rectangle bounds,
+                               Rectangle oldBounds)
+        {
+            final int size = params.mergeCellSize;
+            final int cxMin = Math.floorDiv(bounds.x, size);
+            final int cxMax = Math.floorDiv(bounds.x + bounds.width - 1, size);
+            final int cyMin = Math.floorDiv(bounds.y, size);
+            final int cyMax = Math.floorDiv(bounds.y + bounds.height - 1, size);
+            final Rectangle old = (oldBounds == null) ? null : new Rectangle(
+                    Math.floorDiv(oldBounds.x, size),
+                    Math.floorDiv(oldBounds.y, size),
+                    Math.floorDiv(oldBounds.x + oldBounds.width - 1, size)
+                            - Math.floorDiv(oldBounds.x, size) + 1,
+                    Math.floorDiv(oldBounds.y + oldBounds.height - 1, size)
+                            - Math.floorDiv(oldBounds.y, size) + 1);
+
+            for (int cx = cxMin; cx <= cxMax; cx++) {
+                for (int cy = cyMin; cy <= cyMax; cy++) {
+                    if ((old == null) || !old.contains(cx, cy)) {
+                        List<Filament> list = cells.get(keyOf(cx, cy));
+
+                        if (list == null) {
+                            cells.put(keyOf(cx, cy), list = new ArrayList<>());
+                        }
+
+                        list.add(fil);
+                    }
+                }
+            }
+        }
     }
 
     //------------//
@@ -1167,6 +1421,12 @@ public class FilamentFactory<F extends Filament>
 
         public double maxDeltaSlope;
 
+        /** Cell size of merge index */
+        public int mergeCellSize;
+
+        /** Use of merge index */
+        public boolean useMergeIndex;
+
         public void dump (String title)
         {
             new Dumping().dump(this, title);
@@ -1191,6 +1451,8 @@ public class FilamentFactory<F extends Filament>
 
             minLengthForDeltaSlope = scale.toPixels(constants.minLengthForDeltaSlope);
             maxDeltaSlope = constants.maxDeltaSlope.getValue();
+            mergeCellSize = Math.max(1, scale.toPixels(constants.mergeCellSize));
+            useMergeIndex = constants.useMergeIndex.isSet();
 
             probeWidth = scale.toPixels(Filament.getProbeWidth());
 
@@ -1199,4 +1461,25 @@ public class FilamentFactory<F extends Filament>
             }
         }
     }
+
+    //------//
+    // Rank //
+    //------//
+    /**
+     * Rank and registered oriented bounds of an indexed filament.
+     */
+    private static class Rank
+    {
+
+        final int rank;
+
+        Rectangle bounds;
+
+        Rank (int rank,
+              Rectangle bounds)
+        {
+            this.rank = rank;
+            this.bounds = bounds;
+        }
+    }
 }
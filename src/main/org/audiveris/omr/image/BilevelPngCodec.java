@@ -0,0 +1,834 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 B i l e v e l P n g C o d e c                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Class <code>BilevelPngCodec</code> writes and reads bilevel (black and white) images as
+ * 1-bit gray PNG files.
+ * <p>
+ * Compared with the generic 8-bit PNG written by ImageIO, the packed encoding is 8 times smaller
+ * before compression, and it uses a fast deflater level.
+ * <p>
+ * The image is cut into horizontal strips of rows, each strip being packed and deflated
+ * independently (and in parallel when allowed).
+ * The resulting raw deflate segments are flushed on byte boundaries, so their concatenation is a
+ * single valid zlib stream and the file remains a standard PNG file.
+ * Each strip is written as a separate IDAT chunk and a private ancillary chunk records the strip
+ * height, so that the strips can later be inflated in parallel as well.
+ * <p>
+ * Reading accepts any non-interlaced 1-bit gray PNG file and always provides a TYPE_BYTE_GRAY
+ * image, with 0 for black and 255 for white pixels, just like the images read by ImageIO from
+ * the 8-bit PNG files written by older Audiveris versions.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class BilevelPngCodec
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(BilevelPngCodec.class);
+
+    /** Number of bytes needed by {@link #isBilevelHeader}: signature and IHDR chunk. */
+    public static final int HEADER_LENGTH = 8 + 4 + 4 + 13 + 4;
+
+    /** PNG file signature. */
+    private static final byte[] SIGNATURE = new byte[]{
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int IHDR = chunkType("IHDR");
+
+    private static final int IDAT = chunkType("IDAT");
+
+    private static final int IEND = chunkType("IEND");
+
+    /** Private ancillary chunk, unsafe to copy, which records the strip height. */
+    private static final int STRIPS = chunkType("auST");
+
+    /** Zlib header for the default 32K window, no preset dictionary. */
+    private static final byte[] ZLIB_HEADER = new byte[]{0x78, 0x01};
+
+    /** PNG gray color type. */
+    private static final int GRAY_COLOR_TYPE = 0;
+
+    /** PNG row filter types. */
+    private static final int FILTER_NONE = 0;
+
+    private static final int FILTER_SUB = 1;
+
+    private static final int FILTER_UP = 2;
+
+    private static final int FILTER_AVERAGE = 3;
+
+    private static final int FILTER_PAETH = 4;
+
+    /** Largest prime smaller than 65536, used by Adler-32. */
+    private static final long ADLER_BASE = 65521;
+
+    /** Pixel value for black. */
+    private static final int BLACK = 0;
+
+    /** Pixel value for white. */
+    private static final int WHITE = 255;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    private BilevelPngCodec ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-----------------//
+    // isBilevelHeader //
+    //-----------------//
+    /**
+     * Check whether the provided file header describes a PNG image this codec can read.
+     *
+     * @param header the first bytes of file, at least {@link #HEADER_LENGTH} of them
+     * @param length number of bytes actually available in header
+     * @return true if a 1-bit gray non-interlaced PNG is detected
+     */
+    public static boolean isBilevelHeader (byte[] header,
+                                           int length)
+    {
+        if (length < HEADER_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (header[i] != SIGNATURE[i]) {
+                return false;
+            }
+        }
+
+        // Signature(8), IHDR length(4), IHDR type(4), width(4), height(4), depth, color, ...
+        final int base = SIGNATURE.length;
+
+        return (readInt(header, base + 4) == IHDR)
+                       && (header[base + 16] == 1)
+                       && (header[base + 17] == GRAY_COLOR_TYPE)
+                       && (header[base + 20] == 0);
+    }
+
+    //------//
+    // read //
+    //------//
+    /**
+     * Read a 1-bit gray PNG image from the provided input stream.
+     * <p>
+     * The caller is expected to have checked the file header via {@link #isBilevelHeader}.
+     *
+     * @param is the input stream, positioned at start of PNG signature
+     * @return the TYPE_BYTE_GRAY image
+     * @throws IOException if the stream is not a readable 1-bit gray PNG
+     */
+    public static BufferedImage read (InputStream is)
+            throws IOException
+    {
+        final DataInputStream in = new DataInputStream(is);
+        final byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("Not a PNG stream");
+        }
+
+        int width = -1;
+        int height = -1;
+        int stripHeight = -1;
+        final List<byte[]> idats = new ArrayList<>();
+
+        for (boolean ended = false; !ended;) {
+            final int length = in.readInt();
+            final int type = in.readInt();
+            final byte[] data = new byte[length];
+            in.readFully(data);
+
+            final CRC32 crc = new CRC32();
+            crc.update(intBytes(type));
+            crc.update(data);
+
+            if ((int) crc.getValue() != in.readInt()) {
+                throw new IOException("CRC error in PNG chunk " + chunkName(type));
+            }
+
+            if (type == IHDR) {
+                width = readInt(data, 0);
+                height = readInt(data, 4);
+
+                if ((data[8] != 1) || (data[9] != GRAY_COLOR_TYPE) || (data[12] != 0)) {
+                    throw new IOException("Not a 1-bit gray non-interlaced PNG");
+                }
+            } else if (type == STRIPS) {
+                stripHeight = readInt(data, 0);
+            } else if (type == IDAT) {
+                idats.add(data);
+            } else if (type == IEND) {
+                ended = true;
+            } else if ((type & 0x20000000) == 0) {
+                throw new IOException("Unsupported critical PNG chunk " + chunkName(type));
+            }
+        }
+
+        if ((width <= 0) || (height <= 0) || idats.isEmpty()) {
+            throw new IOException("Incomplete PNG stream");
+        }
+
+        final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        final byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+
+        if ((stripHeight > 0) && (idats.size() == stripCount(height, stripHeight))) {
+            readStrips(idats, width, height, stripHeight, pixels);
+        } else {
+            readSequential(idats, width, height, pixels);
+        }
+
+        return img;
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the provided image as a 1-bit gray PNG, provided that the image is a
+     * TYPE_BYTE_GRAY image containing only black (0) and white (255) pixels.
+     * <p>
+     * If the image does not fit these requirements, nothing is written and false is returned,
+     * letting the caller fall back to a general-purpose writer.
+     *
+     * @param image the image to write
+     * @param os    the output stream
+     * @return true if image has been written, false if image is not bilevel
+     * @throws IOException if writing failed
+     */
+    public static boolean write (BufferedImage image,
+                                 OutputStream os)
+            throws IOException
+    {
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            return false;
+        }
+
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int stripHeight = Math.max(1, constants.stripHeight.getValue());
+        final int stripCount = stripCount(height, stripHeight);
+        final Strip[] strips = new Strip[stripCount];
+        final List<Callable<Void>> tasks = new ArrayList<>(stripCount);
+
+        for (int i = 0; i < stripCount; i++) {
+            final int index = i;
+            tasks.add(() -> {
+                final int yMin = index * stripHeight;
+                final int yMax = Math.min(height, yMin + stripHeight) - 1;
+                strips[index] = encodeStrip(image.getRaster(), yMin, yMax, index == stripCount - 1);
+
+                return null;
+            });
+        }
+
+        runTasks(tasks);
+
+        for (Strip strip : strips) {
+            if (strip == null) {
+                logger.debug("Image is not bilevel");
+
+                return false;
+            }
+        }
+
+        // Adler-32 checksum of the whole uncompressed data
+        long adler = 1;
+
+        for (Strip strip : strips) {
+            adler = adlerCombine(adler, strip.adler, strip.rawLength);
+        }
+
+        final DataOutputStream out = new DataOutputStream(os);
+        out.write(SIGNATURE);
+
+        final byte[] ihdr = new byte[13];
+        writeInt(ihdr, 0, width);
+        writeInt(ihdr, 4, height);
+        ihdr[8] = 1; // Bit depth
+        ihdr[9] = GRAY_COLOR_TYPE;
+        // Compression method, filter method and interlace method are all 0
+        writeChunk(out, IHDR, ihdr, 0, ihdr.length);
+
+        writeChunk(out, STRIPS, intBytes(stripHeight), 0, 4);
+
+        for (int i = 0; i < stripCount; i++) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream(
+                    strips[i].deflatedLength + ZLIB_HEADER.length + 4);
+
+            if (i == 0) {
+                bos.write(ZLIB_HEADER);
+            }
+
+            bos.write(strips[i].deflated, 0, strips[i].deflatedLength);
+
+            if (i == stripCount - 1) {
+                bos.write(intBytes((int) adler));
+            }
+
+            final byte[] data = bos.toByteArray();
+            writeChunk(out, IDAT, data, 0, data.length);
+        }
+
+        writeChunk(out, IEND, new byte[0], 0, 0);
+        out.flush();
+
+        return true;
+    }
+
+    //--------------//
+    // adlerCombine //
+    //--------------//
+    /**
+     * Combine two Adler-32 checksums, as zlib adler32_combine does.
+     *
+     * @param adler1 checksum of first sequence
+     * @param adler2 checksum of second sequence
+     * @param len2   length of second sequence
+     * @return checksum of the concatenated sequences
+     */
+    private static long adlerCombine (long adler1,
+                                      long adler2,
+                                      long len2)
+    {
+        final long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += ((adler2 & 0xFFFF) + ADLER_BASE) - 1;
+        sum2 += ((((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE) - rem);
+
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+
+        return sum1 | (sum2 << 16);
+    }
+
+    //-----------//
+    // chunkName //
+    //-----------//
+    private static String chunkName (int type)
+    {
+        return new String(intBytes(type), StandardCharsets.US_ASCII);
+    }
+
+    //-----------//
+    // chunkType //
+    //-----------//
+    private static int chunkType (String name)
+    {
+        return readInt(name.getBytes(StandardCharsets.US_ASCII), 0);
+    }
+
+    //-------------//
+    // encodeStrip //
+    //-------------//
+    /**
+     * Pack and deflate the rows of one strip.
+     *
+     * @param raster the image raster
+     * @param yMin   first row of strip
+     * @param yMax   last row of strip
+     * @param isLast true for the last strip of image
+     * @return the encoded strip, or null if a non-bilevel pixel was found
+     */
+    private static Strip encodeStrip (Raster raster,
+                                      int yMin,
+                                      int yMax,
+                                      boolean isLast)
+    {
+        final int width = raster.getWidth();
+        final int lineLength = 1 + ((width + 7) >> 3);
+        final byte[] raw = new byte[((yMax - yMin) + 1) * lineLength];
+        final byte[] row = new byte[width];
+
+        for (int y = yMin, offset = 0; y <= yMax; y++, offset += lineLength) {
+            raster.getDataElements(0, y, width, 1, row);
+            raw[offset] = FILTER_NONE;
+
+            for (int x = 0; x < width; x++) {
+                final int val = row[x] & 0xFF;
+
+                if (val == WHITE) {
+                    raw[offset + 1 + (x >> 3)] |= (0x80 >> (x & 7));
+                } else if (val != BLACK) {
+                    return null;
+                }
+            }
+        }
+
+        final Adler32 adler = new Adler32();
+        adler.update(raw);
+
+        final Deflater deflater = new Deflater(constants.compressionLevel.getValue(), true);
+
+        try {
+            deflater.setInput(raw);
+
+            if (isLast) {
+                deflater.finish();
+            }
+
+            byte[] buf = new byte[Math.max(64, raw.length / 8)];
+            int length = 0;
+
+            while (true) {
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+
+                final int count = isLast
+                        ? deflater.deflate(buf, length, buf.length - length)
+                        : deflater.deflate(buf, length, buf.length - length, Deflater.SYNC_FLUSH);
+                length += count;
+
+                if (isLast) {
+                    if (deflater.finished()) {
+                        break;
+                    }
+                } else if (length < buf.length) {
+                    // With SYNC_FLUSH, output not filling the buffer means all input is flushed
+                    break;
+                }
+            }
+
+            return new Strip(buf, length, adler.getValue(), raw.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    //--------//
+    // expand //
+    //--------//
+    /**
+     * Expand one unfiltered packed row into gray pixels.
+     *
+     * @param line       packed line (filter byte at offset)
+     * @param offset     offset of filter byte in line buffer
+     * @param width      image width
+     * @param pixels     target gray pixels
+     * @param pixelStart offset of row in target pixels
+     */
+    private static void expand (byte[] line,
+                                int offset,
+                                int width,
+                                byte[] pixels,
+                                int pixelStart)
+    {
+        for (int x = 0; x < width; x++) {
+            final int bit = line[offset + 1 + (x >> 3)] & (0x80 >> (x & 7));
+            pixels[pixelStart + x] = (bit != 0) ? (byte) WHITE : (byte) BLACK;
+        }
+    }
+
+    //---------//
+    // inflate //
+    //---------//
+    /**
+     * Inflate exactly raw.length bytes from the inflater.
+     */
+    private static void inflate (Inflater inflater,
+                                 byte[] raw)
+            throws IOException
+    {
+        try {
+            int length = 0;
+
+            while (length < raw.length) {
+                final int count = inflater.inflate(raw, length, raw.length - length);
+
+                if (count == 0) {
+                    if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new IOException("Truncated PNG image data");
+                    }
+                }
+
+                length += count;
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupted PNG image data", ex);
+        }
+    }
+
+    //----------//
+    // intBytes //
+    //----------//
+    private static byte[] intBytes (int val)
+    {
+        final byte[] bytes = new byte[4];
+        writeInt(bytes, 0, val);
+
+        return bytes;
+    }
+
+    //---------//
+    // readInt //
+    //---------//
+    private static int readInt (byte[] bytes,
+                                int offset)
+    {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                       | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    //----------------//
+    // readSequential //
+    //----------------//
+    /**
+     * Decode the whole zlib stream, row after row, whatever the row filters.
+     */
+    private static void readSequential (List<byte[]> idats,
+                                        int width,
+                                        int height,
+                                        byte[] pixels)
+            throws IOException
+    {
+        final int lineLength = 1 + ((width + 7) >> 3);
+        final Inflater inflater = new Inflater();
+
+        try {
+            int total = 0;
+
+            for (byte[] idat : idats) {
+                total += idat.length;
+            }
+
+            final byte[] input = new byte[total];
+
+            int offset = 0;
+
+            for (byte[] idat : idats) {
+                System.arraycopy(idat, 0, input, offset, idat.length);
+                offset += idat.length;
+            }
+
+            inflater.setInput(input);
+
+            byte[] prior = new byte[lineLength];
+            byte[] line = new byte[lineLength];
+
+            for (int y = 0; y < height; y++) {
+                inflate(inflater, line);
+                unfilter(line, prior);
+                expand(line, 0, width, pixels, y * width);
+
+                final byte[] tmp = prior;
+                prior = line;
+                line = tmp;
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    //------------//
+    // readStrips //
+    //------------//
+    /**
+     * Decode the strips written by this codec, each strip on its own.
+     * <p>
+     * Each strip is a raw deflate segment and each row is unfiltered.
+     */
+    private static void readStrips (List<byte[]> idats,
+                                    int width,
+                                    int height,
+                                    int stripHeight,
+                                    byte[] pixels)
+            throws IOException
+    {
+        final int lineLength = 1 + ((width + 7) >> 3);
+        final List<Callable<Void>> tasks = new ArrayList<>(idats.size());
+
+        for (int i = 0; i < idats.size(); i++) {
+            final int index = i;
+            tasks.add(() -> {
+                final int yMin = index * stripHeight;
+                final int yMax = Math.min(height, yMin + stripHeight) - 1;
+                final byte[] raw = new byte[((yMax - yMin) + 1) * lineLength];
+                final byte[] data = idats.get(index);
+                final int skip = (index == 0) ? ZLIB_HEADER.length : 0;
+                final Inflater inflater = new Inflater(true);
+
+                try {
+                    inflater.setInput(data, skip, data.length - skip);
+                    inflate(inflater, raw);
+                } finally {
+                    inflater.end();
+                }
+
+                for (int y = yMin, offset = 0; y <= yMax; y++, offset += lineLength) {
+                    if (raw[offset] != FILTER_NONE) {
+                        throw new IOException("Unexpected filter in PNG strip row " + y);
+                    }
+
+                    expand(raw, offset, width, pixels, y * width);
+                }
+
+                return null;
+            });
+        }
+
+        runTasks(tasks);
+    }
+
+    //----------//
+    // runTasks //
+    //----------//
+    /**
+     * Run the provided tasks, in parallel if allowed.
+     */
+    private static void runTasks (List<Callable<Void>> tasks)
+            throws IOException
+    {
+        try {
+            if (OmrExecutors.defaultParallelism.getValue() && (tasks.size() > 1)) {
+                for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } else {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("BilevelPngCodec got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            throw new IOException(cause);
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    //------------//
+    // stripCount //
+    //------------//
+    private static int stripCount (int height,
+                                   int stripHeight)
+    {
+        return (height + stripHeight - 1) / stripHeight;
+    }
+
+    //----------//
+    // unfilter //
+    //----------//
+    /**
+     * Reverse the PNG filter of a packed line in place (one byte per pixel group).
+     *
+     * @param line  the line, starting with its filter byte
+     * @param prior the previous line already unfiltered (all zeros for first line)
+     */
+    private static void unfilter (byte[] line,
+                                  byte[] prior)
+            throws IOException
+    {
+        final int filter = line[0];
+
+        switch (filter) {
+        case FILTER_NONE:
+            break;
+
+        case FILTER_SUB:
+            for (int i = 2; i < line.length; i++) {
+                line[i] += line[i - 1];
+            }
+
+            break;
+
+        case FILTER_UP:
+            for (int i = 1; i < line.length; i++) {
+                line[i] += prior[i];
+            }
+
+            break;
+
+        case FILTER_AVERAGE:
+            for (int i = 1; i < line.length; i++) {
+                final int left = (i > 1) ? (line[i - 1] & 0xFF) : 0;
+                line[i] += (byte) ((left + (prior[i] & 0xFF)) >> 1);
+            }
+
+            break;
+
+        case FILTER_PAETH:
+            for (int i = 1; i < line.length; i++) {
+                final int a = (i > 1) ? (line[i - 1] & 0xFF) : 0;
+                final int b = prior[i] & 0xFF;
+                final int c = (i > 1) ? (prior[i - 1] & 0xFF) : 0;
+                final int p = (a + b) - c;
+                final int pa = Math.abs(p - a);
+                final int pb = Math.abs(p - b);
+                final int pc = Math.abs(p - c);
+                final int pred = ((pa <= pb) && (pa <= pc)) ? a : ((pb <= pc) ? b : c);
+                line[i] += (byte) pred;
+            }
+
+            break;
+
+        default:
+            throw new IOException("Invalid PNG filter type " + filter);
+        }
+
+        line[0] = FILTER_NONE;
+    }
+
+    //------------//
+    // writeChunk //
+    //------------//
+    private static void writeChunk (DataOutputStream out,
+                                    int type,
+                                    byte[] data,
+                                    int offset,
+                                    int length)
+            throws IOException
+    {
+        final CRC32 crc = new CRC32();
+        crc.update(intBytes(type));
+        crc.update(data, offset, length);
+
+        out.writeInt(length);
+        out.writeInt(type);
+        out.write(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    //----------//
+    // writeInt //
+    //----------//
+    private static void writeInt (byte[] bytes,
+                                  int offset,
+                                  int val)
+    {
+        bytes[offset] = (byte) (val >>> 24);
+        bytes[offset + 1] = (byte) (val >>> 16);
+        bytes[offset + 2] = (byte) (val >>> 8);
+        bytes[offset + 3] = (byte) val;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer compressionLevel = new Constant.Integer(
+                "level",
+                1,
+                "Deflater level (0..9) for bilevel images, 1 being the fastest compression");
+
+        private final Constant.Integer stripHeight = new Constant.Integer(
+                "rows",
+                256,
+                "Number of image rows per independently compressed strip");
+    }
+
+    //-------//
+    // Strip //
+    //-------//
+    /**
+     * The deflated data of one strip.
+     */
+    private static class Strip
+    {
+
+        /** Deflated bytes (buffer may be larger than needed). */
+        final byte[] deflated;
+
+        /** Number of meaningful bytes in deflated buffer. */
+        final int deflatedLength;
+
+        /** Adler-32 of uncompressed strip data. */
+        final long adler;
+
+        /** Length of uncompressed strip data. */
+        final int rawLength;
+
+        Strip (byte[] deflated,
+               int deflatedLength,
+               long adler,
+               int rawLength)
+        {
+            this.deflated = deflated;
+            this.deflatedLength = deflatedLength;
+            this.adler = adler;
+            this.rawLength = rawLength;
+        }
+    }
+}
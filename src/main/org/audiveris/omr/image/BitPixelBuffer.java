@@ -0,0 +1,507 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  B i t P i x e l B u f f e r                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Class <code>BitPixelBuffer</code> is a binary pixel buffer, packed as one bit per pixel.
+ * <p>
+ * Each row is stored in its own sequence of 64-bit words (64 pixels per long), the pixel at
+ * abscissa x being bit (x % 64) of word (x / 64) of its row.
+ * A bit set denotes a foreground pixel.
+ * <p>
+ * Compared to a {@link ByteProcessor}, this buffer uses 8 times less memory, and counts of
+ * foreground pixels along rows are computed on whole words via {@link Long#bitCount}.
+ * <p>
+ * Concurrent reads are safe, concurrent writes are not.
+ *
+ * @author Hervé Bitteur
+ */
+public class BitPixelBuffer
+        implements PixelSource, PixelSink
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Buffer width. */
+    private final int width;
+
+    /** Buffer height. */
+    private final int height;
+
+    /** Number of words for each row. */
+    private final int wordsPerRow;
+
+    /** The packed pixels, row after row. */
+    private final long[] words;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>BitPixelBuffer</code> object, with all pixels set as background.
+     *
+     * @param width  buffer width
+     * @param height buffer height
+     */
+    public BitPixelBuffer (int width,
+                           int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        wordsPerRow = (width + 63) >>> 6;
+        words = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Creates a new <code>BitPixelBuffer</code> object from a binary source, where
+     * foreground pixels have value 0.
+     *
+     * @param source the binary source
+     */
+    public BitPixelBuffer (ByteProcessor source)
+    {
+        this(source.getWidth(), source.getHeight());
+
+        final byte[] pixels = (byte[]) source.getPixels();
+
+        for (int y = 0; y < height; y++) {
+            final int base = y * wordsPerRow;
+            final int offset = y * width;
+
+            for (int x = 0; x < width; x++) {
+                if (pixels[offset + x] == 0) {
+                    words[base + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new <code>BitPixelBuffer</code> object from the runs of a table.
+     *
+     * @param table the run table, of any orientation
+     */
+    public BitPixelBuffer (RunTable table)
+    {
+        this(table.getWidth(), table.getHeight());
+
+        final boolean vertical = table.getOrientation().isVertical();
+
+        for (int pos = 0, size = table.getSize(); pos < size; pos++) {
+            for (Iterator<Run> it = table.iterator(pos); it.hasNext();) {
+                final Run run = it.next();
+
+                if (vertical) {
+                    final int index = pos >>> 6;
+                    final long mask = 1L << pos;
+
+                    for (int y = run.getStart(), yBreak = y + run.getLength(); y < yBreak; y++) {
+                        words[(y * wordsPerRow) + index] |= mask;
+                    }
+                } else {
+                    setRowSpan(pos, run.getStart(), run.getStop());
+                }
+            }
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------//
+    // count //
+    //-------//
+    /**
+     * Report the number of foreground pixels within the provided rectangle.
+     * The rectangle is clipped to the buffer bounds.
+     *
+     * @param rect the area to inspect
+     * @return the count of foreground pixels
+     */
+    public int count (Rectangle rect)
+    {
+        final int xMin = Math.max(0, rect.x);
+        final int xMax = Math.min(width, rect.x + rect.width) - 1;
+        final int yMin = Math.max(0, rect.y);
+        final int yMax = Math.min(height, rect.y + rect.height) - 1;
+        int count = 0;
+
+        for (int y = yMin; y <= yMax; y++) {
+            count += countRow(y, xMin, xMax);
+        }
+
+        return count;
+    }
+
+    //-------------//
+    // countColumn //
+    //-------------//
+    /**
+     * Report the number of foreground pixels in column x, between yMin and yMax.
+     *
+     * @param x    the column abscissa
+     * @param yMin first ordinate (inclusive)
+     * @param yMax last ordinate (inclusive)
+     * @return the count of foreground pixels
+     */
+    public int countColumn (int x,
+                            int yMin,
+                            int yMax)
+    {
+        final int index = x >>> 6;
+        int count = 0;
+
+        for (int y = Math.max(0, yMin), yLast = Math.min(height - 1, yMax); y <= yLast; y++) {
+            count += (int) ((words[(y * wordsPerRow) + index] >>> x) & 1L);
+        }
+
+        return count;
+    }
+
+    //----------//
+    // countRow //
+    //----------//
+    /**
+     * Report the number of foreground pixels in row y, between xMin and xMax.
+     *
+     * @param y    the row ordinate
+     * @param xMin first abscissa (inclusive)
+     * @param xMax last abscissa (inclusive)
+     * @return the count of foreground pixels
+     */
+    public int countRow (int y,
+                         int xMin,
+                         int xMax)
+    {
+        xMin = Math.max(0, xMin);
+        xMax = Math.min(width - 1, xMax);
+
+        if (xMin > xMax) {
+            return 0;
+        }
+
+        final int base = y * wordsPerRow;
+        final int first = base + (xMin >>> 6);
+        final int last = base + (xMax >>> 6);
+        final long firstMask = -1L << xMin;
+        final long lastMask = -1L >>> (63 - (xMax & 63));
+
+        if (first == last) {
+            return Long.bitCount(words[first] & firstMask & lastMask);
+        }
+
+        int count = Long.bitCount(words[first] & firstMask);
+
+        for (int i = first + 1; i < last; i++) {
+            count += Long.bitCount(words[i]);
+        }
+
+        return count + Long.bitCount(words[last] & lastMask);
+    }
+
+    //-----//
+    // get //
+    //-----//
+    @Override
+    public int get (int x,
+                    int y)
+    {
+        return isFore(x, y) ? FOREGROUND : BACKGROUND;
+    }
+
+    //-----------//
+    // getHeight //
+    //-----------//
+    @Override
+    public int getHeight ()
+    {
+        return height;
+    }
+
+    //-----------//
+    // getWeight //
+    //-----------//
+    /**
+     * Report the total number of foreground pixels.
+     *
+     * @return the buffer weight
+     */
+    public int getWeight ()
+    {
+        int weight = 0;
+
+        for (long word : words) {
+            weight += Long.bitCount(word);
+        }
+
+        return weight;
+    }
+
+    //----------//
+    // getWidth //
+    //----------//
+    @Override
+    public int getWidth ()
+    {
+        return width;
+    }
+
+    //--------//
+    // isFore //
+    //--------//
+    /**
+     * Report whether the pixel at (x, y) is a foreground pixel.
+     *
+     * @param x pixel abscissa
+     * @param y pixel ordinate
+     * @return true if foreground
+     */
+    public boolean isFore (int x,
+                           int y)
+    {
+        return ((words[(y * wordsPerRow) + (x >>> 6)] >>> x) & 1L) != 0;
+    }
+
+    //----------------//
+    // projectColumns //
+    //----------------//
+    /**
+     * Report, for each column of the provided rectangle, the number of its foreground pixels.
+     * <p>
+     * Rows are browsed word after word, only the foreground pixels get visited.
+     *
+     * @param rect the area to project
+     * @return the counts, indexed by (x - rect.x)
+     */
+    public int[] projectColumns (Rectangle rect)
+    {
+        final int[] counts = new int[rect.width];
+        final int xMin = Math.max(0, rect.x);
+        final int xMax = Math.min(width, rect.x + rect.width) - 1;
+        final int yMin = Math.max(0, rect.y);
+        final int yMax = Math.min(height, rect.y + rect.height) - 1;
+
+        if (xMin > xMax) {
+            return counts;
+        }
+
+        final long firstMask = -1L << xMin;
+        final long lastMask = -1L >>> (63 - (xMax & 63));
+
+        for (int y = yMin; y <= yMax; y++) {
+            final int base = y * wordsPerRow;
+
+            for (int i = xMin >>> 6, iLast = xMax >>> 6; i <= iLast; i++) {
+                long word = words[base + i];
+
+                if (i == (xMin >>> 6)) {
+                    word &= firstMask;
+                }
+
+                if (i == iLast) {
+                    word &= lastMask;
+                }
+
+                while (word != 0) {
+                    final int x = (i << 6) + Long.numberOfTrailingZeros(word);
+                    counts[x - rect.x]++;
+                    word &= word - 1;
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    //----------//
+    // setValue //
+    //----------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the {@link #FOREGROUND} value sets a foreground pixel, any other value sets a
+     * background pixel.
+     */
+    @Override
+    public void setValue (int x,
+                          int y,
+                          int val)
+    {
+        final int index = (y * wordsPerRow) + (x >>> 6);
+
+        if (val == FOREGROUND) {
+            words[index] |= 1L << x;
+        } else {
+            words[index] &= ~(1L << x);
+        }
+    }
+
+    //------------//
+    // setRowSpan //
+    //------------//
+    /**
+     * Set as foreground all pixels in row y, between xMin and xMax.
+     *
+     * @param y    the row ordinate
+     * @param xMin first abscissa (inclusive)
+     * @param xMax last abscissa (inclusive)
+     */
+    public void setRowSpan (int y,
+                            int xMin,
+                            int xMax)
+    {
+        final int base = y * wordsPerRow;
+        final int first = base + (xMin >>> 6);
+        final int last = base + (xMax >>> 6);
+        final long firstMask = -1L << xMin;
+        final long lastMask = -1L >>> (63 - (xMax & 63));
+
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+        } else {
+            words[first] |= firstMask;
+
+            for (int i = first + 1; i < last; i++) {
+                words[i] = -1L;
+            }
+
+            words[last] |= lastMask;
+        }
+    }
+
+    //-----------------//
+    // toByteProcessor //
+    //-----------------//
+    /**
+     * Convert this buffer to a ByteProcessor, foreground pixels being set to 0 and
+     * background pixels to 255.
+     *
+     * @return the ByteProcessor
+     */
+    public ByteProcessor toByteProcessor ()
+    {
+        final ByteProcessor buffer = new ByteProcessor(width, height);
+        final byte[] pixels = (byte[]) buffer.getPixels();
+        Arrays.fill(pixels, (byte) BACKGROUND);
+
+        for (int y = 0; y < height; y++) {
+            final int base = y * wordsPerRow;
+            final int offset = y * width;
+
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = words[base + i];
+
+                while (word != 0) {
+                    pixels[offset + (i << 6) + Long.numberOfTrailingZeros(word)] = FOREGROUND;
+                    word &= word - 1;
+                }
+            }
+        }
+
+        return buffer;
+    }
+
+    //------------//
+    // toRunTable //
+    //------------//
+    /**
+     * Convert this buffer to a RunTable of the desired orientation.
+     * <p>
+     * Horizontal runs are read word by word along each row, a vertical table is then obtained by
+     * transposition of the horizontal one.
+     *
+     * @param orientation the desired orientation
+     * @return the populated table
+     */
+    public RunTable toRunTable (Orientation orientation)
+    {
+        final RunTable table = new RunTable(Orientation.HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            final int base = y * wordsPerRow;
+            final List<Run> runs = new ArrayList<>();
+            int x = nextPixel(base, 0, true);
+
+            while (x < width) {
+                final int stop = nextPixel(base, x, false);
+                runs.add(new Run(x, stop - x));
+                x = nextPixel(base, stop, true);
+            }
+
+            table.setSequence(y, runs);
+        }
+
+        return orientation.isVertical() ? table.transpose() : table;
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        return new StringBuilder(getClass().getSimpleName()).append("{").append(width).append("x")
+                .append(height).append("}").toString();
+    }
+
+    //-----------//
+    // nextPixel //
+    //-----------//
+    /**
+     * Report the abscissa of the first pixel of desired color, starting from abscissa 'from'
+     * in the row beginning at word 'base'.
+     *
+     * @param base index of first row word
+     * @param from starting abscissa (inclusive)
+     * @param fore true for a foreground pixel, false for a background pixel
+     * @return the abscissa found, or width if none
+     */
+    private int nextPixel (int base,
+                           int from,
+                           boolean fore)
+    {
+        if (from >= width) {
+            return width;
+        }
+
+        int i = from >>> 6;
+        long word = (fore ? words[base + i] : ~words[base + i]) & (-1L << from);
+
+        while (word == 0) {
+            if (++i == wordsPerRow) {
+                return width;
+            }
+
+            word = fore ? words[base + i] : ~words[base + i];
+        }
+
+        return Math.min(width, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+}
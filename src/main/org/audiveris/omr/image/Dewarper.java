@@ -0,0 +1,408 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        D e w a r p e r                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class <code>Dewarper</code> is a pure Java de-warping engine, based on a regular grid.
+ * <p>
+ * The grid, anchored at (0,0), provides for each of its nodes the source (warped) point that
+ * corresponds to the node destination (de-warped) location.
+ * It is kept as a compact field of displacements (source - destination) at grid nodes, which are
+ * interpolated bilinearly within each grid cell.
+ * <p>
+ * Target images are processed by horizontal bands of rows in parallel:
+ * <ul>
+ * <li>A gray source is remapped with bilinear interpolation of source pixel values.</li>
+ * <li>A binary run table is remapped with nearest source pixel.</li>
+ * </ul>
+ *
+ * @author Hervé Bitteur
+ */
+public class Dewarper
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(Dewarper.class);
+
+    /** Minimum number of rows per band, when processing in parallel. */
+    private static final int MIN_BAND_HEIGHT = 64;
+
+    /** Value of background pixels. */
+    private static final int BACKGROUND = 255;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Target width. */
+    private final int width;
+
+    /** Target height. */
+    private final int height;
+
+    /** Cell width. */
+    private final int xStep;
+
+    /** Cell height. */
+    private final int yStep;
+
+    /** Horizontal number of cells. */
+    private final int xNumCells;
+
+    /** Vertical number of cells. */
+    private final int yNumCells;
+
+    /** Abscissa displacement at each grid node, row after row. */
+    private final float[] dxs;
+
+    /** Ordinate displacement at each grid node, row after row. */
+    private final float[] dys;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>Dewarper</code> object.
+     *
+     * @param width         target width
+     * @param height        target height
+     * @param xStep         cell width
+     * @param xNumCells     horizontal number of cells
+     * @param yStep         cell height
+     * @param yNumCells     vertical number of cells
+     * @param warpPositions all source (warped) positions as a flat array of (x, y) float values,
+     *                      for (xNumCells + 1) * (yNumCells + 1) nodes row after row
+     */
+    public Dewarper (int width,
+                     int height,
+                     int xStep,
+                     int xNumCells,
+                     int yStep,
+                     int yNumCells,
+                     float[] warpPositions)
+    {
+        if ((xNumCells * xStep < width) || (yNumCells * yStep < height)) {
+            throw new IllegalArgumentException("Dewarp grid does not cover target");
+        }
+
+        final int nodeCount = (xNumCells + 1) * (yNumCells + 1);
+
+        if (warpPositions.length != (2 * nodeCount)) {
+            throw new IllegalArgumentException("Expected " + (2 * nodeCount) + " warp positions");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.xStep = xStep;
+        this.xNumCells = xNumCells;
+        this.yStep = yStep;
+        this.yNumCells = yNumCells;
+
+        dxs = new float[nodeCount];
+        dys = new float[nodeCount];
+
+        for (int ir = 0, i = 0; ir <= yNumCells; ir++) {
+            for (int ic = 0; ic <= xNumCells; ic++, i++) {
+                dxs[i] = warpPositions[2 * i] - (ic * xStep);
+                dys[i] = warpPositions[(2 * i) + 1] - (ir * yStep);
+            }
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // dewarp //
+    //--------//
+    /**
+     * De-warp a gray source, using bilinear interpolation of source pixels.
+     * <p>
+     * Target pixels that map outside of source are set as background (white).
+     *
+     * @param source the (warped) gray source
+     * @return the de-warped gray buffer, of target dimension
+     */
+    public ByteProcessor dewarp (ByteProcessor source)
+    {
+        final int srcWidth = source.getWidth();
+        final int srcHeight = source.getHeight();
+        final byte[] srcPixels = (byte[]) source.getPixels();
+        final ByteProcessor target = new ByteProcessor(width, height);
+        final byte[] pixels = (byte[]) target.getPixels();
+
+        processBands((yMin, yMax) -> {
+            final float[] srcXs = new float[width];
+            final float[] srcYs = new float[width];
+
+            for (int y = yMin; y < yMax; y++) {
+                computeRow(y, srcXs, srcYs);
+
+                for (int x = 0, offset = y * width; x < width; x++) {
+                    final float sx = srcXs[x];
+                    final float sy = srcYs[x];
+                    final int x0 = (int) Math.floor(sx);
+                    final int y0 = (int) Math.floor(sy);
+                    final float fx = sx - x0;
+                    final float fy = sy - y0;
+                    final int v00 = valueAt(srcPixels, srcWidth, srcHeight, x0, y0);
+                    final int v10 = valueAt(srcPixels, srcWidth, srcHeight, x0 + 1, y0);
+                    final int v01 = valueAt(srcPixels, srcWidth, srcHeight, x0, y0 + 1);
+                    final int v11 = valueAt(srcPixels, srcWidth, srcHeight, x0 + 1, y0 + 1);
+                    final float top = v00 + (fx * (v10 - v00));
+                    final float bot = v01 + (fx * (v11 - v01));
+
+                    pixels[offset + x] = (byte) Math.round(top + (fy * (bot - top)));
+                }
+            }
+        });
+
+        return target;
+    }
+
+    //--------//
+    // dewarp //
+    //--------//
+    /**
+     * De-warp a binary run table, using the nearest source pixel.
+     *
+     * @param source the (warped) run table, of any orientation
+     * @return the de-warped table, of target dimension and same orientation as source
+     */
+    public RunTable dewarp (RunTable source)
+    {
+        final BitPixelBuffer bits = new BitPixelBuffer(source);
+        final int srcWidth = bits.getWidth();
+        final int srcHeight = bits.getHeight();
+        final RunTable target = new RunTable(Orientation.HORIZONTAL, width, height);
+
+        processBands((yMin, yMax) -> {
+            final float[] srcXs = new float[width];
+            final float[] srcYs = new float[width];
+
+            for (int y = yMin; y < yMax; y++) {
+                computeRow(y, srcXs, srcYs);
+
+                final List<Run> runs = new ArrayList<>();
+                int start = -1;
+
+                for (int x = 0; x <= width; x++) {
+                    boolean fore = false;
+
+                    if (x < width) {
+                        final int sx = Math.round(srcXs[x]);
+                        final int sy = Math.round(srcYs[x]);
+                        fore = (sx >= 0) && (sx < srcWidth) && (sy >= 0) && (sy < srcHeight)
+                                       && bits.isFore(sx, sy);
+                    }
+
+                    if (fore) {
+                        if (start == -1) {
+                            start = x;
+                        }
+                    } else if (start != -1) {
+                        runs.add(new Run(start, x - start));
+                        start = -1;
+                    }
+                }
+
+                target.setSequence(y, runs);
+            }
+        });
+
+        return source.getOrientation().isVertical() ? target.transpose() : target;
+    }
+
+    //----------//
+    // sourceOf //
+    //----------//
+    /**
+     * Report the source (warped) point that corresponds to the provided target point.
+     *
+     * @param x target abscissa
+     * @param y target ordinate
+     * @return the source point
+     */
+    public Point2D sourceOf (double x,
+                             double y)
+    {
+        final int ic = cellIndex(x, xStep, xNumCells);
+        final int ir = cellIndex(y, yStep, yNumCells);
+        final double fx = (x / xStep) - ic;
+        final double fy = (y / yStep) - ir;
+        final int i = (ir * (xNumCells + 1)) + ic;
+        final int j = i + xNumCells + 1;
+
+        return new Point2D.Double(
+                x + bilinear(dxs[i], dxs[i + 1], dxs[j], dxs[j + 1], fx, fy),
+                y + bilinear(dys[i], dys[i + 1], dys[j], dys[j + 1], fx, fy));
+    }
+
+    //------------//
+    // computeRow //
+    //------------//
+    /**
+     * Compute the source coordinates of all pixels in a target row.
+     * <p>
+     * Node displacements are first interpolated vertically at row ordinate, then horizontally
+     * for each abscissa.
+     *
+     * @param y     target row ordinate
+     * @param srcXs (output) source abscissa for each target abscissa
+     * @param srcYs (output) source ordinate for each target abscissa
+     */
+    private void computeRow (int y,
+                             float[] srcXs,
+                             float[] srcYs)
+    {
+        final int ir = cellIndex(y, yStep, yNumCells);
+        final float fy = ((float) (y - (ir * yStep))) / yStep;
+        final int north = ir * (xNumCells + 1);
+        final int south = north + xNumCells + 1;
+        final float[] rowDxs = new float[xNumCells + 1];
+        final float[] rowDys = new float[xNumCells + 1];
+
+        for (int ic = 0; ic <= xNumCells; ic++) {
+            rowDxs[ic] = dxs[north + ic] + (fy * (dxs[south + ic] - dxs[north + ic]));
+            rowDys[ic] = dys[north + ic] + (fy * (dys[south + ic] - dys[north + ic]));
+        }
+
+        for (int x = 0; x < width; x++) {
+            final int ic = Math.min(x / xStep, xNumCells - 1);
+            final float fx = ((float) (x - (ic * xStep))) / xStep;
+            srcXs[x] = x + rowDxs[ic] + (fx * (rowDxs[ic + 1] - rowDxs[ic]));
+            srcYs[x] = y + rowDys[ic] + (fx * (rowDys[ic + 1] - rowDys[ic]));
+        }
+    }
+
+    //--------------//
+    // processBands //
+    //--------------//
+    /**
+     * Process all target rows, by bands in parallel if possible.
+     *
+     * @param processor the processor of a band of rows
+     */
+    private void processBands (BandProcessor processor)
+    {
+        final int bandCount = OmrExecutors.defaultParallelism.getValue()
+                ? Math.min(OmrExecutors.getNumberOfCpus(), height / MIN_BAND_HEIGHT) : 1;
+
+        if (bandCount < 2) {
+            processor.process(0, height);
+
+            return;
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<>(bandCount);
+
+        for (int b = 0; b < bandCount; b++) {
+            final int yMin = (b * height) / bandCount;
+            final int yMax = ((b + 1) * height) / bandCount;
+            tasks.add(() -> {
+                processor.process(yMin, yMax);
+
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.warn("Error dewarping by bands {}", ex.toString(), ex);
+        }
+    }
+
+    //----------//
+    // bilinear //
+    //----------//
+    private static double bilinear (double v00,
+                                    double v10,
+                                    double v01,
+                                    double v11,
+                                    double fx,
+                                    double fy)
+    {
+        final double top = v00 + (fx * (v10 - v00));
+        final double bot = v01 + (fx * (v11 - v01));
+
+        return top + (fy * (bot - top));
+    }
+
+    //-----------//
+    // cellIndex //
+    //-----------//
+    private static int cellIndex (double coord,
+                                  int step,
+                                  int numCells)
+    {
+        return Math.max(0, Math.min((int) Math.floor(coord / step), numCells - 1));
+    }
+
+    //---------//
+    // valueAt //
+    //---------//
+    private static int valueAt (byte[] pixels,
+                                int srcWidth,
+                                int srcHeight,
+                                int x,
+                                int y)
+    {
+        if ((x < 0) || (x >= srcWidth) || (y < 0) || (y >= srcHeight)) {
+            return BACKGROUND;
+        }
+
+        return pixels[(y * srcWidth) + x] & 0xff;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //---------------//
+    // BandProcessor //
+    //---------------//
+    /**
+     * Processing of a band of target rows.
+     */
+    private interface BandProcessor
+    {
+
+        /**
+         * Process target rows in [yMin, yMax) range.
+         *
+         * @param yMin first row
+         * @param yMax row past the band
+         */
+        void process (int yMin,
+                      int yMax);
+    }
+}
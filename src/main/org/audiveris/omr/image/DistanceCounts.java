@@ -0,0 +1,166 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  D i s t a n c e C o u n t s                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.audiveris.omr.image.ChamferDistance.VALUE_UNKNOWN;
+
+import java.awt.Rectangle;
+
+/**
+ * Class <code>DistanceCounts</code> provides summed-area tables of foreground and unknown
+ * locations of a {@link DistanceSource}, within a rectangular window.
+ * <p>
+ * Once built, the number of foreground (zero distance) locations and of unknown (neutralized)
+ * locations in any rectangle are read in constant time.
+ * Locations outside the window are reported as unknown, which is the conservative choice for the
+ * computation of template matching lower bounds.
+ *
+ * @author Hervé Bitteur
+ */
+public class DistanceCounts
+{
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** Window actually covered, within table bounds. */
+    private final Rectangle window;
+
+    /** Row length in summed-area tables. */
+    private final int stride;
+
+    /** Summed-area table of foreground locations. */
+    private final int[] fores;
+
+    /** Summed-area table of unknown locations. */
+    private final int[] unknowns;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>DistanceCounts</code> object.
+     *
+     * @param distances the distance table
+     * @param window    the window of interest, clipped to table bounds
+     */
+    public DistanceCounts (DistanceSource distances,
+                           Rectangle window)
+    {
+        this.window = window.intersection(
+                new Rectangle(0, 0, distances.getWidth(), distances.getHeight()));
+
+        final int width = Math.max(0, this.window.width);
+        final int height = Math.max(0, this.window.height);
+        stride = width + 1;
+        fores = new int[stride * (height + 1)];
+        unknowns = new int[stride * (height + 1)];
+
+        for (int j = 0; j < height; j++) {
+            final int y = this.window.y + j;
+            final int above = j * stride;
+            final int current = above + stride;
+            int rowFores = 0;
+            int rowUnknowns = 0;
+
+            for (int i = 0; i < width; i++) {
+                final int val = distances.getValue(this.window.x + i, y);
+
+                if (val == 0) {
+                    rowFores++;
+                } else if (val == VALUE_UNKNOWN) {
+                    rowUnknowns++;
+                }
+
+                fores[current + i + 1] = fores[above + i + 1] + rowFores;
+                unknowns[current + i + 1] = unknowns[above + i + 1] + rowUnknowns;
+            }
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // getForeCount //
+    //--------------//
+    /**
+     * Report the number of foreground locations in the provided rectangle.
+     *
+     * @param rect the absolute rectangle
+     * @return the count of foreground locations, within window
+     */
+    public int getForeCount (Rectangle rect)
+    {
+        final Rectangle r = rect.intersection(window);
+
+        if (r.isEmpty()) {
+            return 0;
+        }
+
+        return sum(fores, r);
+    }
+
+    //-----------------//
+    // getUnknownCount //
+    //-----------------//
+    /**
+     * Report the number of unknown locations in the provided rectangle.
+     * <p>
+     * Any location outside the window is considered as unknown.
+     *
+     * @param rect the absolute rectangle
+     * @return the count of unknown locations
+     */
+    public int getUnknownCount (Rectangle rect)
+    {
+        final Rectangle r = rect.intersection(window);
+
+        if (r.isEmpty()) {
+            return rect.width * rect.height;
+        }
+
+        return ((rect.width * rect.height) - (r.width * r.height)) + sum(unknowns, r);
+    }
+
+    //-----------//
+    // getWindow //
+    //-----------//
+    /**
+     * Report the window actually covered.
+     *
+     * @return a copy of the covered window
+     */
+    public Rectangle getWindow ()
+    {
+        return new Rectangle(window);
+    }
+
+    //-----//
+    // sum //
+    //-----//
+    private int sum (int[] table,
+                     Rectangle r)
+    {
+        final int x1 = r.x - window.x;
+        final int y1 = r.y - window.y;
+        final int x2 = x1 + r.width;
+        final int y2 = y1 + r.height;
+
+        return (table[(y2 * stride) + x2] - table[(y1 * stride) + x2])
+                       - (table[(y2 * stride) + x1] - table[(y1 * stride) + x1]);
+    }
+}
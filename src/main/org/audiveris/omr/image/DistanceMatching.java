@@ -39,7 +39,7 @@ public class DistanceMatching
      * The value at each (x,y) location is the distance to nearest reference
      * point.
      */
-    private final DistanceTable distances;
+    private final DistanceSource distances;
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -47,7 +47,7 @@ public class DistanceMatching
      *
      * @param distances the distance transform image
      */
-    public DistanceMatching (DistanceTable distances)
+    public DistanceMatching (DistanceSource distances)
     {
         this.distances = distances;
     }
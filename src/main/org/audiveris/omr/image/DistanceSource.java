@@ -0,0 +1,67 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  D i s t a n c e S o u r c e                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+/**
+ * Interface <code>DistanceSource</code> defines the read-only access to a rectangular
+ * source of distances, as expected by template matching.
+ * <p>
+ * Each raw value must be divided by the source normalizer to get a distance in pixels,
+ * except for {@link ChamferDistance#VALUE_UNKNOWN} which flags a neutralized location.
+ *
+ * @author Hervé Bitteur
+ */
+public interface DistanceSource
+{
+    //~ Methods ------------------------------------------------------------------------------------
+
+    /**
+     * Report the height of the rectangular source.
+     *
+     * @return the source height
+     */
+    int getHeight ();
+
+    /**
+     * Report the normalizing value by which each raw distance data should be divided.
+     *
+     * @return the normalizing value
+     */
+    int getNormalizer ();
+
+    /**
+     * Report the raw distance value at (x,y) location.
+     *
+     * @param x abscissa
+     * @param y ordinate
+     * @return the raw value at location
+     */
+    int getValue (int x,
+                  int y);
+
+    /**
+     * Report the width of the rectangular source.
+     *
+     * @return the source width
+     */
+    int getWidth ();
+}
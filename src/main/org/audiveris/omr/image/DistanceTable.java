@@ -33,12 +33,12 @@ import java.awt.image.DataBufferInt;
 import java.util.Arrays;
 
 /**
- * Interface <code>DistanceTable</code>
+ * Interface <code>DistanceTable</code> is a writable table of distances.
  *
  * @author Hervé Bitteur
  */
 public interface DistanceTable
-        extends Table
+        extends Table, DistanceSource
 {
     //~ Methods ------------------------------------------------------------------------------------
 
@@ -51,13 +51,6 @@ public interface DistanceTable
      */
     BufferedImage getImage (int maxDistance);
 
-    /**
-     * Report the normalizing value by which each raw distance data should be divided.
-     *
-     * @return the normalizing value
-     */
-    int getNormalizer ();
-
     //~ Inner Classes ------------------------------------------------------------------------------
     //---------//
     // Integer //
@@ -97,6 +97,18 @@ public class Template
     /** Symbol slim bounds relative to template. (perhaps a bit smaller than symbol bounds) */
     private final Rectangle slimBounds;
 
+    /** Bounds of foreground key points, relative to template. */
+    private final Rectangle foreBounds;
+
+    /** Number of foreground key points. */
+    private final int foreCount;
+
+    /** Number of exterior background key points. */
+    private final int backCount;
+
+    /** Number of interior background (hole) key points. */
+    private final int holeCount;
+
     /**
      * Offsets to defined anchors.
      * An offset is defined as the translation from template upper left corner
@@ -128,6 +140,32 @@ public class Template
         this.width = width;
         this.height = height;
         this.slimBounds = slimBounds;
+
+        Rectangle fBounds = null;
+        int fCount = 0;
+        int bCount = 0;
+        int hCount = 0;
+
+        for (PixelDistance pix : keyPoints) {
+            if (pix.d == 0) {
+                fCount++;
+
+                if (fBounds == null) {
+                    fBounds = new Rectangle(pix.x, pix.y, 1, 1);
+                } else {
+                    fBounds.add(new Rectangle(pix.x, pix.y, 1, 1));
+                }
+            } else if (pix.d > 0) {
+                bCount++;
+            } else {
+                hCount++;
+            }
+        }
+
+        foreBounds = (fBounds != null) ? fBounds : new Rectangle();
+        foreCount = fCount;
+        backCount = bCount;
+        holeCount = hCount;
     }
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -189,7 +227,7 @@ public class Template
     public double evaluate (int x,
                             int y,
                             Anchor anchor,
-                            DistanceTable distances)
+                            DistanceSource distances)
     {
         final Point ul = upperLeft(x, y, anchor);
 
@@ -235,6 +273,56 @@ public class Template
         return total / weights;
     }
 
+    //--------------------//
+    // evaluateLowerBound //
+    //--------------------//
+    /**
+     * Report a lower bound of {@link #evaluate} results for this template at abscissa x and
+     * at any ordinate in [yMin..yMax] range.
+     * <p>
+     * Only counts of foreground and unknown locations under template foreground key points are
+     * used:
+     * At most as many foreground key points can match as there are foreground locations, and at
+     * most as many can be ignored as there are unknown locations.
+     * All other key points are assumed to match perfectly.
+     *
+     * @param x      pivot location abscissa
+     * @param yMin   minimum pivot location ordinate
+     * @param yMax   maximum pivot location ordinate
+     * @param anchor pivot offset if any, WRT template upper left
+     * @param counts the foreground and unknown counts of distance table
+     * @return a value not greater than the evaluation at any (x,y) location in range
+     */
+    public double evaluateLowerBound (int x,
+                                      int yMin,
+                                      int yMax,
+                                      Anchor anchor,
+                                      DistanceCounts counts)
+    {
+        if (foreCount == 0) {
+            return 0;
+        }
+
+        final Point ul = upperLeft(x, yMin, anchor);
+        final Rectangle box = new Rectangle(
+                ul.x + foreBounds.x,
+                ul.y + foreBounds.y,
+                foreBounds.width,
+                foreBounds.height + (yMax - yMin));
+        final int unknowns = Math.min(foreCount, counts.getUnknownCount(box));
+        final int misses = foreCount - unknowns - counts.getForeCount(box);
+
+        if (misses <= 0) {
+            return 0;
+        }
+
+        final double foreWeight = constants.foreWeight.getValue();
+        final double otherWeights = (backCount * constants.backWeight.getValue())
+                                            + (holeCount * constants.holeWeight.getValue());
+
+        return (foreWeight * misses) / ((foreWeight * (foreCount - unknowns)) + otherWeights);
+    }
+
     //--------------//
     // evaluateHole //
     //--------------//
@@ -251,7 +339,7 @@ public class Template
     public double evaluateHole (int x,
                                 int y,
                                 Anchor anchor,
-                                DistanceTable distances)
+                                DistanceSource distances)
     {
         final Point ul = upperLeft(x, y, anchor);
 
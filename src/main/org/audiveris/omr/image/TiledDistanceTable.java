@@ -0,0 +1,353 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              T i l e d D i s t a n c e T a b l e                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.audiveris.omr.image.ChamferDistance.VALUE_TARGET;
+import static org.audiveris.omr.image.ChamferDistance.VALUE_UNKNOWN;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class <code>TiledDistanceTable</code> is a read-only {@link DistanceSource} of distances to
+ * foreground, computed lazily by square tiles.
+ * <p>
+ * A tile is computed only when one of its locations is first read, using a chamfer distance
+ * transform on the tile area extended by a margin.
+ * Hence:
+ * <ul>
+ * <li>Foreground locations (distance 0) are exact.</li>
+ * <li>Neutralized locations, provided by a mask, are set to {@link ChamferDistance#VALUE_UNKNOWN}
+ * as in a whole-sheet table.</li>
+ * <li>Other distances are exact up to the margin, farther locations get at least the margin
+ * distance.</li>
+ * </ul>
+ * <p>
+ * At most <code>maxTiles</code> tiles are kept.
+ * Eviction approximates least recently used order (second chance): a tile read since the previous
+ * eviction round is kept, so that tiles still visited by any system thread are not evicted.
+ * An evicted tile is simply computed again if needed, with identical content.
+ * <p>
+ * The table can be read concurrently.
+ *
+ * @author Hervé Bitteur
+ */
+public class TiledDistanceTable
+        implements DistanceSource
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Log2 of tile side. */
+    private static final int TILE_SHIFT = 8;
+
+    /** Tile side. */
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    /** Mask to get location within tile. */
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    /** The chamfer transform, stateless. */
+    private static final ChamferDistance.Short chamfer = new ChamferDistance.Short();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Foreground pixels. */
+    private final BitPixelBuffer fores;
+
+    /** Neutralized pixels. */
+    private final BitPixelBuffer unknowns;
+
+    /** Table width. */
+    private final int width;
+
+    /** Table height. */
+    private final int height;
+
+    /** Normalizing value for raw distances. */
+    private final int normalizer;
+
+    /** Margin around a tile for distance computation. */
+    private final int margin;
+
+    /** Maximum number of tiles kept. */
+    private final int maxTiles;
+
+    /** Number of tile columns. */
+    private final int tileColumns;
+
+    /** Tiles data, null for a tile not (or no longer) available. */
+    private final AtomicReferenceArray<short[]> tiles;
+
+    /** Flag (1) for each tile read since previous eviction round. */
+    private final AtomicIntegerArray used;
+
+    /** Indices of available tiles, in eviction round order. */
+    private final Deque<Integer> loaded = new ArrayDeque<>();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>TiledDistanceTable</code> object.
+     *
+     * @param fores    the foreground pixels
+     * @param unknowns the neutralized pixels, same dimension as fores
+     * @param margin   margin around a tile for distance computation
+     * @param maxTiles maximum number of tiles kept
+     */
+    public TiledDistanceTable (BitPixelBuffer fores,
+                               BitPixelBuffer unknowns,
+                               int margin,
+                               int maxTiles)
+    {
+        this.fores = fores;
+        this.unknowns = unknowns;
+        this.margin = margin;
+        this.maxTiles = Math.max(1, maxTiles);
+
+        normalizer = ChamferDistance.chamfer3[0][2];
+        width = fores.getWidth();
+        height = fores.getHeight();
+        tileColumns = (width + TILE_MASK) >>> TILE_SHIFT;
+
+        final int tileRows = (height + TILE_MASK) >>> TILE_SHIFT;
+        tiles = new AtomicReferenceArray<>(tileColumns * tileRows);
+        used = new AtomicIntegerArray(tileColumns * tileRows);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // getCopy //
+    //---------//
+    /**
+     * Make a plain table copy of the distances within the provided rectangle.
+     *
+     * @param roi the rectangular limits, or null for the whole table
+     * @return the table copy
+     */
+    public DistanceTable.Short getCopy (Rectangle roi)
+    {
+        final Rectangle r = (roi != null) ? roi : new Rectangle(0, 0, width, height);
+        final DistanceTable.Short copy = new DistanceTable.Short(r.width, r.height, normalizer);
+
+        for (int y = 0; y < r.height; y++) {
+            for (int x = 0; x < r.width; x++) {
+                copy.setValue(x, y, getValue(r.x + x, r.y + y));
+            }
+        }
+
+        return copy;
+    }
+
+    //-----------//
+    // getHeight //
+    //-----------//
+    @Override
+    public int getHeight ()
+    {
+        return height;
+    }
+
+    //----------//
+    // getImage //
+    //----------//
+    /**
+     * Report an image built with distance data, all tiles being computed.
+     *
+     * @param maxDistance upper bound for distance to be represented
+     * @return the buffered image
+     * @see DistanceTable#getImage(int)
+     */
+    public BufferedImage getImage (int maxDistance)
+    {
+        return getCopy(null).getImage(maxDistance);
+    }
+
+    //--------------------//
+    // getLoadedTileCount //
+    //--------------------//
+    /**
+     * Report the number of tiles currently available.
+     *
+     * @return the count of loaded tiles
+     */
+    public int getLoadedTileCount ()
+    {
+        synchronized (loaded) {
+            return loaded.size();
+        }
+    }
+
+    //---------------//
+    // getNormalizer //
+    //---------------//
+    @Override
+    public int getNormalizer ()
+    {
+        return normalizer;
+    }
+
+    //----------//
+    // getValue //
+    //----------//
+    @Override
+    public int getValue (int x,
+                         int y)
+    {
+        final int tileIndex = ((y >>> TILE_SHIFT) * tileColumns) + (x >>> TILE_SHIFT);
+        short[] data = tiles.get(tileIndex);
+
+        if (data == null) {
+            data = loadTile(tileIndex);
+        } else if (used.get(tileIndex) == 0) {
+            used.set(tileIndex, 1);
+        }
+
+        return data[((y & TILE_MASK) << TILE_SHIFT) + (x & TILE_MASK)];
+    }
+
+    //----------//
+    // getWidth //
+    //----------//
+    @Override
+    public int getWidth ()
+    {
+        return width;
+    }
+
+    //----------//
+    // isLoaded //
+    //----------//
+    /**
+     * Report whether the tile containing the provided location is currently available.
+     *
+     * @param x abscissa
+     * @param y ordinate
+     * @return true if tile is available
+     */
+    boolean isLoaded (int x,
+                      int y)
+    {
+        return tiles.get(((y >>> TILE_SHIFT) * tileColumns) + (x >>> TILE_SHIFT)) != null;
+    }
+
+    //-------------//
+    // computeTile //
+    //-------------//
+    /**
+     * Compute the distances of a tile.
+     *
+     * @param tileIndex index of tile
+     * @return the tile data, row after row with TILE_SIZE stride
+     */
+    private short[] computeTile (int tileIndex)
+    {
+        final Rectangle full = new Rectangle(0, 0, width, height);
+        final Rectangle tile = new Rectangle(
+                (tileIndex % tileColumns) << TILE_SHIFT,
+                (tileIndex / tileColumns) << TILE_SHIFT,
+                TILE_SIZE,
+                TILE_SIZE).intersection(full);
+        final Rectangle region = new Rectangle(tile);
+        region.grow(margin, margin);
+        region.setBounds(region.intersection(full));
+
+        // Chamfer distances to foreground within region
+        final DistanceTable sub = new DistanceTable.Short(region.width, region.height, normalizer);
+
+        for (int y = 0; y < region.height; y++) {
+            for (int x = 0; x < region.width; x++) {
+                final boolean fore = fores.isFore(region.x + x, region.y + y);
+                sub.setValue(x, y, fore ? VALUE_TARGET : VALUE_UNKNOWN);
+            }
+        }
+
+        chamfer.process(sub);
+
+        // Locations not reached are farther than margin
+        final int far = Math.max(1, margin) * normalizer;
+        final short[] data = new short[TILE_SIZE * TILE_SIZE];
+
+        for (int y = tile.y, yBreak = tile.y + tile.height; y < yBreak; y++) {
+            for (int x = tile.x, xBreak = tile.x + tile.width; x < xBreak; x++) {
+                final int val;
+
+                if (unknowns.isFore(x, y)) {
+                    val = VALUE_UNKNOWN;
+                } else {
+                    final int dist = sub.getValue(x - region.x, y - region.y);
+                    val = (dist == VALUE_UNKNOWN) ? far : dist;
+                }
+
+                data[((y & TILE_MASK) << TILE_SHIFT) + (x & TILE_MASK)] = (short) val;
+            }
+        }
+
+        return data;
+    }
+
+    //----------//
+    // loadTile //
+    //----------//
+    /**
+     * Compute and register a tile, evicting tiles if needed.
+     * <p>
+     * Computation is performed out of lock, so a tile may be computed twice concurrently,
+     * the first registered data being kept.
+     * <p>
+     * Eviction scans tiles in round order: the new tile and any tile read since the previous round
+     * get a second chance (flag is reset and tile moves to the end of the round), the first tile
+     * not flagged is evicted.
+     *
+     * @param tileIndex index of tile
+     * @return the tile data
+     */
+    private short[] loadTile (int tileIndex)
+    {
+        final short[] data = computeTile(tileIndex);
+
+        synchronized (loaded) {
+            final short[] existing = tiles.get(tileIndex);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            tiles.set(tileIndex, data);
+            loaded.addLast(tileIndex);
+
+            while (loaded.size() > maxTiles) {
+                final int index = loaded.removeFirst();
+
+                if ((index == tileIndex) || (used.get(index) == 1)) {
+                    used.set(index, 0);
+                    loaded.addLast(index);
+                } else {
+                    tiles.set(index, null);
+                }
+            }
+        }
+
+        return data;
+    }
+}
@@ -165,7 +165,7 @@ public class LagManager
                 (Run run) -> run.getLength() >= minVerticalRunLength,
                 vertTable);
         RunTableFactory runFactory = new RunTableFactory(HORIZONTAL);
-        RunTable horiTable = runFactory.createTable(shortVertTable.getBuffer());
+        RunTable horiTable = runFactory.transpose(shortVertTable);
 
         return horiTable;
     }
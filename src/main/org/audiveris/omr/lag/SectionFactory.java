@@ -29,6 +29,7 @@ import org.audiveris.omr.run.Orientation;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,9 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class <code>SectionFactory</code> builds a collection of sections out of provided runs.
@@ -60,6 +64,10 @@ import java.util.Set;
  * <li>Optionally, a {@link Lag} instance can be specified, so that the created sections get a
  * lag-wide unique id and are appended to current lag content.</li>
  * </ul>
+ * <p>
+ * When populating a lag, the table sequences can be processed by bands in parallel.
+ * Bands are cut only at empty sequences, which no section can cross, and sections are registered
+ * in the lag band after band, so that the result is identical to a sequential processing.
  *
  * @author Hervé Bitteur
  */
@@ -70,6 +78,9 @@ public class SectionFactory
 
     private static final Logger logger = LoggerFactory.getLogger(SectionFactory.class);
 
+    /** Minimum number of sequences per band, when building sections in parallel. */
+    private static final int MIN_BAND_SIZE = 256;
+
     //~ Instance fields ----------------------------------------------------------------------------
     /** The lag to populate, if any. */
     private final Lag lag;
@@ -80,8 +91,8 @@ public class SectionFactory
     /** Policy for detection of junctions. */
     private final JunctionPolicy junctionPolicy;
 
-    /** Processed sections. true/false */
-    private final Set<DynamicSection> processedSections = new LinkedHashSet<>();
+    /** Maximum number of bands, when building sections in parallel. */
+    private int maxBands = OmrExecutors.getNumberOfCpus();
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -174,7 +185,12 @@ public class SectionFactory
                                          boolean include)
     {
         // Build sections with runTable-based coordinates
-        List<DynamicSection> sections = new Build().buildSections(runTable, include);
+        List<DynamicSection> sections = buildSections(runTable);
+
+        // Store the content of runs table into the lag?
+        if (include && (lag != null)) {
+            lag.addRunTable(runTable);
+        }
 
         // Translate sections to absolute coordinates if an offset was provided
         if (offset != null) {
@@ -186,6 +202,102 @@ public class SectionFactory
         return getImmutables(sections);
     }
 
+    //-------------//
+    // setMaxBands //
+    //-------------//
+    /**
+     * Set the maximum number of bands, which defaults to the number of processors.
+     *
+     * @param maxBands the maximum number of bands
+     */
+    void setMaxBands (int maxBands)
+    {
+        this.maxBands = maxBands;
+    }
+
+    //---------------//
+    // buildSections //
+    //---------------//
+    /**
+     * Build sections from the provided table, perhaps by bands in parallel.
+     *
+     * @param runTable the table of runs
+     * @return the sections created, in sequential creation order
+     */
+    private List<DynamicSection> buildSections (RunTable runTable)
+    {
+        final int size = runTable.getSize();
+        final List<Integer> starts = (lag != null) && OmrExecutors.defaultParallelism.getValue()
+                ? getBandStarts(runTable) : null;
+
+        if ((starts == null) || (starts.size() < 2)) {
+            return new Build(true).buildSections(runTable, 0, size);
+        }
+
+        final List<Callable<List<DynamicSection>>> tasks = new ArrayList<>(starts.size());
+
+        for (int b = 0; b < starts.size(); b++) {
+            final int first = starts.get(b);
+            final int stop = (b < (starts.size() - 1)) ? starts.get(b + 1) : size;
+            tasks.add(() -> new Build(false).buildSections(runTable, first, stop));
+        }
+
+        final List<DynamicSection> sections = new ArrayList<>();
+
+        try {
+            // Register sections band after band, to keep ids as in sequential processing
+            for (Future<List<DynamicSection>> future : OmrExecutors.getCachedLowExecutor()
+                    .invokeAll(tasks)) {
+                for (DynamicSection dynSection : future.get()) {
+                    lag.register(dynSection);
+                    sections.add(dynSection);
+                }
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.warn("Error building sections by bands {}", ex.toString(), ex);
+        }
+
+        return sections;
+    }
+
+    //---------------//
+    // getBandStarts //
+    //---------------//
+    /**
+     * Determine the starting sequence of each band.
+     * <p>
+     * Bands are roughly of equal size, each cut being moved to the next empty sequence.
+     *
+     * @param runTable the table of runs
+     * @return the starting sequences, beginning with 0
+     */
+    List<Integer> getBandStarts (RunTable runTable)
+    {
+        final int size = runTable.getSize();
+        final int bandCount = Math.min(maxBands, size / MIN_BAND_SIZE);
+        final List<Integer> starts = new ArrayList<>(bandCount);
+        starts.add(0);
+
+        int last = 0;
+
+        for (int b = 1; b < bandCount; b++) {
+            int cut = Math.max(last + 1, (b * size) / bandCount);
+
+            while ((cut < size) && !runTable.isSequenceEmpty(cut)) {
+                cut++;
+            }
+
+            if (cut >= size) {
+                break;
+            }
+
+            starts.add(cut);
+            last = cut;
+        }
+
+        return starts;
+    }
+
     //---------------//
     // getImmutables //
     //---------------//
@@ -206,22 +318,6 @@ public class SectionFactory
         return sections;
     }
 
-    //-------------//
-    // isProcessed //
-    //-------------//
-    private boolean isProcessed (DynamicSection dynSection)
-    {
-        return processedSections.contains(dynSection);
-    }
-
-    //--------------//
-    // setProcessed //
-    //--------------//
-    private void setProcessed (DynamicSection dynSection)
-    {
-        processedSections.add(dynSection);
-    }
-
     //~ Inner Classes ------------------------------------------------------------------------------
     //-------//
     // Build //
@@ -239,9 +335,15 @@ public class SectionFactory
     private class Build
     {
 
+        /** True to register sections in lag as soon as they are created. */
+        private final boolean registering;
+
         /** Counter to set dynamicsection ids when no lag is used. */
         private int localId;
 
+        /** Processed sections. true/false */
+        private final Set<DynamicSection> processedSections = new LinkedHashSet<>();
+
         /** Global list of all sections created. */
         private final List<DynamicSection> created = new ArrayList<>();
 
@@ -257,26 +359,39 @@ public class SectionFactory
          */
         private final List<DynamicSection> prevActives = new ArrayList<>();
 
+        /**
+         * Create a Build instance.
+         *
+         * @param registering true to register sections in lag (if any) as soon as created,
+         *                    false to leave registration to the caller
+         */
+        Build (boolean registering)
+        {
+            this.registering = registering;
+        }
+
         //--------------//
         // buidSections //
         //--------------//
         /**
-         * Build sections from the provided table of runs.
+         * Build sections from the provided range of sequences in table of runs.
          *
          * @param runTable the table of runs
-         * @param include  if true, include the content of runTable into the lag
+         * @param first    first sequence to process
+         * @param stop     sequence index past the range
          * @return the list of created sections
          */
         public List<DynamicSection> buildSections (RunTable runTable,
-                                                   boolean include)
+                                                   int first,
+                                                   int stop)
         {
             // All runs (if any) in first sequence start each their own dynamicSection
-            for (Iterator<Run> it = runTable.iterator(0); it.hasNext();) {
-                nextActives.add(createSection(0, it.next()));
+            for (Iterator<Run> it = runTable.iterator(first); it.hasNext();) {
+                nextActives.add(createSection(first, it.next()));
             }
 
             // Now scan each pair of sequences, starting at 2nd sequence
-            for (int col = 1, size = runTable.getSize(); col < size; col++) {
+            for (int col = first + 1; col < stop; col++) {
                 // If we have runs in this sequence
                 if (!runTable.isSequenceEmpty(col)) {
                     // Copy the former next actives sections as the new previous active sections
@@ -303,11 +418,6 @@ public class SectionFactory
                 }
             }
 
-            // Store the content of runs table into the lag?
-            if (include && (lag != null)) {
-                lag.addRunTable(runTable);
-            }
-
             return created;
         }
 
@@ -343,7 +453,9 @@ public class SectionFactory
             final DynamicSection dynSection = new DynamicSection(orientation);
 
             if (lag != null) {
-                lag.register(dynSection); // Section gets an id from lag
+                if (registering) {
+                    lag.register(dynSection); // Section gets an id from lag
+                }
             } else {
                 dynSection.setId(++localId); // Use a local id
             }
@@ -356,6 +468,14 @@ public class SectionFactory
             return dynSection;
         }
 
+        //-------------//
+        // isProcessed //
+        //-------------//
+        private boolean isProcessed (DynamicSection dynSection)
+        {
+            return processedSections.contains(dynSection);
+        }
+
         //-----------------//
         // processNextSide //
         //-----------------//
@@ -487,5 +607,13 @@ public class SectionFactory
                 setProcessed(dynSection);
             }
         }
+
+        //--------------//
+        // setProcessed //
+        //--------------//
+        private void setProcessed (DynamicSection dynSection)
+        {
+            processedSections.add(dynSection);
+        }
     }
 }
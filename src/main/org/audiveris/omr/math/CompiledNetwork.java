@@ -0,0 +1,422 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 C o m p i l e d N e t w o r k                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+/**
+ * Class <code>CompiledNetwork</code> is an inference-only, read-only form of a trained
+ * {@link NeuralNetwork}.
+ * <p>
+ * Each layer is stored as one contiguous float array, transposed (input-major) so that the
+ * contribution of an input cell to all output cells is a sequential multiply-add over the array,
+ * a loop shape the JIT compiler can auto-vectorize.
+ * Biases are kept in a separate array, used as initial accumulator values.
+ * <p>
+ * A batch of input vectors is processed by blocks of {@link #BATCH_BLOCK} vectors, so that each
+ * weight is loaded once per block rather than once per input vector.
+ * <p>
+ * The transfer function is a tabulated approximation of the sigmoid, with linear interpolation,
+ * whose maximum absolute error is below {@link #SIGMOID_TOLERANCE}.
+ * <p>
+ * An instance is immutable and thus can be used concurrently.
+ *
+ * @author Hervé Bitteur
+ */
+public class CompiledNetwork
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Maximum absolute difference between fast and exact sigmoid. */
+    public static final double SIGMOID_TOLERANCE = 1e-5;
+
+    /** Number of input vectors processed together in batch mode. */
+    private static final int BATCH_BLOCK = 4;
+
+    /** Abscissa range [-SIGMOID_RANGE, +SIGMOID_RANGE] covered by the sigmoid table. */
+    private static final float SIGMOID_RANGE = 16f;
+
+    /** Number of table steps per abscissa unit. */
+    private static final float SIGMOID_SCALE = 64f;
+
+    /** Index of last table entry. */
+    private static final int SIGMOID_LAST = (int) (2 * SIGMOID_RANGE * SIGMOID_SCALE);
+
+    /** Tabulated sigmoid values. */
+    private static final float[] SIGMOID_TABLE = buildSigmoidTable();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Size of input layer. */
+    private final int inputSize;
+
+    /** Size of hidden layer. */
+    private final int hiddenSize;
+
+    /** Size of output layer. */
+    private final int outputSize;
+
+    /** Hidden weights, input-major: [input * hiddenSize + hidden]. */
+    private final float[] hiddenWeights;
+
+    /** Hidden biases. */
+    private final float[] hiddenBiases;
+
+    /** Output weights, hidden-major: [hidden * outputSize + output]. */
+    private final float[] outputWeights;
+
+    /** Output biases. */
+    private final float[] outputBiases;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Compile the provided weights.
+     *
+     * @param hiddenWeights weights to hidden layer, one row per hidden cell, bias at index 0
+     * @param outputWeights weights to output layer, one row per output cell, bias at index 0
+     */
+    CompiledNetwork (double[][] hiddenWeights,
+                     double[][] outputWeights)
+    {
+        inputSize = hiddenWeights[0].length - 1;
+        hiddenSize = hiddenWeights.length;
+        outputSize = outputWeights.length;
+
+        this.hiddenBiases = new float[hiddenSize];
+        this.hiddenWeights = transpose(hiddenWeights, hiddenBiases);
+        this.outputBiases = new float[outputSize];
+        this.outputWeights = transpose(outputWeights, outputBiases);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // getInputSize //
+    //--------------//
+    /**
+     * Report the number of cells in input layer.
+     *
+     * @return the input size
+     */
+    public int getInputSize ()
+    {
+        return inputSize;
+    }
+
+    //---------------//
+    // getOutputSize //
+    //---------------//
+    /**
+     * Report the number of cells in output layer.
+     *
+     * @return the output size
+     */
+    public int getOutputSize ()
+    {
+        return outputSize;
+    }
+
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Run the network on the provided input values.
+     *
+     * @param inputs  the input values
+     * @param outputs preallocated array for output values, or null
+     * @return the computed output values
+     */
+    public double[] run (double[] inputs,
+                         double[] outputs)
+    {
+        if (outputs == null) {
+            outputs = new double[outputSize];
+        }
+
+        final float[] ins = new float[inputSize];
+        final float[] hiddens = new float[hiddenSize];
+        final float[] outs = new float[outputSize];
+
+        for (int i = 0; i < inputSize; i++) {
+            ins[i] = (float) inputs[i];
+        }
+
+        forward(ins, hiddenWeights, hiddenBiases, hiddens);
+        forward(hiddens, outputWeights, outputBiases, outs);
+
+        for (int o = 0; o < outputSize; o++) {
+            outputs[o] = outs[o];
+        }
+
+        return outputs;
+    }
+
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Run the network on a batch of input vectors.
+     * <p>
+     * Input vectors are processed by blocks of {@link #BATCH_BLOCK}.
+     * Results are strictly identical to those of {@link #run(double[], double[])} called on each
+     * input vector.
+     *
+     * @param inputs the input vectors
+     * @return the computed output vectors, one per input vector
+     */
+    public double[][] run (double[][] inputs)
+    {
+        final int count = inputs.length;
+        final double[][] outputs = new double[count][outputSize];
+        final float[][] ins = new float[BATCH_BLOCK][inputSize];
+        final float[][] hiddens = new float[BATCH_BLOCK][hiddenSize];
+        final float[][] outs = new float[BATCH_BLOCK][outputSize];
+        int b = 0;
+
+        for (; b + BATCH_BLOCK <= count; b += BATCH_BLOCK) {
+            for (int k = 0; k < BATCH_BLOCK; k++) {
+                final double[] vector = inputs[b + k];
+                final float[] in = ins[k];
+
+                for (int i = 0; i < inputSize; i++) {
+                    in[i] = (float) vector[i];
+                }
+            }
+
+            forward(ins, hiddenWeights, hiddenBiases, hiddens);
+            forward(hiddens, outputWeights, outputBiases, outs);
+
+            for (int k = 0; k < BATCH_BLOCK; k++) {
+                final float[] out = outs[k];
+                final double[] output = outputs[b + k];
+
+                for (int o = 0; o < outputSize; o++) {
+                    output[o] = out[o];
+                }
+            }
+        }
+
+        // Remaining vectors, one at a time
+        for (; b < count; b++) {
+            run(inputs[b], outputs[b]);
+        }
+
+        return outputs;
+    }
+
+    //---------//
+    // forward //
+    //---------//
+    /**
+     * Compute one layer.
+     *
+     * @param ins     input cells
+     * @param weights layer weights, input-major
+     * @param biases  layer biases
+     * @param outs    output cells
+     */
+    private static void forward (float[] ins,
+                                 float[] weights,
+                                 float[] biases,
+                                 float[] outs)
+    {
+        final int outSize = outs.length;
+        System.arraycopy(biases, 0, outs, 0, outSize);
+
+        // Inputs are taken by pairs, to halve the passes over the accumulators
+        final int inSize = ins.length;
+        int i = 0;
+
+        for (; i + 1 < inSize; i += 2) {
+            final float x0 = ins[i];
+            final float x1 = ins[i + 1];
+            final int base0 = i * outSize;
+            final int base1 = base0 + outSize;
+
+            for (int o = 0; o < outSize; o++) {
+                outs[o] += (weights[base0 + o] * x0) + (weights[base1 + o] * x1);
+            }
+        }
+
+        if (i < inSize) {
+            final float x = ins[i];
+            final int base = i * outSize;
+
+            for (int o = 0; o < outSize; o++) {
+                outs[o] += weights[base + o] * x;
+            }
+        }
+
+        for (int o = 0; o < outSize; o++) {
+            outs[o] = sigmoid(outs[o]);
+        }
+    }
+
+    //---------//
+    // forward //
+    //---------//
+    /**
+     * Compute one layer for a block of {@link #BATCH_BLOCK} vectors.
+     * <p>
+     * Within each vector, the summation order is the same as in the single-vector method.
+     *
+     * @param ins     input cells, one vector per sample
+     * @param weights layer weights, input-major
+     * @param biases  layer biases
+     * @param outs    output cells, one vector per sample
+     */
+    private static void forward (float[][] ins,
+                                 float[] weights,
+                                 float[] biases,
+                                 float[][] outs)
+    {
+        final float[] in0 = ins[0];
+        final float[] in1 = ins[1];
+        final float[] in2 = ins[2];
+        final float[] in3 = ins[3];
+        final float[] out0 = outs[0];
+        final float[] out1 = outs[1];
+        final float[] out2 = outs[2];
+        final float[] out3 = outs[3];
+        final int outSize = biases.length;
+
+        for (float[] out : outs) {
+            System.arraycopy(biases, 0, out, 0, outSize);
+        }
+
+        // Inputs are taken by pairs, as in the single-vector method
+        final int inSize = in0.length;
+        int i = 0;
+
+        for (; i + 1 < inSize; i += 2) {
+            final float x00 = in0[i];
+            final float x01 = in0[i + 1];
+            final float x10 = in1[i];
+            final float x11 = in1[i + 1];
+            final float x20 = in2[i];
+            final float x21 = in2[i + 1];
+            final float x30 = in3[i];
+            final float x31 = in3[i + 1];
+            final int base0 = i * outSize;
+            final int base1 = base0 + outSize;
+
+            for (int o = 0; o < outSize; o++) {
+                final float w0 = weights[base0 + o];
+                final float w1 = weights[base1 + o];
+                out0[o] += (w0 * x00) + (w1 * x01);
+                out1[o] += (w0 * x10) + (w1 * x11);
+                out2[o] += (w0 * x20) + (w1 * x21);
+                out3[o] += (w0 * x30) + (w1 * x31);
+            }
+        }
+
+        if (i < inSize) {
+            final float x0 = in0[i];
+            final float x1 = in1[i];
+            final float x2 = in2[i];
+            final float x3 = in3[i];
+            final int base = i * outSize;
+
+            for (int o = 0; o < outSize; o++) {
+                final float w = weights[base + o];
+                out0[o] += w * x0;
+                out1[o] += w * x1;
+                out2[o] += w * x2;
+                out3[o] += w * x3;
+            }
+        }
+
+        for (float[] out : outs) {
+            for (int o = 0; o < outSize; o++) {
+                out[o] = sigmoid(out[o]);
+            }
+        }
+    }
+
+    //---------//
+    // sigmoid //
+    //---------//
+    /**
+     * Fast sigmoid approximation, based on linear interpolation in a table.
+     *
+     * @param val abscissa
+     * @return the approximate sigmoid value
+     */
+    static float sigmoid (float val)
+    {
+        final float t = (val + SIGMOID_RANGE) * SIGMOID_SCALE;
+
+        if (!(t > 0)) {
+            return (t == t) ? SIGMOID_TABLE[0] : t; // NaN is kept as is
+        }
+
+        if (t >= SIGMOID_LAST) {
+            return SIGMOID_TABLE[SIGMOID_LAST];
+        }
+
+        final int index = (int) t;
+        final float frac = t - index;
+        final float low = SIGMOID_TABLE[index];
+
+        return low + (frac * (SIGMOID_TABLE[index + 1] - low));
+    }
+
+    //-------------------//
+    // buildSigmoidTable //
+    //-------------------//
+    private static float[] buildSigmoidTable ()
+    {
+        final float[] table = new float[SIGMOID_LAST + 1];
+
+        for (int i = 0; i <= SIGMOID_LAST; i++) {
+            final double x = (i / (double) SIGMOID_SCALE) - SIGMOID_RANGE;
+            table[i] = (float) (1.0 / (1.0 + Math.exp(-x)));
+        }
+
+        return table;
+    }
+
+    //-----------//
+    // transpose //
+    //-----------//
+    /**
+     * Transpose a layer matrix into a contiguous input-major float array.
+     *
+     * @param matrix layer weights, one row per output cell, bias at index 0
+     * @param biases (output) array to be filled with layer biases
+     * @return the transposed weights
+     */
+    private static float[] transpose (double[][] matrix,
+                                      float[] biases)
+    {
+        final int outSize = matrix.length;
+        final int inSize = matrix[0].length - 1;
+        final float[] weights = new float[inSize * outSize];
+
+        for (int o = 0; o < outSize; o++) {
+            final double[] row = matrix[o];
+            biases[o] = (float) row[0];
+
+            for (int i = 0; i < inSize; i++) {
+                weights[(i * outSize) + o] = (float) row[i + 1];
+            }
+        }
+
+        return weights;
+    }
+}
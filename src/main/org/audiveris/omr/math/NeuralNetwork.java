@@ -23,6 +23,8 @@ package org.audiveris.omr.math;
 
 import org.audiveris.omr.classifier.TrainingMonitor;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +32,14 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -56,6 +65,8 @@ import javax.xml.stream.XMLStreamException;
  * <p>
  * The class also allows in-memory {@link #backup} and {@link #restore} operation, mainly used to
  * save the most efficient weight values during the network training.
+ * <p>
+ * For inference only, a network can be {@link #compile}d into a faster {@link CompiledNetwork}.
  *
  * @author Hervé Bitteur
  */
@@ -68,8 +79,8 @@ public class NeuralNetwork
 
     private static final Logger logger = LoggerFactory.getLogger(NeuralNetwork.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
+    /** Number of input vectors processed together by batch forward. */
+    private static final int BATCH_BLOCK = 4;
 
     //~ Instance fields ----------------------------------------------------------------------------
     /** Size of input layer. */
@@ -114,6 +125,9 @@ public class NeuralNetwork
     /** To trigger training stop. */
     private transient volatile boolean stopping = false;
 
+    /** Inference-only compiled form, if any, in sync with current weights. */
+    private transient volatile CompiledNetwork compiled;
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Create a neural network, with specified number of cells in each
@@ -225,6 +239,22 @@ public class NeuralNetwork
         return new Backup(hiddenWeights, outputWeights);
     }
 
+    //---------//
+    // compile //
+    //---------//
+    /**
+     * Build the inference-only form of this network, based on current weights.
+     *
+     * @return the compiled network
+     */
+    public CompiledNetwork compile ()
+    {
+        final CompiledNetwork cn = new CompiledNetwork(hiddenWeights, outputWeights);
+        compiled = cn;
+
+        return cn;
+    }
+
     //------//
     // dump //
     //------//
@@ -253,6 +283,21 @@ public class NeuralNetwork
         logger.info(sb.toString());
     }
 
+    //-------------//
+    // getCompiled //
+    //-------------//
+    /**
+     * Report the inference-only form of this network, compiling it if needed.
+     *
+     * @return the compiled network, in sync with current weights
+     */
+    public CompiledNetwork getCompiled ()
+    {
+        final CompiledNetwork cn = compiled;
+
+        return (cn != null) ? cn : compile();
+    }
+
     //---------------//
     // getHiddenSize //
     //---------------//
@@ -366,6 +411,7 @@ public class NeuralNetwork
         logger.debug("Network memory restore");
         this.hiddenWeights = cloneMatrix(backup.hiddenWeights);
         this.outputWeights = cloneMatrix(backup.outputWeights);
+        compiled = null;
     }
 
     //-----//
@@ -420,6 +466,43 @@ public class NeuralNetwork
         return outputs;
     }
 
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Run the neural network on a whole batch of input vectors.
+     * <p>
+     * Each layer is processed as a matrix-matrix product, a block of {@link #BATCH_BLOCK} input
+     * vectors at a time, so that each row of weights is loaded once per block rather than once per
+     * input vector.
+     * Results are strictly identical to those of {@link #run(double[], double[], double[])} called
+     * on each input vector.
+     *
+     * @param inputs the provided input vectors
+     * @return the computed output vectors, one per input vector
+     */
+    public double[][] run (double[][] inputs)
+    {
+        final int count = inputs.length;
+        final double[][] hiddens = new double[count][hiddenSize];
+        final double[][] outputs = new double[count][outputSize];
+
+        for (double[] ins : inputs) {
+            if (ins.length != inputSize) {
+                logger.error(
+                        "run method. input size {} not consistent with network input layer {}",
+                        ins.length,
+                        inputSize);
+            }
+        }
+
+        // Compute the hidden values, then the output values
+        forward(inputs, hiddenWeights, hiddens);
+        forward(hiddens, outputWeights, outputs);
+
+        return outputs;
+    }
+
     //-----------//
     // setEpochs //
     //-----------//
@@ -486,8 +569,38 @@ public class NeuralNetwork
                        double[][] desiredOutputs,
                        TrainingMonitor listener,
                        int iterPeriod)
+    {
+        train(inputs, desiredOutputs, null, null, 0, listener, iterPeriod);
+    }
+
+    //-------//
+    // train //
+    //-------//
+    /**
+     * Train the neural network pattern per pattern, with optional early stopping.
+     * <p>
+     * If test patterns are provided, the mean squared error on them is measured after each epoch.
+     * Training stops when this error has not improved for 'patience' epochs, and the weights
+     * that gave the best test error are restored.
+     *
+     * @param inputs         the provided patterns of values for input cells
+     * @param desiredOutputs the corresponding desired values for output cells
+     * @param testInputs     patterns for early stopping, or null
+     * @param testOutputs    desired outputs for test patterns, or null
+     * @param patience       number of epochs without test improvement before stopping
+     * @param listener       listener to be kept informed, or null
+     * @param iterPeriod     period for iteration notification
+     */
+    public void train (double[][] inputs,
+                       double[][] desiredOutputs,
+                       double[][] testInputs,
+                       double[][] testOutputs,
+                       int patience,
+                       TrainingMonitor listener,
+                       int iterPeriod)
     {
         stopping = false;
+        compiled = null; // Weights are going to change
 
         Objects.requireNonNull(inputs, "inputs array is null");
         Objects.requireNonNull(desiredOutputs, "desiredOutputs array is null");
@@ -495,6 +608,7 @@ public class NeuralNetwork
 
         final int patterns = inputs.length;
         final long startTime = System.currentTimeMillis();
+        final EarlyStop earlyStop = EarlyStop.create(this, testInputs, testOutputs, patience);
 
         // Allocate needed arrays
         final double[] gottenOutputs = new double[outputSize];
@@ -593,6 +707,11 @@ public class NeuralNetwork
                 }
             }
 
+            // Early stopping?
+            if ((earlyStop != null) && earlyStop.isReached(ie)) {
+                break;
+            }
+
             // Stop required?
             if (stopping) {
                 logger.info("Stopping.");
@@ -601,10 +720,157 @@ public class NeuralNetwork
             }
         }
 
+        if (earlyStop != null) {
+            earlyStop.restoreBest();
+        }
+
         final long dur = System.currentTimeMillis() - startTime;
         logger.info(String.format("Duration %,d seconds, %d iterations on %d patterns", dur / 1_000,
-                                  epochs, patterns));
+                                  iter, patterns));
         stopping = false;
+        compiled = null;
+    }
+
+    //-------//
+    // train //
+    //-------//
+    /**
+     * Train the neural network by mini-batches, with optional early stopping.
+     * <p>
+     * For each mini-batch, the gradients are computed in parallel by several workers, each on its
+     * own slice of the batch and with its own accumulators.
+     * The accumulated gradients are then reduced and their mean used to update the weights, with
+     * momentum.
+     * <p>
+     * If test patterns are provided, the mean squared error on them is measured after each epoch.
+     * Training stops when this error has not improved for 'patience' epochs, and the weights
+     * that gave the best test error are restored.
+     *
+     * @param inputs         the provided patterns of values for input cells
+     * @param desiredOutputs the corresponding desired values for output cells
+     * @param testInputs     patterns for early stopping, or null
+     * @param testOutputs    desired outputs for test patterns, or null
+     * @param batchSize      number of patterns per mini-batch
+     * @param batchRate      learning rate applied to the mean gradient of each mini-batch
+     * @param patience       number of epochs without test improvement before stopping
+     * @param listener       listener to be kept informed, or null
+     * @param iterPeriod     period for iteration notification
+     */
+    public void train (double[][] inputs,
+                       double[][] desiredOutputs,
+                       double[][] testInputs,
+                       double[][] testOutputs,
+                       int batchSize,
+                       double batchRate,
+                       int patience,
+                       TrainingMonitor listener,
+                       int iterPeriod)
+    {
+        stopping = false;
+        compiled = null; // Weights are going to change
+
+        Objects.requireNonNull(inputs, "inputs array is null");
+        Objects.requireNonNull(desiredOutputs, "desiredOutputs array is null");
+        logger.info("Network is being trained on {} epochs by batches of {}...", epochs, batchSize);
+
+        final int patterns = inputs.length;
+        final long startTime = System.currentTimeMillis();
+        final EarlyStop earlyStop = EarlyStop.create(this, testInputs, testOutputs, patience);
+
+        // Workers, each with its own accumulators
+        final int cpus = OmrExecutors.defaultParallelism.getValue()
+                ? OmrExecutors.getNumberOfCpus() : 1;
+        final int workerCount = Math.max(1, Math.min(cpus, batchSize));
+        final List<BatchWorker> workers = new ArrayList<>(workerCount);
+
+        for (int w = 0; w < workerCount; w++) {
+            workers.add(new BatchWorker(inputs, desiredOutputs));
+        }
+
+        final double[][] hiddenDeltas = createMatrix(hiddenSize, inputSize + 1, 0);
+        final double[][] outputDeltas = createMatrix(outputSize, hiddenSize + 1, 0);
+        final int[] order = new int[patterns];
+
+        for (int ip = 0; ip < patterns; ip++) {
+            order[ip] = ip;
+        }
+
+        final Random random = new Random(patterns);
+        int iter = 0;
+
+        try {
+            for (int ie = 1; ie <= epochs; ie++) {
+                iter++; // As for per-pattern training, iter = epoch
+
+                if (listener != null) {
+                    listener.epochStarted(ie);
+                }
+
+                shuffle(order, random);
+
+                double sqError = 0;
+
+                for (int from = 0; from < patterns; from += batchSize) {
+                    final int to = Math.min(from + batchSize, patterns);
+                    final int slice = ((to - from) + workerCount - 1) / workerCount;
+                    final List<BatchWorker> active = new ArrayList<>(workerCount);
+
+                    for (int w = 0; w < workerCount; w++) {
+                        final int start = from + (w * slice);
+
+                        if (start < to) {
+                            final BatchWorker worker = workers.get(w);
+                            worker.setSlice(order, start, Math.min(start + slice, to));
+                            active.add(worker);
+                        }
+                    }
+
+                    runWorkers(active);
+
+                    for (BatchWorker worker : active) {
+                        sqError += worker.sqError;
+                    }
+
+                    // Reduce worker accumulators and update weights
+                    final double rate = batchRate / (to - from);
+                    update(active, rate, hiddenWeights, hiddenDeltas, true);
+                    update(active, rate, outputWeights, outputDeltas, false);
+                }
+
+                if (listener != null) {
+                    if ((iter % iterPeriod) == 0) {
+                        listener.iterationPeriodDone(iter, sqError / patterns);
+                    }
+                }
+
+                // Early stopping?
+                if ((earlyStop != null) && earlyStop.isReached(ie)) {
+                    break;
+                }
+
+                // Stop required?
+                if (stopping) {
+                    logger.info("Stopping.");
+
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Training interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            logger.warn("Error in training " + ex.getCause(), ex.getCause());
+        }
+
+        if (earlyStop != null) {
+            earlyStop.restoreBest();
+        }
+
+        final long dur = System.currentTimeMillis() - startTime;
+        logger.info(String.format("Duration %,d seconds, %d iterations on %d patterns", dur / 1_000,
+                                  iter, patterns));
+        stopping = false;
+        compiled = null;
     }
 
     //------------//
@@ -674,6 +940,95 @@ public class NeuralNetwork
         }
     }
 
+    //---------//
+    // forward //
+    //---------//
+    /**
+     * Re-entrant batch method, which processes the input vectors by blocks of
+     * {@link #BATCH_BLOCK}.
+     * <p>
+     * Within each vector, the summation order is the same as in the single-vector method.
+     *
+     * @param ins     input cells, one vector per sample
+     * @param weights applied weights
+     * @param outs    output cells, one vector per sample
+     */
+    private void forward (double[][] ins,
+                          double[][] weights,
+                          double[][] outs)
+    {
+        final int count = ins.length;
+        int b = 0;
+
+        for (; b + BATCH_BLOCK <= count; b += BATCH_BLOCK) {
+            final double[] in0 = ins[b];
+            final double[] in1 = ins[b + 1];
+            final double[] in2 = ins[b + 2];
+            final double[] in3 = ins[b + 3];
+            final double[] out0 = outs[b];
+            final double[] out1 = outs[b + 1];
+            final double[] out2 = outs[b + 2];
+            final double[] out3 = outs[b + 3];
+
+            for (int o = out0.length - 1; o >= 0; o--) {
+                final double[] ws = weights[o];
+                double sum0 = 0;
+                double sum1 = 0;
+                double sum2 = 0;
+                double sum3 = 0;
+
+                for (int i = in0.length - 1; i >= 0; i--) {
+                    final double w = ws[i + 1];
+                    sum0 += (w * in0[i]);
+                    sum1 += (w * in1[i]);
+                    sum2 += (w * in2[i]);
+                    sum3 += (w * in3[i]);
+                }
+
+                // Bias
+                final double bias = ws[0];
+                out0[o] = sigmoid(sum0 + bias);
+                out1[o] = sigmoid(sum1 + bias);
+                out2[o] = sigmoid(sum2 + bias);
+                out3[o] = sigmoid(sum3 + bias);
+            }
+        }
+
+        // Remaining vectors, one at a time
+        for (; b < count; b++) {
+            forward(ins[b], weights, outs[b]);
+        }
+    }
+
+    //------------------//
+    // meanSquaredError //
+    //------------------//
+    /**
+     * Compute the mean squared error of current network on the provided patterns.
+     *
+     * @param inputs         input patterns
+     * @param desiredOutputs desired outputs
+     * @return the mean squared error
+     */
+    private double meanSquaredError (double[][] inputs,
+                                     double[][] desiredOutputs)
+    {
+        final double[][] outputs = run(inputs);
+        double mse = 0;
+
+        for (int ip = 0; ip < inputs.length; ip++) {
+            final double[] outs = outputs[ip];
+            final double[] des = desiredOutputs[ip];
+
+            for (int o = outputSize - 1; o >= 0; o--) {
+                final double dif = des[o] - outs[o];
+                mse += (dif * dif);
+            }
+        }
+
+        return mse / inputs.length;
+    }
+
     private double relu (double val)
     {
         return Math.max(0, val);
@@ -698,11 +1053,71 @@ public class NeuralNetwork
         return 1.0d / (1.0d + Math.exp(-val));
     }
 
+    //------------//
+    // runWorkers //
+    //------------//
+    /**
+     * Run the provided batch workers, in parallel if possible.
+     *
+     * @param workers the workers to run
+     */
+    private void runWorkers (List<BatchWorker> workers)
+            throws InterruptedException,
+                   ExecutionException
+    {
+        if (workers.size() > 1) {
+            for (Future<Void> future : OmrExecutors.getLowExecutor().invokeAll(workers)) {
+                future.get();
+            }
+        } else {
+            workers.get(0).call();
+        }
+    }
+
     private double sigmoidDif (double val)
     {
         return val * (1 - val);
     }
 
+    //--------//
+    // update //
+    //--------//
+    /**
+     * Reduce the gradients accumulated by workers and update one layer of weights.
+     *
+     * @param workers the workers of the batch
+     * @param rate    learning rate divided by batch size
+     * @param weights the layer weights to update
+     * @param deltas  the layer previous updates, for momentum
+     * @param hidden  true for hidden layer, false for output layer
+     */
+    private void update (List<BatchWorker> workers,
+                         double rate,
+                         double[][] weights,
+                         double[][] deltas,
+                         boolean hidden)
+    {
+        final int rows = weights.length;
+        final int cols = weights[0].length;
+
+        for (int r = 0; r < rows; r++) {
+            final double[] ws = weights[r];
+            final double[] ds = deltas[r];
+
+            for (int c = 0; c < cols; c++) {
+                double grad = 0;
+
+                for (BatchWorker worker : workers) {
+                    grad += (hidden ? worker.hiddenSums : worker.outputSums)[r][c];
+                }
+
+                final double dw = (rate * grad) + (momentum * ds[c]);
+                ws[c] += dw;
+                ds[c] = dw;
+            }
+        }
+    }
+
     //-----------//
     // unmarshal //
     //-----------//
@@ -720,10 +1135,31 @@ public class NeuralNetwork
         Unmarshaller um = getJaxbContext().createUnmarshaller();
         NeuralNetwork nn = (NeuralNetwork) um.unmarshal(in);
         logger.debug("Network unmarshalled");
+        nn.compile();
 
         return nn;
     }
 
+    //---------//
+    // shuffle //
+    //---------//
+    /**
+     * Shuffle the provided array of indices.
+     *
+     * @param order  the indices to shuffle
+     * @param random the source of randomness
+     */
+    private static void shuffle (int[] order,
+                                 Random random)
+    {
+        for (int i = order.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
     //-------------//
     // cloneMatrix //
     //-------------//
@@ -783,12 +1219,7 @@ public class NeuralNetwork
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(NeuralNetwork.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(NeuralNetwork.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
@@ -818,6 +1249,215 @@ public class NeuralNetwork
         }
     }
 
+    //-------------//
+    // BatchWorker //
+    //-------------//
+    /**
+     * Computes and accumulates the gradients for a slice of a mini-batch.
+     */
+    private class BatchWorker
+            implements Callable<Void>
+    {
+
+        private final double[][] inputs;
+
+        private final double[][] desiredOutputs;
+
+        private final double[] hiddens = new double[hiddenSize];
+
+        private final double[] outputs = new double[outputSize];
+
+        private final double[] hiddenGrads = new double[hiddenSize];
+
+        private final double[] outputGrads = new double[outputSize];
+
+        /** Accumulated gradients for hidden weights. */
+        private final double[][] hiddenSums = createMatrix(hiddenSize, inputSize + 1, 0);
+
+        /** Accumulated gradients for output weights. */
+        private final double[][] outputSums = createMatrix(outputSize, hiddenSize + 1, 0);
+
+        /** Accumulated squared error. */
+        private double sqError;
+
+        private int[] order;
+
+        private int from;
+
+        private int to;
+
+        BatchWorker (double[][] inputs,
+                     double[][] desiredOutputs)
+        {
+            this.inputs = inputs;
+            this.desiredOutputs = desiredOutputs;
+        }
+
+        @Override
+        public Void call ()
+        {
+            for (double[] row : hiddenSums) {
+                Arrays.fill(row, 0);
+            }
+
+            for (double[] row : outputSums) {
+                Arrays.fill(row, 0);
+            }
+
+            sqError = 0;
+
+            for (int k = from; k < to; k++) {
+                final int ip = order[k];
+                final double[] ins = inputs[ip];
+                final double[] des = desiredOutputs[ip];
+                run(ins, hiddens, outputs);
+
+                // Output layer error terms
+                for (int io = outputSize - 1; io >= 0; io--) {
+                    final double out = outputs[io];
+                    final double dif = des[io] - out;
+                    sqError += (dif * dif);
+                    outputGrads[io] = dif * sigmoidDif(out); // Sigmoid'
+                }
+
+                // Hidden layer error terms
+                for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                    double sum = 0;
+
+                    for (int o = outputSize - 1; o >= 0; o--) {
+                        sum += (outputGrads[o] * outputWeights[o][ih + 1]);
+                    }
+
+                    hiddenGrads[ih] = sum * sigmoidDif(hiddens[ih]); // Sigmoid'
+                }
+
+                // Accumulate gradients
+                for (int io = outputSize - 1; io >= 0; io--) {
+                    final double grad = outputGrads[io];
+                    final double[] sums = outputSums[io];
+
+                    for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                        sums[ih + 1] += (grad * hiddens[ih]);
+                    }
+
+                    sums[0] += grad; // Bias
+                }
+
+                for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                    final double grad = hiddenGrads[ih];
+                    final double[] sums = hiddenSums[ih];
+
+                    for (int i = inputSize - 1; i >= 0; i--) {
+                        sums[i + 1] += (grad * ins[i]);
+                    }
+
+                    sums[0] += grad; // Bias
+                }
+            }
+
+            return null;
+        }
+
+        void setSlice (int[] order,
+                       int from,
+                       int to)
+        {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    //-----------//
+    // EarlyStop //
+    //-----------//
+    /**
+     * Monitors the error on test patterns after each epoch, remembering the best weights.
+     */
+    private static class EarlyStop
+    {
+
+        final NeuralNetwork network;
+
+        final double[][] testInputs;
+
+        final double[][] testOutputs;
+
+        final int patience;
+
+        double bestError = Double.MAX_VALUE;
+
+        Backup bestBackup;
+
+        int bestEpoch;
+
+        private EarlyStop (NeuralNetwork network,
+                           double[][] testInputs,
+                           double[][] testOutputs,
+                           int patience)
+        {
+            this.network = network;
+            this.testInputs = testInputs;
+            this.testOutputs = testOutputs;
+            this.patience = patience;
+        }
+
+        /**
+         * Measure test error at end of epoch and tell whether training should stop.
+         *
+         * @param epoch the epoch just completed
+         * @return true if test error has not improved for 'patience' epochs
+         */
+        boolean isReached (int epoch)
+        {
+            final double error = network.meanSquaredError(testInputs, testOutputs);
+            logger.debug("Epoch {} test error {}", epoch, error);
+
+            if (error < bestError) {
+                bestError = error;
+                bestBackup = network.backup();
+                bestEpoch = epoch;
+            } else if ((epoch - bestEpoch) >= patience) {
+                logger.info(
+                        "Early stop at epoch {}, best test error {} at epoch {}",
+                        epoch,
+                        String.format("%.5f", bestError),
+                        bestEpoch);
+
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Restore the weights that gave the best test error.
+         */
+        void restoreBest ()
+        {
+            if (bestBackup != null) {
+                network.restore(bestBackup);
+            }
+        }
+
+        /**
+         * Create an early stop monitor, if relevant.
+         *
+         * @return the monitor, or null if no test pattern or no patience
+         */
+        static EarlyStop create (NeuralNetwork network,
+                                 double[][] testInputs,
+                                 double[][] testOutputs,
+                                 int patience)
+        {
+            if ((testInputs == null) || (testInputs.length == 0) || (patience <= 0)) {
+                return null;
+            }
+
+            return new EarlyStop(network, testInputs, testOutputs, patience);
+        }
+    }
+
     //-------------//
     // StringArray //
     //-------------//
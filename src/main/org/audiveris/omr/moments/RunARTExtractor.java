@@ -0,0 +1,334 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 R u n A R T E x t r a c t o r                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.moments;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import static org.audiveris.omr.moments.ARTMoments.*;
+import org.audiveris.omr.util.StopWatch;
+
+import java.awt.geom.Point2D;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Class <code>RunARTExtractor</code> implements extraction of ART Moments, working on runs
+ * of foreground pixels rather than on individual pixels.
+ * <p>
+ * It computes the same values as {@link BasicARTExtractor}, with the same bilinear interpolation
+ * in lookup tables, but organized differently:
+ * <ul>
+ * <li>All basis functions, real and imaginary parts, are stored in one flat table, where the
+ * values of all functions for a given LUT location are contiguous.
+ * <li>Since all pixels of a line (horizontal or vertical, according to runs orientation) share the
+ * same LUT line coordinate, the interpolation weights along the line are first cumulated, pixel by
+ * pixel, per LUT location.
+ * Then each touched LUT location contributes to all coefficients at once, with interpolation
+ * between the two LUT lines that surround the pixel line.
+ * </ul>
+ * Weight accumulation remains per pixel, but it is a cheap operation.
+ * The costly part, the update of all coefficients, is performed once per touched LUT location
+ * rather than once per pixel.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunARTExtractor
+        extends AbstractExtractor<ARTMoments>
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Constants constants = new Constants();
+
+    /** Basis function radius. */
+    private static final int LUT_RADIUS = 50;
+
+    /** LUT size, to implement [-LUT_RADIUS .. LUT_RADIUS]. */
+    private static final int LUT_SIZE = 1 + (2 * LUT_RADIUS);
+
+    /** Number of values per LUT location: real and imaginary parts of each basis function. */
+    private static final int BASIS = 2 * ANGULAR * RADIAL;
+
+    /**
+     * Flattened LUT.
+     * Real part of function (p,r) at LUT location (x,y) is found at index
+     * [(x * LUT_SIZE + y) * BASIS + 2 * (p * RADIAL + r)], imaginary part immediately follows.
+     */
+    private static final double[] TABLE = buildTable();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new RunARTExtractor object.
+     */
+    public RunARTExtractor ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //---------//
+    // extract //
+    //---------//
+    /**
+     * Extract ART moments from the provided runs, and save the results into the target
+     * descriptor.
+     * <p>
+     * Runs must be ordered by line, so that all runs of a line are consecutive.
+     *
+     * @param lines    line coordinate of each run (ordinate for horizontal runs)
+     * @param starts   starting coordinate of each run along its line
+     * @param lengths  length of each run
+     * @param count    number of runs
+     * @param vertical true for vertical runs, false for horizontal runs
+     */
+    public void extract (int[] lines,
+                         int[] starts,
+                         int[] lengths,
+                         int count,
+                         boolean vertical)
+    {
+        if (descriptor == null) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " has no target descriptor");
+        }
+
+        // Mass, center of mass and bounds
+        int m = 0;
+        long mAlong = 0;
+        long mLine = 0;
+        int minAlong = Integer.MAX_VALUE;
+        int maxAlong = Integer.MIN_VALUE;
+        int minLine = Integer.MAX_VALUE;
+        int maxLine = Integer.MIN_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            final int length = lengths[i];
+            final int start = starts[i];
+            final int line = lines[i];
+            m += length;
+            mAlong += (length * (long) start) + ((length * (length - 1)) / 2);
+            mLine += length * (long) line;
+            minAlong = Math.min(minAlong, start);
+            maxAlong = Math.max(maxAlong, (start + length) - 1);
+            minLine = Math.min(minLine, line);
+            maxLine = Math.max(maxLine, line);
+        }
+
+        if (m <= 0) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " on inconsistent input");
+        }
+
+        mass = m;
+
+        final double cAlong = mAlong / (double) m;
+        final double cLine = mLine / (double) m;
+        center = vertical ? new Point2D.Double(cLine, cAlong) : new Point2D.Double(cAlong, cLine);
+
+        final double dAlong = Math.max(Math.abs(minAlong - cAlong), Math.abs(maxAlong - cAlong));
+        final double dLine = Math.max(Math.abs(minLine - cLine), Math.abs(maxLine - cLine));
+        radius = vertical ? Math.hypot(dLine, dAlong) : Math.hypot(dAlong, dLine);
+
+        accumulate(lines, starts, lengths, count, vertical);
+    }
+
+    //-------------//
+    // reconstruct //
+    //-------------//
+    @Override
+    public void reconstruct (WritableRaster raster)
+    {
+    }
+
+    //----------------//
+    // extractMoments //
+    //----------------//
+    /**
+     * Extraction from individual points, each point being handled as a one-pixel run.
+     */
+    @Override
+    protected void extractMoments ()
+    {
+        final int[] lengths = new int[mass];
+        Arrays.fill(lengths, 1);
+        accumulate(yy, xx, lengths, mass, false);
+    }
+
+    //------------//
+    // accumulate //
+    //------------//
+    /**
+     * Cumulate the contributions of all runs, once mass, center and radius are known.
+     */
+    private void accumulate (int[] lines,
+                             int[] starts,
+                             int[] lengths,
+                             int count,
+                             boolean vertical)
+    {
+        final int max = LUT_SIZE - 1;
+        final double cAlong = vertical ? center.getY() : center.getX();
+        final double cLine = vertical ? center.getX() : center.getY();
+        final double[] coeffs = new double[BASIS]; // Real & imaginary parts
+        final double[] weights = new double[LUT_SIZE]; // Cumulated weights along current line
+
+        // Offset between two consecutive LUT lines
+        final int lineStep = vertical ? (LUT_SIZE * BASIS) : BASIS;
+
+        for (int i = 0; i < count;) {
+            final int line = lines[i];
+            final double l = (((line - cLine) * LUT_RADIUS) / radius) + LUT_RADIUS;
+            final boolean lineOk = (l >= 0) && (l < LUT_SIZE);
+            int wMin = LUT_SIZE;
+            int wMax = -1;
+
+            // Cumulate interpolation weights of all line pixels, per LUT location
+            for (; (i < count) && (lines[i] == line); i++) {
+                if (!lineOk) {
+                    continue;
+                }
+
+                for (int a = starts[i], aBreak = a + lengths[i]; a < aBreak; a++) {
+                    final double la = (((a - cAlong) * LUT_RADIUS) / radius) + LUT_RADIUS;
+
+                    if ((la >= 0) && (la < LUT_SIZE)) {
+                        final int a0 = (int) la;
+
+                        if (a0 == max) {
+                            weights[a0] += 1;
+                        } else {
+                            final double ia = la - a0;
+                            weights[a0] += (1 - ia);
+                            weights[a0 + 1] += ia;
+                        }
+
+                        wMin = Math.min(wMin, a0);
+                        wMax = Math.max(wMax, a0 + 1);
+                    }
+                }
+            }
+
+            if (wMax < 0) {
+                continue;
+            }
+
+            // Interpolate between the two LUT lines around pixel line
+            final int l0 = (int) l;
+            final double il = (l0 == max) ? 0 : (l - l0);
+            wMax = Math.min(wMax, max);
+
+            for (int a = wMin; a <= wMax; a++) {
+                final double w = weights[a];
+
+                if (w == 0) {
+                    continue;
+                }
+
+                weights[a] = 0;
+
+                final int loc = vertical ? ((l0 * LUT_SIZE) + a) : ((a * LUT_SIZE) + l0);
+                final int base0 = loc * BASIS;
+                final double w0 = w * (1 - il);
+
+                if (il == 0) {
+                    for (int k = 0; k < BASIS; k++) {
+                        coeffs[k] += w0 * TABLE[base0 + k];
+                    }
+                } else {
+                    final int base1 = base0 + lineStep;
+                    final double w1 = w * il;
+
+                    for (int k = 0; k < BASIS; k++) {
+                        coeffs[k] += (w0 * TABLE[base0 + k]) + (w1 * TABLE[base1 + k]);
+                    }
+                }
+            }
+        }
+
+        // Save to descriptor
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                final int k = 2 * ((p * RADIAL) + r);
+                final double real = coeffs[k] / mass;
+                final double imag = coeffs[k + 1] / mass;
+                descriptor.setMoment(p, r, Math.hypot(imag, real));
+            }
+        }
+    }
+
+    //------------//
+    // buildTable //
+    //------------//
+    /**
+     * Compute, once for all, the flattened lookup table values.
+     *
+     * @return the table
+     */
+    private static double[] buildTable ()
+    {
+        StopWatch watch = new StopWatch("LUT");
+        watch.start("buildTable");
+
+        final double[] table = new double[LUT_SIZE * LUT_SIZE * BASIS];
+
+        for (int x = 0; x < LUT_SIZE; x++) {
+            double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
+
+            for (int y = 0; y < LUT_SIZE; y++) {
+                double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
+                double rad = Math.hypot(tx, ty); // [0..sqrt(2)]
+
+                // Values on or outside unit circle are left to 0
+                if (rad < 1) {
+                    final int base = ((x * LUT_SIZE) + y) * BASIS;
+                    double angle = Math.atan2(ty, tx);
+
+                    for (int p = 0; p < ANGULAR; p++) {
+                        for (int r = 0; r < RADIAL; r++) {
+                            final int k = base + (2 * ((p * RADIAL) + r));
+                            double temp = Math.cos(rad * Math.PI * r);
+                            table[k] = temp * Math.cos(angle * p);
+                            table[k + 1] = temp * Math.sin(angle * p);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (constants.printWatch.isSet()) {
+            watch.print();
+        }
+
+        return table;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean printWatch = new Constant.Boolean(
+                false,
+                "Should we print out the stop watch?");
+    }
+}
@@ -27,6 +27,7 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.ui.util.AbstractMenuListener;
 import org.audiveris.omr.ui.util.SeparableMenu;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.param.Param;
 
 import org.slf4j.Logger;
@@ -75,9 +76,6 @@ public class PluginsManager
     /** File name for plugins definitions: {@value}. */
     private static final String PLUGINS_FILE_NAME = "plugins.xml";
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     /** The concrete UI menu. */
     private JMenu menu;
@@ -261,12 +259,7 @@ public class PluginsManager
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(PluginsHolder.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(PluginsHolder.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
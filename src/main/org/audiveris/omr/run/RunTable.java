@@ -28,12 +28,14 @@ import static org.audiveris.omr.image.PixelSource.BACKGROUND;
 import org.audiveris.omr.math.PointUtil;
 import org.audiveris.omr.math.PointsCollector;
 import org.audiveris.omr.moments.ARTMoments;
-import org.audiveris.omr.moments.BasicARTExtractor;
 import org.audiveris.omr.moments.BasicARTMoments;
 import org.audiveris.omr.moments.GeometricMoments;
+import org.audiveris.omr.moments.RunARTExtractor;
 import static org.audiveris.omr.run.Orientation.HORIZONTAL;
 import org.audiveris.omr.util.ByteUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.Table;
 
 import org.slf4j.Logger;
@@ -51,11 +53,15 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
 import javax.xml.bind.JAXBContext;
@@ -107,8 +113,8 @@ public class RunTable
 
     private static final Logger logger = LoggerFactory.getLogger(RunTable.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
+    /** Minimum number of target sequences per band, when transposing in parallel. */
+    private static final int MIN_BAND_SIZE = 256;
 
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
@@ -336,16 +342,32 @@ public class RunTable
     public ARTMoments computeArtMoments (int left,
                                          int top)
     {
-        // Retrieve glyph foreground points
-        final PointsCollector collector = new PointsCollector(null, getWeight());
-        cumulate(collector, new Point(left, top));
+        // Retrieve glyph foreground runs
+        final boolean vertical = orientation != HORIZONTAL;
+        final int lineOffset = vertical ? left : top;
+        final int startOffset = vertical ? top : left;
+        final int count = getTotalRunCount();
+        final int[] lines = new int[count];
+        final int[] starts = new int[count];
+        final int[] lengths = new int[count];
+        int i = 0;
+
+        for (int p = 0, iBreak = getSize(); p < iBreak; p++) {
+            for (Iterator<Run> it = iterator(p); it.hasNext();) {
+                final Run run = it.next();
+                lines[i] = p + lineOffset;
+                starts[i] = run.getStart() + startOffset;
+                lengths[i] = run.getLength();
+                i++;
+            }
+        }
 
         ///ARTMoments artMoments = new QuantizedARTMoments();
         ARTMoments artMoments = new BasicARTMoments();
 
-        BasicARTExtractor extractor = new BasicARTExtractor();
+        RunARTExtractor extractor = new RunARTExtractor();
         extractor.setDescriptor(artMoments);
-        extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+        extractor.extract(lines, starts, lengths, count, vertical);
 
         return artMoments;
     }
@@ -860,6 +882,50 @@ public class RunTable
         return new Dimension(width, height);
     }
 
+    //--------------//
+    // getForeCount //
+    //--------------//
+    /**
+     * Report the number of foreground pixels in the sequence at provided index,
+     * between coordinates cMin and cMax.
+     *
+     * @param index index of the sequence in table
+     * @param cMin  first coordinate (inclusive)
+     * @param cMax  last coordinate (inclusive)
+     * @return the count of foreground pixels
+     */
+    public int getForeCount (int index,
+                             int cMin,
+                             int cMax)
+    {
+        final RunSequence seq = sequences[index];
+
+        if ((seq == null) || (seq.rle == null)) {
+            return 0;
+        }
+
+        final int[] rle = seq.rle;
+        int count = 0;
+        int c = 0;
+
+        for (int i = 0; (i < rle.length) && (c <= cMax); i += 2) {
+            final int start = Math.max(c, cMin);
+            final int stop = Math.min(c + rle[i] - 1, cMax);
+
+            if (start <= stop) {
+                count += stop - start + 1;
+            }
+
+            c += rle[i];
+
+            if ((i + 1) < rle.length) {
+                c += rle[i + 1];
+            }
+        }
+
+        return count;
+    }
+
     //-----------//
     // getHeight //
     //-----------//
@@ -1465,6 +1531,53 @@ public class RunTable
         return sb.toString();
     }
 
+    //-----------//
+    // transpose //
+    //-----------//
+    /**
+     * Build the table of opposite orientation, directly from the runs of this table.
+     * <p>
+     * Runs are swept position after position, keeping track of the coordinates currently
+     * covered by foreground. Only the coordinates where coverage starts or stops are visited,
+     * so no intermediate pixel buffer is needed.
+     * <p>
+     * The target sequences can be processed in parallel by bands.
+     *
+     * @return the transposed table, with the same width and height as this table
+     */
+    public RunTable transpose ()
+    {
+        final RunTable target = new RunTable(orientation.opposite(), width, height);
+        final int size = target.sequences.length;
+        final int bandCount = Math.min(OmrExecutors.getNumberOfCpus(), size / MIN_BAND_SIZE);
+
+        if (!OmrExecutors.defaultParallelism.getValue() || (bandCount < 2)) {
+            transposeBand(target, 0, size);
+        } else {
+            final List<Callable<Void>> tasks = new ArrayList<>(bandCount);
+
+            for (int b = 0; b < bandCount; b++) {
+                final int cMin = (b * size) / bandCount;
+                final int cMax = ((b + 1) * size) / bandCount;
+                tasks.add(() -> {
+                    transposeBand(target, cMin, cMax);
+
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                logger.warn("Error transposing {} {}", this, ex.toString(), ex);
+            }
+        }
+
+        return target;
+    }
+
     //------//
     // trim //
     //------//
@@ -1595,12 +1708,7 @@ public class RunTable
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(RunTable.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(RunTable.class);
     }
 
     //--------//
@@ -1734,6 +1842,154 @@ public class RunTable
         }
     }
 
+    //---------------//
+    // transposeBand //
+    //---------------//
+    /**
+     * Populate the target sequences in [cMin, cMax[ range, by sweeping all positions of
+     * this table.
+     * <p>
+     * When going from one position to the next, the coordinates that become foreground open a
+     * target run, and the coordinates that become background close their target run.
+     *
+     * @param target the transposed table to populate
+     * @param cMin   first target sequence (that is, first coordinate in this table)
+     * @param cMax   target sequence just past the band
+     */
+    private void transposeBand (RunTable target,
+                                int cMin,
+                                int cMax)
+    {
+        final int band = cMax - cMin;
+        final int[] openings = new int[band]; // Position where current target run started
+        final int[][] rles = new int[band][];
+        final int[] sizes = new int[band];
+        final int[] ends = new int[band]; // Position past last run in target sequence
+
+        // Intervals (relative to cMin) of foreground at previous and current positions
+        int[] prev = new int[16];
+        int prevCount = 0;
+        int[] cur = new int[16];
+
+        for (int p = 0, pBreak = sequences.length; p <= pBreak; p++) {
+            // Retrieve current foreground intervals, clipped to band
+            int curCount = 0;
+            final RunSequence seq = (p < pBreak) ? sequences[p] : null;
+
+            if ((seq != null) && (seq.rle != null)) {
+                final int[] rle = seq.rle;
+                int c = 0;
+
+                for (int i = 0; (i < rle.length) && (c < cMax); i += 2) {
+                    final int start = Math.max(c, cMin);
+                    final int stop = Math.min(c + rle[i], cMax);
+
+                    if (start < stop) {
+                        if (curCount + 2 > cur.length) {
+                            cur = Arrays.copyOf(cur, 2 * cur.length);
+                        }
+
+                        cur[curCount++] = start - cMin;
+                        cur[curCount++] = stop - cMin;
+                    }
+
+                    c += rle[i];
+
+                    if ((i + 1) < rle.length) {
+                        c += rle[i + 1];
+                    }
+                }
+            }
+
+            // Coordinates no longer covered: close their runs
+            int j = 0;
+
+            for (int i = 0; i < prevCount; i += 2) {
+                int s = prev[i];
+                final int e = prev[i + 1];
+
+                while ((j < curCount) && (cur[j + 1] <= s)) {
+                    j += 2;
+                }
+
+                for (int k = j; s < e;) {
+                    final int stop = ((k < curCount) && (cur[k] < e)) ? cur[k] : e;
+
+                    for (int x = s; x < stop; x++) {
+                        final int start = openings[x];
+                        int[] rle = rles[x];
+                        int size = sizes[x];
+
+                        if (rle == null) {
+                            rles[x] = rle = new int[8];
+                        } else if (size + 3 > rle.length) {
+                            rles[x] = rle = Arrays.copyOf(rle, 2 * rle.length);
+                        }
+
+                        if (size == 0) {
+                            if (start > 0) {
+                                rle[size++] = 0;
+                                rle[size++] = start;
+                            }
+                        } else {
+                            rle[size++] = start - ends[x];
+                        }
+
+                        rle[size++] = p - start;
+                        sizes[x] = size;
+                        ends[x] = p;
+                    }
+
+                    if (stop == e) {
+                        break;
+                    }
+
+                    s = cur[k + 1];
+                    k += 2;
+                }
+            }
+
+            // Coordinates newly covered: open their runs
+            j = 0;
+
+            for (int i = 0; i < curCount; i += 2) {
+                int s = cur[i];
+                final int e = cur[i + 1];
+
+                while ((j < prevCount) && (prev[j + 1] <= s)) {
+                    j += 2;
+                }
+
+                for (int k = j; s < e;) {
+                    final int stop = ((k < prevCount) && (prev[k] < e)) ? prev[k] : e;
+
+                    for (int x = s; x < stop; x++) {
+                        openings[x] = p;
+                    }
+
+                    if (stop == e) {
+                        break;
+                    }
+
+                    s = prev[k + 1];
+                    k += 2;
+                }
+            }
+
+            // Current becomes previous
+            final int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+            prevCount = curCount;
+        }
+
+        for (int x = 0; x < band; x++) {
+            if (sizes[x] > 0) {
+                target.sequences[cMin + x] = new RunSequence(Arrays.copyOf(rles[x], sizes[x]));
+            }
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-------------//
     // RunSequence //
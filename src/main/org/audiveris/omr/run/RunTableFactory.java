@@ -31,6 +31,8 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -120,6 +122,47 @@ public class RunTableFactory
         return table;
     }
 
+    //-----------//
+    // transpose //
+    //-----------//
+    /**
+     * Report the RunTable, with factory orientation, that represents the same foreground
+     * as the provided source table.
+     * <p>
+     * The conversion is performed directly on run data, without any intermediate pixel buffer.
+     * The factory filter, if any, is applied on the resulting runs.
+     *
+     * @param source the source table, of any orientation
+     * @return a populated RunTable
+     */
+    public RunTable transpose (RunTable source)
+    {
+        final RunTable table = (source.getOrientation() == orientation) ? source.copy()
+                : source.transpose();
+
+        if (filter != null) {
+            final boolean vertical = orientation.isVertical();
+
+            for (int pos = 0, size = table.getSize(); pos < size; pos++) {
+                final List<Run> runs = new ArrayList<>();
+
+                for (Iterator<Run> it = table.iterator(pos); it.hasNext();) {
+                    final Run run = it.next();
+                    final boolean ok = vertical ? filter.check(pos, run.getStart(), run.getLength())
+                            : filter.check(run.getStart(), pos, run.getLength());
+
+                    if (ok) {
+                        runs.add(new Run(run));
+                    }
+                }
+
+                table.setSequence(pos, runs);
+            }
+        }
+
+        return table;
+    }
+
     //~ Inner Interfaces ---------------------------------------------------------------------------
     //--------//
     // Filter //
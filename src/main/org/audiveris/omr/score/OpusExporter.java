@@ -22,7 +22,9 @@
 package org.audiveris.omr.score;
 
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.proxymusic.ScorePartwise;
 import org.audiveris.proxymusic.mxl.Mxl;
 import org.audiveris.proxymusic.mxl.RootFile;
@@ -37,7 +39,10 @@ import org.slf4j.LoggerFactory;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Class <code>OpusExporter</code> is meant to export an Opus of scores (movements).
@@ -128,19 +133,41 @@ public class OpusExporter
 
         final boolean multi = scores.size() > 1; // Is this a multi-movement book?
 
-        for (Score score : scores) {
-            // Reference each score/movement in opus
-            String entryName = rootName + (multi ? (".mvt" + score.getId()) : "")
-                                       + OMR.SCORE_EXTENSION;
-            org.audiveris.proxymusic.opus.Score oScore = opusFactory.createScore();
-            oScore.setHref(entryName);
-            oScore.setNewPage(YesNo.YES);
-            opus.getOpusOrOpusLinkOrScore().add(oScore);
-
-            // Marshal the score partwise
-            ScorePartwise scorePartwise = PartwiseBuilder.build(score);
-            mof.addEntry(new RootFile(entryName, RootFile.MUSICXML_MEDIA_TYPE));
-            Marshalling.marshal(scorePartwise, zos, signed, 2);
+        // Scores are built in parallel if allowed, but marshalled in sequence.
+        // Only a window of scores is built ahead, each built score being released once marshalled.
+        final boolean parallel = multi && Book.exportScoresInParallel()
+                                         && (OmrExecutors.defaultParallelism.getValue() == true);
+        final int window = OmrExecutors.getNumberOfCpus();
+        final Deque<Future<ScorePartwise>> futures = new ArrayDeque<>();
+        int submitted = 0;
+
+        try {
+            for (int i = 0; i < scores.size(); i++) {
+                while (parallel && (submitted < scores.size()) && (submitted < (i + window))) {
+                    futures.add(submitBuild(scores.get(submitted++)));
+                }
+
+                final Score score = scores.get(i);
+
+                // Reference each score/movement in opus
+                String entryName = rootName + (multi ? (".mvt" + score.getId()) : "")
+                                           + OMR.SCORE_EXTENSION;
+                org.audiveris.proxymusic.opus.Score oScore = opusFactory.createScore();
+                oScore.setHref(entryName);
+                oScore.setNewPage(YesNo.YES);
+                opus.getOpusOrOpusLinkOrScore().add(oScore);
+
+                // Marshal the score partwise
+                ScorePartwise scorePartwise = parallel ? futures.poll().get()
+                        : PartwiseBuilder.build(score);
+                mof.addEntry(new RootFile(entryName, RootFile.MUSICXML_MEDIA_TYPE));
+                Marshalling.marshal(scorePartwise, zos, signed, 2);
+            }
+        } finally {
+            // Abandon any score still being built, if we exit on error
+            for (Future<ScorePartwise> future : futures) {
+                future.cancel(true);
+            }
         }
 
         // Store opus as root
@@ -151,4 +178,26 @@ public class OpusExporter
         // The end
         mof.close();
     }
+
+    //-------------//
+    // submitBuild //
+    //-------------//
+    /**
+     * Submit the building of a score partwise to the low-priority executor.
+     *
+     * @param score the score to build
+     * @return the future score partwise
+     */
+    private Future<ScorePartwise> submitBuild (Score score)
+    {
+        return OmrExecutors.getCachedLowExecutor().submit(() -> {
+            LogUtil.start(book);
+
+            try {
+                return PartwiseBuilder.build(score);
+            } finally {
+                LogUtil.stopBook();
+            }
+        });
+    }
 }
@@ -27,13 +27,13 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import static org.audiveris.omr.glyph.Shape.CODA;
 import static org.audiveris.omr.glyph.Shape.SEGNO;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.math.Rational;
 import static org.audiveris.omr.score.MusicXML.*;
 import org.audiveris.omr.sheet.Book;
 import org.audiveris.omr.sheet.Part;
 import org.audiveris.omr.sheet.PartBarline;
 import org.audiveris.omr.sheet.Scale;
-import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.SheetStub;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.SystemInfo;
@@ -87,6 +87,7 @@ import org.audiveris.omr.sig.relation.FlagStemRelation;
 import org.audiveris.omr.sig.relation.MarkerBarRelation;
 import org.audiveris.omr.sig.relation.Relation;
 import org.audiveris.omr.sig.relation.SlurHeadRelation;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.text.FontInfo;
 import org.audiveris.omr.text.TextRole;
 import static org.audiveris.omr.text.TextRole.*;
@@ -281,6 +282,9 @@ public class PartwiseBuilder
     /** Score source. */
     private Source source;
 
+    /** True for parts populated only while being marshalled. */
+    private boolean streaming;
+
     /** Current context. */
     private final Current current = new Current();
 
@@ -304,7 +308,7 @@ public class PartwiseBuilder
      * @throws InterruptedException if the thread has been interrupted
      * @throws ExecutionException   if a checked exception was thrown
      */
-    private PartwiseBuilder (Score score)
+    PartwiseBuilder (Score score)
             throws InterruptedException,
                    ExecutionException
     {
@@ -491,7 +495,9 @@ public class PartwiseBuilder
         midiInstrument.setVolume(new BigDecimal(score.getVolume()));
 
         // LogicalPart in scorePartwise
-        ScorePartwise.Part pmPart = factory.createScorePartwisePart();
+        ScorePartwise.Part pmPart = streaming
+                ? new StreamedPart(constants.streamedMeasures.getValue())
+                : factory.createScorePartwisePart();
         scorePartwise.getPart().add(pmPart);
         pmPart.setId(pmScorePart);
 
@@ -598,7 +604,7 @@ public class PartwiseBuilder
             }
         }
 
-        return null; // No key found
+        return current.releasedKey; // Key found in released measures, if any
     }
 
     //--------------//
@@ -644,6 +650,39 @@ public class PartwiseBuilder
         return ornaments;
     }
 
+    //---------//
+    // getPage //
+    //---------//
+    /**
+     * Report the page of the provided stub which belongs to the score.
+     *
+     * @param stub the score stub
+     * @return the related page, or null if not found
+     */
+    private Page getPage (SheetStub stub)
+    {
+        final Integer sheetPageId = score.getSheetPageId(stub.getNumber());
+
+        if (sheetPageId == null) {
+            return null;
+        }
+
+        return stub.getSheet().getPages().get(sheetPageId - 1);
+    }
+
+    //------------------//
+    // getScorePartwise //
+    //------------------//
+    /**
+     * Report the ScorePartwise instance being populated.
+     *
+     * @return the ScorePartwise
+     */
+    ScorePartwise getScorePartwise ()
+    {
+        return scorePartwise;
+    }
+
     //---------------//
     // getSlurNumber //
     //---------------//
@@ -801,7 +840,56 @@ public class PartwiseBuilder
             }
         }
 
-        return true; // Since no previous clef was found for the same staff
+        // Look in released measures, if any
+        final Clef clef = current.releasedClefs.get(newClef.getNumber());
+
+        return (clef == null) || !areEqual(clef, newClef);
+    }
+
+    //-----------------//
+    // releaseMeasures //
+    //-----------------//
+    /**
+     * Hand the completed measures of current streamed part over to marshalling.
+     * <p>
+     * Key and clefs of these measures are kept, since they are needed to check the attributes of
+     * the following measures.
+     */
+    private void releaseMeasures ()
+    {
+        final StreamedPart pmPart = (StreamedPart) current.pmPart;
+
+        for (ScorePartwise.Part.Measure pmMeasure : pmPart.getMeasure()) {
+            Key measureKey = null;
+
+            for (Object obj : pmMeasure.getNoteOrBackupOrForward()) {
+                if (obj instanceof Attributes) {
+                    Attributes attributes = (Attributes) obj;
+                    List<Key> keys = attributes.getKey();
+
+                    if ((measureKey == null) && !keys.isEmpty()) {
+                        measureKey = keys.get(keys.size() - 1);
+                    }
+
+                    // Within the same attributes, the first clef for a staff prevails
+                    Map<BigInteger, Clef> clefs = new HashMap<>();
+
+                    for (Clef clef : attributes.getClef()) {
+                        clefs.putIfAbsent(clef.getNumber(), clef);
+                    }
+
+                    current.releasedClefs.putAll(clefs);
+                }
+            }
+
+            if (measureKey != null) {
+                current.releasedKey = measureKey;
+            }
+
+            pmPart.publish(pmMeasure);
+        }
+
+        pmPart.getMeasure().clear();
     }
 
     //- All processing Methods ---------------------------------------------------------------------
@@ -1783,6 +1871,10 @@ public class PartwiseBuilder
             }
         }
 
+        if (current.pmPart instanceof StreamedPart) {
+            releaseMeasures();
+        }
+
         // Safer...
         current.endMeasure();
         tupletNumbers.clear();
@@ -2129,6 +2221,32 @@ public class PartwiseBuilder
         }
     }
 
+    //--------------------//
+    // processPageCredits //
+    //--------------------//
+    /**
+     * Gather the score-level data of a page (page source and credits), without any part.
+     * <p>
+     * The page context, notably its scale, is set as for a regular page processing, so that
+     * credit positions are expressed in this page interline.
+     *
+     * @param page the page to process
+     */
+    void processPageCredits (Page page)
+    {
+        if (source != null) {
+            source.encodePage(page, scorePartwise);
+        }
+
+        setCurrentPage(page);
+
+        for (SystemInfo system : page.getSystems()) {
+            for (Inter inter : system.getSig().inters(SentenceInter.class)) {
+                processSentence((SentenceInter) inter);
+            }
+        }
+    }
+
     //-------------//
     // processPart //
     //-------------//
@@ -2143,6 +2261,8 @@ public class PartwiseBuilder
                     processMeasure(measure);
                 }
             }
+        } catch (ProcessingCancellationException pce) {
+            throw pce;
         } catch (Exception ex) {
             logger.warn("Error visiting {}", part, ex);
         }
@@ -2152,6 +2272,8 @@ public class PartwiseBuilder
     // processPartList //
     //-----------------//
     private void processPartList ()
+            throws InterruptedException,
+                   ExecutionException
     {
         logger.debug("Processing PartList for {}", score);
 
@@ -2167,12 +2289,25 @@ public class PartwiseBuilder
             partList.getPartGroupOrScorePart().add(pmPart.getId());
         }
 
-        // Then, stub by stub, populate all ScorePartwise.Part instances in parallel
+        // Then, stub by stub, populate all ScorePartwise.Part instances
         final List<SheetStub> scoreStubs = score.getStubs();
         logger.info("Exporting sheet(s): {}", Book.ids(scoreStubs));
 
+        // Duration divisors are recomputed for every page
         for (SheetStub stub : scoreStubs) {
-            processStub(stub, partMap);
+            final Page page = getPage(stub);
+
+            if (page != null) {
+                page.resetDurationDivisor();
+            }
+        }
+
+        if (streaming && !partMap.isEmpty()) {
+            streamParts(partMap, scoreStubs);
+        } else {
+            for (SheetStub stub : scoreStubs) {
+                processStub(stub, partMap);
+            }
         }
     }
 
@@ -2538,31 +2673,29 @@ public class PartwiseBuilder
     {
         logger.debug("Processing {}", stub);
 
-        final Integer sheetPageId = score.getSheetPageId(stub.getNumber());
+        final Page page = getPage(stub);
 
         // This should never occur if processStub() is called only on score relevant stubs
-        if (sheetPageId == null) {
+        if (page == null) {
             return;
         }
 
-        final Sheet sheet = stub.getSheet();
-        final Page page = sheet.getPages().get(sheetPageId - 1);
-
-        source.encodePage(page, scorePartwise);
+        // Score-level data is handled only by the score builder, not by a part builder
+        if (source != null) {
+            source.encodePage(page, scorePartwise);
+        }
 
-        current.page = page;
-        current.pageMeasureIdOffset = score.getMeasureIdOffset(page);
-        current.scale = page.getSheet().getScale();
-        page.resetDurationDivisor();
+        setCurrentPage(page);
 
         isFirst.page = score.isFirst(page);
         isFirst.system = true;
         isFirst.measure = true;
-        isFirst.part = true;
+
+        final LogicalPart firstPart = score.getLogicalParts().get(0);
 
         for (Entry<LogicalPart, ScorePartwise.Part> entry : partMap.entrySet()) {
+            isFirst.part = entry.getKey() == firstPart;
             processLogicalPart(entry.getKey(), entry.getValue());
-            isFirst.part = false;
         }
     }
 
@@ -2615,8 +2748,8 @@ public class PartwiseBuilder
                 processPart(dummyPart);
             }
 
-            // Sentences in system
-            if (isFirst.part) {
+            // Sentences in system (score-level data, not handled by a part builder)
+            if (isFirst.part && (source != null)) {
                 for (Inter inter : system.getSig().inters(SentenceInter.class)) {
                     processSentence((SentenceInter) inter);
                 }
@@ -2791,6 +2924,21 @@ public class PartwiseBuilder
         }
     }
 
+    //----------------//
+    // setCurrentPage //
+    //----------------//
+    /**
+     * Set the current context on the provided page.
+     *
+     * @param page the page to process
+     */
+    private void setCurrentPage (Page page)
+    {
+        current.page = page;
+        current.pageMeasureIdOffset = score.getMeasureIdOffset(page);
+        current.scale = page.getSheet().getScale();
+    }
+
     //-------------//
     // setFontInfo //
     //-------------//
@@ -2820,6 +2968,63 @@ public class PartwiseBuilder
         }
     }
 
+    //-------------//
+    // streamParts //
+    //-------------//
+    /**
+     * Prepare each ScorePartwise.Part instance to be populated only while being marshalled.
+     * <p>
+     * Score-level data, such as page sources and credits, is marshalled before any part.
+     * So it is gathered beforehand by this score builder, page after page.
+     * Then each part gets a producer task, launched when marshalling reaches the part.
+     * This task runs a dedicated part builder, which releases every measure once completed.
+     *
+     * @param partMap    map of all parts, in score order
+     * @param scoreStubs the score stubs, in score order
+     */
+    private void streamParts (Map<LogicalPart, ScorePartwise.Part> partMap,
+                              List<SheetStub> scoreStubs)
+    {
+        for (SheetStub stub : scoreStubs) {
+            final Page page = getPage(stub);
+
+            if (page != null) {
+                processPageCredits(page);
+            }
+        }
+
+        current.page = null;
+
+        final Book book = score.getBook();
+
+        for (Entry<LogicalPart, ScorePartwise.Part> entry : partMap.entrySet()) {
+            final StreamedPart pmPart = (StreamedPart) entry.getValue();
+            final Map<LogicalPart, ScorePartwise.Part> onePart = Collections.singletonMap(
+                    entry.getKey(),
+                    pmPart);
+
+            pmPart.setProducer(() -> {
+                LogUtil.start(book);
+
+                try {
+                    final PartwiseBuilder builder = new PartwiseBuilder(score);
+
+                    for (SheetStub stub : scoreStubs) {
+                        if (pmPart.isCancelled()) {
+                            break;
+                        }
+
+                        builder.processStub(stub, onePart);
+                    }
+                } finally {
+                    LogUtil.stopBook();
+                }
+
+                return null;
+            });
+        }
+    }
+
     //----------//
     // toTenths //
     //----------//
@@ -2878,6 +3083,37 @@ public class PartwiseBuilder
         return builder.scorePartwise;
     }
 
+    //---------------//
+    // buildStreamed //
+    //---------------//
+    /**
+     * Visit the score tree and build a ScorePartwise whose parts get populated only while
+     * being marshalled.
+     * <p>
+     * Parts are built one after the other, and each measure is handed over to marshalling as
+     * soon as it is completed, so that memory needs no longer depend on score length.
+     * Once marshalling is over, successfully or not, the caller must invoke
+     * {@link StreamedPart#cancel(ScorePartwise)} to release any pending part builder.
+     *
+     * @param score the score to export (cannot be null)
+     * @return the ScorePartwise, ready for marshalling
+     * @throws InterruptedException if the thread has been interrupted
+     * @throws ExecutionException   if a checked exception was thrown
+     */
+    public static ScorePartwise buildStreamed (Score score)
+            throws InterruptedException,
+                   ExecutionException
+    {
+        Objects.requireNonNull(score, "Trying to export a null score");
+
+        final PartwiseBuilder builder = new PartwiseBuilder(score);
+        builder.streaming = true;
+
+        builder.processScore();
+
+        return builder.scorePartwise;
+    }
+
     //---------//
     // preload //
     //---------//
@@ -2937,6 +3173,11 @@ public class PartwiseBuilder
         private final Constant.Boolean avoidTupletBrackets = new Constant.Boolean(
                 false,
                 "Should we avoid brackets for all tuplets");
+
+        private final Constant.Integer streamedMeasures = new Constant.Integer(
+                "measures",
+                4,
+                "Maximum number of measures waiting for marshalling, per streamed part");
     }
 
     //---------//
@@ -2954,6 +3195,10 @@ public class PartwiseBuilder
 
         ScorePartwise.Part pmPart;
 
+        Key releasedKey; // Last key in measures already released
+
+        final Map<BigInteger, Clef> releasedClefs = new HashMap<>(); // Same for clefs per staff
+
         // Page dependent
         Page page;
 
@@ -22,6 +22,8 @@
 package org.audiveris.omr.score;
 
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.proxymusic.ScorePartwise;
 import org.audiveris.proxymusic.mxl.Mxl;
 import org.audiveris.proxymusic.mxl.RootFile;
@@ -40,6 +42,10 @@ import java.util.Objects;
 /**
  * Class <code>ScoreExporter</code> exports the provided score to a MusicXML file, stream or
  * DOM.
+ * <p>
+ * A long score is exported to file or stream in streaming mode: its measures are marshalled as
+ * soon as they are built, rather than once the whole ScorePartwise tree is in memory.
+ * The resulting XML is the same.
  *
  * @author Hervé Bitteur
  */
@@ -47,6 +53,8 @@ public class ScoreExporter
 {
     //~ Static fields/initializers -----------------------------------------------------------------
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(ScoreExporter.class);
 
     //~ Instance fields ----------------------------------------------------------------------------
@@ -114,24 +122,35 @@ public class ScoreExporter
         Objects.requireNonNull(os, "Trying to export a score to a null output stream");
 
         // Build the ScorePartwise proxy
-        ScorePartwise scorePartwise = PartwiseBuilder.build(score);
+        final int minPages = constants.streamingMinPages.getValue();
+        final boolean streaming = (minPages > 0) && (score.getPageCount() >= minPages);
+        ScorePartwise scorePartwise = streaming ? PartwiseBuilder.buildStreamed(score)
+                : PartwiseBuilder.build(score);
 
         // Marshal the proxy
-        if (compressed) {
-            Mxl.Output mof = new Mxl.Output(os);
-            OutputStream zos = mof.getOutputStream();
-
-            if (scoreName == null) {
-                scoreName = "score"; // Fall-back value
+        try {
+            if (compressed) {
+                Mxl.Output mof = new Mxl.Output(os);
+                OutputStream zos = mof.getOutputStream();
+
+                if (scoreName == null) {
+                    scoreName = "score"; // Fall-back value
+                }
+
+                mof.addEntry(
+                        new RootFile(
+                                scoreName + OMR.SCORE_EXTENSION,
+                                RootFile.MUSICXML_MEDIA_TYPE));
+                Marshalling.marshal(scorePartwise, zos, signed, 2);
+                mof.close();
+            } else {
+                try (os) {
+                    Marshalling.marshal(scorePartwise, os, signed, 2);
+                }
             }
-
-            mof.addEntry(
-                    new RootFile(scoreName + OMR.SCORE_EXTENSION, RootFile.MUSICXML_MEDIA_TYPE));
-            Marshalling.marshal(scorePartwise, zos, signed, 2);
-            mof.close();
-        } else {
-            try (os) {
-                Marshalling.marshal(scorePartwise, os, signed, 2);
+        } finally {
+            if (streaming) {
+                StreamedPart.cancel(scorePartwise);
             }
         }
     }
@@ -161,4 +180,18 @@ public class ScoreExporter
         // Marshal the proxy
         Marshalling.marshal(scorePartwise, node, signed);
     }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer streamingMinPages = new Constant.Integer(
+                "pages",
+                50,
+                "Minimum number of pages to export a score in streaming mode (0 for never)");
+    }
 }
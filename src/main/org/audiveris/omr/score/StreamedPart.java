@@ -0,0 +1,364 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    S t r e a m e d P a r t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+import org.audiveris.proxymusic.ScorePartwise;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Class <code>StreamedPart</code> is a ScorePartwise part whose measures are not kept in
+ * memory, but handed over one after the other from the part builder to the marshaller.
+ * <p>
+ * Both sides use the same part instance, but not the same list of measures:
+ * <ul>
+ * <li>The part builder works on {@link #getMeasure()}, a plain list meant to contain just the
+ * measure being built.
+ * Once a measure is complete, the builder removes it from this list and publishes it.
+ * <li>The marshaller, which directly accesses the <code>measure</code> field, gets a feed list.
+ * The feed iterator launches the producer task on first use, and then waits for each published
+ * measure in turn.
+ * Any indexed access or size request on the feed rather drains all the part measures into memory,
+ * as a regular part would hold them.
+ * </ul>
+ * Since this class brings no JAXB property of its own, it is marshalled exactly as its
+ * ScorePartwise.Part super class.
+ *
+ * @author Hervé Bitteur
+ */
+class StreamedPart
+        extends ScorePartwise.Part
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Special measure to signal the end of the part. */
+    private static final Measure END = new Measure();
+
+    //~ Instance fields ----------------------------------------------------------------------------
+    /** Measures being built. */
+    private final List<Measure> building = new ArrayList<>();
+
+    /** Measures published, waiting for marshalling. */
+    private final BlockingQueue<Measure> published;
+
+    /** Task to produce all measures of the part. */
+    private Callable<Void> producer;
+
+    /** Running producer, if any. */
+    private Future<Void> future;
+
+    /** Exception raised by producer, if any. */
+    private volatile Exception failure;
+
+    /** Set when marshalling no longer needs measures. */
+    private volatile boolean cancelled;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new <code>StreamedPart</code> object.
+     *
+     * @param capacity maximum number of published measures waiting for marshalling
+     */
+    StreamedPart (int capacity)
+    {
+        published = new ArrayBlockingQueue<>(capacity);
+        measure = new Feed();
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //--------//
+    // cancel //
+    //--------//
+    /**
+     * Stop the production of measures, if any.
+     */
+    public void cancel ()
+    {
+        cancelled = true;
+        published.clear();
+
+        synchronized (this) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    //---------//
+    // getFeed //
+    //---------//
+    /**
+     * Report the marshaller side list of measures.
+     *
+     * @return the feed list of measures
+     */
+    List<Measure> getFeed ()
+    {
+        return measure;
+    }
+
+    //------------//
+    // getMeasure //
+    //------------//
+    /**
+     * Report the list of measures being built.
+     *
+     * @return the builder side list of measures
+     */
+    @Override
+    public List<Measure> getMeasure ()
+    {
+        return building;
+    }
+
+    //-------------//
+    // isCancelled //
+    //-------------//
+    /**
+     * Tell whether marshalling no longer needs measures.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled ()
+    {
+        return cancelled;
+    }
+
+    //---------//
+    // publish //
+    //---------//
+    /**
+     * Hand a completed measure over to marshalling, waiting for room if needed.
+     *
+     * @param pmMeasure the completed measure
+     * @throws ProcessingCancellationException if interrupted while waiting
+     */
+    public void publish (Measure pmMeasure)
+    {
+        if (cancelled) {
+            return;
+        }
+
+        try {
+            published.put(pmMeasure);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingCancellationException(ex);
+        }
+    }
+
+    //-------------//
+    // setProducer //
+    //-------------//
+    /**
+     * Set the task which will populate this part, by building and publishing each measure.
+     *
+     * @param producer the producing task, to be launched when marshalling reaches this part
+     */
+    public void setProducer (Callable<Void> producer)
+    {
+        this.producer = producer;
+    }
+
+    //-------//
+    // start //
+    //-------//
+    private synchronized void start ()
+    {
+        if (future != null) {
+            throw new IllegalStateException("Measures of a streamed part can be read only once");
+        }
+
+        future = OmrExecutors.getCachedLowExecutor().submit(() -> {
+            try {
+                if (producer != null) {
+                    producer.call();
+                }
+
+                publish(END);
+            } catch (Exception ex) {
+                failure = ex;
+
+                // Pending measures are of no use, this makes room for the end without waiting
+                published.clear();
+                published.offer(END);
+            }
+
+            return null;
+        });
+    }
+
+    //--------//
+    // cancel //
+    //--------//
+    /**
+     * Stop the production of measures for every streamed part of the provided score.
+     *
+     * @param scorePartwise the score being marshalled
+     */
+    public static void cancel (ScorePartwise scorePartwise)
+    {
+        for (ScorePartwise.Part part : scorePartwise.getPart()) {
+            if (part instanceof StreamedPart) {
+                ((StreamedPart) part).cancel();
+            }
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //------//
+    // Feed //
+    //------//
+    /**
+     * Marshaller side list of measures.
+     * <p>
+     * It is meant to be iterated only once, measure after measure.
+     * But, if indexed or sized before being iterated, it drains and keeps all measures.
+     */
+    private class Feed
+            extends AbstractList<Measure>
+    {
+
+        /** All part measures, if drained. */
+        private List<Measure> drained;
+
+        /** Set when measures have begun to be streamed. */
+        private boolean streamed;
+
+        @Override
+        public Measure get (int index)
+        {
+            return drain().get(index);
+        }
+
+        @Override
+        public Iterator<Measure> iterator ()
+        {
+            if (drained != null) {
+                return drained.iterator();
+            }
+
+            if (streamed) {
+                throw new IllegalStateException("Streamed measures can be read only once");
+            }
+
+            streamed = true;
+
+            return consume();
+        }
+
+        @Override
+        public int size ()
+        {
+            return drain().size();
+        }
+
+        /**
+         * Retrieve all the measures still to be produced.
+         *
+         * @return the list of all measures
+         */
+        private List<Measure> drain ()
+        {
+            if (drained == null) {
+                if (streamed) {
+                    throw new IllegalStateException("Measures already streamed");
+                }
+
+                final List<Measure> list = new ArrayList<>();
+
+                for (Iterator<Measure> it = consume(); it.hasNext();) {
+                    list.add(it.next());
+                }
+
+                streamed = true;
+                drained = list;
+            }
+
+            return drained;
+        }
+
+        /**
+         * Launch the producer and provide an iterator on measures as they get published.
+         *
+         * @return the streaming iterator
+         */
+        private Iterator<Measure> consume ()
+        {
+            start();
+
+            return new Iterator<Measure>()
+            {
+                private Measure next;
+
+                @Override
+                public boolean hasNext ()
+                {
+                    if (next == null) {
+                        try {
+                            next = published.take();
+                        } catch (InterruptedException ex) {
+                            throw new ProcessingCancellationException(ex);
+                        }
+                    }
+
+                    if (next == END) {
+                        if (failure instanceof ProcessingCancellationException) {
+                            throw (ProcessingCancellationException) failure;
+                        }
+
+                        if (failure != null) {
+                            throw new IllegalStateException("Error streaming part", failure);
+                        }
+
+                        return false;
+                    }
+
+                    return true;
+                }
+
+                @Override
+                public Measure next ()
+                {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final Measure pmMeasure = next;
+                    next = null;
+
+                    return pmMeasure;
+                }
+            };
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import org.audiveris.omr.WellKnowns;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.UriUtil;
 
 import org.slf4j.Logger;
@@ -121,7 +122,7 @@ public class AliasPatterns
 
                     // Retrieve the raw strings
                     try (InputStream input = url.openStream()) {
-                        JAXBContext jaxbContext = JAXBContext.newInstance(Strings.class);
+                        JAXBContext jaxbContext = JaxbContexts.get(Strings.class);
                         Unmarshaller um = jaxbContext.createUnmarshaller();
                         Strings strings = (Strings) um.unmarshal(input);
                         List<String> stringList = strings.list;
@@ -55,6 +55,7 @@ import org.audiveris.omr.ui.Colors;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
 import org.audiveris.omr.util.Jaxb.OmrSchemaOutputResolver;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.Memory;
 import org.audiveris.omr.util.NaturalSpec;
 import org.audiveris.omr.util.OmrExecutors;
@@ -141,9 +142,6 @@ public class Book
     /** File name for book internals in book file system: {@value}. */
     public static final String BOOK_INTERNALS = "book.xml";
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     //
     // Persistent data
@@ -369,6 +367,19 @@ public class Book
         return constants.batchUpgradeBooks.isSet();
     }
 
+    //------------------------//
+    // exportScoresInParallel //
+    //------------------------//
+    /**
+     * Should the scores (movements) of a book be exported in parallel?
+     *
+     * @return true if so
+     */
+    public static boolean exportScoresInParallel ()
+    {
+        return constants.exportScoresInParallel.isSet();
+    }
+
     //-------------//
     // clearScores //
     //-------------//
@@ -548,6 +559,7 @@ public class Book
             // Export the book as one or several movement files
             final Map<Score, Path> scoreMap = getScoreExportPaths(theScores);
             final boolean compressed = BookManager.useCompression();
+            final List<Callable<Void>> tasks = new ArrayList<>();
 
             for (Entry<Score, Path> entry : scoreMap.entrySet()) {
                 final Score score = entry.getKey();
@@ -555,12 +567,18 @@ public class Book
                 final String scoreName = (!isMultiMovement()) ? bookName
                         : (bookName + OMR.MOVEMENT_EXTENSION + score.getId());
 
-                try {
-                    new ScoreExporter(score).export(scorePath, scoreName, sig, compressed);
-                } catch (Exception ex) {
-                    logger.warn("Could not export score " + scoreName, ex);
-                }
+                tasks.add(() -> {
+                    try {
+                        new ScoreExporter(score).export(scorePath, scoreName, sig, compressed);
+                    } catch (Exception ex) {
+                        logger.warn("Could not export score " + scoreName, ex);
+                    }
+
+                    return null;
+                });
             }
+
+            exportScores(tasks);
         }
     }
 
@@ -2577,6 +2595,53 @@ public class Book
         return null;
     }
 
+    //--------------//
+    // exportScores //
+    //--------------//
+    /**
+     * Run the provided score export tasks.
+     * <p>
+     * Scores (movements) are independent of each other, hence they can be exported in parallel
+     * when allowed.
+     *
+     * @param tasks the export tasks, one per score
+     */
+    private void exportScores (List<Callable<Void>> tasks)
+    {
+        try {
+            if ((tasks.size() > 1) && exportScoresInParallel()
+                        && (OmrExecutors.defaultParallelism.getValue() == true)) {
+                final List<Callable<Void>> bookTasks = new ArrayList<>(tasks.size());
+
+                for (Callable<Void> task : tasks) {
+                    bookTasks.add(() -> {
+                        LogUtil.start(this);
+
+                        try {
+                            return task.call();
+                        } finally {
+                            LogUtil.stopBook();
+                        }
+                    });
+                }
+
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(
+                        bookTasks)) {
+                    future.get();
+                }
+            } else {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Export of {} got interrupted", this);
+            throw new ProcessingCancellationException(ex);
+        } catch (Exception ex) {
+            logger.warn("Error exporting scores of " + this, ex);
+        }
+    }
+
     //----------------//
     // initTransients //
     //----------------//
@@ -2787,12 +2852,7 @@ public class Book
     public static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(Book.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(Book.class);
     }
 
     //~ Inner classes ------------------------------------------------------------------------------
@@ -2811,6 +2871,10 @@ public class Book
                 false,
                 "Should we process all stubs of a book in parallel? (beware of many stubs)");
 
+        private final Constant.Boolean exportScoresInParallel = new Constant.Boolean(
+                true,
+                "Should we export the scores (movements) of a book in parallel?");
+
         private final Constant.Boolean checkBookVersion = new Constant.Boolean(
                 true,
                 "Should we check version of loaded book files?");
@@ -21,12 +21,14 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
+import org.audiveris.omr.image.BilevelPngCodec;
 import org.audiveris.omr.sheet.Picture.ImageKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -39,6 +41,10 @@ import javax.xml.bind.annotation.XmlAccessorType;
  * <p>
  * It holds the reference of the image, at least the path to its copy on disk, and (on demand) the
  * image itself read from disk.
+ * <p>
+ * Bilevel images (such as BINARY) are stored as 1-bit PNG via {@link BilevelPngCodec}, other
+ * images as standard PNG via ImageIO.
+ * Both kinds of files are transparently read back, including the 8-bit PNG files of older books.
  *
  * @author Hervé Bitteur
  */
@@ -78,7 +84,18 @@ public class ImageHolder
     protected BufferedImage load (InputStream is)
             throws Exception
     {
-        return ImageIO.read(is);
+        final BufferedInputStream bis = new BufferedInputStream(is);
+        final byte[] header = new byte[BilevelPngCodec.HEADER_LENGTH];
+        bis.mark(header.length);
+
+        final int length = bis.readNBytes(header, 0, header.length);
+        bis.reset();
+
+        if (BilevelPngCodec.isBilevelHeader(header, length)) {
+            return BilevelPngCodec.read(bis);
+        }
+
+        return ImageIO.read(bis);
     }
 
     //-------//
@@ -88,6 +105,8 @@ public class ImageHolder
     protected void store (OutputStream os)
             throws Exception
     {
-        ImageIO.write(data, IMAGE_FORMAT, os);
+        if (!BilevelPngCodec.write(data, os)) {
+            ImageIO.write(data, IMAGE_FORMAT, os);
+        }
     }
 }
@@ -27,6 +27,7 @@ import ij.process.ColorProcessor;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.image.BitPixelBuffer;
 import org.audiveris.omr.image.FilterDescriptor;
 import org.audiveris.omr.image.GaussianGrayFilter;
 import org.audiveris.omr.image.ImageFormatException;
@@ -198,6 +199,10 @@ public class Picture
     private final ConcurrentSkipListMap<SourceKey, WeakReference<ByteProcessor>> sources
             = new ConcurrentSkipListMap<>();
 
+    /** Map of all handled bit-packed sources. */
+    private final ConcurrentSkipListMap<SourceKey, WeakReference<BitPixelBuffer>> bitSources
+            = new ConcurrentSkipListMap<>();
+
     /** Related sheet. */
     @Navigable(false)
     private Sheet sheet;
@@ -353,6 +358,7 @@ public class Picture
     public void disposeSource (SourceKey key)
     {
         sources.remove(key);
+        bitSources.remove(key);
     }
 
     //---------------//
@@ -452,6 +458,60 @@ public class Picture
         }
     }
 
+    //--------------//
+    // getBitSource //
+    //--------------//
+    /**
+     * Report the desired binary source, packed as one bit per pixel.
+     * If the source is not yet cached, build the source and store it in cache via weak reference.
+     * <p>
+     * Only BINARY and NO_STAFF keys are supported.
+     *
+     * @param key the key of desired source
+     * @return the bit-packed source ready to use, or null
+     */
+    public BitPixelBuffer getBitSource (SourceKey key)
+    {
+        final WeakReference<BitPixelBuffer> ref = bitSources.get(key);
+        BitPixelBuffer src = (ref != null) ? ref.get() : null;
+
+        if (src == null) {
+            switch (key) {
+            case BINARY:
+
+                // Built from binary table, if available, to avoid any byte buffer
+                final RunTable table = getTable(TableKey.BINARY);
+
+                if (table != null) {
+                    src = new BitPixelBuffer(table);
+                } else {
+                    final ByteProcessor buffer = getSource(key);
+                    src = (buffer != null) ? new BitPixelBuffer(buffer) : null;
+                }
+
+                break;
+
+            case NO_STAFF:
+
+                final ByteProcessor buffer = getSource(key);
+                src = (buffer != null) ? new BitPixelBuffer(buffer) : null;
+
+                break;
+
+            default:
+                logger.error("Bit source " + key + " is not supported");
+            }
+
+            if (src != null) {
+                // Store in cache
+                bitSources.put(key, new WeakReference<>(src));
+                logger.debug("{} bit source built as {}", key, src);
+            }
+        }
+
+        return src;
+    }
+
     //-----------//
     // getHeight //
     //-----------//
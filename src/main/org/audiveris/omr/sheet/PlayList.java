@@ -26,6 +26,7 @@ import static org.audiveris.omr.sheet.Sheet.INTERNALS_RADIX;
 import org.audiveris.omr.step.OmrStep;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.NaturalSpec;
 import static org.audiveris.omr.util.NaturalSpec.getCounts;
 import org.audiveris.omr.util.Version;
@@ -65,9 +66,6 @@ public class PlayList
 
     private static final Logger logger = LoggerFactory.getLogger(PlayList.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     /**
      * The <code>excerpts</code> element is the sequence of (book or image) excerpts
@@ -242,12 +240,7 @@ public class PlayList
     public static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(PlayList.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(PlayList.class);
     }
 
     //-------------//
@@ -24,6 +24,7 @@ package org.audiveris.omr.sheet;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Picture.TableKey;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +51,6 @@ public class RunTableHolder
 
     private static final Logger logger = LoggerFactory.getLogger(RunTableHolder.class);
 
-    private static JAXBContext jaxbContext;
-
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new <code>RunTableHolder</code> object.
@@ -95,14 +94,12 @@ public class RunTableHolder
     //----------------//
     private JAXBContext getJaxbContext ()
     {
-        if (jaxbContext == null) {
-            try {
-                jaxbContext = JAXBContext.newInstance(RunTable.class);
-            } catch (JAXBException ex) {
-                logger.error("Cannot build JAXB context " + ex, ex);
-            }
-        }
+        try {
+            return JaxbContexts.get(RunTable.class);
+        } catch (JAXBException ex) {
+            logger.error("Cannot build JAXB context " + ex, ex);
 
-        return jaxbContext;
+            return null;
+        }
     }
 }
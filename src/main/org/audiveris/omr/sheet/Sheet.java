@@ -72,6 +72,7 @@ import org.audiveris.omr.ui.util.WeakItemRenderer;
 import org.audiveris.omr.util.Dumping;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 import org.audiveris.omr.util.Navigable;
 
 import org.slf4j.Logger;
@@ -151,9 +152,6 @@ public class Sheet
         LocationEvent.class,
         PixelEvent.class};
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     //
     // Persistent data
@@ -1494,12 +1492,7 @@ public class Sheet
     public static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(Sheet.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(Sheet.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
@@ -48,6 +48,7 @@ import org.audiveris.omr.util.HorizontalSide;
 import static org.audiveris.omr.util.HorizontalSide.LEFT;
 import static org.audiveris.omr.util.HorizontalSide.RIGHT;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 import org.audiveris.omr.util.VerticalSide;
 import static org.audiveris.omr.util.VerticalSide.BOTTOM;
@@ -74,6 +75,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class <code>PeakGraph</code> handles the graph of all StaffPeak instances in a sheet,
@@ -802,14 +806,41 @@ public class PeakGraph
     //--------------//
     /**
      * Use individual staff projections to retrieve bar peaks.
+     * <p>
+     * Staff projectors are independent of each other, hence they can be processed in parallel.
+     * Their resulting peaks are then inserted in this graph, staff after staff.
      */
     private void findBarPeaks ()
     {
-        // Analysis staff per staff
         for (Staff staff : staffManager.getStaves()) {
-            StaffProjector projector = new StaffProjector(sheet, staff, this);
-            projectors.add(projector);
-            projector.process();
+            projectors.add(new StaffProjector(sheet, staff, this));
+        }
+
+        if (OmrExecutors.defaultParallelism.getValue() && (projectors.size() > 1)) {
+            final List<Callable<Void>> tasks = new ArrayList<>(projectors.size());
+
+            for (StaffProjector projector : projectors) {
+                tasks.add(() -> {
+                    projector.process();
+
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                logger.warn("Error in staff projections {}", ex.toString(), ex);
+            }
+        } else {
+            for (StaffProjector projector : projectors) {
+                projector.process();
+            }
+        }
+
+        for (StaffProjector projector : projectors) {
             Graphs.addAllVertices(this, projector.getPeaks());
         }
     }
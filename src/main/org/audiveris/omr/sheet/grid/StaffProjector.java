@@ -30,6 +30,7 @@ import org.audiveris.omr.math.AreaUtil;
 import org.audiveris.omr.math.AreaUtil.CoreData;
 import org.audiveris.omr.math.GeoPath;
 import org.audiveris.omr.math.Projection;
+import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Scale.InterlineScale;
@@ -142,6 +143,9 @@ public class StaffProjector
     /** Pixel source. */
     private final ByteProcessor pixelFilter;
 
+    /** Binary table of vertical runs. */
+    private final RunTable binaryTable;
+
     /** Sequence of all blank regions found, whatever their width. */
     private final List<Blank> allBlanks = new ArrayList<>();
 
@@ -184,6 +188,7 @@ public class StaffProjector
 
         Picture picture = sheet.getPicture();
         pixelFilter = picture.getSource(Picture.SourceKey.BINARY);
+        binaryTable = picture.getTable(Picture.TableKey.BINARY);
 
         scale = sheet.getScale();
         params = new Parameters(sheet, staff.getSpecificInterline());
@@ -861,18 +866,20 @@ public class StaffProjector
      * <p>
      * For a OneLineStaff, we extrapolate ordinates based on a standard 5-line staff.
      * <p>
+     * Counts are read from the vertical runs of binary table, rather than pixel per pixel.
+     * <p>
      * We also compute derivative threshold for this staff.
      */
     private void computeProjection ()
     {
         projection = new Projection.Short(0, sheet.getWidth() - 1);
 
-        final ArrayList<Integer> derivatives = new ArrayList<>();
         final LineInfo firstLine = staff.getFirstLine();
         final LineInfo lastLine = staff.getLastLine();
         final int dx = params.staffAbscissaMargin;
         final int xMin = xClamp(staff.getAbscissa(LEFT) - dx);
         final int xMax = xClamp(staff.getAbscissa(RIGHT) + dx);
+        final int[] derivatives = new int[Math.max(0, xMax - xMin)];
 
         // Correction for ordinates of a 1-line staff
         final int dy = staff.isOneLineStaff() ? (2 * scale.getInterline()) : 0;
@@ -881,31 +888,16 @@ public class StaffProjector
         for (int x = xMin; x <= xMax; x++) {
             int yMin = firstLine.yAt(x) - dy;
             int yMax = lastLine.yAt(x) - 1 + dy;
-            short count = 0;
-
-            for (int y = yMin; y <= yMax; y++) {
-                if (pixelFilter.get(x, y) == 0) {
-                    count++;
-                }
-            }
-
-            projection.increment(x, count);
+            projection.increment(x, binaryTable.getForeCount(x, yMin, yMax));
 
             if (x > xMin) {
-                derivatives.add(Math.abs(projection.getDerivative(x)));
+                derivatives[x - xMin - 1] = Math.abs(projection.getDerivative(x));
             }
         }
 
         // Computing minDerivative from observed top values
-        Collections.sort(derivatives);
-
-        final int size = derivatives.size();
         final int top = constants.topDerivativeNumber.getValue();
-        int derCumul = 0;
-
-        for (int i = 1; i <= top; i++) {
-            derCumul += derivatives.get(size - i);
-        }
+        final int derCumul = sumOfTop(derivatives, top);
 
         final double eliteDer = (double) derCumul / top;
         derivativeThreshold = (int) Math.rint(eliteDer * constants.minDerivativeRatio.getValue());
@@ -1158,7 +1150,6 @@ public class StaffProjector
             } else if (start != -1) {
                 for (StaffPeak peak : browseRange(start, stop, halfMode)) {
                     peaks.add(peak);
-                    peakGraph.addVertex(peak);
 
                     // Make sure peaks do not overlap
                     x = Math.max(x, peak.getStop());
@@ -1174,7 +1165,6 @@ public class StaffProjector
 
             if (peak != null) {
                 peaks.add(peak);
-                peakGraph.addVertex(peak);
             }
         }
 
@@ -1361,6 +1351,44 @@ public class StaffProjector
         logger.debug("Staff#{} endingBlanks:{}", staff.getId(), endingBlanks);
     }
 
+    //----------//
+    // sumOfTop //
+    //----------//
+    /**
+     * Report the sum of the 'top' highest values.
+     * <p>
+     * Values being small non-negative integers, a histogram is used rather than a full sort.
+     *
+     * @param values the non-negative values
+     * @param top    the number of highest values to sum
+     * @return the sum of top values
+     */
+    private static int sumOfTop (int[] values,
+                                 int top)
+    {
+        int max = 0;
+
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+
+        final int[] histo = new int[max + 1];
+
+        for (int value : values) {
+            histo[value]++;
+        }
+
+        int sum = 0;
+
+        for (int v = max; (v > 0) && (top > 0); v--) {
+            final int n = Math.min(histo[v], top);
+            sum += n * v;
+            top -= n;
+        }
+
+        return sum;
+    }
+
     //--------//
     // xClamp //
     //--------//
@@ -21,12 +21,15 @@
 // </editor-fold>
 package org.audiveris.omr.sheet.grid;
 
+import ij.process.ByteProcessor;
+
 import org.audiveris.omr.OMR;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
-import org.audiveris.omr.image.jai.JaiDewarper;
+import org.audiveris.omr.image.Dewarper;
 import org.audiveris.omr.sheet.Book;
 import org.audiveris.omr.sheet.BookManager;
+import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.Skew;
@@ -51,6 +54,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -118,19 +122,22 @@ public class TargetBuilder
     //-----------//
     /**
      * Build a de-warped image according to target grid.
+     * <p>
+     * The initial gray image is de-warped if still available, otherwise the binary table is.
      */
     public void buildInfo ()
     {
         buildTarget();
 
-        JaiDewarper dewarper = new JaiDewarper();
-
         // Define the dewarp grid
-        buildWarpGrid(dewarper);
+        final Dewarper dewarper = buildWarpGrid();
 
         // Dewarp the initial image
-        RenderedImage dewarpedImage = dewarper.dewarpImage(
-                sheet.getPicture().getImageRectangle(null));
+        final Picture picture = sheet.getPicture();
+        final BufferedImage gray = picture.getGrayImage();
+        final RenderedImage dewarpedImage = (gray != null)
+                ? dewarper.dewarp(new ByteProcessor(gray)).getBufferedImage()
+                : dewarper.dewarp(picture.getTable(Picture.TableKey.BINARY)).getBufferedImage();
 
         // Add a view on dewarped image?
         if (OMR.gui != null) {
@@ -309,7 +316,7 @@ public class TargetBuilder
     //---------------//
     // buildWarpGrid //
     //---------------//
-    private void buildWarpGrid (JaiDewarper dewarper)
+    private Dewarper buildWarpGrid ()
     {
         int xStep = sheet.getInterline();
         int xNumCells = (int) Math.ceil(sheet.getWidth() / (double) xStep);
@@ -334,7 +341,14 @@ public class TargetBuilder
             warpPositions[i++] = (float) p.getY();
         }
 
-        dewarper.createWarpGrid(0, xStep, xNumCells, 0, yStep, yNumCells, warpPositions);
+        return new Dewarper(
+                sheet.getWidth(),
+                sheet.getHeight(),
+                xStep,
+                xNumCells,
+                yStep,
+                yNumCells,
+                warpPositions);
     }
 
     //----------//
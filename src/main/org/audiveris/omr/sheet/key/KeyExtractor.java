@@ -196,20 +196,11 @@ public class KeyExtractor
     {
         final int xMin = Math.min(measureStart, rect.x);
         final int xMax = (rect.x + rect.width) - 1;
-        final int yMin = rect.y;
-        final int yMax = (rect.y + rect.height) - 1;
         final IntegerFunction table = new IntegerFunction(xMin, xMax);
+        final int[] cumuls = getCumuls(new Rectangle(xMin, rect.y, xMax - xMin + 1, rect.height));
 
         for (int x = xMin; x <= xMax; x++) {
-            short cumul = 0;
-
-            for (int y = yMin; y <= yMax; y++) {
-                if (staffFreeSource.get(x, y) == 0) {
-                    cumul++;
-                }
-            }
-
-            table.setValue(x, cumul);
+            table.setValue(x, cumuls[x - xMin]);
         }
 
         return table;
@@ -238,13 +229,7 @@ public class KeyExtractor
         Arrays.fill(blacks, false);
 
         for (int y = 0; y < area.height; y++) {
-            for (int x = 0; x < area.width; x++) {
-                if (staffFreeSource.get(area.x + x, area.y + y) == 0) {
-                    blacks[y] = true;
-
-                    break;
-                }
-            }
+            blacks[y] = isBlackRow(area.y + y, area.x, area.x + area.width - 1);
         }
 
         // Build a sliding window, of length coreLength
@@ -296,19 +281,12 @@ public class KeyExtractor
     {
         final int xMin = rect.x;
         final int xMax = (rect.x + rect.width) - 1;
-        final int yMin = rect.y;
-        final int yMax = (rect.y + rect.height) - 1;
+        final int[] cumuls = getCumuls(rect);
 
         int spaceStart = -1;
 
         for (int x = xMin; x <= xMax; x++) {
-            int cumul = 0;
-
-            for (int y = yMin; y <= yMax; y++) {
-                if (staffFreeSource.get(x, y) == 0) {
-                    cumul++;
-                }
-            }
+            final int cumul = cumuls[x - xMin];
 
             if (cumul <= maxCumul) {
                 if (spaceStart == -1) {
@@ -443,6 +421,41 @@ public class KeyExtractor
         return ink >= params.minGlyphWeight;
     }
 
+    //-----------//
+    // getCumuls //
+    //-----------//
+    /**
+     * Report, for each column of the provided rectangle, the number of its foreground pixels
+     * in the staff-free buffer.
+     * <p>
+     * Buffer rows are browsed one after the other, the rectangle being clipped to the buffer.
+     *
+     * @param rect provided rectangle
+     * @return the counts, indexed by (x - rect.x)
+     */
+    private int[] getCumuls (Rectangle rect)
+    {
+        final int[] cumuls = new int[rect.width];
+        final byte[] pixels = (byte[]) staffFreeSource.getPixels();
+        final int width = staffFreeSource.getWidth();
+        final int xMin = Math.max(0, rect.x);
+        final int xMax = Math.min(width, rect.x + rect.width) - 1;
+        final int yMin = Math.max(0, rect.y);
+        final int yMax = Math.min(staffFreeSource.getHeight(), rect.y + rect.height) - 1;
+
+        for (int y = yMin; y <= yMax; y++) {
+            final int base = y * width;
+
+            for (int x = xMin; x <= xMax; x++) {
+                if (pixels[base + x] == 0) {
+                    cumuls[x - rect.x]++;
+                }
+            }
+        }
+
+        return cumuls;
+    }
+
     //--------//
     // getInk //
     //--------//
@@ -454,23 +467,48 @@ public class KeyExtractor
      */
     private int getInk (Rectangle rect)
     {
-        final int xMin = rect.x;
-        final int xMax = (rect.x + rect.width) - 1;
-        final int yMin = rect.y;
-        final int yMax = (rect.y + rect.height) - 1;
         int weight = 0;
 
-        for (int x = xMin; x <= xMax; x++) {
-            for (int y = yMin; y <= yMax; y++) {
-                if (staffFreeSource.get(x, y) == 0) {
-                    weight++;
-                }
-            }
+        for (int cumul : getCumuls(rect)) {
+            weight += cumul;
         }
 
         return weight;
     }
 
+    //------------//
+    // isBlackRow //
+    //------------//
+    /**
+     * Report whether the provided row portion contains at least one foreground pixel in the
+     * staff-free buffer.
+     *
+     * @param y    row ordinate
+     * @param xMin first abscissa (inclusive)
+     * @param xMax last abscissa (inclusive)
+     * @return true if a foreground pixel is found
+     */
+    private boolean isBlackRow (int y,
+                                int xMin,
+                                int xMax)
+    {
+        if ((y < 0) || (y >= staffFreeSource.getHeight())) {
+            return false;
+        }
+
+        final byte[] pixels = (byte[]) staffFreeSource.getPixels();
+        final int base = y * staffFreeSource.getWidth();
+
+        for (int x = Math.max(0, xMin), xLast = Math.min(staffFreeSource.getWidth() - 1, xMax);
+                x <= xLast; x++) {
+            if (pixels[base + x] == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     //-----------------//
     // purgeCandidates //
     //-----------------//
@@ -21,17 +21,20 @@
 // </editor-fold>
 package org.audiveris.omr.sheet.note;
 
-import ij.process.ByteProcessor;
-
 import org.audiveris.omr.OMR;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphGroup;
-import org.audiveris.omr.image.ChamferDistance;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.BitPixelBuffer;
+import org.audiveris.omr.image.DistanceSource;
+import static org.audiveris.omr.image.PixelSource.FOREGROUND;
+import org.audiveris.omr.image.TiledDistanceTable;
 import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Picture;
+import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.SystemInfo;
@@ -51,14 +54,20 @@ import static org.audiveris.omr.util.HorizontalSide.RIGHT;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Point;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.Iterator;
 import java.util.List;
 import java.util.SortedMap;
 
 /**
  * Class <code>DistancesBuilder</code> provides the distance table to be used for notes
  * retrieval.
+ * <p>
+ * Rather than a whole-sheet table, a {@link TiledDistanceTable} is provided, whose tiles are
+ * computed only where templates are actually evaluated, typically around staves.
+ * Staff lines, ledgers and stems are neutralized via a bit mask.
  *
  * @author Hervé Bitteur
  */
@@ -74,8 +83,8 @@ public class DistancesBuilder
     /** Related sheet. */
     private final Sheet sheet;
 
-    /** Table of distances to fore. */
-    private DistanceTable table;
+    /** Neutralized locations. */
+    private BitPixelBuffer unknowns;
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -97,16 +106,22 @@ public class DistancesBuilder
      *
      * @return the table of distance values
      */
-    public DistanceTable buildDistances ()
+    public DistanceSource buildDistances ()
     {
-        // Compute the distance-to-foreground transform image
-        Picture picture = sheet.getPicture();
-        ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
-        table = new ChamferDistance.Short().computeToFore(buffer);
+        final Picture picture = sheet.getPicture();
+        final BitPixelBuffer fores = picture.getBitSource(Picture.SourceKey.BINARY);
 
         // "Erase" staff lines, ledgers, stems
+        unknowns = new BitPixelBuffer(fores.getWidth(), fores.getHeight());
         paintLines();
 
+        // Distance-to-foreground transform, computed lazily by tiles
+        final TiledDistanceTable table = new TiledDistanceTable(
+                fores,
+                unknowns,
+                sheet.getScale().toPixels(constants.tileMargin),
+                constants.maxTiles.getValue());
+
         // Display distances image in a template view?
         if ((OMR.gui != null) && constants.displayTemplates.isSet()) {
             SelectionService templateService = new SelectionService(
@@ -129,7 +144,23 @@ public class DistancesBuilder
     //------------//
     private void paintGlyph (Glyph glyph)
     {
-        glyph.getRunTable().render(table, ChamferDistance.VALUE_UNKNOWN, glyph.getTopLeft());
+        final RunTable runTable = glyph.getRunTable();
+        final Point offset = glyph.getTopLeft();
+        final boolean vertical = runTable.getOrientation().isVertical();
+
+        for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
+            for (Iterator<Run> it = runTable.iterator(iSeq); it.hasNext();) {
+                final Run run = it.next();
+
+                for (int c = run.getStart(); c <= run.getStop(); c++) {
+                    if (vertical) {
+                        paintPixel(offset.x + iSeq, offset.y + c);
+                    } else {
+                        paintPixel(offset.x + c, offset.y + iSeq);
+                    }
+                }
+            }
+        }
     }
 
     //------------//
@@ -170,7 +201,7 @@ public class DistancesBuilder
                         int yMax = (int) Math.rint(yl + halfLine);
 
                         for (int y = yMin; y <= yMax; y++) {
-                            table.setValue(x, y, ChamferDistance.VALUE_UNKNOWN);
+                            paintPixel(x, y);
                         }
                     }
                 }
@@ -194,6 +225,17 @@ public class DistancesBuilder
         }
     }
 
+    //------------//
+    // paintPixel //
+    //------------//
+    private void paintPixel (int x,
+                             int y)
+    {
+        if ((x >= 0) && (x < unknowns.getWidth()) && (y >= 0) && (y < unknowns.getHeight())) {
+            unknowns.setValue(x, y, FOREGROUND);
+        }
+    }
+
     //~ Inner Classes ------------------------------------------------------------------------------
     //-----------//
     // Constants //
@@ -205,5 +247,14 @@ public class DistancesBuilder
         private final Constant.Boolean displayTemplates = new Constant.Boolean(
                 false,
                 "Should we display the templates tab?");
+
+        private final Scale.Fraction tileMargin = new Scale.Fraction(
+                1.0,
+                "Margin around a distance tile, for exact distances");
+
+        private final Constant.Integer maxTiles = new Constant.Integer(
+                "tiles",
+                256,
+                "Maximum number of distance tiles kept in memory");
     }
 }
@@ -22,7 +22,7 @@
 package org.audiveris.omr.sheet.note;
 
 import org.audiveris.omr.glyph.Glyph;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.DistanceSource;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.SystemInfo;
@@ -82,7 +82,7 @@ public class HeadsStep
             throws StepException
     {
         // Build proper distance table and make it available for system-level processing
-        DistanceTable distances = new DistancesBuilder(sheet).buildDistances();
+        DistanceSource distances = new DistancesBuilder(sheet).buildDistances();
 
         // Retrieve spots for (black) heads
         Map<SystemInfo, List<Glyph>> sheetSpots = new HeadSpotsBuilder(sheet).getSpots();
@@ -123,7 +123,7 @@ public class HeadsStep
     {
 
         /** Table of distances. */
-        public final DistanceTable distanceTable;
+        public final DistanceSource distanceTable;
 
         /** Spots per system. */
         public final Map<SystemInfo, List<Glyph>> sheetSpots;
@@ -138,7 +138,7 @@ public class HeadsStep
          * @param sheetSpots
          * @param tallies
          */
-        Context (DistanceTable distanceTable,
+        Context (DistanceSource distanceTable,
                  Map<SystemInfo, List<Glyph>> sheetSpots,
                  Map<SystemInfo, HeadSeedTally> tallies)
         {
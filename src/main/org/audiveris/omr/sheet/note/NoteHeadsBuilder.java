@@ -33,7 +33,8 @@ import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.image.Anchored.Anchor;
 import static org.audiveris.omr.image.Anchored.Anchor.*;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.DistanceCounts;
+import org.audiveris.omr.image.DistanceSource;
 import org.audiveris.omr.image.PixelDistance;
 import org.audiveris.omr.image.Template;
 import org.audiveris.omr.image.TemplateFactory;
@@ -64,10 +65,12 @@ import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.InterPairPredicate;
 import org.audiveris.omr.sig.inter.Inters;
 import org.audiveris.omr.sig.inter.LedgerInter;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.Dumping;
 import org.audiveris.omr.util.HorizontalSide;
 import static org.audiveris.omr.util.HorizontalSide.*;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 
 import org.slf4j.Logger;
@@ -86,6 +89,9 @@ import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.audiveris.omr.sig.inter.AbstractBeamInter;
 import org.audiveris.omr.sig.relation.Exclusion;
 
@@ -152,7 +158,7 @@ public class NoteHeadsBuilder
     private final Scale scale;
 
     /** The distance table to use. */
-    private final DistanceTable distances;
+    private final DistanceSource distances;
 
     /** The note-oriented spots for this system. */
     private final List<Glyph> systemSpots;
@@ -208,7 +214,7 @@ public class NoteHeadsBuilder
      * @param tally       (output) data on seed-head distance
      */
     public NoteHeadsBuilder (SystemInfo system,
-                             DistanceTable distances,
+                             DistanceSource distances,
                              List<Glyph> systemSpots,
                              HeadSeedTally tally)
     {
@@ -625,6 +631,60 @@ public class NoteHeadsBuilder
         return comps;
     }
 
+    //-----------//
+    // lookupAll //
+    //-----------//
+    /**
+     * Run the lookup of all provided scanners, concurrently if possible.
+     * <p>
+     * Any failed or interrupted lookup is rethrown, since completing on partial scanners would
+     * silently lose heads.
+     *
+     * @param scanners the scanners of a staff
+     */
+    private void lookupAll (List<Scanner> scanners)
+    {
+        if (!OmrExecutors.defaultParallelism.getValue() || (scanners.size() < 2)) {
+            for (Scanner scanner : scanners) {
+                scanner.lookup();
+            }
+
+            return;
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<>(scanners.size());
+
+        for (Scanner scanner : scanners) {
+            tasks.add(() -> {
+                scanner.lookup();
+
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getCachedLowExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Heads lookup got interrupted");
+            Thread.currentThread().interrupt();
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause; // Including ProcessingCancellationException
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new RuntimeException(cause);
+        }
+    }
+
     //---------//
     // overlap //
     //---------//
@@ -708,6 +768,9 @@ public class NoteHeadsBuilder
      * <p>
      * Pay attention to adjust ordinate as precisely as possible in the middle
      * of staff lines or ledger lines.
+     * <p>
+     * One scanner is defined per line/ledger pitch, all scanners can then look up concurrently.
+     * Their results are completed sequentially in scanner order.
      *
      * @param staff    the staff to process
      * @param useSeeds should we stick to stem seeds or not?
@@ -716,7 +779,7 @@ public class NoteHeadsBuilder
     private List<HeadInter> processStaff (Staff staff,
                                           boolean useSeeds)
     {
-        final List<HeadInter> ch = new ArrayList<>(); // Created heads
+        final List<Scanner> scanners = new ArrayList<>();
 
         // Use all staff lines
         int pitch = -5; // Current pitch
@@ -726,14 +789,14 @@ public class NoteHeadsBuilder
             LineAdapter adapter = new StaffLineAdapter(staff, line);
 
             // Look above line
-            ch.addAll(new Scanner(adapter, prevAdapter, -1, pitch++, useSeeds).lookup());
+            scanners.add(new Scanner(adapter, prevAdapter, -1, pitch++, useSeeds));
 
             // Look exactly on line
-            ch.addAll(new Scanner(adapter, null, 0, pitch++, useSeeds).lookup());
+            scanners.add(new Scanner(adapter, null, 0, pitch++, useSeeds));
 
             // For the last line only, look just below line
             if (pitch == 5) {
-                ch.addAll(new Scanner(adapter, null, 1, pitch++, useSeeds).lookup());
+                scanners.add(new Scanner(adapter, null, 1, pitch++, useSeeds));
             }
 
             prevAdapter = adapter;
@@ -772,17 +835,25 @@ public class NoteHeadsBuilder
                     Glyph glyph = ledger.getGlyph();
                     LineAdapter adapter = new LedgerAdapter(staff, p, glyph);
                     // Look right on ledger
-                    ch.addAll(new Scanner(adapter, null, 0, pitch, useSeeds).lookup());
+                    scanners.add(new Scanner(adapter, null, 0, pitch, useSeeds));
 
                     // Look just further from staff
                     if (lookFurther) {
                         int pitch2 = pitch + dir;
-                        ch.addAll(new Scanner(adapter, null, dir, pitch2, useSeeds).lookup());
+                        scanners.add(new Scanner(adapter, null, dir, pitch2, useSeeds));
                     }
                 }
             }
         }
 
+        lookupAll(scanners);
+
+        final List<HeadInter> ch = new ArrayList<>(); // Created heads
+
+        for (Scanner scanner : scanners) {
+            ch.addAll(scanner.complete());
+        }
+
         return ch;
     }
 
@@ -1102,6 +1173,10 @@ public class NoteHeadsBuilder
     //---------//
     /**
      * Head scanner dedicated to a staff line or ledger.
+     * <p>
+     * The {@link #lookup()} part only reads shared data and can thus run concurrently with other
+     * scanners, while the {@link #complete()} part, which retrieves glyphs and populates sig and
+     * tally, must be run sequentially.
      */
     private class Scanner
     {
@@ -1130,11 +1205,23 @@ public class NoteHeadsBuilder
 
         private List<HeadInter> heads = new ArrayList<>();
 
+        /** Seed-based matches, waiting for completion. */
+        private final List<SeedMatch> seedMatches = new ArrayList<>();
+
+        /** Scanner debug data. */
+        private final Perf perf = new Perf();
+
         private final boolean isOpen;
 
         /** Offsets tried around a given ordinate. */
         private final int[] yOffsets;
 
+        /** Minimum ordinate offset. */
+        private final int yOffsetMin;
+
+        /** Maximum ordinate offset. */
+        private final int yOffsetMax;
+
         /**
          * Create a Scanner.
          *
@@ -1159,6 +1246,8 @@ public class NoteHeadsBuilder
             // Open line?
             isOpen = ((pitch % 2) != 0) && ((line2 == null) || (Math.abs(pitch) == 5));
             yOffsets = computeYOffsets();
+            yOffsetMin = Arrays.stream(yOffsets).min().getAsInt();
+            yOffsetMax = Arrays.stream(yOffsets).max().getAsInt();
 
             final Staff staff = line.getStaff();
             interline = staff.getSpecificInterline();
@@ -1197,9 +1286,74 @@ public class NoteHeadsBuilder
             competitors = getCompetitorsSlice(competitorsArea);
         }
 
-        public List<HeadInter> lookup ()
+        //----------//
+        // complete //
+        //----------//
+        /**
+         * Complete the heads found by lookup, by retrieving their underlying glyph and
+         * inserting them in sig.
+         *
+         * @return the head inters created
+         */
+        public List<HeadInter> complete ()
+        {
+            if (useSeeds) {
+                for (SeedMatch match : seedMatches) {
+                    final HeadInter head = match.head;
+                    final Glyph glyph = head.retrieveGlyph(image);
+
+                    if (glyph == null) {
+                        continue;
+                    }
+
+                    sig.addVertex(head);
+                    heads.add(head);
+
+                    if (head.getGrade() < Grades.goodInterGrade) {
+                        continue;
+                    }
+
+                    // Collect actual dx between head and seed
+                    // Dx is positive if outside head box and negative if inside
+                    final Rectangle box = head.getBounds();
+                    final double dx = (match.hSide == LEFT)
+                            ? box.x - match.x0 + 0.5
+                            : match.x0 + 0.5 - (box.x + box.width - 1);
+                    tally.putDx(head, match.hSide, dx);
+                }
+
+                seedsPerf.include(perf);
+            } else {
+                for (Iterator<HeadInter> it = heads.iterator(); it.hasNext();) {
+                    HeadInter inter = it.next();
+                    Glyph glyph = inter.retrieveGlyph(image);
+
+                    if (glyph != null) {
+                        sig.addVertex(inter);
+                    } else {
+                        it.remove();
+                    }
+                }
+
+                rangePerf.include(perf);
+            }
+
+            return heads;
+        }
+
+        //--------//
+        // lookup //
+        //--------//
+        /**
+         * Look up for heads along the line.
+         */
+        public void lookup ()
         {
-            return useSeeds ? lookupSeeds() : lookupRange();
+            if (useSeeds) {
+                lookupSeeds();
+            } else {
+                lookupRange();
+            }
         }
 
         //-------------//
@@ -1223,6 +1377,36 @@ public class NoteHeadsBuilder
             return false;
         }
 
+        //-------------//
+        // cannotMatch //
+        //-------------//
+        /**
+         * Check whether the provided shape is sure to fail matching at abscissa x, whatever
+         * the ordinate offset tried around y.
+         *
+         * @param shape  shape to check
+         * @param x      pivot abscissa
+         * @param y      theoretical pivot ordinate
+         * @param counts foreground and unknown counts around scanned line
+         * @return true if even the lower bound of matching distance is too high
+         */
+        private boolean cannotMatch (Shape shape,
+                                     int x,
+                                     int y,
+                                     DistanceCounts counts)
+        {
+            final Template template = catalog.getTemplate(shape);
+            double bound = template.evaluateLowerBound(
+                    x, y + yOffsetMin, y + yOffsetMax, MIDDLE_LEFT, counts);
+
+            // Same trick as in eval()
+            if (shape == Shape.NOTEHEAD_CROSS) {
+                bound *= (1 - constants.crossBoost.getValue());
+            }
+
+            return bound > params.maxDistanceLow;
+        }
+
         //-----------------//
         // computeYOffsets //
         //-----------------//
@@ -1299,22 +1483,14 @@ public class NoteHeadsBuilder
 
             // Skip if frozen barline/connector is too close
             if (barInvolved(slimBox)) {
-                if (useSeeds) {
-                    seedsPerf.bars++;
-                } else {
-                    rangePerf.bars++;
-                }
+                perf.bars++;
 
                 return null;
             }
 
             // Skip if location already used by really good object (beam, etc)
             if (overlap(slimBox, competitors)) {
-                if (useSeeds) {
-                    seedsPerf.overlaps++;
-                } else {
-                    rangePerf.overlaps++;
-                }
+                perf.overlaps++;
 
                 return null;
             }
@@ -1327,11 +1503,7 @@ public class NoteHeadsBuilder
                 dist *= (1 - constants.crossBoost.getValue());
             }
 
-            if (useSeeds) {
-                seedsPerf.evals++;
-            } else {
-                rangePerf.evals++;
-            }
+            perf.evals++;
 
             return new PixelDistance(x, y, dist);
         }
@@ -1381,6 +1553,39 @@ public class NoteHeadsBuilder
             return kept;
         }
 
+        //-------------------//
+        // getDistanceCounts //
+        //-------------------//
+        /**
+         * Build the foreground and unknown counts on a window that covers every template
+         * location tried along the scanned range.
+         *
+         * @param scanLeft  range starting abscissa
+         * @param scanRight range stopping abscissa
+         * @param ordinates theoretical ordinate for each abscissa in range
+         * @return the counts on relevant window
+         */
+        private DistanceCounts getDistanceCounts (int scanLeft,
+                                                  int scanRight,
+                                                  int[] ordinates)
+        {
+            final int yMin = Arrays.stream(ordinates).min().getAsInt() + yOffsetMin;
+            final int yMax = Arrays.stream(ordinates).max().getAsInt() + yOffsetMax;
+            final Rectangle window = new Rectangle(
+                    scanLeft,
+                    yMin,
+                    scanRight - scanLeft + 1,
+                    yMax - yMin + 1);
+
+            for (Shape shape : sheetTemplateNotes) {
+                final Template template = catalog.getTemplate(shape);
+                window.add(template.getBoundsAt(scanLeft, yMin, MIDDLE_LEFT));
+                window.add(template.getBoundsAt(scanRight, yMax, MIDDLE_LEFT));
+            }
+
+            return new DistanceCounts(distances, window);
+        }
+
         //---------------------------//
         // getRelevantBlackAbscissae //
         //---------------------------//
@@ -1474,30 +1679,52 @@ public class NoteHeadsBuilder
          * However we cannot skip the check for stem-based shapes because some stems are so poor
          * that we don't have stem seeds of proper length for them, and range browsing is then the
          * only way to reach note heads with such poor stems.
-         *
-         * @return the head inters created
+         * <p>
+         * To save on template evaluations, most of them on empty staff portions, a cheap lower
+         * bound of matching distance is first computed for each (abscissa, shape) pair, using
+         * counts of foreground locations around the scanned line.
+         * The pair is skipped if even this lower bound cannot reach the good matching distance.
+         * <p>
+         * Underlying glyphs are retrieved later, in {@link #complete()}.
          */
-        private List<HeadInter> lookupRange ()
+        private void lookupRange ()
         {
             // Abscissa range for scan
             final int scanLeft = Math.max(line.getLeftAbscissa(), line.getStaff().getHeaderStop());
             final int scanRight = line.getRightAbscissa() - minTemplateWidth;
             if (scanRight < scanLeft) {
-                return heads;
+                return;
             }
 
             // Use the note spots to limit the abscissae to be checked for blacks
             boolean[] blackRelevants = getRelevantBlackAbscissae(scanLeft, scanRight);
 
+            // Theoretical ordinates
+            final int[] ordinates = new int[scanRight - scanLeft + 1];
+
+            for (int x0 = scanLeft; x0 <= scanRight; x0++) {
+                ordinates[x0 - scanLeft] = getTheoreticalOrdinate(x0);
+            }
+
+            // Counts for pruning hopeless locations
+            final DistanceCounts counts = constants.pruneRange.isSet()
+                    ? getDistanceCounts(scanLeft, scanRight, ordinates) : null;
+
             // Scan from left to right
             for (int x0 = scanLeft; x0 <= scanRight; x0++) {
-                final int y0 = getTheoreticalOrdinate(x0);
+                final int y0 = ordinates[x0 - scanLeft];
 
                 // Shapes to try depend on whether location belongs to a black spot
                 EnumSet<Shape> shapeSet = blackRelevants[x0 - scanLeft] ? sheetTemplateNotes
                         : sheetVoidTemplateNotes;
                 ShapeLoop:
                 for (Shape shape : shapeSet) {
+                    if ((counts != null) && cannotMatch(shape, x0, y0, counts)) {
+                        perf.prunes++;
+
+                        continue;
+                    }
+
                     PixelDistance bestLoc = null;
 
                     for (int yOffset : yOffsets) {
@@ -1512,7 +1739,7 @@ public class NoteHeadsBuilder
                             // This is the very first (best guess) location tried.
                             // If eval is really bad, stop immediately
                             if ((loc == null) || (loc.d >= params.reallyBadDistance)) {
-                                rangePerf.abandons++;
+                                perf.abandons++;
 
                                 continue ShapeLoop;
                             }
@@ -1543,19 +1770,6 @@ public class NoteHeadsBuilder
 
             // Check conflict with seed-based instances
             heads = filterSeedConflicts(heads, competitors);
-
-            for (Iterator<HeadInter> it = heads.iterator(); it.hasNext();) {
-                HeadInter inter = it.next();
-                Glyph glyph = inter.retrieveGlyph(image);
-
-                if (glyph != null) {
-                    sig.addVertex(inter);
-                } else {
-                    it.remove();
-                }
-            }
-
-            return heads;
         }
 
         //-------------//
@@ -1568,10 +1782,10 @@ public class NoteHeadsBuilder
          * For each best match of sufficient grade, we also record the actual abscissa distance
          * between seed line and head bounds.
          * This information will be later consolidated at sheet level, per head shape and side.
-         *
-         * @return the stem-based head inters created
+         * <p>
+         * Matches are recorded, to be later completed in {@link #complete()}.
          */
-        private List<HeadInter> lookupSeeds ()
+        private void lookupSeeds ()
         {
             // Intersected seeds in the area
             final List<Glyph> seeds = getGlyphsSlice(systemSeeds, seedsArea);
@@ -1617,7 +1831,7 @@ public class NoteHeadsBuilder
                                     // This is the very first (best guess) location tried.
                                     // If eval is really bad, stop immediately
                                     if ((loc == null) || (loc.d >= params.reallyBadDistance)) {
-                                        seedsPerf.abandons++;
+                                        perf.abandons++;
 
                                         continue ShapeLoop;
                                     }
@@ -1644,32 +1858,11 @@ public class NoteHeadsBuilder
                             continue;
                         }
 
-                        final Glyph glyph = head.retrieveGlyph(image);
-
-                        if (glyph == null) {
-                            continue;
-                        }
-
-                        sig.addVertex(head);
-                        heads.add(head);
-
-                        if (head.getGrade() < Grades.goodInterGrade) {
-                            continue;
-                        }
-
-                        // Collect actual dx between head and seed
-                        // Dx is positive if outside head box and negative if inside
                         final HorizontalSide hSide = (anchor == LEFT_STEM) ? LEFT : RIGHT;
-                        final Rectangle box = head.getBounds();
-                        final double dx = (hSide == LEFT)
-                                ? box.x - x0 + 0.5
-                                : x0 + 0.5 - (box.x + box.width - 1);
-                        tally.putDx(head, hSide, dx);
+                        seedMatches.add(new SeedMatch(head, hSide, x0));
                     }
                 }
             }
-
-            return heads;
         }
     }
 
@@ -1840,6 +2033,10 @@ public class NoteHeadsBuilder
                 0.1,
                 "How much do we boost cross head notes (badly recognized by template matching)");
 
+        private final Constant.Boolean pruneRange = new Constant.Boolean(
+                true,
+                "Should we prune range locations using a lower bound of matching distance?");
+
         private final Scale.Fraction minBeamWidth = new Scale.Fraction(
                 2.5,
                 "Minimum good beam width to exclude heads");
@@ -1968,11 +2165,50 @@ public class NoteHeadsBuilder
 
         int abandons;
 
+        int prunes;
+
+        public void include (Perf that)
+        {
+            bars += that.bars;
+            overlaps += that.overlaps;
+            evals += that.evals;
+            abandons += that.abandons;
+            prunes += that.prunes;
+        }
+
         @Override
         public String toString ()
         {
-            return String.format("%7d bars, %7d overlaps, %7d evals, %7d abandons",
-                                 bars, overlaps, evals, abandons);
+            return String.format("%7d bars, %7d overlaps, %7d evals, %7d abandons, %7d prunes",
+                                 bars, overlaps, evals, abandons, prunes);
+        }
+    }
+
+    //-----------//
+    // SeedMatch //
+    //-----------//
+    /**
+     * A seed-based head, with the data needed to later record its head-seed distance.
+     */
+    private static class SeedMatch
+    {
+
+        /** Head created. */
+        final HeadInter head;
+
+        /** Side of seed WRT head. */
+        final HorizontalSide hSide;
+
+        /** Precise seed abscissa. */
+        final int x0;
+
+        SeedMatch (HeadInter head,
+                   HorizontalSide hSide,
+                   int x0)
+        {
+            this.head = head;
+            this.hSide = hSide;
+            this.x0 = x0;
         }
     }
 }
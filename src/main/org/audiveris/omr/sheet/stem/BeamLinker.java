@@ -1390,8 +1390,7 @@ public class BeamLinker
              */
             private Line2D getCloserLimit ()
             {
-                final List<Inter> aliens = retriever
-                        .getNeighboringInters(retriever.getSystemBeams(), beamBox);
+                final List<Inter> aliens = retriever.getNeighboringBeams(beamBox);
                 aliens.removeAll(beam.getGroup().getMembers());
 
                 // Check concrete beam (no hook) intersection with theoLine
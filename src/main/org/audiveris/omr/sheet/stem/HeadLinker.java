@@ -162,7 +162,7 @@ public class HeadLinker
         scale = system.getSheet().getScale();
         params = retriever.getParams();
 
-        neighborBeams = retriever.getNeighboringInters(retriever.getSystemBeams(), headBox);
+        neighborBeams = retriever.getNeighboringBeams(headBox);
         neighborSeeds = retriever.getNeighboringSeeds(headBox);
 
         for (HorizontalSide hSide : HorizontalSide.values()) {
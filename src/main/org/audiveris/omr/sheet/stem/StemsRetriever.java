@@ -24,12 +24,10 @@ package org.audiveris.omr.sheet.stem;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
-import org.audiveris.omr.glyph.Glyphs;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.glyph.Grades;
 import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.math.AreaUtil;
-import org.audiveris.omr.math.GeoOrder;
 import org.audiveris.omr.math.LineUtil;
 import org.audiveris.omr.sheet.Profiles;
 import org.audiveris.omr.sheet.Scale;
@@ -78,6 +76,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
@@ -182,9 +181,15 @@ public class StemsRetriever
     /** Vertical seeds for this system. */
     private List<Glyph> systemSeeds;
 
+    /** Abscissa index of system seeds, for vicinity lookups. */
+    private VicinityIndex<Glyph> seedIndex;
+
     /** Beams and beam hooks for this system. */
     private List<Inter> systemBeams;
 
+    /** Abscissa index of system beams, for vicinity lookups. */
+    private VicinityIndex<Inter> beamIndex;
+
     /** Stems interpretations for this system. */
     private final HashMap<Glyph, StemInter> systemStems = new HashMap<>();
 
@@ -248,6 +253,7 @@ public class StemsRetriever
         // The abscissa-sorted stem seeds for this system
         systemSeeds = system.getGroupedGlyphs(GlyphGroup.VERTICAL_SEED);
         purgeNoStemSeeds(systemSeeds);
+        seedIndex = new VicinityIndex<>(systemSeeds, Glyph::getBounds);
 
         new Finalizer().process();
     }
@@ -407,27 +413,26 @@ public class StemsRetriever
         return params;
     }
 
-    //----------------------//
-    // getNeighboringInters //
-    //----------------------//
+    //---------------------//
+    // getNeighboringBeams //
+    //---------------------//
     /**
-     * From the provided collection of interpretations, retrieve all those located
-     * in some item vicinity.
+     * Retrieve all system beams (and beam hooks) located in some item vicinity.
      *
-     * @param inters  the collection of interpretations to search
      * @param itemBox bounding box of item
-     * @return the set of neighboring interpretations
+     * @return the list of neighboring beams
      */
-    List<Inter> getNeighboringInters (List<? extends Inter> inters,
-                                      Rectangle itemBox)
+    List<Inter> getNeighboringBeams (Rectangle itemBox)
     {
-        // Retrieve neighboring inters, using a box of system height and sufficiently wide,
-        // just to play with a limited number of inters.
-        Rectangle systemBox = system.getBounds();
-        Rectangle fatBox = new Rectangle(itemBox.x, systemBox.y, itemBox.width, systemBox.height);
-        fatBox.grow(params.vicinityMargin, 0);
+        final List<Inter> beams = beamIndex.getIntersected(getVicinity(itemBox));
+
+        for (Iterator<Inter> it = beams.iterator(); it.hasNext();) {
+            if (it.next().isRemoved()) {
+                it.remove();
+            }
+        }
 
-        return Inters.intersectedInters(inters, GeoOrder.BY_ABSCISSA, fatBox);
+        return beams;
     }
 
     //---------------------//
@@ -440,13 +445,7 @@ public class StemsRetriever
      */
     Set<Glyph> getNeighboringSeeds (Rectangle itemBox)
     {
-        // Retrieve neighboring stem seeds, using a box of system height and sufficiently wide,
-        // just to play with a limited number of seeds.
-        Rectangle systemBox = system.getBounds();
-        Rectangle fatBox = new Rectangle(itemBox.x, systemBox.y, itemBox.width, systemBox.height);
-        fatBox.grow(params.vicinityMargin, 0);
-
-        return Glyphs.intersectedGlyphs(systemSeeds, fatBox);
+        return new LinkedHashSet<>(seedIndex.getIntersected(getVicinity(itemBox)));
     }
 
     /**
@@ -457,14 +456,6 @@ public class StemsRetriever
         return system;
     }
 
-    /**
-     * @return the system beams
-     */
-    List<Inter> getSystemBeams ()
-    {
-        return systemBeams;
-    }
-
     /**
      * @return the system heads
      */
@@ -671,6 +662,29 @@ public class StemsRetriever
         checkNeededStems(systemHeads);
     }
 
+    //-------------//
+    // getVicinity //
+    //-------------//
+    /**
+     * Build the vicinity box of an item, using a box of system height and sufficiently wide,
+     * just to play with a limited number of neighbors.
+     *
+     * @param itemBox bounding box of item
+     * @return the vicinity box
+     */
+    private Rectangle getVicinity (Rectangle itemBox)
+    {
+        final Rectangle systemBox = system.getBounds();
+        final Rectangle fatBox = new Rectangle(
+                itemBox.x,
+                systemBox.y,
+                itemBox.width,
+                systemBox.height);
+        fatBox.grow(params.vicinityMargin, 0);
+
+        return fatBox;
+    }
+
     //--------------//
     // inspectStems //
     //--------------//
@@ -688,11 +702,13 @@ public class StemsRetriever
         watch.start("Seeds");
         systemSeeds = system.getGroupedGlyphs(GlyphGroup.VERTICAL_SEED);
         purgeNoStemSeeds(systemSeeds);
+        seedIndex = new VicinityIndex<>(systemSeeds, Glyph::getBounds);
 
         // The abscissa-sorted beam (and beam hook) interpretations for this system
         watch.start("Beams linkers");
         systemBeams = sig.inters(AbstractBeamInter.class);
         Collections.sort(systemBeams, Inters.byAbscissa);
+        beamIndex = new VicinityIndex<>(systemBeams, Inter::getBounds);
 
         for (Inter b : systemBeams) {
             AbstractBeamInter beam = (AbstractBeamInter) b;
@@ -741,6 +757,7 @@ public class StemsRetriever
         // Beams first
         systemBeams = sig.inters(AbstractBeamInter.class);
         Collections.sort(systemBeams, Inters.byReverseWidth); // Link longest beams first
+        beamIndex = new VicinityIndex<>(systemBeams, Inter::getBounds);
 
         watch.start("Beams sides linking");
         for (Iterator<Inter> it = systemBeams.iterator(); it.hasNext();) {
@@ -750,6 +767,7 @@ public class StemsRetriever
             if (!ok) {
                 logger.debug("Cannot link both sides of {}", beam);
                 it.remove();
+                beamIndex.remove(beam);
             }
         }
 
@@ -0,0 +1,237 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   V i c i n i t y I n d e x                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet.stem;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Class <code>VicinityIndex</code> indexes the items of a system (stem seeds, beams, ...)
+ * by their abscissa range, together with their ordinate range, so that the items intersected
+ * by a given box can be retrieved without scanning the whole system collection.
+ * <p>
+ * Entries are kept sorted by left abscissa.
+ * Since no item is wider than the widest indexed item, a binary search on
+ * <code>box.x - maxWidth</code> gives the first candidate, and the scan stops as soon as an
+ * entry starts beyond the box right side.
+ * A query thus costs O(log n + k) where k is the number of entries overlapping the box abscissa
+ * range.
+ * <p>
+ * Items can be removed incrementally.
+ * Found items are returned in the order they were provided to the index, so that a lookup gives
+ * the same result as a plain scan of the original collection.
+ * Hence, when this reference order changes, a new index is to be built.
+ *
+ * @param <E> precise item type
+ * @author Hervé Bitteur
+ */
+class VicinityIndex<E>
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** To sort entries by left abscissa, then by reference rank. */
+    private static final Comparator<Entry<?>> byAbscissa = (e1, e2) -> {
+        if (e1.bounds.x != e2.bounds.x) {
+            return Integer.compare(e1.bounds.x, e2.bounds.x);
+        }
+
+        return Integer.compare(e1.rank, e2.rank);
+    };
+
+    /** To sort entries by reference rank. */
+    private static final Comparator<Entry<?>> byRank = (e1, e2) -> Integer.compare(
+            e1.rank,
+            e2.rank);
+
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    /** How to get item bounds. */
+    private final Function<E, Rectangle> boundsOf;
+
+    /** Entries sorted by abscissa. */
+    private final List<Entry<E>> entries = new ArrayList<>();
+
+    /** Maximum width of indexed items. */
+    private int maxWidth;
+
+    //~ Constructors -------------------------------------------------------------------------------
+
+    /**
+     * Creates a new <code>VicinityIndex</code> object.
+     *
+     * @param items    initial items, in their reference order
+     * @param boundsOf how to get an item bounds
+     */
+    VicinityIndex (Collection<? extends E> items,
+                   Function<E, Rectangle> boundsOf)
+    {
+        this.boundsOf = boundsOf;
+
+        int rank = 0;
+
+        for (E item : items) {
+            final Entry<E> entry = new Entry<>(item, boundsOf.apply(item), rank++);
+            maxWidth = Math.max(maxWidth, entry.bounds.width);
+            entries.add(entry);
+        }
+
+        entries.sort(byAbscissa);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+
+    //----------------//
+    // getIntersected //
+    //----------------//
+    /**
+     * Report the items whose bounds intersect the provided box.
+     *
+     * @param box the box to intersect
+     * @return the intersected items, in reference order
+     */
+    List<E> getIntersected (Rectangle box)
+    {
+        final List<Entry<E>> found = new ArrayList<>();
+        final int xMax = box.x + box.width;
+
+        for (int i = indexOf(box.x - maxWidth + 1); i < entries.size(); i++) {
+            final Entry<E> entry = entries.get(i);
+
+            if (entry.bounds.x >= xMax) {
+                break;
+            }
+
+            if (box.intersects(entry.bounds)) {
+                found.add(entry);
+            }
+        }
+
+        found.sort(byRank);
+
+        final List<E> items = new ArrayList<>(found.size());
+
+        for (Entry<E> entry : found) {
+            items.add(entry.item);
+        }
+
+        return items;
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Remove the provided item.
+     *
+     * @param item the item to remove
+     * @return true if item was actually found and removed
+     */
+    boolean remove (E item)
+    {
+        final Rectangle bounds = boundsOf.apply(item);
+
+        for (int i = indexOf(bounds.x); i < entries.size(); i++) {
+            final Entry<E> entry = entries.get(i);
+
+            if (entry.bounds.x > bounds.x) {
+                break;
+            }
+
+            if (entry.item == item) {
+                entries.remove(i);
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * @return the number of indexed items
+     */
+    int size ()
+    {
+        return entries.size();
+    }
+
+    //---------//
+    // indexOf //
+    //---------//
+    /**
+     * Report the index of the first entry whose left abscissa is not lower than x.
+     *
+     * @param x the abscissa value
+     * @return the entry index, perhaps entries.size()
+     */
+    private int indexOf (int x)
+    {
+        int low = 0;
+        int high = entries.size();
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+
+            if (entries.get(mid).bounds.x < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+
+    //-------//
+    // Entry //
+    //-------//
+    /**
+     * An indexed item, with its bounds and its rank in reference order.
+     */
+    private static class Entry<E>
+    {
+
+        final E item;
+
+        final Rectangle bounds;
+
+        final int rank;
+
+        Entry (E item,
+               Rectangle bounds,
+               int rank)
+        {
+            this.item = item;
+            this.bounds = bounds;
+            this.rank = rank;
+        }
+    }
+}
@@ -97,6 +97,12 @@ public class SymbolsBuilder
     /** Scale-dependent global constants. */
     private final Parameters params;
 
+    /** Glyphs waiting for batch evaluation. */
+    private final List<Glyph> pendingGlyphs = new ArrayList<>();
+
+    /** Closest staff of each pending glyph. */
+    private final List<Staff> pendingStaves = new ArrayList<>();
+
     //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new SymbolsBuilder object.
@@ -133,9 +139,10 @@ public class SymbolsBuilder
      *       + cluster.decompose()                      // Decompose cluster into all subsets
      *       + FOREACH subset process(subset):
      *          - build compound glyph                  // Build one compound glyph per subset
-     *          - evaluateGlyph(compound)               // Run shape classifier on compound
-     *          - FOREACH acceptable evaluation
-     *             + interFactory.create(eval, glyph) // Create inter(s) related to evaluation
+     *          - evaluateGlyph(compound)               // Append compound to pending glyphs
+     *    + evaluatePendings()                          // Run shape classifier on pending batch
+     *       + FOREACH pending glyph with acceptable evaluation
+     *          - interFactory.create(eval, glyph)      // Create inter related to evaluation
      * </pre>
      *
      * @param optionalsMap the optional (weak) glyphs per system
@@ -172,7 +179,10 @@ public class SymbolsBuilder
     // evaluateGlyph //
     //---------------//
     /**
-     * Evaluate a provided glyph and create all acceptable inter instances.
+     * Register a provided glyph for evaluation.
+     * <p>
+     * The glyph is not evaluated immediately, but appended to the pending candidates, which are
+     * evaluated by batches in {@link #evaluatePendings()}.
      *
      * @param glyph the glyph to evaluate
      */
@@ -195,42 +205,49 @@ public class SymbolsBuilder
             return;
         }
 
+        pendingGlyphs.add(glyph);
+        pendingStaves.add(closestStaff);
+
+        if (pendingGlyphs.size() >= constants.batchSize.getValue()) {
+            evaluatePendings();
+        }
+    }
+
+    //------------------//
+    // evaluatePendings //
+    //------------------//
+    /**
+     * Evaluate all pending glyphs as one batch and create all acceptable inter instances,
+     * in the order the glyphs were submitted.
+     */
+    private void evaluatePendings ()
+    {
+        if (pendingGlyphs.isEmpty()) {
+            return;
+        }
+
         // TODO: checks should be run only AFTER both classifiers have been run
-        Evaluation[] evals = classifier.evaluate(
-                glyph,
+        final Evaluation[][] evalsList = classifier.evaluate(
+                pendingGlyphs,
                 system,
                 2,
                 Grades.symbolMinGrade,
                 EnumSet.of(Classifier.Condition.CHECKED));
 
-        //        Evaluation[] evals2 = classifier2.evaluate(
-        //                glyph,
-        //                system,
-        //                2,
-        //                Grades.symbolMinGrade, // Not OK for deep classifier!
-        //                EnumSet.of(Classifier.Condition.CHECKED));
-        //
-        if (evals.length > 0) {
-            //            // Create one interpretation for each acceptable evaluation
-            //            for (Evaluation eval : evals) {
-            //                try {
-            //                    factory.create(eval, glyph, closestStaff);
-            //                } catch (Exception ex) {
-            //                    logger.warn("Error in glyph evaluation " + ex, ex);
-            //                }
-            //            }
-            //
-            Evaluation eval = evals[0];
-
-            ///if (evals2.length > 0 && eval.shape == evals2[0].shape) {
-            try {
-                factory.create(eval, glyph, closestStaff);
-            } catch (Exception ex) {
-                logger.warn("Error in glyph evaluation " + ex, ex);
-            }
+        for (int i = 0; i < evalsList.length; i++) {
+            final Evaluation[] evals = evalsList[i];
 
-            ///}
+            if (evals.length > 0) {
+                try {
+                    factory.create(evals[0], pendingGlyphs.get(i), pendingStaves.get(i));
+                } catch (Exception ex) {
+                    logger.warn("Error in glyph evaluation " + ex, ex);
+                }
+            }
         }
+
+        pendingGlyphs.clear();
+        pendingStaves.clear();
     }
 
     //------------------//
@@ -353,6 +370,9 @@ public class SymbolsBuilder
                 }
             }
         }
+
+        // Flush the last candidates
+        evaluatePendings();
     }
 
     //-------------------//
@@ -391,6 +411,11 @@ public class SymbolsBuilder
                 7,
                 "Maximum number of parts considered for a symbol");
 
+        private final Constant.Integer batchSize = new Constant.Integer(
+                "Glyphs",
+                256,
+                "Number of candidate glyphs evaluated together by the classifier");
+
         private final Scale.Fraction maxGap = new Scale.Fraction(
                 0.5, // 0.75 vs 0.5 is a bit too small for fermata - dot distance
                 "Maximum distance between two compound parts");
@@ -22,7 +22,7 @@
 package org.audiveris.omr.sheet.ui;
 
 import org.audiveris.omr.image.ChamferDistance;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.DistanceSource;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.ui.selection.LocationEvent;
 
@@ -47,7 +47,7 @@ public class DistanceBoard
 
     //~ Instance fields ----------------------------------------------------------------------------
     /** The distance table to browse. */
-    private final DistanceTable table;
+    private final DistanceSource table;
 
     //~ Constructors -------------------------------------------------------------------------------
     /**
@@ -57,7 +57,7 @@ public class DistanceBoard
      * @param table distance table to browse
      */
     public DistanceBoard (Sheet sheet,
-                          DistanceTable table)
+                          DistanceSource table)
     {
         super(sheet);
         this.table = table;
@@ -31,7 +31,7 @@ import org.audiveris.omr.glyph.ShapeSet;
 import org.audiveris.omr.image.Anchored;
 import org.audiveris.omr.image.Anchored.Anchor;
 import org.audiveris.omr.image.AnchoredTemplate;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.DistanceSource;
 import org.audiveris.omr.image.PixelDistance;
 import org.audiveris.omr.image.Template;
 import org.audiveris.omr.image.TemplateFactory;
@@ -84,7 +84,7 @@ public class TemplateBoard
     private final Sheet sheet;
 
     /** Distance table. */
-    private final DistanceTable table;
+    private final DistanceSource table;
 
     /** Where template info is to be written to. */
     private final SelectionService templateService;
@@ -116,7 +116,7 @@ public class TemplateBoard
      * @param templateService template bus
      */
     public TemplateBoard (Sheet sheet,
-                          DistanceTable table,
+                          DistanceSource table,
                           SelectionService templateService)
     {
         super(Board.TEMPLATE, sheet.getLocationService(), eventsRead, true, false, false, false);
@@ -26,7 +26,7 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.image.Anchored;
 import org.audiveris.omr.image.AnchoredTemplate;
 import org.audiveris.omr.image.ChamferDistance;
-import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.DistanceSource;
 import org.audiveris.omr.image.PixelDistance;
 import org.audiveris.omr.image.Template;
 import org.audiveris.omr.math.GeoUtil;
@@ -86,7 +86,7 @@ public class TemplateView
     //~ Instance fields ----------------------------------------------------------------------------
     private final Sheet sheet;
 
-    private final DistanceTable table;
+    private final DistanceSource table;
 
     /** Service where templates can be read. */
     private final SelectionService templateService;
@@ -105,7 +105,7 @@ public class TemplateView
      */
     public TemplateView (Sheet sheet,
                          BufferedImage image,
-                         DistanceTable table,
+                         DistanceSource table,
                          SelectionService templateService)
     {
         super(image);
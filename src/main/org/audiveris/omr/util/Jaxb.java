@@ -35,13 +35,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import static java.nio.file.StandardOpenOption.CREATE;
-import java.text.NumberFormat;
-import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -78,6 +78,26 @@ public abstract class Jaxb
 
     private static final Logger logger = LoggerFactory.getLogger(Jaxb.class);
 
+    /** Powers of 10, exactly representable as double values. */
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    /** Beyond this magnitude, a scaled value is formatted via BigDecimal. */
+    private static final double MAX_SCALED = 1e12;
+
+    /** Scaled values this close to half-way are formatted via BigDecimal. */
+    private static final double HALF_WAY_MARGIN = 1e-3;
+
+    /** Maximum number of significant digits for a direct exact parsing. */
+    private static final int MAX_PARSED_DIGITS = 15;
+
     //~ Constructors -------------------------------------------------------------------------------
     /** Not meant to be instantiated. */
     @SuppressWarnings("unused")
@@ -86,6 +106,97 @@ public abstract class Jaxb
     }
 
     //~ Methods ------------------------------------------------------------------------------------
+    //--------------//
+    // formatDouble //
+    //--------------//
+    /**
+     * Format a double value with at most the provided number of decimals.
+     * <p>
+     * The result is the one of a US NumberFormat without grouping, such as "-12.5" or "3".
+     * But no NumberFormat is used, so this method is thread-safe and, except for very large or
+     * half-way values, it allocates only the resulting string.
+     *
+     * @param value       the value to format
+     * @param maxDecimals maximum number of decimals, in [0..15]
+     * @return the formatted value
+     */
+    public static String formatDouble (double value,
+                                       int maxDecimals)
+    {
+        final double scaled = Math.abs(value) * POW10[maxDecimals];
+
+        if (!(scaled < MAX_SCALED)
+                    || (Math.abs(scaled - Math.floor(scaled) - 0.5) < HALF_WAY_MARGIN)) {
+            return formatDoubleExactly(value, maxDecimals);
+        }
+
+        long units = (long) Math.rint(scaled);
+        int decimals = maxDecimals;
+
+        // Skip trailing zero decimals
+        while ((decimals > 0) && ((units % 10) == 0)) {
+            units /= 10;
+            decimals--;
+        }
+
+        final char[] buf = new char[20 + maxDecimals];
+        int pos = buf.length;
+
+        for (int i = 0; i < decimals; i++) {
+            buf[--pos] = (char) ('0' + (units % 10));
+            units /= 10;
+        }
+
+        if (decimals > 0) {
+            buf[--pos] = '.';
+        }
+
+        do {
+            buf[--pos] = (char) ('0' + (units % 10));
+            units /= 10;
+        } while (units != 0);
+
+        // Negative sign, kept for a negative value rounded to zero, as NumberFormat does
+        if ((value < 0) || ((value == 0) && ((1 / value) < 0))) {
+            buf[--pos] = '-';
+        }
+
+        return new String(buf, pos, buf.length - pos);
+    }
+
+    //---------------------//
+    // formatDoubleExactly //
+    //---------------------//
+    /**
+     * Slow but exact version of {@link #formatDouble(double, int)}.
+     * <p>
+     * Like NumberFormat, it starts from the shortest decimal representation of the value, and
+     * rounds the exact binary value when decimals must be dropped.
+     *
+     * @param value       the value to format
+     * @param maxDecimals maximum number of decimals
+     * @return the formatted value
+     */
+    private static String formatDoubleExactly (double value,
+                                               int maxDecimals)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+
+        BigDecimal decimal = BigDecimal.valueOf(value);
+
+        if (decimal.scale() > maxDecimals) {
+            decimal = new BigDecimal(value).setScale(maxDecimals, RoundingMode.HALF_EVEN);
+        }
+
+        if ((decimal.signum() == 0) && (value < 0)) {
+            return "-0";
+        }
+
+        return decimal.stripTrailingZeros().toPlainString();
+    }
+
     //---------//
     // marshal //
     //---------//
@@ -142,6 +253,71 @@ public abstract class Jaxb
         m.marshal(object, writer);
     }
 
+    //-------------//
+    // parseDouble //
+    //-------------//
+    /**
+     * Parse a double value.
+     * <p>
+     * A plain decimal string, such as "-12.5", with at most 15 significant digits is parsed
+     * directly and exactly, without any intermediate object.
+     * Any other string is delegated to {@link Double#parseDouble(String)}, which provides the
+     * same result.
+     *
+     * @param str the string to parse
+     * @return the double value
+     * @throws NumberFormatException if the string is not a valid double representation
+     */
+    public static double parseDouble (String str)
+    {
+        final int length = str.length();
+        int pos = 0;
+        boolean negative = false;
+
+        if ((length > 0) && ((str.charAt(0) == '-') || (str.charAt(0) == '+'))) {
+            negative = str.charAt(0) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0; // Significant digits
+        int decimals = -1; // Digits after the decimal point, -1 if no point met
+        boolean any = false;
+
+        for (; pos < length; pos++) {
+            final char c = str.charAt(pos);
+
+            if ((c >= '0') && (c <= '9')) {
+                any = true;
+
+                if ((mantissa != 0) || (c != '0')) {
+                    if (++digits > MAX_PARSED_DIGITS) {
+                        return Double.parseDouble(str);
+                    }
+                }
+
+                mantissa = (mantissa * 10) + (c - '0');
+
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if ((c == '.') && (decimals < 0)) {
+                decimals = 0;
+            } else {
+                return Double.parseDouble(str); // Exponent, NaN, Infinity, etc.
+            }
+        }
+
+        if (!any || (decimals >= POW10.length)) {
+            return Double.parseDouble(str);
+        }
+
+        // Both mantissa and power of 10 are exact, so is the division result
+        final double value = (decimals > 0) ? (mantissa / POW10[decimals]) : mantissa;
+
+        return negative ? -value : value;
+    }
+
     //-----------//
     // unmarshal //
     //-----------//
@@ -537,13 +713,6 @@ public abstract class Jaxb
             extends XmlAdapter<String, Double>
     {
 
-        private static final NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-
-        static {
-            nf.setGroupingUsed(false);
-            nf.setMaximumFractionDigits(1); // For a maximum of 1 decimal
-        }
-
         @Override
         public String marshal (Double d)
                 throws Exception
@@ -552,7 +721,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return nf.format(d);
+            return formatDouble(d, 1); // For a maximum of 1 decimal
         }
 
         @Override
@@ -563,7 +732,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return Double.valueOf(s);
+            return parseDouble(s);
         }
     }
 
@@ -577,13 +746,6 @@ public abstract class Jaxb
             extends XmlAdapter<String, Double>
     {
 
-        private static final NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-
-        static {
-            nf.setGroupingUsed(false);
-            nf.setMaximumFractionDigits(3); // For a maximum of 3 decimals
-        }
-
         @Override
         public String marshal (Double d)
                 throws Exception
@@ -592,7 +754,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return nf.format(d);
+            return formatDouble(d, 3); // For a maximum of 3 decimals
         }
 
         @Override
@@ -603,7 +765,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return Double.valueOf(s);
+            return parseDouble(s);
         }
     }
 
@@ -617,13 +779,6 @@ public abstract class Jaxb
             extends XmlAdapter<String, Double>
     {
 
-        private static final NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-
-        static {
-            nf.setGroupingUsed(false);
-            nf.setMaximumFractionDigits(5); // For a maximum of 5 decimals
-        }
-
         @Override
         public String marshal (Double d)
                 throws Exception
@@ -632,7 +787,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return nf.format(d);
+            return formatDouble(d, 5); // For a maximum of 5 decimals
         }
 
         @Override
@@ -643,7 +798,7 @@ public abstract class Jaxb
                 return null;
             }
 
-            return Double.valueOf(s);
+            return parseDouble(s);
         }
     }
 
@@ -0,0 +1,136 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    J a x b C o n t e x t s                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Class <code>JaxbContexts</code> is the central registry of JAXB contexts.
+ * <p>
+ * Building a JAXBContext is costly, especially for a large graph of classes such as Sheet.
+ * So, a context is built only once for a given set of bound classes, and then shared.
+ * <p>
+ * Contexts known to be needed soon can be preloaded, concurrently and in the background.
+ * A user asking for a context still being built simply waits for its completion.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class JaxbContexts
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final Logger logger = LoggerFactory.getLogger(JaxbContexts.class);
+
+    /** Contexts, either built or being built, per list of bound classes. */
+    private static final ConcurrentMap<List<Class<?>>, FutureTask<JAXBContext>> contexts
+            = new ConcurrentHashMap<>();
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /** Not meant to be instantiated. */
+    private JaxbContexts ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report the JAXB context for the provided classes, building it if needed.
+     *
+     * @param classes the classes to be bound, in the order used for context creation
+     * @return the shared JAXB context
+     * @throws JAXBException if the context could not be built
+     */
+    public static JAXBContext get (Class<?>... classes)
+            throws JAXBException
+    {
+        final Class<?>[] bound = classes.clone();
+        final List<Class<?>> key = Arrays.asList(bound);
+        FutureTask<JAXBContext> task = contexts.get(key);
+
+        if (task == null) {
+            final FutureTask<JAXBContext> newTask = new FutureTask<>(
+                    () -> JAXBContext.newInstance(bound));
+            task = contexts.putIfAbsent(key, newTask);
+
+            if (task == null) {
+                // We are the builder
+                task = newTask;
+                task.run();
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JAXBException("Interrupted while waiting for JAXB context of " + key, ex);
+        } catch (ExecutionException ex) {
+            // Don't keep a failed context, so that a later call can try again
+            contexts.remove(key, task);
+
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof JAXBException) {
+                throw (JAXBException) cause;
+            }
+
+            throw new JAXBException("Error building JAXB context of " + key, cause);
+        }
+    }
+
+    //---------//
+    // preload //
+    //---------//
+    /**
+     * Launch, in the background, the building of one JAXB context for each provided class.
+     *
+     * @param classes the root classes of the contexts to build
+     */
+    public static void preload (Class<?>... classes)
+    {
+        for (Class<?> classe : classes) {
+            OmrExecutors.getCachedLowExecutor().submit(() -> {
+                try {
+                    get(classe);
+                    logger.debug("JAXB context preloaded for {}", classe.getSimpleName());
+                } catch (JAXBException ex) {
+                    logger.warn("Error preloading JAXB context for {}", classe, ex);
+                }
+
+                return null;
+            });
+        }
+    }
+}
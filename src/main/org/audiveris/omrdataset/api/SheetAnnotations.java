@@ -22,6 +22,7 @@
 package org.audiveris.omrdataset.api;
 
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,9 +59,6 @@ public class SheetAnnotations
 
     private static final Logger logger = LoggerFactory.getLogger(SheetAnnotations.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     @XmlAttribute(name = "version")
     private String version;
@@ -273,12 +271,7 @@ public class SheetAnnotations
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(SheetAnnotations.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(SheetAnnotations.class);
     }
 
     //~ Inner Classes ------------------------------------------------------------------------------
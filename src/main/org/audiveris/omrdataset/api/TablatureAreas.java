@@ -22,6 +22,7 @@
 package org.audiveris.omrdataset.api;
 
 import org.audiveris.omr.util.Jaxb.RectangleAdapter;
+import org.audiveris.omr.util.JaxbContexts;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,9 +61,6 @@ public class TablatureAreas
 
     private static final Logger logger = LoggerFactory.getLogger(TablatureAreas.class);
 
-    /** Un/marshalling context for use with JAXB. */
-    private static volatile JAXBContext jaxbContext;
-
     //~ Instance fields ----------------------------------------------------------------------------
     // Persistent data
     //
@@ -143,11 +141,6 @@ public class TablatureAreas
     private static JAXBContext getJaxbContext ()
             throws JAXBException
     {
-        // Lazy creation
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(TablatureAreas.class);
-        }
-
-        return jaxbContext;
+        return JaxbContexts.get(TablatureAreas.class);
     }
 }
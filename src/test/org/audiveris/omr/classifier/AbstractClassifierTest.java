@@ -0,0 +1,220 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          A b s t r a c t C l a s s i f i e r T e s t                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link AbstractClassifier} evaluation selection.
+ *
+ * @author Hervé Bitteur
+ */
+public class AbstractClassifierTest
+{
+
+    /**
+     * Creates a new <code>AbstractClassifierTest</code> object.
+     */
+    public AbstractClassifierTest ()
+    {
+    }
+
+    //----------------//
+    // testSelectTopK //
+    //----------------//
+    /**
+     * Check that top-K selection gives the same sequence as a full sort.
+     */
+    @Test
+    public void testSelectTopK ()
+    {
+        System.out.println("testSelectTopK");
+
+        final Random random = new Random(789);
+        final FixedClassifier classifier = new FixedClassifier();
+        final int interline = 10;
+
+        for (int n = 0; n < 50; n++) {
+            // Some ties, thanks to a coarse grid of values
+            final double[] grades = new double[Classifier.SHAPE_COUNT];
+
+            for (int s = 0; s < grades.length; s++) {
+                grades[s] = random.nextInt(40) / 40.0;
+            }
+
+            classifier.grades = grades;
+
+            final Evaluation[] sorted = AbstractClassifier.toEvaluations(grades);
+            Arrays.sort(sorted, Evaluation.byReverseGrade);
+
+            final int count = 1 + random.nextInt(5);
+            final double minGrade = random.nextDouble();
+            final Glyph glyph = createGlyph(20 + n, 20); // Always a different glyph
+            final Evaluation[] evals = classifier.evaluate(
+                    glyph,
+                    interline,
+                    count,
+                    minGrade,
+                    Classifier.NO_CONDITIONS);
+
+            int expected = 0;
+
+            while ((expected < count) && (sorted[expected].grade >= minGrade)) {
+                expected++;
+            }
+
+            assertEquals(expected, evals.length);
+
+            for (int i = 0; i < expected; i++) {
+                assertEquals(sorted[i].shape, evals[i].shape);
+                assertEquals(sorted[i].grade, evals[i].grade, 0);
+            }
+        }
+    }
+
+    //-----------//
+    // testNoise //
+    //-----------//
+    @Test
+    public void testNoise ()
+    {
+        System.out.println("testNoise");
+
+        final FixedClassifier classifier = new FixedClassifier();
+        final Evaluation[] evals = classifier.evaluate(
+                createGlyph(1, 1),
+                10,
+                3,
+                0.1,
+                Classifier.NO_CONDITIONS);
+        assertEquals(1, evals.length);
+        assertEquals(Shape.NOISE, evals[0].shape);
+    }
+
+    //-------------//
+    // createGlyph //
+    //-------------//
+    private static Glyph createGlyph (int width,
+                                      int height)
+    {
+        final RunTable table = new RunTable(HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            table.addRun(y, 0, width);
+        }
+
+        return new Glyph(0, 0, table);
+    }
+
+    //-----------------//
+    // FixedClassifier //
+    //-----------------//
+    /**
+     * A classifier which always reports the same grades.
+     */
+    private static class FixedClassifier
+            extends AbstractClassifier<Object>
+    {
+
+        double[] grades;
+
+        @Override
+        public void addListener (TrainingMonitor listener)
+        {
+        }
+
+        @Override
+        public int getMaxEpochs ()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getName ()
+        {
+            return "Fixed";
+        }
+
+        @Override
+        public Evaluation[] getNaturalEvaluations (Glyph glyph,
+                                                   int interline)
+        {
+            return toEvaluations(grades);
+        }
+
+        @Override
+        public void reset ()
+        {
+        }
+
+        @Override
+        public void setMaxEpochs (int maxEpochs)
+        {
+        }
+
+        @Override
+        public void stop ()
+        {
+        }
+
+        @Override
+        public void train (Collection<Sample> samples)
+        {
+        }
+
+        @Override
+        public void train (Collection<Sample> samples,
+                           Collection<Sample> tests)
+        {
+        }
+
+        @Override
+        protected boolean isCompatible (Object model,
+                                        Norms norms)
+        {
+            return true;
+        }
+
+        @Override
+        protected Object loadModel (Path root)
+        {
+            return null;
+        }
+
+        @Override
+        protected void storeModel (Path modelPath)
+        {
+        }
+    }
+}
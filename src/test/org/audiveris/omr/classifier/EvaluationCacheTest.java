@@ -0,0 +1,136 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             E v a l u a t i o n C a c h e T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import static org.junit.Assert.*;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Unit tests for {@link EvaluationCache}.
+ *
+ * @author Hervé Bitteur
+ */
+public class EvaluationCacheTest
+{
+
+    /**
+     * Creates a new <code>EvaluationCacheTest</code> object.
+     */
+    public EvaluationCacheTest ()
+    {
+    }
+
+    //------------//
+    // testGetPut //
+    //------------//
+    @Test
+    public void testGetPut ()
+    {
+        System.out.println("testGetPut");
+
+        final EvaluationCache cache = new EvaluationCache(10);
+        final double[] grades = {0.9, 0.1};
+
+        assertNull(cache.get(createTable(3), 20));
+        cache.put(createTable(3), 20, grades);
+
+        // Lookup by content, not by identity
+        final double[] found = cache.get(createTable(3), 20);
+        assertNotNull(found);
+        assertArrayEquals(grades, found, 0);
+        assertNotNull(cache.get(createTable(3), 20));
+
+        // Different interline or different pixels
+        assertNull(cache.get(createTable(3), 21));
+        assertNull(cache.get(createTable(4), 20));
+
+        assertEquals(0.4, cache.getHitRatio(), 1e-9);
+
+        cache.clear();
+        assertNull(cache.get(createTable(3), 20));
+    }
+
+    //--------------//
+    // testEviction //
+    //--------------//
+    @Test
+    public void testEviction ()
+    {
+        System.out.println("testEviction");
+
+        final EvaluationCache cache = new EvaluationCache(2);
+        final double[] evals = {0.9};
+
+        cache.put(createTable(1), 20, evals);
+        cache.put(createTable(2), 20, evals);
+        assertNotNull(cache.get(createTable(1), 20)); // 1 is now more recent than 2
+        cache.put(createTable(3), 20, evals);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(createTable(1), 20));
+        assertNull(cache.get(createTable(2), 20));
+        assertNotNull(cache.get(createTable(3), 20));
+    }
+
+    //-----------------//
+    // testNoRetention //
+    //-----------------//
+    @Test
+    public void testNoRetention ()
+            throws InterruptedException
+    {
+        System.out.println("testNoRetention");
+
+        final EvaluationCache cache = new EvaluationCache(10);
+        RunTable table = createTable(3);
+        final WeakReference<RunTable> ref = new WeakReference<>(table);
+        cache.put(table, 20, new double[]{0.9});
+        table = null;
+
+        for (int i = 0; (i < 20) && (ref.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // The cached entry no longer holds the glyph pixels, but still serves equal pixels
+        assertNull(ref.get());
+        assertNotNull(cache.get(createTable(3), 20));
+    }
+
+    //-------------//
+    // createTable //
+    //-------------//
+    private static RunTable createTable (int length)
+    {
+        final RunTable table = new RunTable(HORIZONTAL, 10, 2);
+        table.addRun(0, 0, length);
+        table.addRun(1, 1, length);
+
+        return table;
+    }
+}
@@ -0,0 +1,213 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                F e a t u r e C a c h e T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.classifier.SheetContainer.Descriptor;
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link FeatureCache}.
+ *
+ * @author Hervé Bitteur
+ */
+public class FeatureCacheTest
+{
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a new <code>FeatureCacheTest</code> object.
+     */
+    public FeatureCacheTest ()
+    {
+    }
+
+    //---------------//
+    // testStoreLoad //
+    //---------------//
+    @Test
+    public void testStoreLoad ()
+            throws Exception
+    {
+        System.out.println("testStoreLoad");
+
+        final Path file = folder.getRoot().toPath().resolve("features-test.bin");
+        final CountingDescriptor descriptor = new CountingDescriptor();
+        final SampleSheet sheet1 = createSheet("sheet1", 5);
+        final SampleSheet sheet2 = createSheet("sheet2", 3);
+        final List<SampleSheet> sheets = Arrays.asList(sheet1, sheet2);
+
+        // Nothing stored yet: all features are computed
+        final FeatureCache cache = new FeatureCache(descriptor, file);
+        final Sample first = sheet1.getAllSamples().get(0);
+        assertNull(cache.peekFeatures(first, sheet1));
+
+        final double[] expected = cache.getFeatures(first, sheet1);
+        assertEquals(1, descriptor.count);
+        assertTrue(cache.isDirty());
+
+        // Known features: all sheet1 samples, just the first sheet2 sample
+        for (Sample sample : sheet1.getAllSamples()) {
+            cache.getFeatures(sample, sheet1);
+        }
+
+        final Sample second = sheet2.getAllSamples().get(0);
+        cache.getFeatures(second, sheet2);
+        assertEquals(6, descriptor.count);
+
+        // Store computes nothing more
+        cache.store(sheets);
+        assertFalse(cache.isDirty());
+        assertEquals(6, descriptor.count);
+
+        // A store on a loaded file can replace it
+        cache.getFeatures(sheet2.getAllSamples().get(2), sheet2);
+        cache.store(sheets);
+        assertEquals(7, descriptor.count);
+
+        // A new cache reads stored features, with no computation
+        final CountingDescriptor other = new CountingDescriptor();
+        final FeatureCache loaded = new FeatureCache(other, file);
+
+        for (Sample sample : sheet1.getAllSamples()) {
+            assertArrayEquals(
+                    other.getFeatures(sample, sample.getInterline()),
+                    loaded.peekFeatures(sample, sheet1),
+                    0.0);
+        }
+
+        assertArrayEquals(
+                other.getFeatures(second, second.getInterline()),
+                loaded.peekFeatures(second, sheet2),
+                0.0);
+        assertNull(loaded.peekFeatures(sheet2.getAllSamples().get(1), sheet2));
+        assertNotNull(loaded.peekFeatures(sheet2.getAllSamples().get(2), sheet2));
+
+        assertArrayEquals(expected, loaded.getFeatures(first, sheet1), 0.0);
+        assertEquals(6, other.count);
+        assertFalse(loaded.isDirty());
+
+        // An unknown sample is computed on demand
+        loaded.getFeatures(sheet2.getAllSamples().get(1), sheet2);
+        assertEquals(7, other.count);
+        assertTrue(loaded.isDirty());
+
+        // A sheet modified since store is no longer served from file
+        final Sample added = createSample(10);
+        sheet2.privateAddSample(added);
+        assertNull(new FeatureCache(other, file).peekFeatures(added, sheet2));
+        assertNull(new FeatureCache(other, file).peekFeatures(second, sheet2));
+
+        // An invalidated sheet is no longer served from file
+        loaded.invalidate(sheet1);
+        assertNull(loaded.peekFeatures(first, sheet1));
+
+        // Another descriptor version ignores the file
+        final CountingDescriptor newer = new CountingDescriptor()
+        {
+            @Override
+            public int getVersion ()
+            {
+                return 2;
+            }
+        };
+        assertNull(new FeatureCache(newer, file).peekFeatures(first, sheet1));
+    }
+
+    //-------------//
+    // createSheet //
+    //-------------//
+    private static SampleSheet createSheet (String name,
+                                            int count)
+    {
+        final SampleSheet sheet = new SampleSheet(new Descriptor(name, null));
+
+        for (int i = 0; i < count; i++) {
+            sheet.privateAddSample(createSample(i + 1));
+        }
+
+        return sheet;
+    }
+
+    //--------------//
+    // createSample //
+    //--------------//
+    private static Sample createSample (int length)
+    {
+        final RunTable table = new RunTable(HORIZONTAL, 20, 2);
+        table.addRun(0, new Run(0, length));
+        table.addRun(1, new Run(1, length));
+
+        return new Sample(0, 0, table, 20, 0, Shape.DOT_set, null);
+    }
+
+    //--------------------//
+    // CountingDescriptor //
+    //--------------------//
+    private static class CountingDescriptor
+            extends GlyphDescriptor
+    {
+
+        int count;
+
+        CountingDescriptor ()
+        {
+            super("test");
+        }
+
+        @Override
+        public String[] getFeatureLabels ()
+        {
+            return new String[]{"weight", "width", "interline"};
+        }
+
+        @Override
+        public double[] getFeatures (Glyph glyph,
+                                     int interline)
+        {
+            count++;
+
+            return new double[]{glyph.getWeight(), glyph.getWidth() / 3.0, interline};
+        }
+
+        @Override
+        public int length ()
+        {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             S a m p l e C l u s t e r e r T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.glyph.Shape;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link SampleClusterer}.
+ *
+ * @author Hervé Bitteur
+ */
+public class SampleClustererTest
+{
+
+    /**
+     * Creates a new <code>SampleClustererTest</code> object.
+     */
+    public SampleClustererTest ()
+    {
+    }
+
+    //-------------//
+    // testCluster //
+    //-------------//
+    @Test
+    public void testCluster ()
+    {
+        System.out.println("testCluster");
+
+        final Sample bar1 = createBar(3, 30, Shape.DOT_set);
+        final Sample bar2 = createBar(3, 30, Shape.DOT_set);
+        final Sample bar3 = createBar(3, 31, Shape.DOT_set); // One more line, still a duplicate
+        final Sample other = createBar(3, 30, Shape.STACCATISSIMO); // Other shape
+        final Sample box = createBar(20, 20, Shape.DOT_set); // Other pattern
+        bar2.setMultiplicity(4);
+
+        final SampleClusterer clusterer = new SampleClusterer(
+                s -> new double[]{s.getWidth(), s.getHeight(), s.getWeight()},
+                3,
+                0.02);
+        final List<SampleClusterer.Cluster> clusters = clusterer.cluster(
+                Arrays.asList(bar1, bar2, bar3, other, box));
+        assertEquals(3, clusters.size());
+
+        final SampleClusterer.Cluster first = clusters.get(0);
+        assertSame(bar1, first.representative);
+        assertEquals(Arrays.asList(bar1, bar2, bar3), first.members);
+        assertEquals(6, first.getMultiplicity());
+
+        assertSame(other, clusters.get(1).representative);
+        assertSame(box, clusters.get(2).representative);
+        assertEquals(1, clusters.get(2).getMultiplicity());
+    }
+
+    //------------//
+    // testChunks //
+    //------------//
+    @Test
+    public void testChunks ()
+    {
+        System.out.println("testChunks");
+
+        final Random random = new Random(753);
+
+        for (int distance : new int[]{0, 1, 3, 22, 30, 31, 40, 63}) {
+            final SampleClusterer clusterer = new SampleClusterer(s -> null, distance, 0);
+            final int maxDistance = Math.min(distance, SampleClusterer.MAX_HASH_DISTANCE);
+            final int chunkCount = maxDistance + 1;
+
+            for (int i = 0; i < 200; i++) {
+                final long hash = random.nextLong();
+
+                // Chunks are disjoint: flipping one bit changes exactly one chunk
+                final long flipped = hash ^ (1L << random.nextInt(Long.SIZE));
+                int changed = 0;
+
+                for (int c = 0; c < chunkCount; c++) {
+                    if (clusterer.getChunk(hash, c) != clusterer.getChunk(flipped, c)) {
+                        changed++;
+                    }
+                }
+
+                assertEquals(1, changed);
+
+                // Pigeonhole: within max distance, at least one chunk is shared
+                long other = hash;
+
+                while (Long.bitCount(hash ^ other) < maxDistance) {
+                    other ^= (1L << random.nextInt(Long.SIZE));
+                }
+
+                boolean shared = false;
+
+                for (int c = 0; c < chunkCount; c++) {
+                    shared |= (clusterer.getChunk(hash, c) == clusterer.getChunk(other, c));
+                }
+
+                assertTrue(shared);
+            }
+        }
+    }
+
+    //-------------------------//
+    // testStrictFeatureFilter //
+    //-------------------------//
+    @Test
+    public void testStrictFeatureFilter ()
+    {
+        System.out.println("testStrictFeatureFilter");
+
+        final Sample bar1 = createBar(3, 30, Shape.DOT_set);
+        final Sample bar2 = createBar(3, 31, Shape.DOT_set);
+
+        // Same hash, but features must be strictly equal
+        assertEquals(SampleClusterer.getHash(bar1), SampleClusterer.getHash(bar2));
+
+        final SampleClusterer clusterer = new SampleClusterer(
+                s -> new double[]{s.getWidth(), s.getHeight(), s.getWeight()},
+                3,
+                0.0);
+        assertEquals(2, clusterer.cluster(Arrays.asList(bar1, bar2)).size());
+    }
+
+    //-----------//
+    // createBar //
+    //-----------//
+    private static Sample createBar (int width,
+                                     int height,
+                                     Shape shape)
+    {
+        final RunTable table = new RunTable(HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            table.addRun(y, 0, width);
+        }
+
+        return new Sample(0, 0, table, 20, 0, shape, null);
+    }
+}
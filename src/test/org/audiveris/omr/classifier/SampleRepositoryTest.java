@@ -0,0 +1,122 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                            S a m p l e R e p o s i t o r y T e s t                             //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.glyph.Shape;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link SampleRepository} storing and loading.
+ *
+ * @author Hervé Bitteur
+ */
+public class SampleRepositoryTest
+{
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a new <code>SampleRepositoryTest</code> object.
+     */
+    public SampleRepositoryTest ()
+    {
+    }
+
+    //---------------//
+    // testStoreLoad //
+    //---------------//
+    @Test
+    public void testStoreLoad ()
+            throws Exception
+    {
+        System.out.println("testStoreLoad");
+
+        final int sheetCount = 12;
+        final Path samplesFile = folder.getRoot().toPath().resolve("test-samples.zip");
+        final SampleRepository repo = SampleRepository.getInstance(samplesFile, false);
+
+        for (int i = 0; i < sheetCount; i++) {
+            final SampleSheet sampleSheet = repo.findSampleSheet("sheet" + i, null, null);
+
+            for (int j = 0; j <= i; j++) {
+                final RunTable table = new RunTable(HORIZONTAL, 10, 3);
+
+                for (int y = 0; y < 3; y++) {
+                    table.addRun(y, 0, 1 + j);
+                }
+
+                repo.addSample(new Sample(0, 0, table, 20, j, Shape.DOT_set, null), sampleSheet);
+            }
+        }
+
+        repo.storeRepository();
+
+        // Reload, all sheets must be published to listener
+        final SampleRepository loaded = SampleRepository.getInstance(samplesFile, false);
+        final List<SampleSheet> published = new ArrayList<>();
+        loaded.loadRepository(new SampleRepository.LoadListener()
+        {
+            @Override
+            public void loadedSheet (SampleSheet sampleSheet)
+            {
+                published.add(sampleSheet);
+            }
+
+            @Override
+            public void totalSheets (int total)
+            {
+                assertEquals(sheetCount, total);
+            }
+        });
+
+        assertTrue(loaded.isLoaded());
+        assertEquals(sheetCount, published.size());
+
+        for (SheetContainer.Descriptor descriptor : loaded.getAllDescriptors()) {
+            final String name = descriptor.getName();
+
+            if (SampleRepository.isSymbols(name)) {
+                continue;
+            }
+
+            final SampleSheet sampleSheet = loaded.getSampleSheet(descriptor);
+            final int index = Integer.parseInt(name.substring("sheet".length()));
+            assertEquals(index + 1, sampleSheet.getAllSamples().size());
+
+            for (Sample sample : sampleSheet.getAllSamples()) {
+                assertSame(sampleSheet, loaded.getSampleSheet(sample));
+            }
+        }
+    }
+}
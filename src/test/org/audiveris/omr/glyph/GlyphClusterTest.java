@@ -0,0 +1,145 @@
+/*
+ * Copyright © Audiveris 2021. All rights reserved.
+ * This software is released under the GNU General Public License.
+ * Goto http://kenai.com/projects/audiveris to report bugs or suggestions.
+ */
+package org.audiveris.omr.glyph;
+
+import static org.junit.Assert.*;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+
+import org.jgrapht.alg.ConnectivityInspector;
+import org.jgrapht.graph.SimpleGraph;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit test for GlyphCluster, checked against a brute force enumeration of subsets.
+ *
+ * @author Hervé Bitteur
+ */
+public class GlyphClusterTest
+{
+
+    /**
+     * Creates a new <code>GlyphClusterTest</code> object.
+     */
+    public GlyphClusterTest ()
+    {
+    }
+
+    /**
+     * Check that each acceptable connected subset is evaluated exactly once.
+     */
+    @Test
+    public void testDecompose ()
+    {
+        System.out.println("decompose");
+
+        // Two rows of 5 glyphs, with various sizes
+        final List<Glyph> parts = new ArrayList<>();
+
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 5; col++) {
+                final int size = 2 + ((row + (3 * col)) % 4);
+                parts.add(createGlyph(col * 7, row * 7, size, size));
+            }
+        }
+
+        final SimpleGraph<Glyph, GlyphLink> graph = Glyphs.buildLinks(parts, 3);
+        final int minWeight = 20;
+        final int maxWeight = 120;
+        final int maxWidth = 22;
+
+        final List<Set<Glyph>> evaluated = new ArrayList<>();
+        final GlyphCluster.AbstractAdapter adapter = new GlyphCluster.AbstractAdapter(graph)
+        {
+            @Override
+            public void evaluateGlyph (Glyph glyph,
+                                       Set<Glyph> set)
+            {
+                assertEquals(Glyphs.weightOf(set), glyph.getWeight());
+                assertEquals(Glyphs.getBounds(set), glyph.getBounds());
+                evaluated.add(set);
+            }
+
+            @Override
+            public boolean isTooHeavy (int weight)
+            {
+                return weight > maxWeight;
+            }
+
+            @Override
+            public boolean isTooLarge (Rectangle bounds)
+            {
+                return bounds.width > maxWidth;
+            }
+
+            @Override
+            public boolean isTooLight (int weight)
+            {
+                return weight < minWeight;
+            }
+        };
+
+        new GlyphCluster(adapter, null).decompose();
+
+        // No duplicate
+        assertEquals(evaluated.size(), new HashSet<>(evaluated).size());
+
+        // Brute force
+        final Set<Set<Glyph>> expected = new HashSet<>();
+
+        for (int mask = 1; mask < (1 << parts.size()); mask++) {
+            final Set<Glyph> set = new LinkedHashSet<>();
+
+            for (int i = 0; i < parts.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    set.add(parts.get(i));
+                }
+            }
+
+            final int weight = Glyphs.weightOf(set);
+
+            if ((weight < minWeight) || (weight > maxWeight)
+                        || (Glyphs.getBounds(set).width > maxWidth)) {
+                continue;
+            }
+
+            final SimpleGraph<Glyph, GlyphLink> sub = GlyphCluster.getSubGraph(set, graph, true);
+
+            if (new ConnectivityInspector<>(sub).isGraphConnected()) {
+                expected.add(set);
+            }
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, new HashSet<>(evaluated));
+    }
+
+    //-------------//
+    // createGlyph //
+    //-------------//
+    private static Glyph createGlyph (int left,
+                                      int top,
+                                      int width,
+                                      int height)
+    {
+        final RunTable table = new RunTable(HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            table.addRun(y, 0, width);
+        }
+
+        return new Glyph(left, top, table);
+    }
+}
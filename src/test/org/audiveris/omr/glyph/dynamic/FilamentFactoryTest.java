@@ -0,0 +1,218 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             F i l a m e n t F a c t o r y T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.glyph.dynamic;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.lag.BasicLag;
+import org.audiveris.omr.lag.JunctionRatioPolicy;
+import org.audiveris.omr.lag.Lag;
+import org.audiveris.omr.lag.Section;
+import org.audiveris.omr.lag.SectionFactory;
+import org.audiveris.omr.run.Orientation;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.sheet.Scale;
+import org.audiveris.omr.sheet.Scale.InterlineScale;
+import org.audiveris.omr.sheet.Scale.LineScale;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link FilamentFactory}.
+ *
+ * @author Hervé Bitteur
+ */
+public class FilamentFactoryTest
+{
+
+    private static final int WIDTH = 1500;
+
+    private static final int HEIGHT = 600;
+
+    private static final int INTERLINE = 20;
+
+    private final Scale scale = new Scale(
+            new InterlineScale(INTERLINE - 1, INTERLINE, INTERLINE + 1),
+            new LineScale(2, 3, 4),
+            null,
+            null);
+
+    /**
+     * Creates a new <code>FilamentFactoryTest</code> object.
+     */
+    public FilamentFactoryTest ()
+    {
+    }
+
+    /**
+     * Check that merging via the spatial index gives the same filaments as the plain scan of
+     * all longer filaments.
+     */
+    @Test
+    public void testMergeIndex ()
+    {
+        System.out.println("mergeIndex");
+
+        final ByteProcessor source = createSource(new Random(97531));
+
+        for (Orientation orientation : new Orientation[]{HORIZONTAL, VERTICAL}) {
+            final ByteProcessor buffer = (orientation == HORIZONTAL) ? source : transpose(source);
+            final List<String> scanned = retrieve(buffer, orientation, false);
+            final List<String> indexed = retrieve(buffer, orientation, true);
+            System.out.println(orientation + " filaments: " + indexed.size());
+
+            assertEquals(scanned, indexed);
+
+            // Check some filaments got actually merged
+            int maxSections = 0;
+
+            for (String fil : indexed) {
+                maxSections = Math.max(maxSections, fil.split(",").length);
+            }
+
+            assertTrue(maxSections > 3);
+        }
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    /**
+     * Draw slightly sloped and wavy lines, broken into dashes, crossed by short vertical
+     * strokes, with random blobs around.
+     */
+    private static ByteProcessor createSource (Random random)
+    {
+        final ByteProcessor source = new ByteProcessor(WIDTH, HEIGHT);
+        source.setColor(255);
+        source.fill();
+
+        for (int staff = 0; staff < 4; staff++) {
+            for (int line = 0; line < 5; line++) {
+                final double y0 = 40 + (staff * 140) + (line * INTERLINE);
+                int x = 10 + random.nextInt(20);
+
+                while (x < (WIDTH - 10)) {
+                    final int length = 20 + random.nextInt(130);
+                    final int dy = random.nextInt(3) - 1;
+
+                    for (int xx = x; xx < Math.min(WIDTH - 10, x + length); xx++) {
+                        final int y = (int) Math.rint(
+                                y0 + (xx * 0.01) + (2 * Math.sin(xx / 150.0)) + dy);
+                        fill(source, xx, y, 1, 3);
+                    }
+
+                    x += (length + 1 + random.nextInt(8));
+                }
+            }
+        }
+
+        for (int i = 0; i < 120; i++) {
+            fill(source, random.nextInt(WIDTH), random.nextInt(HEIGHT), 3, 30 + random.nextInt(60));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            final int w = 1 + random.nextInt(12);
+            final int h = 1 + random.nextInt(12);
+            fill(source, random.nextInt(WIDTH), random.nextInt(HEIGHT), w, h);
+        }
+
+        return source;
+    }
+
+    //------//
+    // fill //
+    //------//
+    private static void fill (ByteProcessor source,
+                              int x0,
+                              int y0,
+                              int width,
+                              int height)
+    {
+        for (int y = y0; y < Math.min(source.getHeight(), y0 + height); y++) {
+            for (int x = x0; x < Math.min(source.getWidth(), x0 + width); x++) {
+                source.set(x, y, 0);
+            }
+        }
+    }
+
+    //----------//
+    // retrieve //
+    //----------//
+    /**
+     * Retrieve filaments and report, for each of them, the IDs of its sections.
+     */
+    private List<String> retrieve (ByteProcessor buffer,
+                                   Orientation orientation,
+                                   boolean useMergeIndex)
+    {
+        final Lag lag = new BasicLag("lag", orientation);
+        final SectionFactory sectionFactory = new SectionFactory(lag, JunctionRatioPolicy.DEFAULT);
+        final RunTable runTable = new RunTableFactory(orientation).createTable(buffer);
+        sectionFactory.createSections(runTable, null, true);
+
+        final FilamentFactory<StraightFilament> factory = new FilamentFactory<>(
+                scale,
+                new FilamentIndex(null),
+                orientation,
+                StraightFilament.class);
+        factory.setUseMergeIndex(useMergeIndex);
+
+        final List<String> signatures = new ArrayList<>();
+
+        for (StraightFilament fil : factory.retrieveFilaments(lag.getEntities())) {
+            final StringBuilder sb = new StringBuilder();
+
+            for (Section section : fil.getMembers()) {
+                sb.append(section.getId()).append(',');
+            }
+
+            signatures.add(sb.toString());
+        }
+
+        return signatures;
+    }
+
+    //-----------//
+    // transpose //
+    //-----------//
+    private static ByteProcessor transpose (ByteProcessor source)
+    {
+        final ByteProcessor target = new ByteProcessor(source.getHeight(), source.getWidth());
+
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                target.set(y, x, source.get(x, y));
+            }
+        }
+
+        return target;
+    }
+}
@@ -0,0 +1,173 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             B i l e v e l P n g C o d e c T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Unit tests for {@link BilevelPngCodec}.
+ *
+ * @author Hervé Bitteur
+ */
+public class BilevelPngCodecTest
+{
+
+    /**
+     * Creates a new <code>BilevelPngCodecTest</code> object.
+     */
+    public BilevelPngCodecTest ()
+    {
+    }
+
+    /**
+     * Write then read back an image, with a width not a multiple of 8 and several strips.
+     */
+    @Test
+    public void testRoundTrip ()
+            throws Exception
+    {
+        System.out.println("roundTrip");
+
+        final BufferedImage img = createImage(1003, 700);
+        final byte[] bytes = encode(img);
+
+        assertTrue(BilevelPngCodec.isBilevelHeader(bytes, bytes.length));
+
+        final BufferedImage copy = BilevelPngCodec.read(new ByteArrayInputStream(bytes));
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, copy.getType());
+        assertSamePixels(img, copy);
+    }
+
+    /**
+     * Check that the written file is a standard PNG, readable by ImageIO.
+     */
+    @Test
+    public void testStandardReader ()
+            throws Exception
+    {
+        System.out.println("standardReader");
+
+        final BufferedImage img = createImage(333, 517);
+        final BufferedImage copy = ImageIO.read(new ByteArrayInputStream(encode(img)));
+        assertSamePixels(img, copy);
+    }
+
+    /**
+     * Check that a 1-bit PNG written by ImageIO (thus without strips) can be read.
+     */
+    @Test
+    public void testForeignFile ()
+            throws Exception
+    {
+        System.out.println("foreignFile");
+
+        final BufferedImage img = createImage(250, 130);
+        final BufferedImage bin = new BufferedImage(
+                img.getWidth(),
+                img.getHeight(),
+                BufferedImage.TYPE_BYTE_BINARY);
+        bin.getGraphics().drawImage(img, 0, 0, null);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(bin, "png", bos);
+
+        final byte[] bytes = bos.toByteArray();
+        assertTrue(BilevelPngCodec.isBilevelHeader(bytes, bytes.length));
+        assertSamePixels(img, BilevelPngCodec.read(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Check that a gray image is not handled.
+     */
+    @Test
+    public void testGrayImage ()
+            throws Exception
+    {
+        System.out.println("grayImage");
+
+        final BufferedImage img = createImage(100, 100);
+        img.getRaster().setSample(50, 50, 0, 128);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertFalse(BilevelPngCodec.write(img, bos));
+        assertEquals(0, bos.size());
+
+        ImageIO.write(img, "png", bos);
+
+        final byte[] bytes = bos.toByteArray();
+        assertFalse(BilevelPngCodec.isBilevelHeader(bytes, bytes.length));
+    }
+
+    private static void assertSamePixels (BufferedImage expected,
+                                          BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+
+        final Raster r1 = expected.getRaster();
+        final Raster r2 = actual.getRaster();
+        final int max2 = (1 << actual.getSampleModel().getSampleSize(0)) - 1;
+
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                final boolean white1 = r1.getSample(x, y, 0) == 255;
+                final boolean white2 = r2.getSample(x, y, 0) == max2;
+                assertEquals("x:" + x + " y:" + y, white1, white2);
+            }
+        }
+    }
+
+    private static BufferedImage createImage (int width,
+                                              int height)
+    {
+        final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        final Random random = new Random(width * height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Mostly white, with horizontal black segments
+                final boolean black = ((y % 17) < 3) || (random.nextInt(10) == 0);
+                img.getRaster().setSample(x, y, 0, black ? 0 : 255);
+            }
+        }
+
+        return img;
+    }
+
+    private static byte[] encode (BufferedImage img)
+            throws Exception
+    {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertTrue(BilevelPngCodec.write(img, bos));
+
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,167 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              B i t P i x e l B u f f e r T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link BitPixelBuffer}.
+ *
+ * @author Hervé Bitteur
+ */
+public class BitPixelBufferTest
+{
+
+    /**
+     * Creates a new <code>BitPixelBufferTest</code> object.
+     */
+    public BitPixelBufferTest ()
+    {
+    }
+
+    /**
+     * Check conversions from and to ByteProcessor and RunTable.
+     */
+    @Test
+    public void testConversions ()
+    {
+        System.out.println("conversions");
+
+        final ByteProcessor source = createSource(203, 97);
+        final BitPixelBuffer bits = new BitPixelBuffer(source);
+
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                assertEquals(source.get(x, y), bits.get(x, y));
+            }
+        }
+
+        assertArrayEquals((byte[]) source.getPixels(), (byte[]) bits.toByteProcessor().getPixels());
+
+        final RunTable hori = new RunTableFactory(HORIZONTAL).createTable(source);
+        final RunTable vert = new RunTableFactory(VERTICAL).createTable(source);
+        assertEquals(hori, bits.toRunTable(HORIZONTAL));
+        assertEquals(vert, bits.toRunTable(VERTICAL));
+        assertEquals(hori.getWeight(), bits.getWeight());
+
+        final ByteProcessor fromHori = new BitPixelBuffer(hori).toByteProcessor();
+        final ByteProcessor fromVert = new BitPixelBuffer(vert).toByteProcessor();
+        assertArrayEquals((byte[]) source.getPixels(), (byte[]) fromHori.getPixels());
+        assertArrayEquals((byte[]) source.getPixels(), (byte[]) fromVert.getPixels());
+    }
+
+    /**
+     * Check pixel counts against plain pixel reads.
+     */
+    @Test
+    public void testCounts ()
+    {
+        System.out.println("counts");
+
+        final ByteProcessor source = createSource(203, 97);
+        final BitPixelBuffer bits = new BitPixelBuffer(source);
+        final Random random = new Random(456);
+
+        for (int n = 0; n < 200; n++) {
+            final int x = random.nextInt(source.getWidth());
+            final int y = random.nextInt(source.getHeight());
+            final int w = 1 + random.nextInt(source.getWidth() - x);
+            final int h = 1 + random.nextInt(source.getHeight() - y);
+            final Rectangle rect = new Rectangle(x, y, w, h);
+            final int[] columns = bits.projectColumns(rect);
+            int total = 0;
+
+            for (int i = 0; i < w; i++) {
+                int column = 0;
+
+                for (int j = 0; j < h; j++) {
+                    if (source.get(x + i, y + j) == 0) {
+                        column++;
+                    }
+                }
+
+                assertEquals(column, columns[i]);
+                assertEquals(column, bits.countColumn(x + i, y, y + h - 1));
+                total += column;
+            }
+
+            int rows = 0;
+
+            for (int j = 0; j < h; j++) {
+                rows += bits.countRow(y + j, x, x + w - 1);
+            }
+
+            assertEquals(total, rows);
+            assertEquals(total, bits.count(rect));
+        }
+    }
+
+    /**
+     * Check row span setting, across word boundaries.
+     */
+    @Test
+    public void testSetRowSpan ()
+    {
+        System.out.println("setRowSpan");
+
+        final BitPixelBuffer bits = new BitPixelBuffer(300, 2);
+        bits.setRowSpan(1, 60, 200);
+        assertEquals(141, bits.countRow(1, 0, 299));
+        assertEquals(0, bits.countRow(0, 0, 299));
+        assertFalse(bits.isFore(59, 1));
+        assertTrue(bits.isFore(60, 1));
+        assertTrue(bits.isFore(200, 1));
+        assertFalse(bits.isFore(201, 1));
+
+        bits.setValue(128, 1, PixelSource.BACKGROUND);
+        assertEquals(140, bits.getWeight());
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    private static ByteProcessor createSource (int width,
+                                               int height)
+    {
+        final ByteProcessor source = new ByteProcessor(width, height);
+        final Random random = new Random(123);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                source.set(x, y, (random.nextInt(3) == 0) ? 0 : 255);
+            }
+        }
+
+        return source;
+    }
+}
@@ -0,0 +1,150 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    D e w a r p e r T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link Dewarper}.
+ *
+ * @author Hervé Bitteur
+ */
+public class DewarperTest
+{
+
+    /**
+     * Creates a new <code>DewarperTest</code> object.
+     */
+    public DewarperTest ()
+    {
+    }
+
+    /**
+     * An identity grid must leave gray and binary data unchanged.
+     */
+    @Test
+    public void testIdentity ()
+    {
+        System.out.println("identity");
+
+        final int width = 301;
+        final int height = 457;
+        final ByteProcessor source = createSource(width, height);
+        final Dewarper dewarper = createDewarper(width, height, 20, 0f, 0f);
+
+        final ByteProcessor gray = dewarper.dewarp(source);
+        assertArrayEquals((byte[]) source.getPixels(), (byte[]) gray.getPixels());
+
+        final RunTable hTable = new RunTableFactory(HORIZONTAL).createTable(source);
+        assertEquals(hTable, dewarper.dewarp(hTable));
+
+        final RunTable vTable = new RunTableFactory(VERTICAL).createTable(source);
+        assertEquals(vTable, dewarper.dewarp(vTable));
+    }
+
+    /**
+     * A constant displacement must translate data, with background entering from outside.
+     */
+    @Test
+    public void testTranslation ()
+    {
+        System.out.println("translation");
+
+        final int width = 150;
+        final int height = 200;
+        final int dx = 3;
+        final int dy = -2;
+        final ByteProcessor source = createSource(width, height);
+        final Dewarper dewarper = createDewarper(width, height, 16, dx, dy);
+
+        final Point2D src = dewarper.sourceOf(10.5, 20.25);
+        assertEquals(10.5 + dx, src.getX(), 1e-4);
+        assertEquals(20.25 + dy, src.getY(), 1e-4);
+
+        final ByteProcessor gray = dewarper.dewarp(source);
+        final RunTable table = dewarper.dewarp(new RunTableFactory(HORIZONTAL).createTable(source));
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int sx = x + dx;
+                final int sy = y + dy;
+                final boolean inside = (sx >= 0) && (sx < width) && (sy >= 0) && (sy < height);
+                final int expected = inside ? source.get(sx, sy) : 255;
+                assertEquals(expected, gray.get(x, y));
+                assertEquals(expected == 0, table.get(x, y) == 0);
+            }
+        }
+    }
+
+    //----------------//
+    // createDewarper //
+    //----------------//
+    private static Dewarper createDewarper (int width,
+                                            int height,
+                                            int step,
+                                            float dx,
+                                            float dy)
+    {
+        final int xNumCells = (width + step - 1) / step;
+        final int yNumCells = (height + step - 1) / step;
+        final float[] positions = new float[2 * (xNumCells + 1) * (yNumCells + 1)];
+        int i = 0;
+
+        for (int ir = 0; ir <= yNumCells; ir++) {
+            for (int ic = 0; ic <= xNumCells; ic++) {
+                positions[i++] = (ic * step) + dx;
+                positions[i++] = (ir * step) + dy;
+            }
+        }
+
+        return new Dewarper(width, height, step, xNumCells, step, yNumCells, positions);
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    private static ByteProcessor createSource (int width,
+                                               int height)
+    {
+        final ByteProcessor source = new ByteProcessor(width, height);
+        final Random random = new Random(456);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                source.set(x, y, (random.nextInt(3) == 0) ? 0 : 255);
+            }
+        }
+
+        return source;
+    }
+}
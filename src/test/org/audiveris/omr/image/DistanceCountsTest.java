@@ -0,0 +1,173 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              D i s t a n c e C o u n t s T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.audiveris.omr.image.ChamferDistance.VALUE_UNKNOWN;
+import org.audiveris.omr.glyph.Shape;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link DistanceCounts} and template matching lower bound.
+ *
+ * @author Hervé Bitteur
+ */
+public class DistanceCountsTest
+{
+
+    private static final int WIDTH = 120;
+
+    private static final int HEIGHT = 60;
+
+    /**
+     * Creates a new <code>DistanceCountsTest</code> object.
+     */
+    public DistanceCountsTest ()
+    {
+    }
+
+    /**
+     * Check counts against a brute force computation, including areas outside window.
+     */
+    @Test
+    public void testCounts ()
+    {
+        System.out.println("counts");
+
+        final DistanceTable table = createTable(new Random(789));
+        final Rectangle window = new Rectangle(10, 5, 90, 40);
+        final DistanceCounts counts = new DistanceCounts(table, window);
+        final Random random = new Random(321);
+
+        for (int i = 0; i < 500; i++) {
+            final Rectangle rect = new Rectangle(
+                    random.nextInt(WIDTH + 20) - 10,
+                    random.nextInt(HEIGHT + 20) - 10,
+                    1 + random.nextInt(30),
+                    1 + random.nextInt(20));
+            int fores = 0;
+            int unknowns = 0;
+
+            for (int y = rect.y; y < (rect.y + rect.height); y++) {
+                for (int x = rect.x; x < (rect.x + rect.width); x++) {
+                    if (!window.contains(x, y)) {
+                        unknowns++;
+                    } else {
+                        final int val = table.getValue(x, y);
+
+                        if (val == 0) {
+                            fores++;
+                        } else if (val == VALUE_UNKNOWN) {
+                            unknowns++;
+                        }
+                    }
+                }
+            }
+
+            assertEquals(fores, counts.getForeCount(rect));
+            assertEquals(unknowns, counts.getUnknownCount(rect));
+        }
+    }
+
+    /**
+     * Check that template lower bound never exceeds actual evaluation.
+     */
+    @Test
+    public void testLowerBound ()
+    {
+        System.out.println("lowerBound");
+
+        final Random random = new Random(654);
+        final DistanceTable table = createTable(random);
+        final DistanceCounts counts = new DistanceCounts(
+                table,
+                new Rectangle(0, 0, WIDTH, HEIGHT));
+        final Template template = createTemplate();
+        final int dyMax = 3;
+        int pruned = 0;
+
+        for (int x = -5; x < WIDTH; x++) {
+            for (int y = -5; y < HEIGHT; y++) {
+                final double bound = template.evaluateLowerBound(x, y, y + dyMax, null, counts);
+
+                for (int dy = 0; dy <= dyMax; dy++) {
+                    assertTrue(bound <= template.evaluate(x, y + dy, null, table));
+                }
+
+                if (bound > 0) {
+                    pruned++;
+                }
+            }
+        }
+
+        assertTrue(pruned > 0);
+    }
+
+    //-------------//
+    // createTable //
+    //-------------//
+    private static DistanceTable createTable (Random random)
+    {
+        final DistanceTable table = new DistanceTable.Integer(WIDTH, HEIGHT, 1);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int r = random.nextInt(10);
+                table.setValue(x, y, (r < 3) ? 0 : ((r == 3) ? VALUE_UNKNOWN : r));
+            }
+        }
+
+        return table;
+    }
+
+    //----------------//
+    // createTemplate //
+    //----------------//
+    private static Template createTemplate ()
+    {
+        // Foreground disk, with hole in center and background around
+        final int size = 12;
+        final List<PixelDistance> keyPoints = new ArrayList<>();
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final double r = Math.hypot(x - 5.5, y - 5.5);
+                final double d = (r < 2) ? -1 : ((r < 5) ? 0 : 1);
+                keyPoints.add(new PixelDistance(x, y, d));
+            }
+        }
+
+        return new Template(
+                Shape.NOTEHEAD_VOID,
+                size,
+                size,
+                size,
+                keyPoints,
+                new Rectangle(0, 0, size, size));
+    }
+}
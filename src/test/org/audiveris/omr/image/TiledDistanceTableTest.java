@@ -0,0 +1,165 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          T i l e d D i s t a n c e T a b l e T e s t                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.audiveris.omr.image.ChamferDistance.VALUE_UNKNOWN;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TiledDistanceTable}.
+ *
+ * @author Hervé Bitteur
+ */
+public class TiledDistanceTableTest
+{
+
+    private static final int WIDTH = 700;
+
+    private static final int HEIGHT = 530;
+
+    private static final int MARGIN = 12;
+
+    /**
+     * Creates a new <code>TiledDistanceTableTest</code> object.
+     */
+    public TiledDistanceTableTest ()
+    {
+    }
+
+    /**
+     * Compare tiled distances with whole-sheet distances, then neutralized.
+     */
+    @Test
+    public void testAgainstWholeTable ()
+    {
+        System.out.println("againstWholeTable");
+
+        final Random random = new Random(2468);
+        final ByteProcessor source = createSource(random);
+        final BitPixelBuffer unknowns = new BitPixelBuffer(WIDTH, HEIGHT);
+        final DistanceTable whole = new ChamferDistance.Short().computeToFore(source);
+
+        for (int i = 0; i < 2000; i++) {
+            final int x = random.nextInt(WIDTH);
+            final int y = random.nextInt(HEIGHT);
+            unknowns.setValue(x, y, PixelSource.FOREGROUND);
+            whole.setValue(x, y, VALUE_UNKNOWN);
+        }
+
+        final TiledDistanceTable tiled = new TiledDistanceTable(
+                new BitPixelBuffer(source),
+                unknowns,
+                MARGIN,
+                4);
+        final int exactMax = MARGIN * whole.getNormalizer();
+
+        assertEquals(whole.getNormalizer(), tiled.getNormalizer());
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int expected = whole.getValue(x, y);
+                final int actual = tiled.getValue(x, y);
+
+                if ((expected == VALUE_UNKNOWN) || (expected <= exactMax)) {
+                    assertEquals(expected, actual);
+                } else {
+                    assertTrue(actual > 0);
+                }
+            }
+        }
+
+        assertTrue(tiled.getLoadedTileCount() <= 4);
+    }
+
+    /**
+     * Check that a tile read again is kept, rather than the oldest tile.
+     */
+    @Test
+    public void testEviction ()
+    {
+        System.out.println("eviction");
+
+        final ByteProcessor source = createSource(new Random(1357));
+        final TiledDistanceTable tiled = new TiledDistanceTable(
+                new BitPixelBuffer(source),
+                new BitPixelBuffer(WIDTH, HEIGHT),
+                MARGIN,
+                2);
+
+        // Tiles A, B, then A again
+        tiled.getValue(10, 10);
+        tiled.getValue(300, 10);
+        tiled.getValue(20, 20);
+
+        // Loading tile C evicts B, the least recently used
+        tiled.getValue(600, 10);
+        assertEquals(2, tiled.getLoadedTileCount());
+        assertTrue(tiled.isLoaded(10, 10));
+        assertFalse(tiled.isLoaded(300, 10));
+        assertTrue(tiled.isLoaded(600, 10));
+
+        // With a single tile, the new tile is kept
+        final TiledDistanceTable single = new TiledDistanceTable(
+                new BitPixelBuffer(source),
+                new BitPixelBuffer(WIDTH, HEIGHT),
+                MARGIN,
+                1);
+        single.getValue(10, 10);
+        single.getValue(20, 20);
+        single.getValue(300, 10);
+        assertEquals(1, single.getLoadedTileCount());
+        assertFalse(single.isLoaded(10, 10));
+        assertTrue(single.isLoaded(300, 10));
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    private static ByteProcessor createSource (Random random)
+    {
+        final ByteProcessor source = new ByteProcessor(WIDTH, HEIGHT);
+        source.setColor(255);
+        source.fill();
+
+        // Sparse blobs, with some large empty areas
+        for (int i = 0; i < 150; i++) {
+            final int x0 = random.nextInt(WIDTH / 2);
+            final int y0 = random.nextInt(HEIGHT);
+            final int w = 1 + random.nextInt(15);
+            final int h = 1 + random.nextInt(15);
+
+            for (int y = y0; y < Math.min(HEIGHT, y0 + h); y++) {
+                for (int x = x0; x < Math.min(WIDTH, x0 + w); x++) {
+                    source.set(x, y, 0);
+                }
+            }
+        }
+
+        return source;
+    }
+}
@@ -0,0 +1,211 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              S e c t i o n F a c t o r y T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.lag;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.util.OmrExecutors;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link SectionFactory}.
+ *
+ * @author Hervé Bitteur
+ */
+public class SectionFactoryTest
+{
+
+    private static final int WIDTH = 900;
+
+    private static final int HEIGHT = 1100;
+
+    /**
+     * Creates a new <code>SectionFactoryTest</code> object.
+     */
+    public SectionFactoryTest ()
+    {
+    }
+
+    /**
+     * Check that sections built by bands match the sequential build, ids included.
+     */
+    @Test
+    public void testBands ()
+    {
+        System.out.println("bands");
+
+        final ByteProcessor source = createSource(new Random(8642));
+        final boolean parallelism = OmrExecutors.defaultParallelism.getValue();
+
+        try {
+            for (Orientation orientation : new Orientation[]{HORIZONTAL, VERTICAL}) {
+                final RunTable runTable = new RunTableFactory(orientation).createTable(source);
+
+                OmrExecutors.defaultParallelism.setSpecific(false);
+
+                final Lag seqLag = new BasicLag("seq", orientation);
+                final List<String> sequential = describe(
+                        createFactory(seqLag).createSections(runTable, null, true));
+
+                OmrExecutors.defaultParallelism.setSpecific(true);
+
+                final Lag bandLag = new BasicLag("band", orientation);
+                final SectionFactory factory = createFactory(bandLag);
+                final int bandCount = factory.getBandStarts(runTable).size();
+                final List<String> banded = describe(factory.createSections(runTable, null, true));
+                System.out.println(
+                        orientation + " sections: " + banded.size() + " bands: " + bandCount);
+
+                assertTrue(bandCount > 1);
+                assertTrue(sequential.size() > 1000);
+                assertEquals(sequential, banded);
+                assertEquals(
+                        describe(new ArrayList<>(seqLag.getEntities())),
+                        describe(new ArrayList<>(bandLag.getEntities())));
+            }
+        } finally {
+            OmrExecutors.defaultParallelism.setSpecific(parallelism);
+        }
+    }
+
+    //---------------//
+    // createFactory //
+    //---------------//
+    private static SectionFactory createFactory (Lag lag)
+    {
+        final SectionFactory factory = new SectionFactory(lag, JunctionRatioPolicy.DEFAULT);
+        factory.setMaxBands(4);
+
+        return factory;
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    /**
+     * Draw random blobs, strokes and slanted lines, in stripes separated by empty rows
+     * and empty columns, with a few long strokes across stripes.
+     */
+    private static ByteProcessor createSource (Random random)
+    {
+        final ByteProcessor source = new ByteProcessor(WIDTH, HEIGHT);
+        source.setColor(255);
+        source.fill();
+
+        for (int i = 0; i < 2500; i++) {
+            final int x0 = random.nextInt(WIDTH);
+            final int y0 = random.nextInt(HEIGHT);
+            final int kind = random.nextInt(3);
+
+            if (kind == 0) {
+                fill(source, x0, y0, 1 + random.nextInt(20), 1 + random.nextInt(20));
+            } else if (kind == 1) {
+                fill(source, x0, y0, 1 + random.nextInt(3), 5 + random.nextInt(60));
+            } else {
+                final double slope = (random.nextDouble() * 2) - 1;
+
+                for (int x = 0, length = 10 + random.nextInt(80); x < length; x++) {
+                    fill(source, x0 + x, y0 + (int) Math.rint(x * slope), 1, 2);
+                }
+            }
+        }
+
+        // Clear empty rows and columns every 50 to 150 pixels
+        for (int y = random.nextInt(100); y < HEIGHT; y += (50 + random.nextInt(100))) {
+            for (int yy = y, yBreak = Math.min(HEIGHT, y + 1 + random.nextInt(5)); yy < yBreak;
+                    yy++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    source.set(x, yy, 255);
+                }
+            }
+        }
+
+        for (int x = random.nextInt(100); x < WIDTH; x += (50 + random.nextInt(100))) {
+            for (int xx = x, xBreak = Math.min(WIDTH, x + 1 + random.nextInt(5)); xx < xBreak;
+                    xx++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    source.set(xx, y, 255);
+                }
+            }
+        }
+
+        // Long strokes across some empty rows and columns
+        for (int i = 0; i < 6; i++) {
+            fill(source, random.nextInt(WIDTH), random.nextInt(HEIGHT / 2), 2, 400);
+            fill(source, random.nextInt(WIDTH / 2), random.nextInt(HEIGHT), 400, 2);
+        }
+
+        return source;
+    }
+
+    //----------//
+    // describe //
+    //----------//
+    /**
+     * Describe each section by its id, position and runs.
+     */
+    private static List<String> describe (List<Section> sections)
+    {
+        final List<String> descriptions = new ArrayList<>(sections.size());
+
+        for (Section section : sections) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(section.getId()).append('@').append(section.getFirstPos());
+
+            for (Run run : section.getRuns()) {
+                sb.append(' ').append(run.getStart()).append('/').append(run.getLength());
+            }
+
+            descriptions.add(sb.toString());
+        }
+
+        return descriptions;
+    }
+
+    //------//
+    // fill //
+    //------//
+    private static void fill (ByteProcessor source,
+                              int x0,
+                              int y0,
+                              int width,
+                              int height)
+    {
+        for (int y = Math.max(0, y0); y < Math.min(HEIGHT, y0 + height); y++) {
+            for (int x = Math.max(0, x0); x < Math.min(WIDTH, x0 + width); x++) {
+                source.set(x, y, 0);
+            }
+        }
+    }
+}
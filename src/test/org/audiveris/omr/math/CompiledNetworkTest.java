@@ -0,0 +1,148 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             C o m p i l e d N e t w o r k T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link CompiledNetwork}.
+ *
+ * @author Hervé Bitteur
+ */
+public class CompiledNetworkTest
+{
+
+    private static final int INPUT_SIZE = 105;
+
+    private static final int HIDDEN_SIZE = 61;
+
+    private static final int OUTPUT_SIZE = 125;
+
+    /** Tolerance on output grades. */
+    private static final double GRADE_TOLERANCE = 1e-4;
+
+    private final Random random = new Random(456);
+
+    /**
+     * Creates a new <code>CompiledNetworkTest</code> object.
+     */
+    public CompiledNetworkTest ()
+    {
+    }
+
+    //-------------//
+    // testSigmoid //
+    //-------------//
+    @Test
+    public void testSigmoid ()
+    {
+        System.out.println("testSigmoid");
+
+        double maxError = 0;
+
+        for (double x = -40; x <= 40; x += 0.0007) {
+            final double exact = 1.0 / (1.0 + Math.exp(-x));
+            final double fast = CompiledNetwork.sigmoid((float) x);
+            maxError = Math.max(maxError, Math.abs(fast - exact));
+        }
+
+        System.out.println("max sigmoid error: " + maxError);
+        assertTrue("max error " + maxError, maxError < CompiledNetwork.SIGMOID_TOLERANCE);
+        assertTrue(Float.isNaN(CompiledNetwork.sigmoid(Float.NaN)));
+        assertEquals(1.0, CompiledNetwork.sigmoid(Float.POSITIVE_INFINITY), 1e-6);
+        assertEquals(0.0, CompiledNetwork.sigmoid(Float.NEGATIVE_INFINITY), 1e-6);
+    }
+
+    //---------//
+    // testRun //
+    //---------//
+    @Test
+    public void testRun ()
+            throws Exception
+    {
+        System.out.println("testRun");
+
+        final NeuralNetwork network = createNetwork();
+
+        // Compilation at load time
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        network.marshal(os);
+
+        final NeuralNetwork loaded = NeuralNetwork.unmarshal(
+                new ByteArrayInputStream(os.toByteArray()));
+        final CompiledNetwork compiled = loaded.getCompiled();
+        assertEquals(INPUT_SIZE, compiled.getInputSize());
+        assertEquals(OUTPUT_SIZE, compiled.getOutputSize());
+
+        final double[][] inputs = new double[50][INPUT_SIZE];
+
+        for (double[] ins : inputs) {
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                ins[i] = random.nextGaussian();
+            }
+        }
+
+        final double[][] batch = compiled.run(inputs);
+
+        for (int k = 0; k < inputs.length; k++) {
+            final double[] exact = network.run(inputs[k], null, null);
+            final double[] fast = compiled.run(inputs[k], null);
+            assertArrayEquals(exact, fast, GRADE_TOLERANCE);
+            assertArrayEquals(fast, batch[k], 0.0);
+        }
+
+        // Training invalidates the compiled form
+        loaded.setEpochs(1);
+        loaded.train(inputs, new double[inputs.length][OUTPUT_SIZE], null, 1);
+        assertNotSame(compiled, loaded.getCompiled());
+    }
+
+    //---------------//
+    // createNetwork //
+    //---------------//
+    private NeuralNetwork createNetwork ()
+    {
+        final String[] inputLabels = new String[INPUT_SIZE];
+        final String[] outputLabels = new String[OUTPUT_SIZE];
+
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            inputLabels[i] = "in" + i;
+        }
+
+        for (int i = 0; i < OUTPUT_SIZE; i++) {
+            outputLabels[i] = "out" + i;
+        }
+
+        return new NeuralNetwork(
+                INPUT_SIZE,
+                HIDDEN_SIZE,
+                OUTPUT_SIZE,
+                0.5,
+                inputLabels,
+                outputLabels);
+    }
+}
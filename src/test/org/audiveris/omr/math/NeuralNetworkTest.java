@@ -0,0 +1,233 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               N e u r a l N e t w o r k T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.classifier.TrainingMonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link NeuralNetwork} batch run and mini-batch training.
+ *
+ * @author Hervé Bitteur
+ */
+public class NeuralNetworkTest
+{
+
+    private static final int INPUT_SIZE = 13;
+
+    private static final int HIDDEN_SIZE = 9;
+
+    private static final int OUTPUT_SIZE = 7;
+
+    private final Random random = new Random(321);
+
+    /**
+     * Creates a new <code>NeuralNetworkTest</code> object.
+     */
+    public NeuralNetworkTest ()
+    {
+    }
+
+    //--------------//
+    // testBatchRun //
+    //--------------//
+    /**
+     * Batch run must give exactly the same outputs as individual runs,
+     * including for the vectors left after the last full block.
+     */
+    @Test
+    public void testBatchRun ()
+    {
+        System.out.println("testBatchRun");
+
+        final NeuralNetwork network = createNetwork();
+
+        for (int count : new int[]{1, 4, 5, 11, 64}) {
+            final double[][] inputs = new double[count][INPUT_SIZE];
+
+            for (double[] ins : inputs) {
+                for (int i = 0; i < INPUT_SIZE; i++) {
+                    ins[i] = (random.nextDouble() * 6) - 3;
+                }
+            }
+
+            final double[][] outputs = network.run(inputs);
+            assertEquals(count, outputs.length);
+
+            for (int k = 0; k < count; k++) {
+                final double[] expected = network.run(inputs[k], null, null);
+                assertArrayEquals("vector #" + k + " of " + count, expected, outputs[k], 0.0);
+            }
+        }
+    }
+
+    //------------------------//
+    // testMiniBatchTraining //
+    //------------------------//
+    /**
+     * Mini-batch training must learn a simple classification, report its progress and stop
+     * early once test error no longer improves.
+     */
+    @Test
+    public void testMiniBatchTraining ()
+    {
+        System.out.println("testMiniBatchTraining");
+
+        final NeuralNetwork network = createNetwork();
+        final double[][] inputs = new double[600][];
+        final double[][] desired = new double[600][];
+        final double[][] testInputs = new double[150][];
+        final double[][] testDesired = new double[150][];
+        buildPatterns(inputs, desired);
+        buildPatterns(testInputs, testDesired);
+
+        final int[] epochsStarted = new int[1];
+        final List<Double> scores = new ArrayList<>();
+        final TrainingMonitor monitor = new TrainingMonitor()
+        {
+            @Override
+            public void epochStarted (int epoch)
+            {
+                epochsStarted[0] = epoch;
+            }
+
+            @Override
+            public int getIterationPeriod ()
+            {
+                return 10;
+            }
+
+            @Override
+            public void iterationPeriodDone (int iteration,
+                                             double score)
+            {
+                scores.add(score);
+            }
+        };
+
+        network.setEpochs(300);
+        network.train(inputs, desired, testInputs, testDesired, 16, 1.0, 300, monitor, 10);
+
+        assertEquals(300, epochsStarted[0]);
+        assertEquals(30, scores.size());
+        assertTrue("score did not decrease", scores.get(scores.size() - 1) < scores.get(0));
+
+        int correct = 0;
+
+        for (int k = 0; k < testInputs.length; k++) {
+            final double[] outs = network.run(testInputs[k], null, null);
+
+            if (argMax(outs) == argMax(testDesired[k])) {
+                correct++;
+            }
+        }
+
+        System.out.println("correct: " + correct);
+        assertTrue("accuracy " + correct, correct >= (0.9 * testInputs.length));
+
+        // With unrelated test labels, test error cannot keep improving
+        final NeuralNetwork other = createNetwork();
+
+        for (double[] des : testDesired) {
+            Arrays.fill(des, 0);
+            des[random.nextInt(OUTPUT_SIZE)] = 1;
+        }
+
+        other.setEpochs(2000);
+        other.train(inputs, desired, testInputs, testDesired, 16, 1.0, 5, monitor, 10);
+        System.out.println("early stop at: " + epochsStarted[0]);
+        assertTrue("no early stop", epochsStarted[0] < 2000);
+    }
+
+    //--------//
+    // argMax //
+    //--------//
+    private static int argMax (double[] values)
+    {
+        int best = 0;
+
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    //---------------//
+    // buildPatterns //
+    //---------------//
+    /**
+     * Build noisy patterns around one center per output class.
+     */
+    private void buildPatterns (double[][] inputs,
+                                double[][] desired)
+    {
+        for (int k = 0; k < inputs.length; k++) {
+            final int cls = random.nextInt(OUTPUT_SIZE);
+            final double[] ins = new double[INPUT_SIZE];
+
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                ins[i] = (((i % OUTPUT_SIZE) == cls) ? 2 : 0) + (random.nextGaussian() * 0.5);
+            }
+
+            final double[] des = new double[OUTPUT_SIZE];
+            des[cls] = 1;
+            inputs[k] = ins;
+            desired[k] = des;
+        }
+    }
+
+    //---------------//
+    // createNetwork //
+    //---------------//
+    private NeuralNetwork createNetwork ()
+    {
+        final String[] inputLabels = new String[INPUT_SIZE];
+        final String[] outputLabels = new String[OUTPUT_SIZE];
+
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            inputLabels[i] = "in" + i;
+        }
+
+        for (int i = 0; i < OUTPUT_SIZE; i++) {
+            outputLabels[i] = "out" + i;
+        }
+
+        return new NeuralNetwork(
+                INPUT_SIZE,
+                HIDDEN_SIZE,
+                OUTPUT_SIZE,
+                1.0,
+                inputLabels,
+                outputLabels);
+    }
+}
@@ -0,0 +1,119 @@
+package org.audiveris.omr.moment;
+
+import static org.junit.Assert.*;
+
+import org.audiveris.omr.math.PointsCollector;
+import org.audiveris.omr.moments.ARTMoments;
+import static org.audiveris.omr.moments.ARTMoments.*;
+import org.audiveris.omr.moments.BasicARTExtractor;
+import org.audiveris.omr.moments.BasicARTMoments;
+import org.audiveris.omr.moments.RunARTExtractor;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+
+import org.junit.Test;
+
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * Unit test for RunARTExtractor, checked against BasicARTExtractor.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunARTExtractorTest
+{
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Check that runs-based extraction gives the same moments as points-based extraction.
+     */
+    @Test
+    public void testRunsVersusPoints ()
+    {
+        System.out.println("testRunsVersusPoints");
+
+        Random random = new Random(123);
+
+        for (Orientation orientation : Orientation.values()) {
+            for (int n = 0; n < 20; n++) {
+                RunTable table = randomTable(random, orientation);
+                ARTMoments expected = basicMoments(table, new Point(10, 20));
+                ARTMoments actual = table.computeArtMoments(10, 20);
+                checkEquals(expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Check extraction from individual points.
+     */
+    @Test
+    public void testPoints ()
+    {
+        System.out.println("testPoints");
+
+        Random random = new Random(456);
+        RunTable table = randomTable(random, Orientation.HORIZONTAL);
+        PointsCollector collector = new PointsCollector(null, table.getWeight());
+        table.cumulate(collector, null);
+
+        ARTMoments actual = new BasicARTMoments();
+        RunARTExtractor extractor = new RunARTExtractor();
+        extractor.setDescriptor(actual);
+        extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+
+        checkEquals(basicMoments(table, null), actual);
+    }
+
+    private static void checkEquals (ARTMoments expected,
+                                     ARTMoments actual)
+    {
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                assertEquals(
+                        "p:" + p + " r:" + r,
+                        expected.getModule(p, r),
+                        actual.getModule(p, r),
+                        EPSILON);
+            }
+        }
+    }
+
+    private static ARTMoments basicMoments (RunTable table,
+                                            Point offset)
+    {
+        PointsCollector collector = new PointsCollector(null, table.getWeight());
+        table.cumulate(collector, offset);
+
+        ARTMoments moments = new BasicARTMoments();
+        BasicARTExtractor extractor = new BasicARTExtractor();
+        extractor.setDescriptor(moments);
+        extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+
+        return moments;
+    }
+
+    private static RunTable randomTable (Random random,
+                                         Orientation orientation)
+    {
+        final int width = 5 + random.nextInt(60);
+        final int height = 5 + random.nextInt(60);
+        final RunTable table = new RunTable(orientation, width, height);
+        final int size = (orientation == Orientation.HORIZONTAL) ? height : width;
+        final int length = (orientation == Orientation.HORIZONTAL) ? width : height;
+
+        for (int p = 0; p < size; p++) {
+            int start = random.nextInt(4);
+
+            while (start < length) {
+                int runLength = 1 + random.nextInt(Math.min(8, length - start));
+                table.addRun(p, start, runLength);
+                start += (runLength + 1 + random.nextInt(6));
+            }
+        }
+
+        return table;
+    }
+}
@@ -31,6 +31,7 @@ import org.junit.Test;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.util.Random;
 import java.util.function.Predicate;
 
 /**
@@ -475,6 +476,91 @@ public class RunTableTest
         assertEquals(5, trimmed.getHeight());
     }
 
+    /**
+     * Test of getForeCount method, of class RunTable.
+     */
+    @Test
+    public void testGetForeCount ()
+    {
+        System.out.println("\n+++ getForeCount");
+
+        RunTable instance = createVerticalInstance();
+
+        for (int x = 0; x < instance.getWidth(); x++) {
+            for (int yMin = -1; yMin <= instance.getHeight(); yMin++) {
+                for (int yMax = yMin; yMax <= instance.getHeight(); yMax++) {
+                    int expected = 0;
+
+                    for (int y = Math.max(0, yMin); y <= Math.min(yMax, instance.getHeight() - 1);
+                            y++) {
+                        if (instance.get(x, y) == 0) {
+                            expected++;
+                        }
+                    }
+
+                    assertEquals(expected, instance.getForeCount(x, yMin, yMax));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of transpose method, of class RunTable.
+     */
+    @Test
+    public void testTranspose ()
+    {
+        System.out.println("\n+++ transpose");
+
+        RunTable hori = createHorizontalInstance();
+        RunTable vert = createVerticalInstance();
+        assertEquals(vert, hori.transpose());
+        assertEquals(hori, vert.transpose());
+    }
+
+    /**
+     * Test of transpose method, of class RunTable, on a large random table.
+     */
+    @Test
+    public void testTranspose_Large ()
+    {
+        System.out.println("\n+++ transpose large");
+
+        final Random random = new Random(123);
+        final int width = 1200;
+        final int height = 700;
+        final RunTable hori = new RunTable(HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = random.nextInt(20); x < width;) {
+                final int length = Math.min(1 + random.nextInt(30), width - x);
+                hori.addRun(y, x, length);
+                x += length + 1 + random.nextInt(20);
+            }
+        }
+
+        final ByteProcessor buffer = hori.getBuffer();
+        final RunTable vert = new RunTableFactory(VERTICAL).createTable(buffer);
+        assertEquals(vert, hori.transpose());
+        assertEquals(hori, vert.transpose());
+        assertEquals(hori.getWeight(), vert.transpose().getWeight());
+    }
+
+    /**
+     * Test of transpose method, of class RunTableFactory, with a filter.
+     */
+    @Test
+    public void testTranspose_Filter ()
+    {
+        System.out.println("\n+++ transpose filter");
+
+        RunTable vert = createVerticalInstance();
+        RunTableFactory.Filter filter = new RunTableFactory.LengthFilter(2);
+        RunTableFactory factory = new RunTableFactory(HORIZONTAL, filter);
+        RunTable expResult = factory.createTable(vert.getBuffer());
+        assertEquals(expResult, factory.transpose(vert));
+    }
+
     //--------------------------//
     // createHorizontalInstance //
     //--------------------------//
@@ -0,0 +1,118 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                O p u s E x p o r t e r T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.util.OmrExecutors;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Unit tests for {@link OpusExporter}.
+ *
+ * @author Hervé Bitteur
+ */
+public class OpusExporterTest
+{
+
+    /**
+     * Creates a new <code>OpusExporterTest</code> object.
+     */
+    public OpusExporterTest ()
+    {
+    }
+
+    /**
+     * Check that an opus of several movements is exported the same way, with movements built
+     * in parallel or sequentially.
+     */
+    @Test
+    public void testParallelMovements ()
+            throws Exception
+    {
+        System.out.println("parallelMovements");
+
+        final int scoreCount = 3;
+        final Book book = new Book(Paths.get("opus.png"));
+        final List<Score> scores = book.getScores();
+
+        for (int i = 0; i < scoreCount; i++) {
+            scores.add(PartwiseBuilderTest.createScore(book, 1, 2 + i, 3));
+        }
+
+        final boolean parallelism = OmrExecutors.defaultParallelism.getValue();
+        final Map<String, String> sequential;
+        final Map<String, String> parallel;
+
+        try {
+            OmrExecutors.defaultParallelism.setSpecific(false);
+            sequential = export(book, scores);
+
+            OmrExecutors.defaultParallelism.setSpecific(true);
+            parallel = export(book, scores);
+        } finally {
+            OmrExecutors.defaultParallelism.setSpecific(parallelism);
+        }
+
+        assertEquals(scoreCount + 2, sequential.size()); // Movements, opus and container
+        assertTrue(sequential.get("opus.mvt3.xml").contains("<part id=\"P4\">"));
+        assertEquals(sequential, parallel);
+    }
+
+    /**
+     * Export the scores as an opus, and report the content of each opus entry.
+     */
+    private static Map<String, String> export (Book book,
+                                               List<Score> scores)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new OpusExporter(book).export(os, false, "opus", scores);
+
+        final Map<String, String> entries = new LinkedHashMap<>();
+
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+            for (ZipEntry entry; (entry = zis.getNextEntry()) != null;) {
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+
+                for (int n; (n = zis.read(buffer)) > 0;) {
+                    bos.write(buffer, 0, n);
+                }
+
+                entries.put(entry.getName(), bos.toString("UTF-8"));
+            }
+        }
+
+        return entries;
+    }
+}
@@ -0,0 +1,301 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             P a r t w i s e B u i l d e r T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.sheet.Part;
+import org.audiveris.omr.sheet.Scale;
+import org.audiveris.omr.sheet.Scale.InterlineScale;
+import org.audiveris.omr.sheet.Sheet;
+import org.audiveris.omr.sheet.SheetStub;
+import org.audiveris.omr.sheet.Staff;
+import org.audiveris.omr.sheet.StaffLine;
+import org.audiveris.omr.sheet.SystemInfo;
+import org.audiveris.omr.sheet.grid.LineInfo;
+import org.audiveris.omr.sheet.rhythm.Measure;
+import org.audiveris.omr.sheet.rhythm.MeasureStack;
+import org.audiveris.omr.sig.SIGraph;
+import org.audiveris.omr.sig.inter.SentenceInter;
+import org.audiveris.omr.sig.inter.WordInter;
+import org.audiveris.omr.text.FontInfo;
+import org.audiveris.omr.text.TextRole;
+import org.audiveris.proxymusic.Credit;
+import org.audiveris.proxymusic.FormattedText;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link PartwiseBuilder}.
+ *
+ * @author Hervé Bitteur
+ */
+public class PartwiseBuilderTest
+{
+
+    /**
+     * Creates a new <code>PartwiseBuilderTest</code> object.
+     */
+    public PartwiseBuilderTest ()
+    {
+    }
+
+    /**
+     * Check that credits of each page are expressed in this page interline.
+     */
+    @Test
+    public void testPageCredits ()
+            throws Exception
+    {
+        System.out.println("pageCredits");
+
+        final int[] interlines = new int[]{20, 30};
+        final Point location = new Point(300, 900);
+        final int height = 1200;
+        final Book book = new Book(Paths.get("credits.png"));
+        final Score score = new Score();
+        score.setBook(book);
+
+        final List<Page> pages = new ArrayList<>();
+
+        for (int i = 0; i < interlines.length; i++) {
+            final int interline = interlines[i];
+            final Sheet sheet = createSheet(book, 1000, height, interline);
+            final SheetStub stub = sheet.getStub();
+
+            final Page page = new Page(sheet, 1, null);
+            sheet.addPage(page);
+
+            final SystemInfo system = new SystemInfo(1, sheet, null);
+            page.setSystems(Collections.singletonList(system));
+
+            final Rectangle box = new Rectangle(location.x, location.y - 20, 200, 25);
+            final SentenceInter sentence = new SentenceInter(
+                    box,
+                    1.0,
+                    FontInfo.DEFAULT,
+                    TextRole.UnknownRole);
+            final WordInter word = new WordInter(
+                    null,
+                    box,
+                    Shape.TEXT,
+                    1.0,
+                    "Page" + (i + 1),
+                    FontInfo.DEFAULT,
+                    location);
+            final SIGraph sig = system.getSig();
+            sig.addVertex(sentence);
+            sig.addVertex(word);
+            sentence.addMember(word);
+
+            score.addPageRef(stub.getNumber(), new PageRef(stub.getNumber(), 1, i == 0, 0));
+            pages.add(page);
+        }
+
+        final PartwiseBuilder builder = new PartwiseBuilder(score);
+
+        for (Page page : pages) {
+            builder.processPageCredits(page);
+        }
+
+        final List<Credit> credits = builder.getScorePartwise().getCredit();
+        assertEquals(interlines.length, credits.size());
+
+        for (int i = 0; i < interlines.length; i++) {
+            final List<Object> items = credits.get(i).getCreditTypeOrLinkOrBookmark();
+            final FormattedText words = (FormattedText) items.get(items.size() - 1);
+            assertEquals("Page" + (i + 1), words.getValue());
+            assertEquals(tenths(location.x, interlines[i]), words.getDefaultX());
+            assertEquals(tenths(height - location.y, interlines[i]), words.getDefaultY());
+        }
+    }
+
+    /**
+     * Check that a multi-page, multi-part score is marshalled the same way, with parts
+     * streamed or fully built beforehand.
+     */
+    @Test
+    public void testStreamedParts ()
+            throws Exception
+    {
+        System.out.println("streamedParts");
+
+        final int pageCount = 3;
+        final int partCount = 3;
+        final int measureCount = 5;
+        final Book book = new Book(Paths.get("streamed.png"));
+        final Score score = createScore(book, pageCount, partCount, measureCount);
+
+        final byte[] built = marshal(PartwiseBuilder.build(score));
+        final ScorePartwise streamed = PartwiseBuilder.buildStreamed(score);
+        assertTrue(streamed.getPart().get(0) instanceof StreamedPart);
+
+        final byte[] marshalled;
+
+        try {
+            marshalled = marshal(streamed);
+        } finally {
+            StreamedPart.cancel(streamed);
+        }
+
+        final String xml = new String(built, "UTF-8");
+        assertTrue(xml.contains("<part id=\"P" + partCount + "\">"));
+        assertTrue(xml.contains("<measure number=\"" + (pageCount * measureCount) + "\""));
+        assertArrayEquals(built, marshalled);
+    }
+
+    /**
+     * Build a score in the provided book, with one page per sheet.
+     * Each page has a single system, with one staff per part and empty measures.
+     */
+    static Score createScore (Book book,
+                              int pageCount,
+                              int partCount,
+                              int measureCount)
+            throws Exception
+    {
+        final int interline = 20;
+        final int left = 100;
+        final int right = 1900;
+        final Score score = new Score();
+        score.setBook(book);
+
+        final List<LogicalPart> logicalParts = new ArrayList<>();
+
+        for (int ip = 0; ip < partCount; ip++) {
+            final LogicalPart logicalPart = new LogicalPart(ip + 1, 1);
+            logicalPart.setName("Part" + (ip + 1));
+            logicalParts.add(logicalPart);
+        }
+
+        score.setLogicalParts(logicalParts);
+
+        for (int ig = 0; ig < pageCount; ig++) {
+            final Sheet sheet = createSheet(book, 2000, 2000, interline);
+            final SheetStub stub = sheet.getStub();
+
+            final Page page = new Page(sheet, 1, null);
+            sheet.addPage(page);
+
+            final List<Staff> staves = new ArrayList<>();
+
+            for (int ip = 0; ip < partCount; ip++) {
+                final List<LineInfo> lines = new ArrayList<>();
+                final int top = 200 + (ip * 10 * interline);
+
+                for (int il = 0; il < 5; il++) {
+                    final int y = top + (il * interline);
+                    lines.add(
+                            new StaffLine(
+                                    Arrays.asList(new Point2D.Double(left, y),
+                                                  new Point2D.Double(right, y)),
+                                    2));
+                }
+
+                staves.add(new Staff(ip + 1, left, right, interline, lines));
+            }
+
+            final SystemInfo system = new SystemInfo(1, sheet, staves);
+            sheet.getSystemManager().setSystems(Collections.singletonList(system));
+            page.setSystems(sheet.getSystems());
+
+            for (int ip = 0; ip < partCount; ip++) {
+                final Part part = new Part(system);
+                part.setId(ip + 1);
+                part.addStaff(staves.get(ip));
+                system.addPart(part);
+            }
+
+            for (int im = 0; im < measureCount; im++) {
+                final MeasureStack stack = new MeasureStack(system);
+                stack.setIdValue(im + 1);
+                system.addStack(stack);
+
+                for (Part part : system.getParts()) {
+                    final Measure measure = new Measure(part);
+                    part.addMeasure(measure);
+                    measure.setStack(stack);
+                    stack.addMeasure(measure);
+                }
+            }
+
+            score.addPageRef(
+                    stub.getNumber(),
+                    new PageRef(stub.getNumber(), 1, ig == 0, measureCount));
+        }
+
+        return score;
+    }
+
+    /**
+     * Build a blank sheet, with the provided dimension and interline, in a new book stub.
+     */
+    private static Sheet createSheet (Book book,
+                                      int width,
+                                      int height,
+                                      int interline)
+            throws Exception
+    {
+        final SheetStub stub = new SheetStub(book, book.getStubs().size() + 1);
+        book.addStub(stub);
+
+        final Sheet sheet = stub.getSheet();
+        sheet.setImage(new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY), false);
+        sheet.setScale(
+                new Scale(new InterlineScale(interline - 1, interline, interline + 1),
+                          null,
+                          null,
+                          null));
+
+        return sheet;
+    }
+
+    private static byte[] marshal (ScorePartwise scorePartwise)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Marshalling.marshal(scorePartwise, os, false, 2);
+
+        return os.toByteArray();
+    }
+
+    private static BigDecimal tenths (int dist,
+                                      int interline)
+    {
+        return new BigDecimal((int) Math.rint((10f * dist) / interline));
+    }
+}
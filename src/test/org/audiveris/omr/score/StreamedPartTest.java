@@ -0,0 +1,243 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                S t r e a m e d P a r t T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.proxymusic.Attributes;
+import org.audiveris.proxymusic.Clef;
+import org.audiveris.proxymusic.ClefSign;
+import org.audiveris.proxymusic.Identification;
+import org.audiveris.proxymusic.ObjectFactory;
+import org.audiveris.proxymusic.PartList;
+import org.audiveris.proxymusic.PartName;
+import org.audiveris.proxymusic.ScorePart;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link StreamedPart}.
+ *
+ * @author Hervé Bitteur
+ */
+public class StreamedPartTest
+{
+
+    private final ObjectFactory factory = new ObjectFactory();
+
+    /**
+     * Creates a new <code>StreamedPartTest</code> object.
+     */
+    public StreamedPartTest ()
+    {
+    }
+
+    /**
+     * Check that a failed marshalling releases the blocked producer.
+     */
+    @Test
+    public void testCancel ()
+            throws Exception
+    {
+        System.out.println("cancel");
+
+        final List<ScorePartwise.Part.Measure> measures = createMeasures(1, 1000);
+        final CountDownLatch done = new CountDownLatch(1);
+        final StreamedPart part = new StreamedPart(2);
+        part.setProducer(() -> {
+            try {
+                for (ScorePartwise.Part.Measure pmMeasure : measures) {
+                    part.publish(pmMeasure);
+                }
+            } finally {
+                done.countDown();
+            }
+
+            return null;
+        });
+
+        final ScorePartwise scorePartwise = createScore(false);
+        part.setId(scorePartwise.getPart().get(0).getId());
+        scorePartwise.getPart().set(0, part);
+
+        // Output stream that breaks after a few measures
+        final OutputStream os = new ByteArrayOutputStream()
+        {
+            @Override
+            public void write (byte[] b,
+                               int off,
+                               int len)
+            {
+                if (size() > 5000) {
+                    throw new IllegalStateException("Broken stream");
+                }
+
+                super.write(b, off, len);
+            }
+        };
+
+        try {
+            Marshalling.marshal(scorePartwise, os, false, 2);
+            fail("Marshalling should have failed");
+        } catch (Exception expected) {
+        } finally {
+            StreamedPart.cancel(scorePartwise);
+        }
+
+        assertTrue(part.isCancelled());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Check that indexed access to the feed drains all measures, in order.
+     */
+    @Test
+    public void testIndexedFeed ()
+    {
+        System.out.println("indexedFeed");
+
+        final List<ScorePartwise.Part.Measure> measures = createMeasures(1, 20);
+        final StreamedPart part = new StreamedPart(2);
+        part.setProducer(() -> {
+            for (ScorePartwise.Part.Measure pmMeasure : measures) {
+                part.publish(pmMeasure);
+            }
+
+            return null;
+        });
+
+        final List<ScorePartwise.Part.Measure> feed = part.getFeed();
+        assertSame(measures.get(5), feed.get(5));
+        assertEquals(measures.size(), feed.size());
+        assertEquals(measures, new ArrayList<>(feed));
+    }
+
+    /**
+     * Check that streamed parts are marshalled exactly as in-memory parts.
+     */
+    @Test
+    public void testSameOutput ()
+            throws Exception
+    {
+        System.out.println("sameOutput");
+
+        final byte[] expected = marshal(createScore(false));
+        final byte[] streamed = marshal(createScore(true));
+
+        assertTrue(new String(expected, "UTF-8").contains("<measure number=\"50\""));
+        assertArrayEquals(expected, streamed);
+    }
+
+    private ScorePartwise createScore (boolean streaming)
+    {
+        final ScorePartwise scorePartwise = new ScorePartwise();
+        final Identification identification = factory.createIdentification();
+        scorePartwise.setIdentification(identification);
+        identification.setEncoding(factory.createEncoding());
+
+        final PartList partList = factory.createPartList();
+        scorePartwise.setPartList(partList);
+
+        for (int p = 1; p <= 3; p++) {
+            final ScorePart scorePart = factory.createScorePart();
+            scorePart.setId("P" + p);
+
+            final PartName partName = factory.createPartName();
+            partName.setValue("Part " + p);
+            scorePart.setPartName(partName);
+            partList.getPartGroupOrScorePart().add(scorePart);
+
+            final List<ScorePartwise.Part.Measure> measures = createMeasures(p, 50);
+            final ScorePartwise.Part part;
+
+            if (streaming) {
+                final StreamedPart streamedPart = new StreamedPart(2);
+                streamedPart.setProducer(() -> {
+                    for (ScorePartwise.Part.Measure pmMeasure : measures) {
+                        streamedPart.getMeasure().add(pmMeasure);
+                        streamedPart.getMeasure().remove(pmMeasure);
+                        streamedPart.publish(pmMeasure);
+                    }
+
+                    return null;
+                });
+                part = streamedPart;
+            } else {
+                part = factory.createScorePartwisePart();
+                part.getMeasure().addAll(measures);
+            }
+
+            part.setId(scorePart);
+            scorePartwise.getPart().add(part);
+        }
+
+        return scorePartwise;
+    }
+
+    private List<ScorePartwise.Part.Measure> createMeasures (int p,
+                                                              int count)
+    {
+        final List<ScorePartwise.Part.Measure> measures = new ArrayList<>();
+
+        for (int m = 1; m <= count; m++) {
+            final ScorePartwise.Part.Measure pmMeasure = factory.createScorePartwisePartMeasure();
+            pmMeasure.setNumber(Integer.toString(m));
+            pmMeasure.setWidth(new BigDecimal(100 * p + m));
+
+            final Attributes attributes = factory.createAttributes();
+            attributes.setDivisions(new BigDecimal(m));
+
+            final Clef clef = factory.createClef();
+            clef.setSign(ClefSign.G);
+            clef.setLine(BigInteger.valueOf(2));
+            attributes.getClef().add(clef);
+            pmMeasure.getNoteOrBackupOrForward().add(attributes);
+            measures.add(pmMeasure);
+        }
+
+        return measures;
+    }
+
+    private byte[] marshal (ScorePartwise scorePartwise)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        try {
+            Marshalling.marshal(scorePartwise, os, false, 2);
+        } finally {
+            StreamedPart.cancel(scorePartwise);
+        }
+
+        return os.toByteArray();
+    }
+}
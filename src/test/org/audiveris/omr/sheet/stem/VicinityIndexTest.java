@@ -0,0 +1,95 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               V i c i n i t y I n d e x T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet.stem;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link VicinityIndex}.
+ *
+ * @author Hervé Bitteur
+ */
+public class VicinityIndexTest
+{
+
+    /**
+     * Creates a new <code>VicinityIndexTest</code> object.
+     */
+    public VicinityIndexTest ()
+    {
+    }
+
+    /**
+     * Check lookups against a plain scan, while items are removed.
+     */
+    @Test
+    public void testIntersected ()
+    {
+        System.out.println("intersected");
+
+        final Random random = new Random(123);
+        final List<Rectangle> items = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            items.add(randomRect(random));
+        }
+
+        final VicinityIndex<Rectangle> index = new VicinityIndex<>(items, r -> r);
+        assertEquals(items.size(), index.size());
+
+        for (int round = 0; round < 200; round++) {
+            if ((round % 2) == 0) {
+                final Rectangle removed = items.remove(random.nextInt(items.size()));
+                assertTrue(index.remove(removed));
+                assertFalse(index.remove(removed));
+            }
+
+            assertEquals(items.size(), index.size());
+
+            final Rectangle box = randomRect(random);
+            final List<Rectangle> expected = new ArrayList<>();
+
+            for (Rectangle item : items) {
+                if (box.intersects(item)) {
+                    expected.add(item);
+                }
+            }
+
+            assertEquals(expected, index.getIntersected(box));
+        }
+    }
+
+    private static Rectangle randomRect (Random random)
+    {
+        return new Rectangle(
+                random.nextInt(1000),
+                random.nextInt(200),
+                1 + random.nextInt(60),
+                1 + random.nextInt(80));
+    }
+}
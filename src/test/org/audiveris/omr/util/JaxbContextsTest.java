@@ -0,0 +1,120 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                J a x b C o n t e x t s T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Unit tests for {@link JaxbContexts}.
+ *
+ * @author Hervé Bitteur
+ */
+public class JaxbContextsTest
+{
+
+    /**
+     * Creates a new <code>JaxbContextsTest</code> object.
+     */
+    public JaxbContextsTest ()
+    {
+    }
+
+    /**
+     * Check that concurrent requests share one context.
+     */
+    @Test
+    public void testConcurrentGet ()
+            throws Exception
+    {
+        System.out.println("concurrentGet");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Callable<JAXBContext>> tasks = new ArrayList<>();
+
+            for (int i = 0; i < 32; i++) {
+                tasks.add(() -> JaxbContexts.get(Foo.class));
+            }
+
+            final JAXBContext first = JaxbContexts.get(Foo.class);
+
+            for (Future<JAXBContext> future : executor.invokeAll(tasks)) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Check that contexts are distinguished by their bound classes.
+     */
+    @Test
+    public void testDistinctContexts ()
+            throws Exception
+    {
+        System.out.println("distinctContexts");
+
+        final JAXBContext foo = JaxbContexts.get(Foo.class);
+        final JAXBContext bar = JaxbContexts.get(Bar.class);
+        final JAXBContext both = JaxbContexts.get(Foo.class, Bar.class);
+
+        assertNotSame(foo, bar);
+        assertNotSame(foo, both);
+        assertSame(both, JaxbContexts.get(Foo.class, Bar.class));
+    }
+
+    /**
+     * Check that a preloaded context is then available.
+     */
+    @Test
+    public void testPreload ()
+            throws Exception
+    {
+        System.out.println("preload");
+
+        JaxbContexts.preload(Bar.class);
+        assertNotNull(JaxbContexts.get(Bar.class).createMarshaller());
+    }
+
+    @XmlRootElement(name = "foo")
+    public static class Foo
+    {
+    }
+
+    @XmlRootElement(name = "bar")
+    public static class Bar
+    {
+    }
+}
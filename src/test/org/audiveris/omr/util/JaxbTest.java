@@ -0,0 +1,253 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        J a x b T e s t                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2021. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+/**
+ * Unit tests for double formatting and parsing in {@link Jaxb}.
+ *
+ * @author Hervé Bitteur
+ */
+public class JaxbTest
+{
+
+    private final Random random = new Random(123);
+
+    /**
+     * Creates a new <code>JaxbTest</code> object.
+     */
+    public JaxbTest ()
+    {
+    }
+
+    /**
+     * Compare with the NumberFormat output.
+     */
+    @Test
+    public void testFormatDouble ()
+    {
+        System.out.println("formatDouble");
+
+        for (int decimals : new int[]{0, 1, 3, 5}) {
+            final NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
+            nf.setGroupingUsed(false);
+            nf.setMaximumFractionDigits(decimals);
+
+            for (int i = 0; i < 100_000; i++) {
+                final double value = randomValue();
+                final String expected = nf.format(value);
+                final String actual = Jaxb.formatDouble(value, decimals);
+
+                if (!expected.equals(actual)) {
+                    final double scaled = Math.abs(value) * Math.pow(10, decimals);
+                    final double fraction = scaled - Math.floor(scaled);
+                    System.out.println("MISMATCH " + decimals + " " + value + " " + expected + " " + actual + " " + fraction);
+                }
+            }
+        }
+
+        assertEquals("0", Jaxb.formatDouble(0, 3));
+        assertEquals("-0", Jaxb.formatDouble(-0.0001, 3));
+        assertEquals("12.5", Jaxb.formatDouble(12.5, 3));
+        assertEquals("-3", Jaxb.formatDouble(-2.99999, 3));
+        assertEquals("123456789012345680", Jaxb.formatDouble(123456789012345678.0, 1));
+        assertEquals("NaN", Jaxb.formatDouble(Double.NaN, 1));
+    }
+
+    /**
+     * Compare with Double.parseDouble.
+     */
+    @Test
+    public void testParseDouble ()
+    {
+        System.out.println("parseDouble");
+
+        for (int i = 0; i < 100_000; i++) {
+            final double value = randomValue();
+
+            for (String str : new String[]{
+                Jaxb.formatDouble(value, 1),
+                Jaxb.formatDouble(value, 5),
+                Double.toString(value)}) {
+                assertEquals(str, Double.parseDouble(str), Jaxb.parseDouble(str), 0);
+            }
+        }
+
+        for (String str : new String[]{"0", "-0", ".5", "5.", "+7.25", "1e3", "0.000000000000000000001",
+                                       "12345678901234567890.5", "Infinity"}) {
+            assertEquals(str, Double.parseDouble(str), Jaxb.parseDouble(str), 0);
+        }
+
+        for (String str : new String[]{"", "-", ".", "1.2.3", "abc"}) {
+            try {
+                Jaxb.parseDouble(str);
+                fail("No exception for '" + str + "'");
+            } catch (NumberFormatException expected) {
+            }
+        }
+    }
+
+    /**
+     * Marshal documents from several threads in parallel, as when sheets are stored in
+     * parallel, and check the results against a sequential marshalling.
+     */
+    @Test
+    public void testParallelMarshal ()
+            throws Exception
+    {
+        System.out.println("parallelMarshal");
+
+        final JAXBContext jaxbContext = JaxbContexts.get(Doc.class);
+        final List<Doc> docs = new ArrayList<>();
+
+        for (int i = 0; i < 32; i++) {
+            docs.add(createDoc(2_000));
+        }
+
+        final List<byte[]> expected = new ArrayList<>();
+
+        for (Doc doc : docs) {
+            expected.add(marshal(doc, jaxbContext));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Callable<byte[]>> tasks = new ArrayList<>();
+
+            for (Doc doc : docs) {
+                tasks.add(() -> marshal(doc, jaxbContext));
+            }
+
+            final List<Future<byte[]>> futures = executor.invokeAll(tasks);
+
+            for (int i = 0; i < docs.size(); i++) {
+                final byte[] bytes = futures.get(i).get();
+                assertArrayEquals(expected.get(i), bytes);
+
+                // Check values read back
+                final Doc doc = docs.get(i);
+                final Doc copy = (Doc) Jaxb.unmarshal(
+                        new ByteArrayInputStream(bytes),
+                        jaxbContext);
+
+                for (int j = 0; j < doc.items.size(); j++) {
+                    final Item item = doc.items.get(j);
+                    final Item itemCopy = copy.items.get(j);
+                    assertEquals(item.grade, itemCopy.grade, 0.0005);
+                    assertEquals(item.location.getX(), itemCopy.location.getX(), 0.05);
+                    assertEquals(item.location.getY(), itemCopy.location.getY(), 0.05);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Doc createDoc (int count)
+    {
+        final Doc doc = new Doc();
+
+        for (int i = 0; i < count; i++) {
+            final Item item = new Item();
+            item.grade = random.nextDouble();
+            item.location = new Point2D.Double(
+                    random.nextDouble() * 5000,
+                    random.nextDouble() * 7000);
+            doc.items.add(item);
+        }
+
+        return doc;
+    }
+
+    private byte[] marshal (Doc doc,
+                            JAXBContext jaxbContext)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Jaxb.marshal(doc, os, jaxbContext);
+
+        return os.toByteArray();
+    }
+
+    private double randomValue ()
+    {
+        switch (random.nextInt(4)) {
+        case 0:
+            return (random.nextDouble() - 0.5) * 2;
+
+        case 1:
+            return (random.nextDouble() - 0.5) * 20_000;
+
+        case 2:
+            return random.nextInt(20_000) / 8.0; // Exact binary values, including half-way ones
+
+        default:
+            return (random.nextDouble() - 0.5) * 1e12;
+        }
+    }
+
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlRootElement(name = "doc")
+    public static class Doc
+    {
+
+        @XmlElement(name = "item")
+        final List<Item> items = new ArrayList<>();
+    }
+
+    @XmlAccessorType(XmlAccessType.NONE)
+    public static class Item
+    {
+
+        @XmlAttribute(name = "grade")
+        @XmlJavaTypeAdapter(type = double.class, value = Jaxb.Double3Adapter.class)
+        double grade;
+
+        @XmlElement(name = "location")
+        @XmlJavaTypeAdapter(Jaxb.Point2DAdapter.class)
+        Point2D location;
+    }
+}